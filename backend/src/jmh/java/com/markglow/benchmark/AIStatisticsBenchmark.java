@@ -0,0 +1,292 @@
+package com.markglow.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.markglow.entity.AIUsageRecord;
+import com.markglow.entity.AIUsageRollup;
+import com.markglow.repository.AIUsageRecordRepository;
+import com.markglow.repository.AIUsageRollupRepository;
+import com.markglow.repository.UsageAggregateView;
+import com.markglow.repository.UsageRecordView;
+import com.markglow.service.AIStatisticsService;
+import com.markglow.service.UsageRollupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计聚合基准测试：AIStatisticsService 的汇总、按日/每次分组、每日统计与使用记录分页，
+ * 使用记录为最近 30 天内均匀分布的调用（action/provider/model 组合与实际业务一致）。
+ * Repository 替换为内存实现，返回数据库会返回的结果（小时/日汇总行、GROUP BY 后的分组行、一页记录，
+ * 每次查询返回新的列表，与 JPA 一致），只测应用层合并的开销
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main AIStatisticsBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIStatisticsBenchmark {
+
+    private static final String[] ACTIONS = {"beautify", "improve", "summarize", "translate", "expand", "generate"};
+
+    private static final String[][] MODELS = {
+            {"ernie", "ernie-4.5-turbo-128k"},
+            {"ernie", "ernie-4.5"},
+            {"qwen", "qwen-3-235b-a22b"}
+    };
+
+    /**
+     * 统计区间内的使用记录条数
+     */
+    @Param({"1000", "10000", "100000"})
+    private int records;
+
+    private AIStatisticsService statisticsService;
+
+    private LocalDateTime start;
+
+    private LocalDateTime end;
+
+    @Setup
+    public void setup() {
+        // 分组统计每次调用会输出多行 INFO 日志，这里只测聚合本身
+        ((Logger) LoggerFactory.getLogger(AIStatisticsService.class)).setLevel(Level.WARN);
+
+        end = LocalDateTime.now();
+        start = end.minusDays(30);
+        List<AIUsageRecord> usage = generate(records, start, end);
+        NavigableMap<LocalDateTime, List<AIUsageRollup>> hours = rollups(usage, "HOUR", ChronoUnit.HOURS);
+        NavigableMap<LocalDateTime, List<AIUsageRollup>> days = rollups(usage, "DAY", ChronoUnit.DAYS);
+        // 首尾不足一小时的部分在数据库中聚合，结果为最近一小时内的分组行
+        List<UsageAggregateView> partialHour = aggregate(usage, end.minusHours(1));
+        List<UsageRecordView> views = new ArrayList<>(usage.size());
+        for (AIUsageRecord record : usage) {
+            views.add(view(record));
+        }
+
+        AIUsageRollupRepository rollupRepository = BenchmarkSupport.repository(AIUsageRollupRepository.class, invocation -> {
+            if (!"findBuckets".equals(invocation.name())) {
+                return null;
+            }
+            NavigableMap<LocalDateTime, List<AIUsageRollup>> source = "DAY".equals(invocation.args[0]) ? days : hours;
+            List<AIUsageRollup> result = new ArrayList<>();
+            for (List<AIUsageRollup> bucket : source.subMap((LocalDateTime) invocation.args[1], true,
+                    (LocalDateTime) invocation.args[2], false).values()) {
+                result.addAll(bucket);
+            }
+            return result;
+        });
+        AIUsageRecordRepository repository = BenchmarkSupport.repository(AIUsageRecordRepository.class, invocation -> {
+            switch (invocation.name()) {
+                case "aggregateByCreatedAtRange":
+                case "aggregateByCreatedAtBefore":
+                    return new ArrayList<>(partialHour);
+                case "findRecordPage":
+                    Pageable page = (Pageable) invocation.args[2];
+                    int from = (int) Math.min(page.getOffset(), views.size());
+                    return new ArrayList<>(views.subList(from, Math.min(views.size(), from + page.getPageSize())));
+                case "countByDateRange":
+                    return (long) views.size();
+                default:
+                    return null;
+            }
+        });
+        UsageRollupService rollupService = new UsageRollupService();
+        BenchmarkSupport.inject(rollupService, "rollupRepository", rollupRepository);
+        BenchmarkSupport.inject(rollupService, "usageRecordRepository", repository);
+        statisticsService = new AIStatisticsService();
+        BenchmarkSupport.inject(statisticsService, "usageRecordRepository", repository);
+        BenchmarkSupport.inject(statisticsService, "rollupService", rollupService);
+    }
+
+    @Benchmark
+    public AIStatisticsService.StatisticsSummary summary() {
+        return statisticsService.getSummary("month");
+    }
+
+    @Benchmark
+    public AIStatisticsService.GroupedStatisticsPage groupedByDay() {
+        return statisticsService.getGroupedStatistics(start, end, "day", 0, null, 500);
+    }
+
+    @Benchmark
+    public AIStatisticsService.GroupedStatisticsPage groupedByEach() {
+        return statisticsService.getGroupedStatistics(start, end, "each", 0, null, 500);
+    }
+
+    @Benchmark
+    public AIStatisticsService.UsageRecordPage recordPage() {
+        return statisticsService.getUsageRecordPage(start, end, 0, null, 20);
+    }
+
+    @Benchmark
+    public List<AIStatisticsService.DailyStatistics> daily() {
+        return statisticsService.getDailyStatistics(start, end);
+    }
+
+    /**
+     * 生成按创建时间倒序的使用记录（与 findRecordPage 的 ORDER BY 一致）
+     */
+    private static List<AIUsageRecord> generate(int count, LocalDateTime start, LocalDateTime end) {
+        Random random = new Random(42);
+        long spanSeconds = Duration.between(start, end).getSeconds();
+        List<AIUsageRecord> usage = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] model = MODELS[random.nextInt(MODELS.length)];
+            AIUsageRecord record = new AIUsageRecord();
+            record.setId((long) (count - i));
+            record.setAction(ACTIONS[random.nextInt(ACTIONS.length)]);
+            record.setProvider(model[0]);
+            record.setModel(model[1]);
+            record.setInputTokens(200 + random.nextInt(4000));
+            record.setOutputTokens(100 + random.nextInt(3000));
+            record.setCost((record.getInputTokens() + record.getOutputTokens()) / 1000.0 * 0.012);
+            record.setDuration(500L + random.nextInt(20000));
+            record.setCreatedAt(end.minusSeconds(spanSeconds * i / count));
+            usage.add(record);
+        }
+        return usage;
+    }
+
+    /**
+     * 按时间段与 action/provider/model 合并的汇总行（与 UsageRollupService 写入的一致）
+     */
+    private static NavigableMap<LocalDateTime, List<AIUsageRollup>> rollups(List<AIUsageRecord> usage, String granularity,
+                                                                        ChronoUnit unit) {
+        Map<String, AIUsageRollup> merged = new LinkedHashMap<>();
+        for (AIUsageRecord record : usage) {
+            LocalDateTime bucketStart = record.getCreatedAt().truncatedTo(unit);
+            AIUsageRollup rollup = merged.computeIfAbsent(bucketStart + "|" + record.getAction() + "|" + record.getModel(), k -> {
+                AIUsageRollup created = new AIUsageRollup();
+                created.setGranularity(granularity);
+                created.setBucketStart(bucketStart);
+                created.setAction(record.getAction());
+                created.setProvider(record.getProvider());
+                created.setModel(record.getModel());
+                created.setCalls(0L);
+                created.setInputTokens(0L);
+                created.setOutputTokens(0L);
+                created.setCost(0.0);
+                created.setDuration(0L);
+                return created;
+            });
+            rollup.setCalls(rollup.getCalls() + 1);
+            rollup.setInputTokens(rollup.getInputTokens() + record.getInputTokens());
+            rollup.setOutputTokens(rollup.getOutputTokens() + record.getOutputTokens());
+            rollup.setCost(rollup.getCost() + record.getCost());
+            rollup.setDuration(rollup.getDuration() + record.getDuration());
+        }
+        NavigableMap<LocalDateTime, List<AIUsageRollup>> buckets = new TreeMap<>();
+        for (AIUsageRollup rollup : merged.values()) {
+            buckets.computeIfAbsent(rollup.getBucketStart(), k -> new ArrayList<>()).add(rollup);
+        }
+        return buckets;
+    }
+
+    /**
+     * from 之后的记录按 action/provider/model 分组的结果
+     */
+    private static List<UsageAggregateView> aggregate(List<AIUsageRecord> usage, LocalDateTime from) {
+        List<AIUsageRecord> recent = new ArrayList<>();
+        for (AIUsageRecord record : usage) {
+            if (!record.getCreatedAt().isBefore(from)) {
+                recent.add(record);
+            }
+        }
+        List<UsageAggregateView> rows = new ArrayList<>();
+        for (List<AIUsageRollup> bucket : rollups(recent, "DAY", ChronoUnit.DAYS).values()) {
+            for (AIUsageRollup rollup : bucket) {
+                rows.add(new UsageAggregateView() {
+                    @Override
+                    public String getAction() { return rollup.getAction(); }
+
+                    @Override
+                    public String getProvider() { return rollup.getProvider(); }
+
+                    @Override
+                    public String getModel() { return rollup.getModel(); }
+
+                    @Override
+                    public long getCalls() { return rollup.getCalls(); }
+
+                    @Override
+                    public long getInputTokens() { return rollup.getInputTokens(); }
+
+                    @Override
+                    public long getOutputTokens() { return rollup.getOutputTokens(); }
+
+                    @Override
+                    public double getCost() { return rollup.getCost(); }
+
+                    @Override
+                    public long getDuration() { return rollup.getDuration(); }
+                });
+            }
+        }
+        return rows;
+    }
+
+    private static UsageRecordView view(AIUsageRecord record) {
+        return new UsageRecordView() {
+            @Override
+            public Long getId() { return record.getId(); }
+
+            @Override
+            public String getAction() { return record.getAction(); }
+
+            @Override
+            public String getProvider() { return record.getProvider(); }
+
+            @Override
+            public String getModel() { return record.getModel(); }
+
+            @Override
+            public Integer getInputTokens() { return record.getInputTokens(); }
+
+            @Override
+            public Integer getOutputTokens() { return record.getOutputTokens(); }
+
+            @Override
+            public Double getCost() { return record.getCost(); }
+
+            @Override
+            public Long getDuration() { return record.getDuration(); }
+
+            @Override
+            public Long getFirstTokenLatency() { return record.getFirstTokenLatency(); }
+
+            @Override
+            public Double getTokensPerSecond() { return record.getTokensPerSecond(); }
+
+            @Override
+            public LocalDateTime getCreatedAt() { return record.getCreatedAt(); }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.markglow.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.markglow.config.AnalysisConfig;
+import com.markglow.repository.DocumentContentView;
+import com.markglow.repository.DocumentRepository;
+import com.markglow.service.BatchAnalysisService;
+import com.markglow.service.DocumentAnalysisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分析基准测试：BatchAnalysisService 分析内存中 10000 篇文档（1KB/64KB 混合）的总耗时，
+ * 对比单线程与多线程分析（并行收益取决于运行机器的CPU核数）
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main BatchAnalysisBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchAnalysisBenchmark {
+
+    private static final int DOCUMENTS = 10000;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private BatchAnalysisService batchService;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger(BatchAnalysisService.class)).setLevel(Level.WARN);
+        String small = MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_1KB));
+        String large = MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_64KB));
+        List<DocumentContentView> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 1; i <= DOCUMENTS; i++) {
+            documents.add(view((long) i, "文档 " + i, i % 20 == 0 ? large : small));
+        }
+        DocumentRepository repository = BenchmarkSupport.repository(DocumentRepository.class, invocation -> {
+            if (!invocation.name().equals("findContentPage")) {
+                return null;
+            }
+            // 主键与下标一一对应：afterId 之后的一页
+            int from = ((Long) invocation.args[0]).intValue();
+            int size = ((Pageable) invocation.args[1]).getPageSize();
+            return new ArrayList<>(documents.subList(Math.min(from, DOCUMENTS), Math.min(from + size, DOCUMENTS)));
+        });
+        AnalysisConfig config = new AnalysisConfig();
+        config.getBatch().setParallelism(parallelism);
+        batchService = new BatchAnalysisService();
+        BenchmarkSupport.inject(batchService, "documentRepository", repository);
+        BenchmarkSupport.inject(batchService, "analysisService", new DocumentAnalysisService());
+        BenchmarkSupport.inject(batchService, "analysisConfig", config);
+        batchService.init();
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Benchmark
+    public BatchAnalysisService.CorpusSummary analyzeAll(Blackhole blackhole) throws IOException {
+        return batchService.analyzeAll(blackhole::consume);
+    }
+
+    private static DocumentContentView view(Long id, String title, String content) {
+        return new DocumentContentView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public String getTitle() { return title; }
+
+            @Override
+            public String getContent() { return content; }
+        };
+    }
+}
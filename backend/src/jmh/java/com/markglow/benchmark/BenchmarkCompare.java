@@ -0,0 +1,127 @@
+package com.markglow.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次 JMH 运行的 JSON 结果（-rf json），逐项输出耗时与每次调用内存分配（需 -prof gc）的变化，
+ * 变化超过阈值且超出两次结果误差范围的记为回退，存在回退时以退出码 1 结束，便于在发布前检查
+ *
+ * 使用方法：
+ * java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) com.markglow.benchmark.BenchmarkCompare \
+ *     jmh-results/jmh-1.0.0.json jmh-results/jmh-1.1.0.json [--threshold=10]
+ */
+public class BenchmarkCompare {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BenchmarkCompare <基线结果.json> <当前结果.json> [--threshold=百分比]");
+            System.exit(2);
+        }
+        double threshold = 10.0;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--threshold=")) {
+                threshold = Double.parseDouble(args[i].substring("--threshold=".length()));
+            }
+        }
+        Map<String, JSONObject> baseline = load(args[0]);
+        Map<String, JSONObject> current = load(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %16s %16s %9s%n", "基准", "基线", "当前", "变化");
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject before = baseline.get(entry.getKey());
+            JSONObject after = entry.getValue();
+            JSONObject metric = after.getJSONObject("primaryMetric");
+            if (before == null) {
+                System.out.printf("%-70s %16s %16s %9s%n", entry.getKey(), "-", format(metric), "新增");
+                continue;
+            }
+            JSONObject baseMetric = before.getJSONObject("primaryMetric");
+            double change = change(baseMetric.getDoubleValue("score"), metric.getDoubleValue("score"));
+            // 吞吐量模式下数值越大越好，其余模式（耗时）越小越好
+            boolean higherIsBetter = "thrpt".equals(after.getString("mode"));
+            double worse = higherIsBetter ? -change : change;
+            double noise = (error(baseMetric) + error(metric)) * 100.0 / Math.max(baseMetric.getDoubleValue("score"), Double.MIN_VALUE);
+            boolean regressed = worse > threshold && worse > noise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %16s %16s %+8.1f%%%s%n", entry.getKey(), format(baseMetric), format(metric), change,
+                    regressed ? "  回退" : "");
+
+            JSONObject baseAlloc = secondary(before, ALLOC_METRIC);
+            JSONObject alloc = secondary(after, ALLOC_METRIC);
+            if (baseAlloc != null && alloc != null) {
+                double allocChange = change(baseAlloc.getDoubleValue("score"), alloc.getDoubleValue("score"));
+                boolean allocRegressed = allocChange > threshold;
+                if (allocRegressed) {
+                    regressions++;
+                }
+                System.out.printf("%-70s %16s %16s %+8.1f%%%s%n", "  └ 内存分配", format(baseAlloc), format(alloc), allocChange,
+                        allocRegressed ? "  回退" : "");
+            }
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-70s %16s %16s %9s%n", key, format(baseline.get(key).getJSONObject("primaryMetric")), "-", "已移除");
+            }
+        }
+        System.out.printf("%n共 %d 项，回退 %d 项（阈值 %.1f%%）%n", current.size(), regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 读取 JMH JSON 结果，以“基准方法 + 参数”为键
+     */
+    private static Map<String, JSONObject> load(String path) throws IOException {
+        JSONArray results = JSON.parseArray(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        Map<String, JSONObject> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            String benchmark = result.getString("benchmark");
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+            JSONObject params = result.getJSONObject("params");
+            if (params != null) {
+                new TreeMap<>(params).forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            byKey.put(key.toString(), result);
+        }
+        return byKey;
+    }
+
+    private static JSONObject secondary(JSONObject result, String name) {
+        JSONObject metrics = result.getJSONObject("secondaryMetrics");
+        if (metrics == null) {
+            return null;
+        }
+        // JMH 1.37 之前的版本在指标名前带有“·”
+        return metrics.containsKey(name) ? metrics.getJSONObject(name) : metrics.getJSONObject("·" + name);
+    }
+
+    private static double error(JSONObject metric) {
+        double error = metric.getDoubleValue("scoreError");
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100.0 / before;
+    }
+
+    private static String format(JSONObject metric) {
+        return String.format("%.3f %s", metric.getDoubleValue("score"), metric.getString("scoreUnit"));
+    }
+}
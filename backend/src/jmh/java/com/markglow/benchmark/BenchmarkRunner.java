@@ -0,0 +1,28 @@
+package com.markglow.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 运行 JMH 并把结果以 JSON 格式写入指定文件（mvn -Pjmh test 的入口），
+ * 第一个参数为结果文件路径，其余参数原样传给 org.openjdk.jmh.Main（基准名正则、-prof gc 等）
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("用法: BenchmarkRunner <结果文件.json> [JMH 参数...]");
+            System.exit(2);
+        }
+        File results = new File(args[0]).getAbsoluteFile();
+        if (!results.getParentFile().isDirectory() && !results.getParentFile().mkdirs()) {
+            throw new IllegalStateException("无法创建结果目录: " + results.getParent());
+        }
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList("-rf", "json", "-rff", results.getPath()));
+        jmhArgs.addAll(Arrays.asList(args).subList(1, args.length));
+        System.out.println("JMH 结果将保存到: " + results.getPath());
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,60 @@
+package com.markglow.benchmark;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+/**
+ * 基准测试辅助方法：不启动 Spring 容器，直接构造服务并注入内存中的 Repository 替身
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 创建 Repository 接口的替身：按方法名交给 handler 处理，未处理的方法（返回 null）调用时抛出异常，避免静默返回空结果
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Function<Invocation, Object> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(type.getName(), args);
+            }
+            Object result = handler.apply(new Invocation(method, args));
+            if (result == null) {
+                throw new UnsupportedOperationException("基准测试未模拟该方法: " + method);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 为 @Autowired 字段赋值
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getName() + " 没有字段: " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    static final class Invocation {
+        final Method method;
+        final Object[] args;
+
+        Invocation(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+
+        String name() {
+            return method.getName();
+        }
+    }
+}
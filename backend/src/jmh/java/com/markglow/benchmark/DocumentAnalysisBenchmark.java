@@ -0,0 +1,63 @@
+package com.markglow.benchmark;
+
+import com.markglow.service.DocumentAnalysisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档分析基准测试：DocumentAnalysisService.analyzeDocument 对 1KB ~ 10MB 的 Markdown 文档做字数统计与复杂度分析，
+ * 对比旧的正则实现（LegacyDocumentAnalysis）与 MarkdownScanner 单遍扫描
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main DocumentAnalysisBenchmark -prof gc
+ *    （或 mvn -Pjmh test -Djmh.args=DocumentAnalysisBenchmark，结果以 JSON 保存到 jmh-results 目录）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentAnalysisBenchmark {
+
+    @Param({MarkdownCorpus.SIZE_1KB, MarkdownCorpus.SIZE_64KB, MarkdownCorpus.SIZE_1MB, MarkdownCorpus.SIZE_10MB})
+    private int size;
+
+    private String document;
+
+    private DocumentAnalysisService analysisService;
+
+    private LegacyDocumentAnalysis legacyAnalysis;
+
+    @Setup
+    public void setup() {
+        document = MarkdownCorpus.generate(size);
+        analysisService = new DocumentAnalysisService();
+        legacyAnalysis = new LegacyDocumentAnalysis();
+    }
+
+    /**
+     * 旧实现：6 次 replaceAll 加 5 个 Matcher 与 split，多次完整遍历并复制文档
+     */
+    @Benchmark
+    public DocumentAnalysisService.AnalysisResult legacyRegex() {
+        return legacyAnalysis.analyzeDocument(document);
+    }
+
+    @Benchmark
+    public DocumentAnalysisService.AnalysisResult analyzeDocument() {
+        return analysisService.analyzeDocument(document);
+    }
+}
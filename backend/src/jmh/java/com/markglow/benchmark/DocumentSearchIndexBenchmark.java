@@ -0,0 +1,53 @@
+package com.markglow.benchmark;
+
+import com.markglow.service.DocumentSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档搜索基准测试：DocumentSearchIndex.search 在 1000 ~ 10 万篇随机生成的中英文文档（SearchCorpus）上取第一页 20 条，
+ * 查询耗时应基本不随文档总量增长；含少见词的查询耗时取决于其倒排表长度。结果正确性见 DocumentSearchIndexTest
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main DocumentSearchIndexBenchmark
+ *    （查询参数含中文，默认编码不是 UTF-8 时加 -Dfile.encoding=UTF-8 -jvmArgs -Dfile.encoding=UTF-8）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentSearchIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int documents;
+
+    @Param({"性能优化", "cache latency", "文档 render", "zephyr", "量子 theme"})
+    private String query;
+
+    private DocumentSearchIndex index;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        index = SearchCorpus.build(SearchCorpus.generate(new Random(documents), documents, 2000));
+    }
+
+    @Benchmark
+    public DocumentSearchIndex.SearchResult search() {
+        return index.search(query, 0, 20);
+    }
+}
@@ -0,0 +1,166 @@
+package com.markglow.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.markglow.service.ai.impl.ErnieStreamParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ERNIE 流式响应解析基准测试：按千帆 v2 接口的 chat.completion.chunk 格式录制的响应
+ * （每个 data: 行一个增量，结尾为完整 message、usage 与 [DONE]），按 8KB 分块读取后解析，
+ * 对比旧实现（readLine + JSON.parseObject + buffer.toString().contains 去重）与 ErnieStreamParser
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main ErnieStreamBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErnieStreamBenchmark {
+
+    /**
+     * 生成内容的大小（UTF-8 字节）
+     */
+    @Param({MarkdownCorpus.SIZE_1KB, MarkdownCorpus.SIZE_64KB})
+    private int size;
+
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        stream = record(MarkdownCorpus.generate(size));
+    }
+
+    @Benchmark
+    public String legacyFastjson(Blackhole blackhole) throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || !line.startsWith("data:")) {
+                continue;
+            }
+            String payload = line.substring(5).trim();
+            if ("[DONE]".equalsIgnoreCase(payload)) {
+                break;
+            }
+            JSONObject chunk = JSON.parseObject(payload);
+            blackhole.consume(chunk.getJSONObject("usage"));
+            if (!chunk.containsKey("choices")) {
+                continue;
+            }
+            for (int i = 0; i < chunk.getJSONArray("choices").size(); i++) {
+                JSONObject choice = chunk.getJSONArray("choices").getJSONObject(i);
+                JSONObject delta = choice.getJSONObject("delta");
+                if (delta != null) {
+                    String deltaContent = delta.getString("content");
+                    if (deltaContent != null && !deltaContent.isEmpty()) {
+                        buffer.append(deltaContent);
+                        blackhole.consume(deltaContent);
+                    }
+                }
+                JSONObject messageObj = choice.getJSONObject("message");
+                if (messageObj != null) {
+                    String messageContent = messageObj.getString("content");
+                    if (messageContent != null && !messageContent.isEmpty()
+                            && !buffer.toString().contains(messageContent)) {
+                        buffer.append(messageContent);
+                        blackhole.consume(messageContent);
+                    }
+                }
+            }
+        }
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String streamParser(Blackhole blackhole) throws IOException {
+        ErnieStreamParser parser = new ErnieStreamParser(blackhole::consume);
+        InputStream input = new ByteArrayInputStream(stream);
+        byte[] readBuffer = new byte[8192];
+        int read;
+        while (!parser.isFinished() && (read = input.read(readBuffer)) != -1) {
+            parser.feed(readBuffer, 0, read);
+        }
+        parser.finish();
+        blackhole.consume(parser.getPromptTokens());
+        return parser.getContent();
+    }
+
+    /**
+     * 把内容按 1~7 个字符一个增量录制成 ERNIE 流式响应
+     */
+    static byte[] record(String content) {
+        StringBuilder out = new StringBuilder(content.length() * 8);
+        int[] lengths = {2, 5, 3, 7, 1, 4};
+        int sequence = 0;
+        for (int pos = 0; pos < content.length(); sequence++) {
+            int end = Math.min(content.length(), pos + lengths[sequence % lengths.length]);
+            if (Character.isHighSurrogate(content.charAt(end - 1)) && end < content.length()) {
+                end++;
+            }
+            out.append("data: ").append(chunk(sequence, "delta", content.substring(pos, end), null)).append("\n\n");
+            pos = end;
+        }
+        out.append("data: ").append(chunk(sequence, "message", content, "stop")).append("\n\n");
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("prompt_tokens", 1024);
+        usage.put("completion_tokens", sequence);
+        usage.put("total_tokens", 1024 + sequence);
+        Map<String, Object> last = new LinkedHashMap<>();
+        last.put("id", "as-bcmt5ct4iy");
+        last.put("object", "chat.completion.chunk");
+        last.put("created", 1709716601);
+        last.put("model", "ernie-4.5-turbo-128k");
+        last.put("choices", Collections.emptyList());
+        last.put("usage", usage);
+        out.append("data: ").append(JSON.toJSONString(last)).append("\n\n");
+        out.append("data: [DONE]\n\n");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String chunk(int sequence, String field, String text, String finishReason) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("role", "assistant");
+        body.put("content", text);
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put(field, body);
+        choice.put("finish_reason", finishReason);
+        choice.put("flag", 0);
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("id", "as-bcmt5ct4iy");
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", 1709716601 + sequence / 50);
+        chunk.put("model", "ernie-4.5-turbo-128k");
+        chunk.put("choices", Collections.singletonList(choice));
+        return JSON.toJSONString(chunk);
+    }
+}
@@ -0,0 +1,81 @@
+package com.markglow.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.markglow.config.AnalysisConfig;
+import com.markglow.service.DocumentAnalysisService;
+import com.markglow.service.IncrementalAnalysisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 增量分析基准测试：模拟编辑器中间位置的输入，对比每次提交完整内容重新分析（fullAnalysis）
+ * 与 IncrementalAnalysisService 只重新扫描受影响块（incrementalEdit）的耗时。
+ * 每次调用在文档中部插入并随后删除一个字符，共两次编辑，文档内容保持不变
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main IncrementalAnalysisBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalAnalysisBenchmark {
+
+    @Param({MarkdownCorpus.SIZE_64KB, MarkdownCorpus.SIZE_1MB, MarkdownCorpus.SIZE_10MB})
+    private int size;
+
+    private String document;
+
+    private String edited;
+
+    private int offset;
+
+    private DocumentAnalysisService analysisService;
+
+    private IncrementalAnalysisService incrementalService;
+
+    private String version;
+
+    @Setup
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger(IncrementalAnalysisService.class)).setLevel(Level.WARN);
+        document = MarkdownCorpus.generate(size);
+        offset = document.length() / 2;
+        edited = new StringBuilder(document).insert(offset, 'x').toString();
+        analysisService = new DocumentAnalysisService();
+        incrementalService = new IncrementalAnalysisService();
+        BenchmarkSupport.inject(incrementalService, "analysisService", analysisService);
+        BenchmarkSupport.inject(incrementalService, "analysisConfig", new AnalysisConfig());
+        version = incrementalService.start(document).getVersion();
+    }
+
+    @Benchmark
+    public DocumentAnalysisService.AnalysisResult fullAnalysis() {
+        analysisService.analyzeDocument(edited);
+        return analysisService.analyzeDocument(document);
+    }
+
+    @Benchmark
+    public IncrementalAnalysisService.IncrementalResult incrementalEdit() {
+        version = incrementalService.applyEdit(version, offset, 0, "x").getVersion();
+        IncrementalAnalysisService.IncrementalResult result = incrementalService.applyEdit(version, offset, 1, "");
+        version = result.getVersion();
+        return result;
+    }
+}
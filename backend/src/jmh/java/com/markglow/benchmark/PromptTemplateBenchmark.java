@@ -0,0 +1,78 @@
+package com.markglow.benchmark;
+
+import com.markglow.dto.TemplateRenderRequest;
+import com.markglow.entity.PromptTemplate;
+import com.markglow.repository.PromptTemplateRepository;
+import com.markglow.service.PromptTemplateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板渲染基准测试：PromptTemplateService.renderTemplate 以 1KB ~ 10MB 的 Markdown 文档作为 {{content}} 变量值，
+ * 模板结构与 init-templates.sql 中的内置模板一致（同一变量出现多次）。Repository 替换为内存实现，只测渲染本身
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main PromptTemplateBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptTemplateBenchmark {
+
+    private static final String TEMPLATE = "请帮我优化以下{{docType}}，使其更适合{{audience}}阅读。\n\n"
+            + "要求：\n1. 保持原有的 Markdown 结构\n2. 语气：{{tone}}\n3. 修正错别字与不通顺的句子\n"
+            + "4. 为{{audience}}补充必要的背景说明\n\n{{docType}}内容：\n\n{{ content }}\n\n"
+            + "请直接输出优化后的{{docType}}，不要添加额外说明。";
+
+    @Param({MarkdownCorpus.SIZE_1KB, MarkdownCorpus.SIZE_64KB, MarkdownCorpus.SIZE_1MB, MarkdownCorpus.SIZE_10MB})
+    private int size;
+
+    private PromptTemplateService templateService;
+
+    private TemplateRenderRequest request;
+
+    @Setup
+    public void setup() {
+        PromptTemplate template = new PromptTemplate();
+        template.setId(1L);
+        template.setName("文档优化");
+        template.setContent(TEMPLATE);
+        PromptTemplateRepository repository = BenchmarkSupport.repository(PromptTemplateRepository.class,
+                invocation -> "findById".equals(invocation.name()) ? Optional.of(template) : null);
+        templateService = new PromptTemplateService();
+        BenchmarkSupport.inject(templateService, "templateRepository", repository);
+
+        Map<String, String> variables = new HashMap<>();
+        variables.put("docType", "技术文档");
+        variables.put("audience", "刚入职的开发者");
+        variables.put("tone", "专业、简洁");
+        // 文档中的 $ 与 \ 也要原样保留
+        variables.put("content", MarkdownCorpus.generate(size) + "\n价格为 $100，路径 C:\\markglow");
+        request = new TemplateRenderRequest();
+        request.setTemplateId(1L);
+        request.setVariables(variables);
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return templateService.renderTemplate(request);
+    }
+}
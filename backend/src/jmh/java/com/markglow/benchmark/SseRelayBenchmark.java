@@ -0,0 +1,114 @@
+package com.markglow.benchmark;
+
+import com.markglow.service.ai.SseChunkRelay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE chunk 转发基准测试：一次流式响应（1KB / 64KB，按几个字符一个增量切分）转发给前端的开销，
+ * 对比旧的逐块 5 次 replace 加引号、单次遍历转义逐块发送、以及合并小增量后发送（均包含每帧的写出开销）
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main SseRelayBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseRelayBenchmark {
+
+    @Param({MarkdownCorpus.SIZE_1KB, MarkdownCorpus.SIZE_64KB})
+    private int size;
+
+    private List<String> deltas;
+
+    private ScheduledExecutorService scheduler;
+
+    @Setup
+    public void setup() {
+        String document = MarkdownCorpus.generate(size);
+        deltas = new ArrayList<>();
+        // 上游增量通常只有一两个 token
+        int[] lengths = {2, 5, 3, 7, 1, 4};
+        for (int pos = 0, i = 0; pos < document.length(); i++) {
+            int end = Math.min(document.length(), pos + lengths[i % lengths.length]);
+            deltas.add(document.substring(pos, end));
+            pos = end;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 旧实现：每个增量 5 次 replace 后加引号，单独成帧
+     */
+    @Benchmark
+    public void legacyReplace(Blackhole blackhole) {
+        for (String chunk : deltas) {
+            String encodedChunk = chunk
+                    .replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n")
+                    .replace("\r", "\\r")
+                    .replace("\t", "\\t");
+            encodedChunk = "\"" + encodedChunk + "\"";
+            blackhole.consume(writeFrame(encodedChunk));
+        }
+    }
+
+    /**
+     * 单次遍历转义，每个增量单独成帧（flush-chars=0）
+     */
+    @Benchmark
+    public void relayPerDelta(Blackhole blackhole) {
+        SseChunkRelay relay = new SseChunkRelay(data -> blackhole.consume(writeFrame(data)), null, 0, 0);
+        for (String chunk : deltas) {
+            relay.accept(chunk);
+        }
+        relay.close();
+    }
+
+    /**
+     * 单次遍历转义并按默认策略合并（50ms / 1024 字符）
+     */
+    @Benchmark
+    public void relayCoalesced(Blackhole blackhole) {
+        SseChunkRelay relay = new SseChunkRelay(data -> blackhole.consume(writeFrame(data)), scheduler, 50, 1024);
+        for (String chunk : deltas) {
+            relay.accept(chunk);
+        }
+        relay.close();
+    }
+
+    /**
+     * 模拟每帧的最小写出开销：拼成 SSE 事件文本并按 UTF-8 编码（实际还有 SseEmitter 的事件构建与 flush）
+     */
+    private static byte[] writeFrame(String data) {
+        return ("event:chunk\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package com.markglow.benchmark;
+
+import com.markglow.service.ai.TokenCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenCounter 基准测试：统计中英混合 Markdown 文档的 token 数，目标为 1MB 文档在几毫秒内完成
+ *
+ * 使用方法：
+ * 1. mvn -Pjmh test-compile dependency:build-classpath -Dmdep.outputFile=target/jmh-cp.txt -Dmdep.includeScope=test
+ * 2. java -cp target/classes:target/test-classes:$(cat target/jmh-cp.txt) org.openjdk.jmh.Main TokenCounterBenchmark
+ *    （加 -prof gc 可查看每次调用的内存分配）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCounterBenchmark {
+
+    @Param({MarkdownCorpus.SIZE_1KB, MarkdownCorpus.SIZE_64KB, MarkdownCorpus.SIZE_1MB, MarkdownCorpus.SIZE_10MB})
+    private int size;
+
+    private String document;
+
+    @Setup
+    public void setup() {
+        document = MarkdownCorpus.generate(size);
+    }
+
+    @Benchmark
+    public int count() {
+        return TokenCounter.count(document);
+    }
+
+    /**
+     * 旧的估算方式（字符数/2），作为对照
+     */
+    @Benchmark
+    public int lengthHalf() {
+        return (int) (document.length() / 2.0);
+    }
+}
@@ -3,10 +3,19 @@ package com.markglow.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "ai")
 public class AIConfig {
     private ErnieConfig ernie;
+    private HttpConfig http = new HttpConfig();
+    private StreamConfig stream = new StreamConfig();
+    private CacheConfig cache = new CacheConfig();
+    private ChunkingConfig chunking = new ChunkingConfig();
+    private TokenConfig tokens = new TokenConfig();
+    private UsageConfig usage = new UsageConfig();
 
     public ErnieConfig getErnie() {
         return ernie;
@@ -16,6 +25,54 @@ public class AIConfig {
         this.ernie = ernie;
     }
 
+    public HttpConfig getHttp() {
+        return http;
+    }
+
+    public void setHttp(HttpConfig http) {
+        this.http = http;
+    }
+
+    public StreamConfig getStream() {
+        return stream;
+    }
+
+    public void setStream(StreamConfig stream) {
+        this.stream = stream;
+    }
+
+    public CacheConfig getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheConfig cache) {
+        this.cache = cache;
+    }
+
+    public ChunkingConfig getChunking() {
+        return chunking;
+    }
+
+    public void setChunking(ChunkingConfig chunking) {
+        this.chunking = chunking;
+    }
+
+    public TokenConfig getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(TokenConfig tokens) {
+        this.tokens = tokens;
+    }
+
+    public UsageConfig getUsage() {
+        return usage;
+    }
+
+    public void setUsage(UsageConfig usage) {
+        this.usage = usage;
+    }
+
     public static class ErnieConfig {
         private String apiKey;
         private String appId;
@@ -93,5 +150,364 @@ public class AIConfig {
             this.apiUrl = apiUrl;
         }
     }
-}
 
+    /**
+     * 调用AI接口使用的HTTP连接池配置（时间单位：毫秒）
+     */
+    public static class HttpConfig {
+        private int maxTotal = 200;
+        private int maxPerRoute = 200;
+        private int connectTimeout = 5000;
+        private int socketTimeout = 120000;
+        private int connectionRequestTimeout = 3000;
+        private long keepAlive = 30000;
+        private long idleEvict = 60000;
+        private int validateAfterInactivity = 2000;
+        private int virtualThreadMaxPerRoute = 1000;
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public void setMaxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public int getSocketTimeout() {
+            return socketTimeout;
+        }
+
+        public void setSocketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+        }
+
+        public int getConnectionRequestTimeout() {
+            return connectionRequestTimeout;
+        }
+
+        public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+        }
+
+        public long getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(long keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public long getIdleEvict() {
+            return idleEvict;
+        }
+
+        public void setIdleEvict(long idleEvict) {
+            this.idleEvict = idleEvict;
+        }
+
+        public int getValidateAfterInactivity() {
+            return validateAfterInactivity;
+        }
+
+        public void setValidateAfterInactivity(int validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+        }
+
+        public int getVirtualThreadMaxPerRoute() {
+            return virtualThreadMaxPerRoute;
+        }
+
+        public void setVirtualThreadMaxPerRoute(int virtualThreadMaxPerRoute) {
+            this.virtualThreadMaxPerRoute = virtualThreadMaxPerRoute;
+        }
+    }
+
+    /**
+     * SSE流式请求的并发控制与chunk合并发送配置
+     */
+    public static class StreamConfig {
+        private int maxActive = 48;
+        private int maxQueued = 128;
+        private int corePoolSize = 4;
+        private int maxPoolSize = 16;
+        private int taskQueueCapacity = 512;
+        private long flushIntervalMs = 50;
+        private int flushChars = 1024;
+
+        public int getMaxActive() {
+            return maxActive;
+        }
+
+        public void setMaxActive(int maxActive) {
+            this.maxActive = maxActive;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getTaskQueueCapacity() {
+            return taskQueueCapacity;
+        }
+
+        public void setTaskQueueCapacity(int taskQueueCapacity) {
+            this.taskQueueCapacity = taskQueueCapacity;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getFlushChars() {
+            return flushChars;
+        }
+
+        public void setFlushChars(int flushChars) {
+            this.flushChars = flushChars;
+        }
+    }
+
+    /**
+     * AI响应缓存配置：相同动作、模型、参数和内容的请求直接返回缓存结果
+     */
+    public static class CacheConfig {
+        private boolean enabled = true;
+        private int maxEntries = 1000;
+        private long maxBytes = 64L * 1024 * 1024;
+        private long ttlSeconds = 86400;
+        private boolean persistent = false;
+        private long cleanupIntervalSeconds = 3600;
+        private List<String> disabledActions = new ArrayList<>();
+        private int replayChunkSize = 64;
+        private boolean coalesce = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public boolean isPersistent() {
+            return persistent;
+        }
+
+        public void setPersistent(boolean persistent) {
+            this.persistent = persistent;
+        }
+
+        public long getCleanupIntervalSeconds() {
+            return cleanupIntervalSeconds;
+        }
+
+        public void setCleanupIntervalSeconds(long cleanupIntervalSeconds) {
+            this.cleanupIntervalSeconds = cleanupIntervalSeconds;
+        }
+
+        public List<String> getDisabledActions() {
+            return disabledActions;
+        }
+
+        public void setDisabledActions(List<String> disabledActions) {
+            this.disabledActions = disabledActions;
+        }
+
+        public int getReplayChunkSize() {
+            return replayChunkSize;
+        }
+
+        public void setReplayChunkSize(int replayChunkSize) {
+            this.replayChunkSize = replayChunkSize;
+        }
+
+        public boolean isCoalesce() {
+            return coalesce;
+        }
+
+        public void setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+    }
+
+    /**
+     * 长文档分块处理配置（summarize/translate/beautify）
+     */
+    public static class ChunkingConfig {
+        private boolean enabled = true;
+        private int thresholdTokens = 6000;
+        private int chunkTokens = 3000;
+        private int maxParallel = 4;
+        private int sectionLevel = 2;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThresholdTokens() {
+            return thresholdTokens;
+        }
+
+        public void setThresholdTokens(int thresholdTokens) {
+            this.thresholdTokens = thresholdTokens;
+        }
+
+        public int getChunkTokens() {
+            return chunkTokens;
+        }
+
+        public void setChunkTokens(int chunkTokens) {
+            this.chunkTokens = chunkTokens;
+        }
+
+        public int getMaxParallel() {
+            return maxParallel;
+        }
+
+        public void setMaxParallel(int maxParallel) {
+            this.maxParallel = maxParallel;
+        }
+
+        public int getSectionLevel() {
+            return sectionLevel;
+        }
+
+        public void setSectionLevel(int sectionLevel) {
+            this.sectionLevel = sectionLevel;
+        }
+    }
+
+    /**
+     * Token 预算：未指定 maxTokens 时按上下文窗口剩余空间确定输出上限
+     */
+    public static class TokenConfig {
+        private int contextWindow = 131072;
+        private int maxOutputTokens = 12288;
+        private int minOutputTokens = 512;
+
+        public int getContextWindow() {
+            return contextWindow;
+        }
+
+        public void setContextWindow(int contextWindow) {
+            this.contextWindow = contextWindow;
+        }
+
+        public int getMaxOutputTokens() {
+            return maxOutputTokens;
+        }
+
+        public void setMaxOutputTokens(int maxOutputTokens) {
+            this.maxOutputTokens = maxOutputTokens;
+        }
+
+        public int getMinOutputTokens() {
+            return minOutputTokens;
+        }
+
+        public void setMinOutputTokens(int minOutputTokens) {
+            this.minOutputTokens = minOutputTokens;
+        }
+    }
+
+    /**
+     * 使用记录的异步写入：记录先进入内存队列，由后台线程按批写入数据库
+     */
+    public static class UsageConfig {
+        private int queueCapacity = 10000;
+        private int batchSize = 200;
+        private long flushIntervalMs = 1000;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.markglow.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI接口共享HTTP客户端：连接池复用TCP/TLS连接，避免每次调用都重新握手
+ */
+@Configuration
+@Slf4j
+public class AIHttpClientConfig {
+
+    // 未配置 server.tomcat.threads.max 时 Tomcat 的默认工作线程数
+    private static final int DEFAULT_TOMCAT_MAX_THREADS = 200;
+
+    @Bean
+    public PoolingHttpClientConnectionManager aiHttpConnectionManager(AIConfig aiConfig, MeterRegistry meterRegistry,
+                                                                      Environment environment) {
+        AIConfig.HttpConfig http = aiConfig.getHttp();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        if (isVirtualThreads(environment)) {
+            // 虚拟线程模式下请求并发不再受 Tomcat 工作线程数限制，同步调用的并发上限即单主机连接数
+            int maxPerRoute = Math.max(http.getMaxPerRoute(), http.getVirtualThreadMaxPerRoute());
+            connectionManager.setMaxTotal(Math.max(http.getMaxTotal(), maxPerRoute));
+            connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        } else {
+            connectionManager.setMaxTotal(http.getMaxTotal());
+            connectionManager.setDefaultMaxPerRoute(http.getMaxPerRoute());
+        }
+        connectionManager.setValidateAfterInactivity(http.getValidateAfterInactivity());
+
+        // 连接池指标：已借出、等待中、空闲可用
+        Gauge.builder("markglow.ai.http.pool.leased", connectionManager, m -> m.getTotalStats().getLeased())
+                .description("AI HTTP连接池已借出连接数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.http.pool.pending", connectionManager, m -> m.getTotalStats().getPending())
+                .description("AI HTTP连接池等待获取连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.http.pool.available", connectionManager, m -> m.getTotalStats().getAvailable())
+                .description("AI HTTP连接池空闲可用连接数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.http.pool.max", connectionManager, m -> m.getTotalStats().getMax())
+                .description("AI HTTP连接池最大连接数")
+                .register(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient aiHttpClient(AIConfig aiConfig, PoolingHttpClientConnectionManager aiHttpConnectionManager,
+                                            Environment environment) {
+        AIConfig.HttpConfig http = aiConfig.getHttp();
+        checkPoolSize(http, environment);
+        // 虚拟线程等待连接几乎没有开销：连接用满时等到有调用结束（最长一次读超时），而不是 connection-request-timeout 后失败
+        int connectionRequestTimeout = isVirtualThreads(environment)
+                ? Math.max(http.getConnectionRequestTimeout(), http.getSocketTimeout())
+                : http.getConnectionRequestTimeout();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(http.getConnectTimeout())
+                .setSocketTimeout(http.getSocketTimeout())
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        log.info("初始化AI HTTP连接池: maxTotal={}, maxPerRoute={}, connectTimeout={}ms, socketTimeout={}ms, " +
+                        "connectionRequestTimeout={}ms, keepAlive={}ms",
+                aiHttpConnectionManager.getMaxTotal(), aiHttpConnectionManager.getDefaultMaxPerRoute(),
+                http.getConnectTimeout(), http.getSocketTimeout(), connectionRequestTimeout, http.getKeepAlive());
+        return HttpClients.custom()
+                .setConnectionManager(aiHttpConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(http))
+                .evictExpiredConnections()
+                .evictIdleConnections(http.getIdleEvict(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 非阻塞连接池：由少量I/O线程驱动所有连接，流式生成期间不占用业务线程
+     */
+    @Bean
+    public PoolingNHttpClientConnectionManager aiHttpAsyncConnectionManager(AIConfig aiConfig, MeterRegistry meterRegistry)
+            throws IOReactorException {
+        AIConfig.HttpConfig http = aiConfig.getHttp();
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(http.getConnectTimeout())
+                .setSoTimeout(http.getSocketTimeout())
+                .setSoKeepAlive(true)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        connectionManager.setMaxTotal(http.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(http.getMaxPerRoute());
+
+        Gauge.builder("markglow.ai.http.async.pool.leased", connectionManager, m -> m.getTotalStats().getLeased())
+                .description("AI 异步HTTP连接池已借出连接数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.http.async.pool.pending", connectionManager, m -> m.getTotalStats().getPending())
+                .description("AI 异步HTTP连接池等待获取连接的请求数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.http.async.pool.available", connectionManager, m -> m.getTotalStats().getAvailable())
+                .description("AI 异步HTTP连接池空闲可用连接数")
+                .register(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient aiHttpAsyncClient(AIConfig aiConfig, PoolingNHttpClientConnectionManager aiHttpAsyncConnectionManager) {
+        AIConfig.HttpConfig http = aiConfig.getHttp();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(http.getConnectTimeout())
+                .setSocketTimeout(http.getSocketTimeout())
+                .setConnectionRequestTimeout(http.getConnectionRequestTimeout())
+                .build();
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(aiHttpAsyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(http))
+                .build();
+        client.start();
+        log.info("初始化AI异步HTTP客户端: maxTotal={}, maxPerRoute={}", http.getMaxTotal(), http.getMaxPerRoute());
+        return client;
+    }
+
+    /**
+     * 阻塞调用在请求线程上等待上游（通常数十秒）：连接数小于 Tomcat 工作线程数时，
+     * 超出的并发调用等待 connection-request-timeout 后失败，而不是等上游空出连接
+     */
+    private void checkPoolSize(AIConfig.HttpConfig http, Environment environment) {
+        if (isVirtualThreads(environment)) {
+            return;
+        }
+        int workerThreads = environment.getProperty("server.tomcat.threads.max", Integer.class, DEFAULT_TOMCAT_MAX_THREADS);
+        int connections = Math.min(http.getMaxTotal(), http.getMaxPerRoute());
+        if (connections < workerThreads) {
+            log.warn("AI HTTP连接池上限 {}（maxTotal={}, maxPerRoute={}）小于 Tomcat 最大工作线程数 {}，" +
+                            "超出的并发AI调用等待连接 {}ms 后失败，建议将 ai.http.max-total 与 max-per-route 调至不小于 {}",
+                    connections, http.getMaxTotal(), http.getMaxPerRoute(), workerThreads,
+                    http.getConnectionRequestTimeout(), workerThreads);
+        }
+    }
+
+    private static boolean isVirtualThreads(Environment environment) {
+        return environment.getProperty("ai.execution.virtual-threads", Boolean.class, false);
+    }
+
+    /**
+     * 服务端未返回 Keep-Alive 头时使用配置的保活时长
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy(AIConfig.HttpConfig http) {
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : http.getKeepAlive();
+        };
+    }
+}
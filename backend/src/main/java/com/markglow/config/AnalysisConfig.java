@@ -0,0 +1,99 @@
+package com.markglow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analysis")
+public class AnalysisConfig {
+    private IncrementalConfig incremental = new IncrementalConfig();
+    private BatchConfig batch = new BatchConfig();
+    private CacheConfig cache = new CacheConfig();
+
+    public IncrementalConfig getIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(IncrementalConfig incremental) {
+        this.incremental = incremental;
+    }
+
+    public BatchConfig getBatch() {
+        return batch;
+    }
+
+    public void setBatch(BatchConfig batch) {
+        this.batch = batch;
+    }
+
+    public CacheConfig getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheConfig cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 增量文档分析：服务端为每个编辑中的文档保留分块状态，按LRU淘汰
+     */
+    public static class IncrementalConfig {
+        private int maxSessions = 256;
+        private long maxChars = 64L * 1024 * 1024;
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public long getMaxChars() {
+            return maxChars;
+        }
+
+        public void setMaxChars(long maxChars) {
+            this.maxChars = maxChars;
+        }
+    }
+
+    /**
+     * 批量分析：按页读取文档，在专用线程池上并行分析
+     */
+    public static class BatchConfig {
+        private int pageSize = 200;
+        private int parallelism = 0;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * 文档分析结果缓存：结果按内容哈希持久化到 document_analysis 表，内存LRU只保留最近使用的文档
+     */
+    public static class CacheConfig {
+        private int maxEntries = 10000;
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+}
@@ -4,18 +4,28 @@ import com.markglow.dto.AIRequest;
 import com.markglow.dto.AIResponse;
 import com.markglow.service.ai.EnhancedAIService;
 import com.markglow.service.AIStatisticsService;
+import com.markglow.service.ai.AICompletion;
 import com.markglow.service.ai.AIServiceFactory;
+import com.markglow.service.ai.AIStreamDispatcher;
+import com.markglow.service.ai.ChunkedAIPipeline;
+import com.markglow.service.ai.SseChunkRelay;
+import com.markglow.service.ai.TokenCounter;
+import com.markglow.service.ai.TokenUsage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -32,25 +42,65 @@ public class AIController {
     @Autowired
     private AIServiceFactory aiServiceFactory;
 
+    @Autowired
+    private AIStreamDispatcher streamDispatcher;
+
+    @Autowired
+    private ChunkedAIPipeline chunkedAIPipeline;
+
     /**
-     * 统一记录AI使用统计的辅助方法
+     * 记录AI使用统计：优先使用上游返回的 token 用量
      */
-    private void recordAIUsage(String action, String content, String result, 
+    private void recordAIUsage(String action, String content, AICompletion completion,
                               String model, long duration) {
+        recordAIUsage(action, content, completion, model, duration, null);
+    }
+
+    /**
+     * @param firstTokenLatency 流式调用从开始处理到收到第一段内容的耗时（毫秒），非流式调用为 null
+     */
+    private void recordAIUsage(String action, String content, AICompletion completion,
+                              String model, long duration, Long firstTokenLatency) {
+        TokenUsage usage = completion.getUsage() != null ? completion.getUsage()
+                : new TokenUsage(TokenCounter.count(content), TokenCounter.count(completion.getContent()), false);
+        recordAIUsage(action, usage, model, duration, firstTokenLatency);
+    }
+
+    private void recordAIUsage(String action, TokenUsage usage, String model, long duration) {
+        recordAIUsage(action, usage, model, duration, null);
+    }
+
+    private void recordAIUsage(String action, TokenUsage usage, String model, long duration, Long firstTokenLatency) {
         try {
             String provider = aiServiceFactory.getCurrentProvider();
             String finalModel = model != null ? model : 
                 (provider.equals("ernie") ? "ernie-4.5-turbo-128k" : "qwen-3-235b-a22b");
-            // 估算token数：中文约1.5字符/token，英文约4字符/token，这里简化处理为字符数/2
-            int inputTokens = content != null ? (int)(content.length() / 2.0) : 0;
-            int outputTokens = result != null ? (int)(result.length() / 2.0) : 0;
             statisticsService.recordUsage(action, provider, finalModel, 
-                                         inputTokens, outputTokens, duration);
+                                         usage.getInputTokens(), usage.getOutputTokens(), duration, firstTokenLatency);
         } catch (Exception e) {
             log.warn("记录统计信息失败: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * 带缓存的调用，超长文档自动分块并发处理
+     */
+    private AICompletion routeCached(String action, AIRequest request, String style, String targetLang) {
+        boolean allowCache = Boolean.TRUE.equals(request.getAllowCache());
+        if (chunkedAIPipeline.shouldChunk(action, request.getContent())) {
+            return chunkedAIPipeline.runAsync(action, request.getContent(), request.getTemperature(), request.getMaxTokens(),
+                    request.getModel(), style, targetLang, allowCache, null, null).join();
+        }
+        return enhancedAIService.routeActionCached(action, request.getContent(), request.getTemperature(),
+                request.getMaxTokens(), request.getModel(), style, targetLang, allowCache);
+    }
+
+    private AIResponse toResponse(AICompletion completion) {
+        AIResponse response = new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider());
+        response.setCached(completion.isCached());
+        return response;
+    }
+
     /**
      * AI美化Markdown
      */
@@ -59,17 +109,14 @@ public class AIController {
         log.info("收到AI美化请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.beautifyMarkdown(
-                    request.getContent(),
-                    request.getTemperature(),
-                    request.getMaxTokens(),
-                    null,
-                    request.getModel());
+            AICompletion completion = routeCached("beautify", request, null, null);
             long duration = System.currentTimeMillis() - startTime;
             log.info("AI美化请求处理成功");
-            // 记录统计信息
-            recordAIUsage("beautify", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            // 记录统计信息（命中缓存或合并请求时未调用上游，不记录）
+            if (completion.isUpstreamCall()) {
+                recordAIUsage("beautify", request.getContent(), completion, request.getModel(), duration);
+            }
+            return ResponseEntity.ok(toResponse(completion));
         } catch (Exception e) {
             log.error("AI美化请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -86,15 +133,15 @@ public class AIController {
         long startTime = System.currentTimeMillis();
         String content = request.getTitle() + (request.getContext() != null ? "\n" + request.getContext() : "");
         try {
-            String result = enhancedAIService.generateContent(
+            AICompletion completion = enhancedAIService.generateContent(
                     request.getTitle(),
                     request.getContext(),
                     request.getTemperature(),
                     request.getMaxTokens(),
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
-            recordAIUsage("generate", content, result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("generate", content, completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             AIResponse errorResponse = new AIResponse();
             errorResponse.setMessage("生成失败: " + e.getMessage());
@@ -109,16 +156,12 @@ public class AIController {
     public ResponseEntity<AIResponse> improve(@RequestBody AIRequest request) {
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.improveContent(
-                    request.getContent(),
-                    request.getStyle(),
-                    request.getTemperature(),
-                    request.getMaxTokens(),
-                    null,
-                    request.getModel());
+            AICompletion completion = routeCached("improve", request, request.getStyle(), null);
             long duration = System.currentTimeMillis() - startTime;
-            recordAIUsage("improve", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            if (completion.isUpstreamCall()) {
+                recordAIUsage("improve", request.getContent(), completion, request.getModel(), duration);
+            }
+            return ResponseEntity.ok(toResponse(completion));
         } catch (Exception e) {
             AIResponse errorResponse = new AIResponse();
             errorResponse.setMessage("润色失败: " + e.getMessage());
@@ -134,7 +177,7 @@ public class AIController {
         log.info("收到语法检查请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.checkGrammar(
+            AICompletion completion = enhancedAIService.checkGrammar(
                     request.getContent(),
                     request.getTemperature(),
                     request.getMaxTokens(),
@@ -142,8 +185,8 @@ public class AIController {
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("语法检查请求处理成功");
-            recordAIUsage("checkGrammar", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("checkGrammar", request.getContent(), completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("语法检查请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -160,16 +203,13 @@ public class AIController {
         log.info("收到生成摘要请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.summarizeDocument(
-                    request.getContent(),
-                    request.getTemperature(),
-                    request.getMaxTokens(),
-                    null,
-                    request.getModel());
+            AICompletion completion = routeCached("summarize", request, null, null);
             long duration = System.currentTimeMillis() - startTime;
             log.info("生成摘要请求处理成功");
-            recordAIUsage("summarize", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            if (completion.isUpstreamCall()) {
+                recordAIUsage("summarize", request.getContent(), completion, request.getModel(), duration);
+            }
+            return ResponseEntity.ok(toResponse(completion));
         } catch (Exception e) {
             log.error("生成摘要请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -187,17 +227,13 @@ public class AIController {
         log.info("收到翻译请求，目标语言: {}，内容长度: {}", targetLang, request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.translateDocument(
-                    request.getContent(),
-                    targetLang,
-                    request.getTemperature(),
-                    request.getMaxTokens(),
-                    null,
-                    request.getModel());
+            AICompletion completion = routeCached("translate", request, null, targetLang);
             long duration = System.currentTimeMillis() - startTime;
             log.info("翻译请求处理成功");
-            recordAIUsage("translate", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            if (completion.isUpstreamCall()) {
+                recordAIUsage("translate", request.getContent(), completion, request.getModel(), duration);
+            }
+            return ResponseEntity.ok(toResponse(completion));
         } catch (Exception e) {
             log.error("翻译请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -214,7 +250,7 @@ public class AIController {
         log.info("收到解释代码请求，语言: {}，代码长度: {}", request.getLanguage(), request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.explainCode(
+            AICompletion completion = enhancedAIService.explainCode(
                     request.getContent(),
                     request.getLanguage(),
                     request.getTemperature(),
@@ -222,8 +258,8 @@ public class AIController {
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("解释代码请求处理成功");
-            recordAIUsage("explainCode", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("explainCode", request.getContent(), completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("解释代码请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -240,7 +276,7 @@ public class AIController {
         log.info("收到智能补全请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.suggestCompletion(
+            AICompletion completion = enhancedAIService.suggestCompletion(
                     request.getContent(),
                     request.getTemperature(),
                     request.getMaxTokens(),
@@ -248,8 +284,8 @@ public class AIController {
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("智能补全请求处理成功");
-            recordAIUsage("complete", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("complete", request.getContent(), completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("智能补全请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -266,7 +302,7 @@ public class AIController {
         log.info("收到扩展段落请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.expandParagraph(
+            AICompletion completion = enhancedAIService.expandParagraph(
                     request.getContent(),
                     request.getTemperature(),
                     request.getMaxTokens(),
@@ -274,8 +310,8 @@ public class AIController {
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("扩展段落请求处理成功");
-            recordAIUsage("expand", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("expand", request.getContent(), completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("扩展段落请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -293,15 +329,15 @@ public class AIController {
         long startTime = System.currentTimeMillis();
         String content = request.getTopic() != null ? request.getTopic() : "";
         try {
-            String result = enhancedAIService.generateList(
+            AICompletion completion = enhancedAIService.generateList(
                     request.getTopic(),
                     request.getTemperature(),
                     request.getMaxTokens(),
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("生成列表请求处理成功");
-            recordAIUsage("generateList", content, result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("generateList", content, completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("生成列表请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -318,15 +354,15 @@ public class AIController {
         log.info("收到优化标题请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            String result = enhancedAIService.optimizeTitles(
+            AICompletion completion = enhancedAIService.optimizeTitles(
                     request.getContent(),
                     request.getTemperature(),
                     request.getMaxTokens(),
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("优化标题请求处理成功");
-            recordAIUsage("optimizeTitles", request.getContent(), result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("optimizeTitles", request.getContent(), completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("优化标题请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -344,15 +380,15 @@ public class AIController {
         long startTime = System.currentTimeMillis();
         String content = request.getDescription() != null ? request.getDescription() : "";
         try {
-            String result = enhancedAIService.generateTable(
+            AICompletion completion = enhancedAIService.generateTable(
                     request.getDescription(),
                     request.getTemperature(),
                     request.getMaxTokens(),
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("生成表格请求处理成功");
-            recordAIUsage("generateTable", content, result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("generateTable", content, completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("生成表格请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -371,7 +407,7 @@ public class AIController {
         String content = (request.getContent() != null ? request.getContent() : "") + 
                         (request.getQuestion() != null ? "\n问题: " + request.getQuestion() : "");
         try {
-            String result = enhancedAIService.answerQuestion(
+            AICompletion completion = enhancedAIService.answerQuestion(
                     request.getContent(),
                     request.getQuestion(),
                     request.getTemperature(),
@@ -379,8 +415,8 @@ public class AIController {
                     request.getModel());
             long duration = System.currentTimeMillis() - startTime;
             log.info("文档问答请求处理成功");
-            recordAIUsage("qa", content, result, request.getModel(), duration);
-            return ResponseEntity.ok(new AIResponse(result, enhancedAIService.getCurrentProvider()));
+            recordAIUsage("qa", content, completion, request.getModel(), duration);
+            return ResponseEntity.ok(new AIResponse(completion.getContent(), enhancedAIService.getCurrentProvider()));
         } catch (Exception e) {
             log.error("文档问答请求处理失败", e);
             AIResponse errorResponse = new AIResponse();
@@ -397,16 +433,15 @@ public class AIController {
         log.info("收到分析文档请求，内容长度: {}", request.getContent() != null ? request.getContent().length() : 0);
         long startTime = System.currentTimeMillis();
         try {
-            Map<String, Object> analysis = enhancedAIService.analyzeDocument(
+            AICompletion completion = enhancedAIService.requestAnalysis(
                     request.getContent(),
                     request.getTemperature(),
                     request.getMaxTokens(),
                     request.getModel());
+            Map<String, Object> analysis = enhancedAIService.toAnalysisResult(request.getContent(), completion);
             long duration = System.currentTimeMillis() - startTime;
             log.info("分析文档请求处理成功");
-            // 对于analyze接口，result是Map，转换为字符串用于统计
-            String resultStr = analysis != null ? analysis.toString() : "";
-            recordAIUsage("analyze", request.getContent(), resultStr, request.getModel(), duration);
+            recordAIUsage("analyze", request.getContent(), completion, request.getModel(), duration);
             AIResponse response = new AIResponse();
             response.setData(analysis);
             response.setProvider(enhancedAIService.getCurrentProvider());
@@ -462,10 +497,10 @@ public class AIController {
 
     /**
      * 流式输出（SSE）：用于长文本的打字机效果，真正的实时流式传输
-     * 使用 POST 请求避免 URL 长度限制
+     * 使用 POST 请求避免 URL 长度限制；并发已满时先发送 queued 事件排队，队列已满返回 429
      */
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(@RequestBody Map<String, Object> requestBody) {
+    public ResponseEntity<SseEmitter> stream(@RequestBody Map<String, Object> requestBody) {
         String action = (String) requestBody.get("action");
         String content = (String) requestBody.get("content");
         Double temperature = requestBody.get("temperature") != null ? 
@@ -483,84 +518,122 @@ public class AIController {
         String targetLang = (String) requestBody.get("targetLang");
         String title = (String) requestBody.get("title");
         String context = (String) requestBody.get("context");
+        boolean allowCache = Boolean.TRUE.equals(requestBody.get("allowCache"));
         log.info("收到流式请求 action={} 内容长度={} temp={} maxTokens={} model={} stream={} style={} targetLang={} title={}",
                 action, content != null ? content.length() : 0, temperature, maxTokens, model, stream, style, targetLang, title);
         SseEmitter emitter = new SseEmitter(0L);
-        CompletableFuture.runAsync(() -> {
-            long start = System.currentTimeMillis();
-            try {
-                // 使用真正的流式传输，每收到一个chunk就立即发送给前端
-                String result = enhancedAIService.routeActionStream(
-                    action, content, temperature, maxTokens, model, style, targetLang, title, context,
-                    chunk -> {
-                        // 回调函数：每收到一个chunk就立即通过SSE发送给前端
-                        try {
-                            // 调试：检查chunk中的空格
-                            boolean hasSpace = chunk.contains(" ");
-                            boolean hasNewline = chunk.contains("\n");
-                            boolean hasCarriageReturn = chunk.contains("\r");
-                            
-                            // 调试日志：如果包含#号或空格，记录详细信息
-                            if (chunk.contains("#") || hasSpace) {
-                                log.debug("后端发送chunk - 原始内容: [{}]", chunk);
-                                log.debug("后端发送chunk - 包含空格: {}, 包含换行: {}, 包含回车: {}", 
-                                    hasSpace, hasNewline, hasCarriageReturn);
-                                log.debug("后端发送chunk - 长度: {}, JSON表示: {}", 
-                                    chunk.length(), chunk.replace(" ", "·")); // 用·表示空格便于查看
+        AtomicReference<CompletableFuture<AICompletion>> futureRef = new AtomicReference<>();
+        AIStreamDispatcher.StreamTicket ticket = streamDispatcher.submit(new AIStreamDispatcher.StreamTask() {
+            @Override
+            public CompletableFuture<?> start() {
+                long start = System.currentTimeMillis();
+                // 上游增量直接转义写入帧缓冲区，按 ai.stream 的刷新策略合并后发送给前端
+                SseChunkRelay chunkSender = streamDispatcher.createRelay(
+                        data -> {
+                            try {
+                                emitter.send(SseEmitter.event().name("chunk").data(data));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
                             }
-                            
-                            String encodedChunk;
-                            // 为了确保空格不被丢失，所有chunk都使用JSON编码
-                            // 这样可以保证所有字符（包括空格）都能正确传输
-                            encodedChunk = chunk
-                                .replace("\\", "\\\\")  // 先转义反斜杠
-                                .replace("\"", "\\\"")  // 转义双引号
-                                .replace("\n", "\\n")   // 转义换行符
-                                .replace("\r", "\\r")   // 转义回车符
-                                .replace("\t", "\\t");  // 转义制表符
-                            // 包装在JSON字符串中，前端需要解析
-                            encodedChunk = "\"" + encodedChunk + "\"";
-                            
-                            if (chunk.contains("#") || hasSpace) {
-                                log.debug("后端发送chunk - JSON编码后: [{}]", encodedChunk);
-                                log.debug("后端发送chunk - 编码前长度: {}, 编码后长度: {}", chunk.length(), encodedChunk.length());
-                            }
-                            
-                            // 发送编码后的数据
-                            emitter.send(SseEmitter.event().name("chunk").data(encodedChunk));
-                        } catch (Exception e) {
-                            log.error("发送chunk到前端失败", e);
-                            throw new RuntimeException("发送chunk失败", e);
+                        });
+                CompletableFuture<AICompletion> future;
+                if (chunkedAIPipeline.shouldChunk(action, content)) {
+                    // 长文档：分块并发处理，每完成一块发送 progress 事件
+                    future = chunkedAIPipeline.runAsync(action, content, temperature, maxTokens, model, style, targetLang,
+                            allowCache, chunkSender, (phase, completed, total) -> {
+                                try {
+                                    emitter.send(SseEmitter.event().name("progress").data("{\"phase\":\"" + phase
+                                            + "\",\"completed\":" + completed + ",\"total\":" + total + "}"));
+                                } catch (Exception e) {
+                                    log.debug("发送处理进度失败: {}", e.getMessage());
+                                }
+                            });
+                } else {
+                    // 非阻塞调用：等待上游生成期间不占用任何线程，chunk 回调在HTTP客户端的I/O线程上执行
+                    future = enhancedAIService.routeActionStreamAsync(
+                            action, content, temperature, maxTokens, model, style, targetLang, title, context, allowCache,
+                            chunkSender);
+                }
+                futureRef.set(future);
+                // 收尾工作（统计、结束事件）在 ai-stream 线程池上执行
+                future.whenCompleteAsync((completion, ex) -> {
+                    // 先发出已合并但未发送的内容，再发送 end/error 事件
+                    chunkSender.close();
+                    if (future.isCancelled()) {
+                        log.info("流式请求已取消 action={}", action);
+                        return;
+                    }
+                    if (ex != null) {
+                        log.error("流式请求处理失败", ex);
+                        try {
+                            emitter.send(SseEmitter.event().name("error").data(ex.getMessage()));
+                        } catch (Exception ignored) {}
+                        emitter.completeWithError(ex);
+                        return;
+                    }
+                    try {
+                        long cost = System.currentTimeMillis() - start;
+                        Long firstTokenLatency = completion.getFirstTokenTime() > 0
+                                ? Math.max(0, completion.getFirstTokenTime() - start) : null;
+                        String result = completion.getContent();
+                        log.info("流式传输完成，总耗时: {} ms，首token: {} ms，最终内容长度: {} 字符，缓存: {}，增量: {}，发送帧: {}", cost,
+                                firstTokenLatency, result != null ? result.length() : 0, completion.isCached(),
+                                chunkSender.getDeltaCount(), chunkSender.getFrameCount());
+
+                        // 记录统计信息（命中缓存或合并请求时未调用上游，不记录）
+                        if (completion.isUpstreamCall()) {
+                            recordAIUsage(action, content, completion, model, cost, firstTokenLatency);
                         }
+
+                        emitter.send(SseEmitter.event().name("end").data("{\"done\":true,\"cost\":" + cost + ",\"cached\":" + completion.isCached()
+                                + ",\"coalesced\":" + completion.isCoalesced() + "}"));
+                        emitter.complete();
+                    } catch (Exception e) {
+                        log.error("流式请求处理失败", e);
+                        try {
+                            emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+                        } catch (Exception ignored) {}
+                        emitter.completeWithError(e);
                     }
-                );
-                
-                long cost = System.currentTimeMillis() - start;
-                log.info("流式传输完成，总耗时: {} ms，最终内容长度: {} 字符", cost, result != null ? result.length() : 0);
-                
-                // 记录统计信息
+                }, streamDispatcher.getExecutor());
+                return future;
+            }
+
+            @Override
+            public void onQueued(int position) {
                 try {
-                    String provider = aiServiceFactory.getCurrentProvider();
-                    String finalModel = model != null ? model : (provider.equals("ernie") ? "ernie-4.5-turbo-128k" : "qwen-3-235b-a22b");
-                    // 估算token数：中文约1.5字符/token，英文约4字符/token，这里简化处理
-                    int inputTokens = content != null ? (int)(content.length() / 2.0) : 0;
-                    int outputTokens = result != null ? (int)(result.length() / 2.0) : 0;
-                    statisticsService.recordUsage(action, provider, finalModel, inputTokens, outputTokens, cost);
+                    emitter.send(SseEmitter.event().name("queued").data("{\"position\":" + position + "}"));
                 } catch (Exception e) {
-                    log.warn("记录统计信息失败", e);
+                    log.debug("发送排队位置失败: {}", e.getMessage());
                 }
-                
-                emitter.send(SseEmitter.event().name("end").data("{\"done\":true,\"cost\":" + cost + "}"));
-                emitter.complete();
-            } catch (Exception e) {
-                log.error("流式请求处理失败", e);
+            }
+
+            @Override
+            public void onAbort(Throwable cause) {
                 try {
-                    emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+                    emitter.send(SseEmitter.event().name("error").data(cause.getMessage()));
                 } catch (Exception ignored) {}
-                emitter.completeWithError(e);
+                emitter.completeWithError(cause);
             }
         });
-        return emitter;
+        if (ticket.isRejected()) {
+            log.warn("流式请求过多，拒绝请求 action={} active={} queued={}",
+                    action, streamDispatcher.getActiveCount(), streamDispatcher.getQueuedCount());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        // 客户端断开时移出队列或取消上游请求
+        Runnable abort = () -> {
+            streamDispatcher.cancel(ticket);
+            CompletableFuture<AICompletion> future = futureRef.get();
+            if (future != null) {
+                future.cancel(true);
+            }
+        };
+        emitter.onError(e -> abort.run());
+        emitter.onTimeout(abort);
+        return ResponseEntity.ok(emitter);
     }
 }
 
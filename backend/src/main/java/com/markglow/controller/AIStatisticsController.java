@@ -1,12 +1,16 @@
 package com.markglow.controller;
 
 import com.markglow.service.AIStatisticsService;
+import com.markglow.service.LiveUsageMetrics;
+import com.markglow.service.ai.AIResponseCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -24,6 +28,12 @@ public class AIStatisticsController {
     @Autowired
     private AIStatisticsService statisticsService;
 
+    @Autowired
+    private AIResponseCache responseCache;
+
+    @Autowired
+    private LiveUsageMetrics liveUsageMetrics;
+
     @GetMapping("/summary")
     public ResponseEntity<Map<String, Object>> getSummary(
             @RequestParam(required = false, defaultValue = "today") String period) {
@@ -47,11 +57,42 @@ public class AIStatisticsController {
         }
     }
 
+    /**
+     * 实时用量：最近 1 分钟/5 分钟/1 小时按 action/provider/model 的调用数、token、成本与耗时分位数，
+     * 来自内存统计（每 5 秒更新），不查询数据库
+     */
+    @GetMapping("/live")
+    public ResponseEntity<LiveUsageMetrics.LiveSnapshot> getLiveUsage() {
+        return ResponseEntity.ok(liveUsageMetrics.getSnapshot());
+    }
+
+    /**
+     * 实时用量推送（SSE）：连接后立即发送一次，之后每 5 秒发送一个 usage 事件，数据格式同 /live
+     */
+    @GetMapping("/live/stream")
+    public ResponseEntity<SseEmitter> streamLiveUsage() {
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(liveUsageMetrics.subscribe());
+        } catch (IllegalStateException e) {
+            log.warn("拒绝实时用量订阅: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * 分组统计：day/month 由汇总表计算；each 为每条记录一行，按时间倒序分页（每页最多500条），
+     * 按 page 偏移取页，或传入上一页返回的 nextCursor 从该位置之后取页，分页信息同 /records
+     */
     @GetMapping("/usage")
     public ResponseEntity<Map<String, Object>> getUsageStatistics(
             @RequestParam(required = false) String start,
             @RequestParam(required = false) String end,
-            @RequestParam(required = false, defaultValue = "day") String groupBy) {
+            @RequestParam(required = false, defaultValue = "day") String groupBy,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "500") int size) {
         try {
             LocalDateTime startTime;
             LocalDateTime endTime;
@@ -95,49 +136,66 @@ public class AIStatisticsController {
             log.info("获取使用统计: groupBy={}, start={} (原始: {}), end={} (原始: {})", 
                     groupBy, startTime, start, endTime, end);
             
-            List<AIStatisticsService.GroupedStatistics> groupedStats = statisticsService.getGroupedStatistics(startTime, endTime, groupBy);
+            AIStatisticsService.GroupedStatisticsPage groupedStats = statisticsService.getGroupedStatistics(
+                    startTime, endTime, groupBy, page, cursor, size);
             
-            log.info("返回统计数据: 记录数={}", groupedStats.size());
+            log.info("返回统计数据: 记录数={}, 总数={}", groupedStats.getStatistics().size(), groupedStats.getTotal());
             
             Map<String, Object> response = new HashMap<>();
             response.put("startTime", startTime);
             response.put("endTime", endTime);
             response.put("groupBy", groupBy);
-            response.put("statistics", groupedStats);
+            response.put("statistics", groupedStats.getStatistics());
+            response.put("total", groupedStats.getTotal());
+            response.put("page", page);
+            response.put("size", size);
+            response.put("hasMore", groupedStats.isHasMore());
+            response.put("nextCursor", groupedStats.getNextCursor());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("获取使用统计参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("获取使用统计失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * 使用记录分页（按时间倒序）：按 page 偏移取页，或传入上一页返回的 nextCursor 从该位置之后取页
+     */
     @GetMapping("/records")
     public ResponseEntity<Map<String, Object>> getUsageRecords(
             @RequestParam(required = false) String start,
             @RequestParam(required = false) String end,
             @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "20") int size) {
         try {
             LocalDateTime now = LocalDateTime.now();
             LocalDateTime startTime = parseDateTimeParameter(start, now.minusDays(7));
             LocalDateTime endTime = parseDateTimeParameter(end, now);
 
-            log.info("获取使用记录: start={} (原始: {}), end={} (原始: {}), page={}, size={}",
-                    startTime, start, endTime, end, page, size);
+            log.info("获取使用记录: start={} (原始: {}), end={} (原始: {}), page={}, cursor={}, size={}",
+                    startTime, start, endTime, end, page, cursor, size);
             
-            List<com.markglow.entity.AIUsageRecord> records = statisticsService.getUsageRecords(startTime, endTime, page, size);
-            long total = statisticsService.getUsageRecordsCount(startTime, endTime);
+            AIStatisticsService.UsageRecordPage records = statisticsService.getUsageRecordPage(startTime, endTime, page, cursor, size);
             
             Map<String, Object> response = new HashMap<>();
             response.put("startTime", startTime);
             response.put("endTime", endTime);
-            response.put("records", records);
-            response.put("total", total);
+            response.put("records", records.getRecords());
+            response.put("total", records.getTotal());
             response.put("page", page);
             response.put("size", size);
+            response.put("hasMore", records.isHasMore());
+            response.put("nextCursor", records.getNextCursor());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("获取使用记录参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("获取使用记录失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -188,5 +246,47 @@ public class AIStatisticsController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
 
+    /**
+     * AI响应缓存统计：命中率、节省的字节数与token数，以及合并的相同请求数
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        try {
+            AIStatisticsService.CacheStatistics statistics = statisticsService.getCacheStatistics();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("hits", statistics.getHits());
+            response.put("misses", statistics.getMisses());
+            response.put("hitRatio", statistics.getHitRatio());
+            response.put("bytesSaved", statistics.getBytesSaved());
+            response.put("tokensSaved", statistics.getTokensSaved());
+            response.put("hitsByAction", statistics.getHitsByAction());
+            response.put("coalesced", statistics.getCoalesced());
+            response.put("coalescedTokensSaved", statistics.getCoalescedTokensSaved());
+            response.put("entries", responseCache.size());
+            response.put("cacheBytes", responseCache.getBytes());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("获取缓存统计失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 清空AI响应缓存
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, Object>> clearCache() {
+        try {
+            responseCache.clear();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("清空缓存失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,17 +1,36 @@
 package com.markglow.controller;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.markglow.dto.AIRequest;
+import com.markglow.dto.AnalysisEditRequest;
 import com.markglow.dto.DocumentDTO;
+import com.markglow.dto.DocumentPageDTO;
+import com.markglow.dto.DocumentSearchPageDTO;
+import com.markglow.service.BatchAnalysisService;
+import com.markglow.service.DocumentAnalysisCache;
 import com.markglow.service.DocumentService;
 import com.markglow.service.DocumentAnalysisService;
+import com.markglow.service.DocumentSearchIndex;
+import com.markglow.service.IncrementalAnalysisService;
+import com.markglow.service.IncrementalBeautifyService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -19,12 +38,26 @@ import java.util.Map;
 @Slf4j
 public class DocumentController {
 
+    private static final MediaType NDJSON_UTF8 = new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8);
+
     @Autowired
     private DocumentService documentService;
 
     @Autowired
     private DocumentAnalysisService analysisService;
 
+    @Autowired
+    private IncrementalBeautifyService incrementalBeautifyService;
+
+    @Autowired
+    private DocumentAnalysisCache analysisCache;
+
+    @Autowired
+    private IncrementalAnalysisService incrementalAnalysisService;
+
+    @Autowired
+    private BatchAnalysisService batchAnalysisService;
+
     @GetMapping
     public ResponseEntity<List<DocumentDTO>> getAllDocuments() {
         try {
@@ -35,6 +68,24 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 文档列表分页（按更新时间倒序）：只返回标题、摘要、时间与字数，正文通过 GET /{id} 按需加载
+     * cursor 为上一页返回的 nextCursor，第一页不传
+     */
+    @GetMapping("/page")
+    public ResponseEntity<DocumentPageDTO> getDocumentPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(documentService.getDocumentPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("分页获取文档失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<DocumentDTO>> searchDocuments(
             @RequestParam(required = false) String keyword,
@@ -56,6 +107,42 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 全文搜索（分页，按相关度排序）：返回摘要信息、命中附近的正文片段及命中位置
+     * 全文索引尚未建立时返回 503，调用方可改用 /search
+     */
+    @GetMapping("/search/ranked")
+    public ResponseEntity<DocumentSearchPageDTO> searchRanked(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(documentService.searchRanked(keyword, page, size));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("全文搜索失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 输入时的搜索建议：以 prefix 开头（整句或其中某个词）的文档标题和小标题，按出现的文档数倒序
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<DocumentSearchIndex.Suggestion>> suggest(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(documentService.suggest(prefix, limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("获取搜索建议失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<DocumentDTO> getDocumentById(@PathVariable Long id) {
         try {
@@ -110,31 +197,51 @@ public class DocumentController {
             String content = document.getOriginalContent() != null ? 
                 document.getOriginalContent() : document.getBeautifiedContent();
             
-            DocumentAnalysisService.AnalysisResult result = analysisService.analyzeDocument(content);
+            // 内容未变化时直接使用缓存的分析结果
+            DocumentAnalysisService.AnalysisResult result = analysisCache.getAnalysis(id, content);
             
+            Map<String, Object> response = toAnalysisResponse(result);
+            response.put("documentId", id);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 增量美化：仅重新美化有改动的章节，结果保存到文档的 beautifiedContent
+     * 请求体可选：content 为当前原文（同时保存为 originalContent），temperature/maxTokens/model/allowCache 同其他AI接口
+     */
+    @PostMapping("/{id}/beautify")
+    public ResponseEntity<Map<String, Object>> beautifyDocument(@PathVariable Long id,
+                                                                @RequestBody(required = false) AIRequest request) {
+        try {
+            AIRequest options = request != null ? request : new AIRequest();
+            IncrementalBeautifyService.BeautifyResult result = incrementalBeautifyService.beautifyDocument(
+                    id, options.getContent(), options.getTemperature(), options.getMaxTokens(), options.getModel(),
+                    Boolean.TRUE.equals(options.getAllowCache()));
+
             Map<String, Object> response = new HashMap<>();
             response.put("documentId", id);
-            response.put("totalChars", result.getTotalChars());
-            response.put("chineseChars", result.getChineseChars());
-            response.put("englishWords", result.getEnglishWords());
-            response.put("totalWords", result.getTotalWords());
-            response.put("readingTimeMinutes", Math.round(result.getReadingTimeMinutes() * 10.0) / 10.0);
-            response.put("readingTimeFormatted", formatReadingTime(result.getReadingTimeMinutes()));
-            
-            if (result.getComplexity() != null) {
-                Map<String, Object> complexity = new HashMap<>();
-                complexity.put("headingDepth", result.getComplexity().getHeadingDepth());
-                complexity.put("headingCount", result.getComplexity().getHeadingCount());
-                complexity.put("paragraphCount", result.getComplexity().getParagraphCount());
-                complexity.put("averageParagraphLength", Math.round(result.getComplexity().getAverageParagraphLength()));
-                complexity.put("codeBlockCount", result.getComplexity().getCodeBlockCount());
-                complexity.put("linkCount", result.getComplexity().getLinkCount());
-                complexity.put("listItemCount", result.getComplexity().getListItemCount());
-                complexity.put("readabilityScore", Math.round(result.getComplexity().getReadabilityScore() * 10.0) / 10.0);
-                response.put("complexity", complexity);
-            }
-            
+            response.put("beautifiedContent", result.getBeautifiedContent());
+            response.put("totalSections", result.getTotalSections());
+            response.put("reusedSections", result.getReusedSections());
+            response.put("cachedSections", result.getCachedSections());
+            response.put("regeneratedSections", result.getRegeneratedSections());
+            response.put("tokensSaved", result.getTokensSaved());
+            response.put("cost", result.getCost());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (CompletionException e) {
+            log.error("增量美化失败 documentId={}", id, e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "美化失败: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -152,33 +259,158 @@ public class DocumentController {
             
             DocumentAnalysisService.AnalysisResult result = analysisService.analyzeDocument(content);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("totalChars", result.getTotalChars());
-            response.put("chineseChars", result.getChineseChars());
-            response.put("englishWords", result.getEnglishWords());
-            response.put("totalWords", result.getTotalWords());
-            response.put("readingTimeMinutes", Math.round(result.getReadingTimeMinutes() * 10.0) / 10.0);
-            response.put("readingTimeFormatted", formatReadingTime(result.getReadingTimeMinutes()));
-            
-            if (result.getComplexity() != null) {
-                Map<String, Object> complexity = new HashMap<>();
-                complexity.put("headingDepth", result.getComplexity().getHeadingDepth());
-                complexity.put("headingCount", result.getComplexity().getHeadingCount());
-                complexity.put("paragraphCount", result.getComplexity().getParagraphCount());
-                complexity.put("averageParagraphLength", Math.round(result.getComplexity().getAverageParagraphLength()));
-                complexity.put("codeBlockCount", result.getComplexity().getCodeBlockCount());
-                complexity.put("linkCount", result.getComplexity().getLinkCount());
-                complexity.put("listItemCount", result.getComplexity().getListItemCount());
-                complexity.put("readabilityScore", Math.round(result.getComplexity().getReadabilityScore() * 10.0) / 10.0);
-                response.put("complexity", complexity);
+            Map<String, Object> response = toAnalysisResponse(result);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 增量分析：编辑器首次提交 content 建立分析状态，之后提交 baseVersion 与编辑（offset/deleteLength/insertText），
+     * 服务端只重新扫描受影响的块。响应在 /analyze 的基础上增加 version（下次编辑的 baseVersion）、
+     * blockCount 与 rescannedChars；baseVersion 失效时返回 409，需重新提交完整内容
+     */
+    @PostMapping("/analyze/incremental")
+    public ResponseEntity<Map<String, Object>> analyzeIncremental(@RequestBody AnalysisEditRequest request) {
+        try {
+            IncrementalAnalysisService.IncrementalResult result;
+            if (request.getBaseVersion() == null) {
+                if (request.getContent() == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+                result = incrementalAnalysisService.start(request.getContent());
+            } else {
+                result = incrementalAnalysisService.applyEdit(request.getBaseVersion(),
+                        request.getOffset() != null ? request.getOffset() : 0,
+                        request.getDeleteLength() != null ? request.getDeleteLength() : 0,
+                        request.getInsertText());
             }
-            
+
+            Map<String, Object> response = toAnalysisResponse(result.getAnalysis());
+            response.put("version", result.getVersion());
+            response.put("blockCount", result.getBlockCount());
+            response.put("rescannedChars", result.getRescannedChars());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * 批量分析所有文档（用于夜间报表）：按页读取并行分析，按文档ID顺序逐篇返回结果，最后返回语料汇总统计。
+     * format=ndjson（默认）时每行一个 JSON 对象，type 为 document 或 summary；format=sse 时发送 document/summary 事件。
+     * 同时只运行一个批量分析，已有任务排队时返回 429
+     */
+    @GetMapping("/analyze/batch")
+    public ResponseEntity<ResponseBodyEmitter> analyzeBatch(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean sse = "sse".equalsIgnoreCase(format);
+        ResponseBodyEmitter emitter = sse ? new SseEmitter(0L) : new ResponseBodyEmitter(0L);
+        BatchWriter writer = new BatchWriter(emitter, sse);
+        try {
+            batchAnalysisService.analyzeAllAsync(writer).whenComplete((summary, ex) -> {
+                try {
+                    if (ex != null) {
+                        log.error("批量分析失败", ex);
+                        writer.write("error", new JSONObject().fluentPut("error", ex.getMessage()));
+                        writer.flush();
+                        emitter.completeWithError(ex);
+                        return;
+                    }
+                    writer.write("summary", (JSONObject) JSON.toJSON(summary));
+                    writer.flush();
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.debug("发送批量分析结果失败: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("已有批量分析在运行，拒绝请求");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : NDJSON_UTF8)
+                .body(emitter);
+    }
+
+    /**
+     * 批量分析结果写出：NDJSON 累积到约 32KB 再发送，SSE 每篇文档发送一个事件
+     */
+    private class BatchWriter implements BatchAnalysisService.DocumentListener {
+        private static final int NDJSON_FLUSH_CHARS = 32 * 1024;
+
+        private final ResponseBodyEmitter emitter;
+        private final boolean sse;
+        private final StringBuilder buffer = new StringBuilder();
+
+        BatchWriter(ResponseBodyEmitter emitter, boolean sse) {
+            this.emitter = emitter;
+            this.sse = sse;
+        }
+
+        @Override
+        public void onDocument(BatchAnalysisService.DocumentResult result) throws IOException {
+            JSONObject json = new JSONObject(toAnalysisResponse(result.getAnalysis()));
+            json.put("documentId", result.getDocumentId());
+            json.put("title", result.getTitle());
+            write("document", json);
+        }
+
+        void write(String type, JSONObject json) throws IOException {
+            if (sse) {
+                ((SseEmitter) emitter).send(SseEmitter.event().name(type).data(json.toJSONString()));
+                return;
+            }
+            json.put("type", type);
+            buffer.append(json.toJSONString()).append('\n');
+            if (buffer.length() >= NDJSON_FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (buffer.length() > 0) {
+                emitter.send(buffer.toString(), NDJSON_UTF8);
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    private Map<String, Object> toAnalysisResponse(DocumentAnalysisService.AnalysisResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("totalChars", result.getTotalChars());
+        response.put("chineseChars", result.getChineseChars());
+        response.put("englishWords", result.getEnglishWords());
+        response.put("totalWords", result.getTotalWords());
+        response.put("readingTimeMinutes", Math.round(result.getReadingTimeMinutes() * 10.0) / 10.0);
+        response.put("readingTimeFormatted", formatReadingTime(result.getReadingTimeMinutes()));
+
+        if (result.getComplexity() != null) {
+            Map<String, Object> complexity = new HashMap<>();
+            complexity.put("headingDepth", result.getComplexity().getHeadingDepth());
+            complexity.put("headingCount", result.getComplexity().getHeadingCount());
+            complexity.put("paragraphCount", result.getComplexity().getParagraphCount());
+            complexity.put("averageParagraphLength", Math.round(result.getComplexity().getAverageParagraphLength()));
+            complexity.put("codeBlockCount", result.getComplexity().getCodeBlockCount());
+            complexity.put("linkCount", result.getComplexity().getLinkCount());
+            complexity.put("listItemCount", result.getComplexity().getListItemCount());
+            complexity.put("readabilityScore", Math.round(result.getComplexity().getReadabilityScore() * 10.0) / 10.0);
+            response.put("complexity", complexity);
+        }
+        return response;
+    }
+
     private String formatReadingTime(double minutes) {
         if (minutes < 1) {
             return "不到1分钟";
@@ -18,6 +18,7 @@ public class AIRequest {
     private Double temperature;
     private Integer maxTokens;
     private String model;
+    private Boolean allowCache; // 温度大于0时是否允许返回缓存结果
 
 
 }
@@ -10,6 +10,7 @@ public class AIResponse {
     private Map<String, Object> data;
     private String provider;
     private String message;
+    private Boolean cached; // 是否来自响应缓存
 
     public AIResponse() {
     }
@@ -0,0 +1,12 @@
+package com.markglow.dto;
+
+import lombok.Data;
+
+@Data
+public class AnalysisEditRequest {
+    private String content; // 完整内容，不带 baseVersion 时用于建立增量分析状态
+    private String baseVersion; // 上一次分析返回的版本号
+    private Integer offset; // 编辑起始位置（字符）
+    private Integer deleteLength; // 删除的字符数
+    private String insertText; // 插入的文本
+}
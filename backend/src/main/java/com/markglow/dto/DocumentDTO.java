@@ -12,6 +12,8 @@ public class DocumentDTO {
     private String theme;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Integer totalWords; // 字数（列表查询时填充，来自分析结果缓存）
+    private Double readingTimeMinutes; // 预计阅读时间（分钟）
 
 
     public DocumentDTO(Long id, String title, String originalContent, String beautifiedContent, 
@@ -0,0 +1,12 @@
+package com.markglow.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DocumentPageDTO {
+    private List<DocumentSummaryDTO> items;
+    private String nextCursor; // 下一页游标，没有更多时为 null
+    private boolean hasMore;
+}
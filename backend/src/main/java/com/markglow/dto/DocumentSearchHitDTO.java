@@ -0,0 +1,14 @@
+package com.markglow.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DocumentSearchHitDTO extends DocumentSummaryDTO {
+    private double score; // 相关度（BM25）
+    private List<int[]> titleHighlights; // 标题中命中的位置 [起始, 结束)
+    private List<int[]> highlights; // snippet 中命中的位置 [起始, 结束)
+}
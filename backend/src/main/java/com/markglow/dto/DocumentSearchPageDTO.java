@@ -0,0 +1,14 @@
+package com.markglow.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DocumentSearchPageDTO {
+    private List<DocumentSearchHitDTO> items;
+    private long total; // 命中文档总数
+    private int page; // 页码，从0开始
+    private int size;
+    private boolean hasMore;
+}
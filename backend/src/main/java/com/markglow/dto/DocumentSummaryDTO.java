@@ -0,0 +1,17 @@
+package com.markglow.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class DocumentSummaryDTO {
+    private Long id;
+    private String title;
+    private String theme;
+    private String snippet; // 正文开头（最多200字符），优先取美化结果；搜索结果中为命中附近的片段
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Integer totalWords; // 字数
+    private Double readingTimeMinutes; // 预计阅读时间（分钟）
+}
@@ -0,0 +1,39 @@
+package com.markglow.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "ai_response_cache", indexes = {
+        @Index(name = "idx_expires_at", columnList = "expiresAt")
+})
+public class AIResponseCacheEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String cacheKey; // 缓存键：动作、模型、参数与提示词的SHA-256
+
+    @Column(nullable = false)
+    private String action; // AI操作类型
+
+    @Column
+    private String model; // 使用的模型
+
+    @Column(columnDefinition = "LONGTEXT")
+    private String response; // 缓存的AI响应内容
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt; // 过期时间
+
+    @Column
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -33,6 +33,12 @@ public class AIUsageRecord {
     @Column
     private Long duration; // 耗时（毫秒）
 
+    @Column
+    private Long firstTokenLatency; // 首token耗时（毫秒），仅流式调用记录
+
+    @Column
+    private Double tokensPerSecond; // 输出速度（token/秒）
+
     @Column
     private String userId; // 用户ID（预留，当前可为空）
 
@@ -41,7 +47,8 @@ public class AIUsageRecord {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // 精确到秒：与数据库 DATETIME 中保存的值一致，汇总所在的小时与原始记录相同
+        createdAt = LocalDateTime.now().withNano(0);
     }
 }
 
@@ -0,0 +1,46 @@
+package com.markglow.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "ai_usage_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_bucket_key",
+                columnNames = {"granularity", "bucketStart", "action", "provider", "model"}))
+public class AIUsageRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 8)
+    private String granularity; // 粒度：HOUR, DAY
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart; // 时间段开始（整点或零点）
+
+    @Column(nullable = false, length = 100)
+    private String action; // AI操作类型
+
+    @Column(nullable = false, length = 50)
+    private String provider; // AI服务提供商
+
+    @Column(nullable = false, length = 100)
+    private String model; // 使用的模型，未记录模型时为空字符串
+
+    @Column(nullable = false)
+    private Long calls; // 调用次数
+
+    @Column(nullable = false)
+    private Long inputTokens; // 输入token数
+
+    @Column(nullable = false)
+    private Long outputTokens; // 输出token数
+
+    @Column(nullable = false)
+    private Double cost; // 成本（元）
+
+    @Column(nullable = false)
+    private Long duration; // 总耗时（毫秒）
+}
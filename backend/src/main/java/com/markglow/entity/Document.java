@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = {
+        @Index(name = "idx_updated_at_id", columnList = "updatedAt, id")
+})
 public class Document {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +23,12 @@ public class Document {
     @Column(columnDefinition = "TEXT")
     private String beautifiedContent;
 
+    /**
+     * 上次美化的章节清单（JSON）：各章节原文哈希及其美化结果在 beautifiedContent 中的长度，用于增量美化
+     */
+    @Column(columnDefinition = "TEXT")
+    private String beautifySections;
+
     @Column
     private String theme;
 
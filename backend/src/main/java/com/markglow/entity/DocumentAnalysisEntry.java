@@ -0,0 +1,45 @@
+package com.markglow.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "document_analysis")
+public class DocumentAnalysisEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long documentId; // 所属文档ID
+
+    @Column(nullable = false, length = 64)
+    private String contentHash; // 分析内容的SHA-256，与当前内容不一致时结果作废
+
+    private Integer totalChars;
+    private Integer chineseChars;
+    private Integer englishWords;
+    private Integer totalWords;
+    private Double readingTimeMinutes;
+
+    // 复杂度指标，内容为空时不计算（均为 null）
+    private Integer headingDepth;
+    private Integer headingCount;
+    private Integer paragraphCount;
+    private Double averageParagraphLength;
+    private Integer codeBlockCount;
+    private Integer linkCount;
+    private Integer listItemCount;
+    private Double readabilityScore;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
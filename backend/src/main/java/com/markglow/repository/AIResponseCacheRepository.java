@@ -0,0 +1,28 @@
+package com.markglow.repository;
+
+import com.markglow.entity.AIResponseCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface AIResponseCacheRepository extends JpaRepository<AIResponseCacheEntry, Long> {
+    Optional<AIResponseCacheEntry> findByCacheKey(String cacheKey);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AIResponseCacheEntry e WHERE e.cacheKey = :cacheKey")
+    int deleteByCacheKey(@Param("cacheKey") String cacheKey);
+
+    // 删除已过期的缓存（按 idx_expires_at 范围删除）
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AIResponseCacheEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,6 +1,7 @@
 package com.markglow.repository;
 
 import com.markglow.entity.AIUsageRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,9 +16,22 @@ public interface AIUsageRecordRepository extends JpaRepository<AIUsageRecord, Lo
     List<AIUsageRecord> findByProvider(String provider);
     List<AIUsageRecord> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     
-    // 显式查询方法，确保边界条件正确（包含边界）
-    @Query("SELECT r FROM AIUsageRecord r WHERE r.createdAt >= :start AND r.createdAt <= :end ORDER BY r.createdAt DESC")
-    List<AIUsageRecord> findByCreatedAtRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    // 使用记录分页（按时间倒序，包含边界），在数据库中排序并取出一页
+    @Query(RECORD_SELECT + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<UsageRecordView> findRecordPage(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                         Pageable pageable);
+
+    // 同上，从游标位置（上一页最后一条的时间与ID）之后开始
+    @Query(RECORD_SELECT + "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<UsageRecordView> findRecordPageBefore(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                               @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                               Pageable pageable);
+
+    String RECORD_SELECT = "SELECT r.id AS id, r.action AS action, r.provider AS provider, r.model AS model, " +
+           "r.inputTokens AS inputTokens, r.outputTokens AS outputTokens, r.cost AS cost, r.duration AS duration, " +
+           "r.firstTokenLatency AS firstTokenLatency, r.tokensPerSecond AS tokensPerSecond, " +
+           "r.createdAt AS createdAt FROM AIUsageRecord r WHERE r.createdAt >= :start AND r.createdAt <= :end ";
     
     @Query("SELECT COUNT(r) FROM AIUsageRecord r WHERE r.createdAt >= :start AND r.createdAt <= :end")
     Long countByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
@@ -28,6 +42,23 @@ public interface AIUsageRecordRepository extends JpaRepository<AIUsageRecord, Lo
     @Query("SELECT SUM(r.cost) FROM AIUsageRecord r WHERE r.createdAt >= :start AND r.createdAt <= :end")
     Double sumCostByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
+    // 按 action/provider/model 在数据库中聚合（包含边界）
+    @Query(AGGREGATE_SELECT + "WHERE r.createdAt >= :start AND r.createdAt <= :end " + AGGREGATE_GROUP_BY)
+    List<UsageAggregateView> aggregateByCreatedAtRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // 同上，不包含 end
+    @Query(AGGREGATE_SELECT + "WHERE r.createdAt >= :start AND r.createdAt < :end " + AGGREGATE_GROUP_BY)
+    List<UsageAggregateView> aggregateByCreatedAtBefore(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    String AGGREGATE_SELECT = "SELECT r.action AS action, r.provider AS provider, r.model AS model, COUNT(r) AS calls, " +
+           "SUM(COALESCE(r.inputTokens, 0)) AS inputTokens, SUM(COALESCE(r.outputTokens, 0)) AS outputTokens, " +
+           "SUM(COALESCE(r.cost, 0)) AS cost, SUM(COALESCE(r.duration, 0)) AS duration FROM AIUsageRecord r ";
+
+    String AGGREGATE_GROUP_BY = "GROUP BY r.action, r.provider, r.model";
+
+    // 按主键顺序分页读取（生成汇总时使用）
+    List<AIUsageRecord> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     @Query("SELECT r.action, COUNT(r) as count FROM AIUsageRecord r WHERE r.createdAt >= :start AND r.createdAt <= :end GROUP BY r.action")
     List<Object[]> countByActionAndDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
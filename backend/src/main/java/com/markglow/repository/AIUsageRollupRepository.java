@@ -0,0 +1,35 @@
+package com.markglow.repository;
+
+import com.markglow.entity.AIUsageRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AIUsageRollupRepository extends JpaRepository<AIUsageRollup, Long> {
+
+    // 累加到时间段：不存在时插入，存在时原子地累加（依赖唯一键 uk_bucket_key）
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO ai_usage_rollups " +
+            "(granularity, bucket_start, action, provider, model, calls, input_tokens, output_tokens, cost, duration) " +
+            "VALUES (:granularity, :bucketStart, :action, :provider, :model, :calls, :inputTokens, :outputTokens, :cost, :duration) " +
+            "ON DUPLICATE KEY UPDATE calls = calls + VALUES(calls), input_tokens = input_tokens + VALUES(input_tokens), " +
+            "output_tokens = output_tokens + VALUES(output_tokens), cost = cost + VALUES(cost), duration = duration + VALUES(duration)",
+            nativeQuery = true)
+    int accumulate(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("action") String action, @Param("provider") String provider, @Param("model") String model,
+                   @Param("calls") long calls, @Param("inputTokens") long inputTokens, @Param("outputTokens") long outputTokens,
+                   @Param("cost") double cost, @Param("duration") long duration);
+
+    @Query("SELECT u FROM AIUsageRollup u WHERE u.granularity = :granularity " +
+           "AND u.bucketStart >= :from AND u.bucketStart < :to")
+    List<AIUsageRollup> findBuckets(@Param("granularity") String granularity,
+                                    @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,46 @@
+package com.markglow.repository;
+
+import com.markglow.entity.DocumentAnalysisEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentAnalysisRepository extends JpaRepository<DocumentAnalysisEntry, Long> {
+    Optional<DocumentAnalysisEntry> findByDocumentId(Long documentId);
+
+    List<DocumentAnalysisEntry> findByDocumentIdIn(Collection<Long> documentIds);
+
+    // 保存文档的分析结果：不存在时插入，已存在时覆盖（依赖唯一键 uk_document_id，并发保存同一文档不会冲突）
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO document_analysis (document_id, content_hash, total_chars, chinese_chars, english_words, " +
+            "total_words, reading_time_minutes, heading_depth, heading_count, paragraph_count, average_paragraph_length, " +
+            "code_block_count, link_count, list_item_count, readability_score, updated_at) " +
+            "VALUES (:#{#entry.documentId}, :#{#entry.contentHash}, :#{#entry.totalChars}, :#{#entry.chineseChars}, " +
+            ":#{#entry.englishWords}, :#{#entry.totalWords}, :#{#entry.readingTimeMinutes}, :#{#entry.headingDepth}, " +
+            ":#{#entry.headingCount}, :#{#entry.paragraphCount}, :#{#entry.averageParagraphLength}, " +
+            ":#{#entry.codeBlockCount}, :#{#entry.linkCount}, :#{#entry.listItemCount}, :#{#entry.readabilityScore}, " +
+            "CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE content_hash = VALUES(content_hash), total_chars = VALUES(total_chars), " +
+            "chinese_chars = VALUES(chinese_chars), english_words = VALUES(english_words), total_words = VALUES(total_words), " +
+            "reading_time_minutes = VALUES(reading_time_minutes), heading_depth = VALUES(heading_depth), " +
+            "heading_count = VALUES(heading_count), paragraph_count = VALUES(paragraph_count), " +
+            "average_paragraph_length = VALUES(average_paragraph_length), code_block_count = VALUES(code_block_count), " +
+            "link_count = VALUES(link_count), list_item_count = VALUES(list_item_count), " +
+            "readability_score = VALUES(readability_score), updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int upsert(@Param("entry") DocumentAnalysisEntry entry);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DocumentAnalysisEntry e WHERE e.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") Long documentId);
+}
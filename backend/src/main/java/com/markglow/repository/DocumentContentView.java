@@ -0,0 +1,12 @@
+package com.markglow.repository;
+
+/**
+ * 文档分析用的投影：只取主键、标题和待分析的内容（原文为空时取美化结果），不加载整个实体
+ */
+public interface DocumentContentView {
+    Long getId();
+
+    String getTitle();
+
+    String getContent();
+}
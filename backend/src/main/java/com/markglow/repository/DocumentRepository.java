@@ -1,11 +1,14 @@
 package com.markglow.repository;
 
 import com.markglow.entity.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,12 +18,40 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     // 按标题搜索（模糊匹配，忽略大小写）
     List<Document> findByTitleContainingIgnoreCaseOrderByUpdatedAtDesc(String keyword);
     
-    // 按标题或内容搜索（全文搜索）
+    // 按标题或内容搜索（全文索引未建立时使用）
     @Query("SELECT d FROM Document d WHERE " +
            "LOWER(d.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(d.originalContent) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(d.beautifiedContent) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
            "ORDER BY d.updatedAt DESC")
     List<Document> searchByKeyword(@Param("keyword") String keyword);
+
+    // 批量分析：按主键顺序分页读取待分析内容（keyset 分页，翻页不随偏移量变慢）
+    @Query("SELECT d.id AS id, d.title AS title, COALESCE(d.originalContent, d.beautifiedContent) AS content " +
+           "FROM Document d WHERE d.id > :afterId ORDER BY d.id")
+    List<DocumentContentView> findContentPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT d.id AS id, d.title AS title, COALESCE(d.originalContent, d.beautifiedContent) AS content " +
+           "FROM Document d WHERE d.id IN :ids")
+    List<DocumentContentView> findContentByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 文档列表：按更新时间倒序的 keyset 分页，摘要在数据库中截取，不读取正文
+    String SUMMARY_SELECT = "SELECT d.id AS id, d.title AS title, d.theme AS theme, " +
+           "SUBSTRING(COALESCE(d.beautifiedContent, d.originalContent), 1, 200) AS snippet, " +
+           "d.createdAt AS createdAt, d.updatedAt AS updatedAt, " +
+           "a.totalWords AS totalWords, a.readingTimeMinutes AS readingTimeMinutes " +
+           "FROM Document d LEFT JOIN DocumentAnalysisEntry a ON a.documentId = d.id ";
+
+    @Query(SUMMARY_SELECT + "ORDER BY d.updatedAt DESC, d.id DESC")
+    List<DocumentSummaryView> findSummaryPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE d.updatedAt < :updatedAt OR (d.updatedAt = :updatedAt AND d.id < :id) " +
+           "ORDER BY d.updatedAt DESC, d.id DESC")
+    List<DocumentSummaryView> findSummaryPageBefore(@Param("updatedAt") LocalDateTime updatedAt,
+                                                    @Param("id") Long id, Pageable pageable);
+
+    // 全文搜索：按索引返回的命中ID读取摘要信息
+    @Query(SUMMARY_SELECT + "WHERE d.id IN :ids")
+    List<DocumentSummaryView> findSummaryByIdIn(@Param("ids") Collection<Long> ids);
 }
 
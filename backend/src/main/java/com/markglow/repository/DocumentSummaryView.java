@@ -0,0 +1,24 @@
+package com.markglow.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档列表用的投影：不读取正文，只取数据库截取的摘要，以及 document_analysis 表中已保存的字数与阅读时间（未分析过时为 null）
+ */
+public interface DocumentSummaryView {
+    Long getId();
+
+    String getTitle();
+
+    String getTheme();
+
+    String getSnippet();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Integer getTotalWords();
+
+    Double getReadingTimeMinutes();
+}
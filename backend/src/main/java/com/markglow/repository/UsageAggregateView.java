@@ -0,0 +1,22 @@
+package com.markglow.repository;
+
+/**
+ * 使用记录按 action/provider/model 聚合的投影：只返回汇总值，不加载记录实体
+ */
+public interface UsageAggregateView {
+    String getAction();
+
+    String getProvider();
+
+    String getModel();
+
+    long getCalls();
+
+    long getInputTokens();
+
+    long getOutputTokens();
+
+    double getCost();
+
+    long getDuration();
+}
@@ -0,0 +1,30 @@
+package com.markglow.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 使用记录列表用的投影：只取页面显示的列
+ */
+public interface UsageRecordView {
+    Long getId();
+
+    String getAction();
+
+    String getProvider();
+
+    String getModel();
+
+    Integer getInputTokens();
+
+    Integer getOutputTokens();
+
+    Double getCost();
+
+    Long getDuration();
+
+    Long getFirstTokenLatency();
+
+    Double getTokensPerSecond();
+
+    LocalDateTime getCreatedAt();
+}
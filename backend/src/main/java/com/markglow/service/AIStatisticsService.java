@@ -2,13 +2,19 @@ package com.markglow.service;
 
 import com.markglow.entity.AIUsageRecord;
 import com.markglow.repository.AIUsageRecordRepository;
+import com.markglow.repository.UsageRecordView;
+import com.markglow.service.ai.TokenCounter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,6 +24,26 @@ public class AIStatisticsService {
     @Autowired
     private AIUsageRecordRepository usageRecordRepository;
 
+    @Autowired
+    private UsageRollupService rollupService;
+
+    @Autowired
+    private UsageRecordWriter usageRecordWriter;
+
+    @Autowired
+    private LiveUsageMetrics liveUsageMetrics;
+
+    private static final int MAX_RECORD_PAGE_SIZE = 500;
+
+    // 响应缓存统计（进程启动以来累计）
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheBytesSaved = new LongAdder();
+    private final LongAdder cacheTokensSaved = new LongAdder();
+    private final Map<String, LongAdder> cacheHitsByAction = new ConcurrentHashMap<>();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder coalescedTokensSaved = new LongAdder();
+
     // 模型定价（元/千tokens）- 简化版，实际应该从配置读取
     private static final Map<String, Map<String, Double>> MODEL_PRICING = new HashMap<>();
     static {
@@ -36,8 +62,23 @@ public class AIStatisticsService {
         MODEL_PRICING.put("qwen-72b", qwenPricing);
     }
 
+    /**
+     * 有定价的模型名称
+     */
+    static Set<String> pricedModels() {
+        return Collections.unmodifiableSet(MODEL_PRICING.keySet());
+    }
+
     public void recordUsage(String action, String provider, String model, 
                            Integer inputTokens, Integer outputTokens, Long duration) {
+        recordUsage(action, provider, model, inputTokens, outputTokens, duration, null);
+    }
+
+    /**
+     * @param firstTokenLatency 流式调用从开始到收到第一段内容的耗时（毫秒），非流式调用为 null
+     */
+    public void recordUsage(String action, String provider, String model,
+                           Integer inputTokens, Integer outputTokens, Long duration, Long firstTokenLatency) {
         try {
             AIUsageRecord record = new AIUsageRecord();
             record.setAction(action);
@@ -46,19 +87,89 @@ public class AIStatisticsService {
             record.setInputTokens(inputTokens != null ? inputTokens : 0);
             record.setOutputTokens(outputTokens != null ? outputTokens : 0);
             record.setDuration(duration != null ? duration : 0);
+            record.setFirstTokenLatency(firstTokenLatency);
+            record.setTokensPerSecond(tokensPerSecond(record.getOutputTokens(), record.getDuration(), firstTokenLatency));
             
             // 计算成本
             double cost = calculateCost(model, record.getInputTokens(), record.getOutputTokens());
             record.setCost(cost);
             
-            AIUsageRecord saved = usageRecordRepository.save(record);
-            log.info("记录AI使用成功: id={}, action={}, provider={}, model={}, tokens={}/{}, cost={}, duration={}ms, createdAt={}", 
-                    saved.getId(), action, provider, model, inputTokens, outputTokens, cost, duration, saved.getCreatedAt());
+            liveUsageMetrics.record(action, provider, model, record.getInputTokens(), record.getOutputTokens(),
+                    cost, record.getDuration(), firstTokenLatency, record.getTokensPerSecond());
+            
+            // 调用完成的时间（精确到秒，与数据库 DATETIME 一致），记录由 usage-writer 线程稍后写入
+            record.setCreatedAt(LocalDateTime.now().withNano(0));
+            
+            if (usageRecordWriter.submit(record)) {
+                log.info("记录AI使用: action={}, provider={}, model={}, tokens={}/{}, cost={}, duration={}ms, " +
+                                "firstToken={}ms, tokensPerSecond={}, createdAt={}",
+                        action, provider, model, inputTokens, outputTokens, cost, duration,
+                        firstTokenLatency, record.getTokensPerSecond(), record.getCreatedAt());
+            }
         } catch (Exception e) {
             log.error("记录AI使用失败: action={}, provider={}, error={}", action, provider, e.getMessage(), e);
         }
     }
 
+    /**
+     * 输出速度：流式调用按收到第一段内容之后的生成时间计算，非流式调用按总耗时计算；无输出或耗时为 0 时为 null
+     */
+    private static Double tokensPerSecond(int outputTokens, long duration, Long firstTokenLatency) {
+        long generationTime = firstTokenLatency != null ? duration - firstTokenLatency : duration;
+        if (outputTokens <= 0 || generationTime <= 0) {
+            return null;
+        }
+        return Math.round(outputTokens * 100000.0 / generationTime) / 100.0;
+    }
+
+    /**
+     * 记录缓存命中：节省的字节数按响应内容的UTF-8长度计算，节省的token数按 TokenCounter 估算
+     */
+    public void recordCacheHit(String action, String content, String response) {
+        int inputTokens = TokenCounter.count(content);
+        int outputTokens = TokenCounter.count(response);
+        cacheHits.increment();
+        cacheBytesSaved.add(response != null ? response.getBytes(StandardCharsets.UTF_8).length : 0);
+        cacheTokensSaved.add(inputTokens + outputTokens);
+        cacheHitsByAction.computeIfAbsent(action, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录缓存未命中（仅统计可缓存的请求）
+     */
+    public void recordCacheMiss(String action) {
+        cacheMisses.increment();
+        log.debug("AI响应缓存未命中: action={}", action);
+    }
+
+    /**
+     * 记录合并请求：并发的相同请求共用了一次上游调用，节省的token数估算方式同上
+     */
+    public void recordCoalesced(String action, String content, String response) {
+        int inputTokens = TokenCounter.count(content);
+        int outputTokens = TokenCounter.count(response);
+        coalescedRequests.increment();
+        coalescedTokensSaved.add(inputTokens + outputTokens);
+        log.debug("相同请求已合并: action={}", action);
+    }
+
+    public CacheStatistics getCacheStatistics() {
+        CacheStatistics statistics = new CacheStatistics();
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        statistics.setHits(hits);
+        statistics.setMisses(misses);
+        statistics.setHitRatio(hits + misses > 0 ? Math.round(hits * 10000.0 / (hits + misses)) / 10000.0 : 0.0);
+        statistics.setBytesSaved(cacheBytesSaved.sum());
+        statistics.setTokensSaved(cacheTokensSaved.sum());
+        Map<String, Long> hitsByAction = new HashMap<>();
+        cacheHitsByAction.forEach((action, count) -> hitsByAction.put(action, count.sum()));
+        statistics.setHitsByAction(hitsByAction);
+        statistics.setCoalesced(coalescedRequests.sum());
+        statistics.setCoalescedTokensSaved(coalescedTokensSaved.sum());
+        return statistics;
+    }
+
     private double calculateCost(String model, int inputTokens, int outputTokens) {
         Map<String, Double> pricing = MODEL_PRICING.get(model);
         if (pricing == null) {
@@ -89,166 +200,161 @@ public class AIStatisticsService {
                 start = LocalDateTime.of(end.toLocalDate(), LocalTime.MIN);
         }
         
-        List<AIUsageRecord> records = usageRecordRepository.findByCreatedAtRange(start, end);
+        // 读取汇总表及首尾不足一小时部分的聚合结果，不加载使用记录
+        List<UsageRollupService.UsageBucket> buckets = rollupService.collect(start, end);
         
         StatisticsSummary summary = new StatisticsSummary();
         summary.setPeriod(period);
         summary.setStartTime(start);
         summary.setEndTime(end);
-        summary.setTotalCalls((long) records.size());
+        summary.setTotalCalls(buckets.stream().mapToLong(UsageRollupService.UsageBucket::getCalls).sum());
         
-        int totalInputTokens = records.stream().mapToInt(r -> r.getInputTokens() != null ? r.getInputTokens() : 0).sum();
-        int totalOutputTokens = records.stream().mapToInt(r -> r.getOutputTokens() != null ? r.getOutputTokens() : 0).sum();
-        summary.setTotalInputTokens(totalInputTokens);
-        summary.setTotalOutputTokens(totalOutputTokens);
-        summary.setTotalTokens(totalInputTokens + totalOutputTokens);
+        long totalInputTokens = buckets.stream().mapToLong(UsageRollupService.UsageBucket::getInputTokens).sum();
+        long totalOutputTokens = buckets.stream().mapToLong(UsageRollupService.UsageBucket::getOutputTokens).sum();
+        summary.setTotalInputTokens((int) totalInputTokens);
+        summary.setTotalOutputTokens((int) totalOutputTokens);
+        summary.setTotalTokens((int) (totalInputTokens + totalOutputTokens));
         
-        double totalCost = records.stream().mapToDouble(r -> r.getCost() != null ? r.getCost() : 0).sum();
+        double totalCost = buckets.stream().mapToDouble(UsageRollupService.UsageBucket::getCost).sum();
         summary.setTotalCost(Math.round(totalCost * 100.0) / 100.0);
         
         // 按action统计
-        Map<String, Long> actionCounts = records.stream()
-                .collect(Collectors.groupingBy(AIUsageRecord::getAction, Collectors.counting()));
+        Map<String, Long> actionCounts = buckets.stream()
+                .collect(Collectors.groupingBy(UsageRollupService.UsageBucket::getAction,
+                        Collectors.summingLong(UsageRollupService.UsageBucket::getCalls)));
         summary.setActionCounts(actionCounts);
         
         // 按provider统计
-        Map<String, Long> providerCounts = records.stream()
-                .collect(Collectors.groupingBy(AIUsageRecord::getProvider, Collectors.counting()));
+        Map<String, Long> providerCounts = buckets.stream()
+                .collect(Collectors.groupingBy(UsageRollupService.UsageBucket::getProvider,
+                        Collectors.summingLong(UsageRollupService.UsageBucket::getCalls)));
         summary.setProviderCounts(providerCounts);
         
         return summary;
     }
 
     /**
-     * 获取每次使用记录列表
+     * 使用记录分页（按时间倒序）：在数据库中排序并只读取一页的列，内存占用与区间内的记录数无关
+     * @param page 页码（从0开始），cursor 为空时使用
+     * @param cursor 上一页返回的 nextCursor，不为空时从该位置之后读取，翻页较深时无需跳过前面的记录
+     * @param size 每页条数，最多 500
      */
-    public List<AIUsageRecord> getUsageRecords(LocalDateTime start, LocalDateTime end, int page, int size) {
-        List<AIUsageRecord> allRecords = usageRecordRepository.findByCreatedAtRange(start, end);
-        // 按创建时间倒序排列
-        allRecords.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
-        // 简单分页
-        int fromIndex = page * size;
-        int toIndex = Math.min(fromIndex + size, allRecords.size());
-        if (fromIndex >= allRecords.size()) {
-            return new ArrayList<>();
+    public UsageRecordPage getUsageRecordPage(LocalDateTime start, LocalDateTime end, int page, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_RECORD_PAGE_SIZE));
+        long total = usageRecordRepository.countByDateRange(start, end);
+        List<UsageRecordView> records;
+        boolean hasMore;
+        if (cursor == null || cursor.isEmpty()) {
+            records = usageRecordRepository.findRecordPage(start, end, PageRequest.of(Math.max(page, 0), pageSize));
+            hasMore = (long) (Math.max(page, 0) + 1) * pageSize < total;
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            // 多取一条判断是否还有下一页
+            records = usageRecordRepository.findRecordPageBefore(start, end, position.getTime(), position.getId(),
+                    PageRequest.of(0, pageSize + 1));
+            hasMore = records.size() > pageSize;
+            if (hasMore) {
+                records = records.subList(0, pageSize);
+            }
         }
-        return allRecords.subList(fromIndex, toIndex);
-    }
-
-    /**
-     * 获取总记录数
-     */
-    public long getUsageRecordsCount(LocalDateTime start, LocalDateTime end) {
-        return usageRecordRepository.findByCreatedAtRange(start, end).size();
+        
+        UsageRecordPage result = new UsageRecordPage();
+        result.setRecords(records);
+        result.setTotal(total);
+        result.setHasMore(hasMore);
+        if (hasMore && !records.isEmpty()) {
+            UsageRecordView last = records.get(records.size() - 1);
+            result.setNextCursor(new PageCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return result;
     }
 
     /**
      * 按分组获取统计（每次/每日/每月）
+     * 每日/每月返回区间内的全部分组；每次统计每条记录一行，分页方式同 getUsageRecordPage
+     * @param page 页码（从0开始），仅用于每次统计，cursor 为空时使用
+     * @param cursor 上一页返回的 nextCursor，仅用于每次统计
+     * @param size 每页条数，最多 500，仅用于每次统计
      */
-    public List<GroupedStatistics> getGroupedStatistics(LocalDateTime start, LocalDateTime end, String groupBy) {
+    public GroupedStatisticsPage getGroupedStatistics(LocalDateTime start, LocalDateTime end, String groupBy,
+                                                      int page, String cursor, int size) {
         log.info("获取分组统计: groupBy={}, start={}, end={}", groupBy, start, end);
-        // 使用显式查询方法，确保边界条件正确
-        List<AIUsageRecord> records = usageRecordRepository.findByCreatedAtRange(start, end);
-        log.info("查询到记录数: {}", records.size());
-        
-        // 输出前几条记录的详细信息用于调试
-        if (records.size() > 0) {
-            log.info("前3条记录详情:");
-            for (int i = 0; i < Math.min(3, records.size()); i++) {
-                AIUsageRecord r = records.get(i);
-                log.info("  记录[{}]: id={}, action={}, createdAt={}, inputTokens={}, outputTokens={}", 
-                        i, r.getId(), r.getAction(), r.getCreatedAt(), r.getInputTokens(), r.getOutputTokens());
-            }
+        GroupedStatisticsPage result = new GroupedStatisticsPage();
+        if ("day".equals(groupBy) || "month".equals(groupBy)) {
+            List<GroupedStatistics> statistics = getRolledUpStatistics(start, end, groupBy);
+            result.setStatistics(statistics);
+            result.setTotal(statistics.size());
+            return result;
         }
         
+        // 每次统计：每条记录单独显示，不聚合，在数据库中按时间倒序分页
+        UsageRecordPage records = getUsageRecordPage(start, end, page, cursor, size);
+        List<GroupedStatistics> statistics = new ArrayList<>(records.getRecords().size());
+        for (UsageRecordView record : records.getRecords()) {
+            GroupedStatistics stats = new GroupedStatistics();
+            stats.setKey(record.getId().toString());
+            stats.setDate(record.getCreatedAt().toString());
+            stats.setAction(record.getAction());
+            stats.setProvider(record.getProvider());
+            stats.setModel(record.getModel());
+            stats.setCalls(1); // 每次统计，调用次数始终为1
+            stats.setInputTokens(record.getInputTokens() != null ? record.getInputTokens() : 0);
+            stats.setOutputTokens(record.getOutputTokens() != null ? record.getOutputTokens() : 0);
+            stats.setCost(record.getCost() != null ? record.getCost() : 0.0);
+            stats.setTotalTokens(stats.getInputTokens() + stats.getOutputTokens());
+            stats.setDuration(record.getDuration() != null ? record.getDuration() : 0L);
+            statistics.add(stats);
+        }
+        result.setStatistics(statistics);
+        result.setTotal(records.getTotal());
+        result.setHasMore(records.isHasMore());
+        result.setNextCursor(records.getNextCursor());
+        log.info("分组统计完成: groupBy={}, page={}, 记录数={}, 总数={}", groupBy, page, statistics.size(), records.getTotal());
+        return result;
+    }
+
+    /**
+     * 每日/每月统计：由汇总表按日期合并，不加载使用记录
+     */
+    private List<GroupedStatistics> getRolledUpStatistics(LocalDateTime start, LocalDateTime end, String groupBy) {
+        List<UsageRollupService.UsageBucket> buckets = rollupService.collect(start, end);
         Map<String, GroupedStatistics> groupedMap = new HashMap<>();
-        
-        for (AIUsageRecord record : records) {
-            String key;
-            switch (groupBy) {
-                case "day":
-                    key = record.getCreatedAt().toLocalDate().toString();
-                    break;
-                case "month":
-                    key = record.getCreatedAt().toLocalDate().withDayOfMonth(1).toString();
-                    break;
-                case "each":
-                default:
-                    // 每次：使用记录ID作为key，每条记录单独显示
-                    key = record.getId().toString();
-                    break;
-            }
-            
-            GroupedStatistics stats;
-            if (groupBy.equals("each")) {
-                // 每次统计：每条记录单独显示，不聚合
-                stats = new GroupedStatistics();
-                stats.setKey(key);
-                stats.setDate(record.getCreatedAt().toString());
-                stats.setAction(record.getAction());
-                stats.setProvider(record.getProvider());
-                stats.setModel(record.getModel());
-                stats.setCalls(1); // 每次统计，调用次数始终为1
-                stats.setInputTokens(record.getInputTokens() != null ? record.getInputTokens() : 0);
-                stats.setOutputTokens(record.getOutputTokens() != null ? record.getOutputTokens() : 0);
-                stats.setCost(record.getCost() != null ? record.getCost() : 0.0);
-                stats.setTotalTokens(stats.getInputTokens() + stats.getOutputTokens());
-                stats.setDuration(record.getDuration() != null ? record.getDuration() : 0L);
-            } else {
-                // 每日/每月统计：聚合数据
-                stats = groupedMap.getOrDefault(key, new GroupedStatistics());
-                stats.setKey(key);
-                if (stats.getDate() == null) {
-                    stats.setDate(key);
-                }
-                stats.setCalls(stats.getCalls() + 1);
-                stats.setInputTokens(stats.getInputTokens() + (record.getInputTokens() != null ? record.getInputTokens() : 0));
-                stats.setOutputTokens(stats.getOutputTokens() + (record.getOutputTokens() != null ? record.getOutputTokens() : 0));
-                stats.setCost(stats.getCost() + (record.getCost() != null ? record.getCost() : 0));
-                stats.setTotalTokens(stats.getInputTokens() + stats.getOutputTokens());
-                if (record.getDuration() != null) {
-                    stats.setDuration(stats.getDuration() + record.getDuration());
-                }
-            }
-            groupedMap.put(key, stats);
+        long calls = 0;
+        for (UsageRollupService.UsageBucket bucket : buckets) {
+            String key = "month".equals(groupBy)
+                    ? bucket.getBucketStart().toLocalDate().withDayOfMonth(1).toString()
+                    : bucket.getBucketStart().toLocalDate().toString();
+            GroupedStatistics stats = groupedMap.computeIfAbsent(key, k -> new GroupedStatistics());
+            stats.setKey(key);
+            stats.setDate(key);
+            stats.setCalls(stats.getCalls() + (int) bucket.getCalls());
+            stats.setInputTokens(stats.getInputTokens() + (int) bucket.getInputTokens());
+            stats.setOutputTokens(stats.getOutputTokens() + (int) bucket.getOutputTokens());
+            stats.setCost(stats.getCost() + bucket.getCost());
+            stats.setTotalTokens(stats.getInputTokens() + stats.getOutputTokens());
+            stats.setDuration(stats.getDuration() + bucket.getDuration());
+            calls += bucket.getCalls();
         }
-        
         List<GroupedStatistics> result = new ArrayList<>(groupedMap.values());
         // 按key倒序排列（最新的在前）
-        result.sort((a, b) -> {
-            if (groupBy.equals("each")) {
-                return Long.compare(Long.parseLong(b.getKey()), Long.parseLong(a.getKey()));
-            } else {
-                return b.getKey().compareTo(a.getKey());
-            }
-        });
-        
-        log.info("分组统计完成: groupBy={}, 分组数={}, 总记录数={}", groupBy, result.size(), records.size());
-        if (result.size() > 0) {
-            log.info("前3个分组统计详情:");
-            for (int i = 0; i < Math.min(3, result.size()); i++) {
-                GroupedStatistics s = result.get(i);
-                log.info("  分组[{}]: key={}, date={}, calls={}, tokens={}/{}, cost={}", 
-                        i, s.getKey(), s.getDate(), s.getCalls(), s.getInputTokens(), s.getOutputTokens(), s.getCost());
-            }
-        }
-        
+        result.sort((a, b) -> b.getKey().compareTo(a.getKey()));
+        log.info("分组统计完成: groupBy={}, 分组数={}, 汇总行数={}, 总调用数={}", groupBy, result.size(), buckets.size(), calls);
         return result;
     }
 
     public List<DailyStatistics> getDailyStatistics(LocalDateTime start, LocalDateTime end) {
-        List<AIUsageRecord> records = usageRecordRepository.findByCreatedAtRange(start, end);
+        List<UsageRollupService.UsageBucket> buckets = rollupService.collect(start, end);
         
         Map<String, DailyStatistics> dailyMap = new HashMap<>();
         
-        for (AIUsageRecord record : records) {
-            String date = record.getCreatedAt().toLocalDate().toString();
+        for (UsageRollupService.UsageBucket bucket : buckets) {
+            String date = bucket.getBucketStart().toLocalDate().toString();
             DailyStatistics daily = dailyMap.getOrDefault(date, new DailyStatistics());
             daily.setDate(date);
-            daily.setCalls(daily.getCalls() + 1);
-            daily.setInputTokens(daily.getInputTokens() + (record.getInputTokens() != null ? record.getInputTokens() : 0));
-            daily.setOutputTokens(daily.getOutputTokens() + (record.getOutputTokens() != null ? record.getOutputTokens() : 0));
-            daily.setCost(daily.getCost() + (record.getCost() != null ? record.getCost() : 0));
+            daily.setCalls(daily.getCalls() + (int) bucket.getCalls());
+            daily.setInputTokens(daily.getInputTokens() + (int) bucket.getInputTokens());
+            daily.setOutputTokens(daily.getOutputTokens() + (int) bucket.getOutputTokens());
+            daily.setCost(daily.getCost() + bucket.getCost());
             dailyMap.put(date, daily);
         }
         
@@ -299,6 +405,46 @@ public class AIStatisticsService {
         public void setProviderCounts(Map<String, Long> providerCounts) { this.providerCounts = providerCounts; }
     }
 
+    public static class UsageRecordPage {
+        private List<UsageRecordView> records;
+        private long total;
+        private boolean hasMore;
+        private String nextCursor;
+
+        // Getters and Setters
+        public List<UsageRecordView> getRecords() { return records; }
+        public void setRecords(List<UsageRecordView> records) { this.records = records; }
+        
+        public long getTotal() { return total; }
+        public void setTotal(long total) { this.total = total; }
+        
+        public boolean isHasMore() { return hasMore; }
+        public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+        
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
+
+    public static class GroupedStatisticsPage {
+        private List<GroupedStatistics> statistics;
+        private long total;
+        private boolean hasMore;
+        private String nextCursor;
+
+        // Getters and Setters
+        public List<GroupedStatistics> getStatistics() { return statistics; }
+        public void setStatistics(List<GroupedStatistics> statistics) { this.statistics = statistics; }
+        
+        public long getTotal() { return total; }
+        public void setTotal(long total) { this.total = total; }
+        
+        public boolean isHasMore() { return hasMore; }
+        public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+        
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    }
+
     public static class DailyStatistics {
         private String date;
         private Integer calls;
@@ -386,5 +532,40 @@ public class AIStatisticsService {
         public Long getDuration() { return duration; }
         public void setDuration(Long duration) { this.duration = duration; }
     }
-}
 
+    public static class CacheStatistics {
+        private Long hits;
+        private Long misses;
+        private Double hitRatio;
+        private Long bytesSaved;
+        private Long tokensSaved;
+        private Map<String, Long> hitsByAction;
+        private Long coalesced;
+        private Long coalescedTokensSaved;
+
+        // Getters and Setters
+        public Long getHits() { return hits; }
+        public void setHits(Long hits) { this.hits = hits; }
+
+        public Long getMisses() { return misses; }
+        public void setMisses(Long misses) { this.misses = misses; }
+
+        public Double getHitRatio() { return hitRatio; }
+        public void setHitRatio(Double hitRatio) { this.hitRatio = hitRatio; }
+
+        public Long getBytesSaved() { return bytesSaved; }
+        public void setBytesSaved(Long bytesSaved) { this.bytesSaved = bytesSaved; }
+
+        public Long getTokensSaved() { return tokensSaved; }
+        public void setTokensSaved(Long tokensSaved) { this.tokensSaved = tokensSaved; }
+
+        public Map<String, Long> getHitsByAction() { return hitsByAction; }
+        public void setHitsByAction(Map<String, Long> hitsByAction) { this.hitsByAction = hitsByAction; }
+
+        public Long getCoalesced() { return coalesced; }
+        public void setCoalesced(Long coalesced) { this.coalesced = coalesced; }
+
+        public Long getCoalescedTokensSaved() { return coalescedTokensSaved; }
+        public void setCoalescedTokensSaved(Long coalescedTokensSaved) { this.coalescedTokensSaved = coalescedTokensSaved; }
+    }
+}
@@ -0,0 +1,320 @@
+package com.markglow.service;
+
+import com.markglow.config.AnalysisConfig;
+import com.markglow.repository.DocumentContentView;
+import com.markglow.repository.DocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量文档分析：按主键顺序分页读取所有文档（只取分析所需的列），在 analysis-batch 线程池上并行分析，
+ * 按文档顺序逐个回调结果并汇总语料统计。读取下一页与分析当前页同时进行，内存中最多保留两页文档
+ */
+@Service
+@Slf4j
+public class BatchAnalysisService {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentAnalysisService analysisService;
+
+    @Autowired
+    private AnalysisConfig analysisConfig;
+
+    private ThreadPoolTaskExecutor executor;
+
+    // 分页读取与回调结果的线程：同时只运行一个批量分析，另有一个可排队，再多则拒绝
+    private ThreadPoolTaskExecutor reader;
+
+    @PostConstruct
+    public void init() {
+        AnalysisConfig.BatchConfig config = analysisConfig.getBatch();
+        int parallelism = config.getParallelism() > 0 ? config.getParallelism() : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("analysis-batch-");
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.initialize();
+
+        reader = new ThreadPoolTaskExecutor();
+        reader.setThreadNamePrefix("analysis-batch-reader-");
+        reader.setCorePoolSize(1);
+        reader.setMaxPoolSize(1);
+        reader.setQueueCapacity(1);
+        reader.initialize();
+        log.info("初始化批量分析线程池: parallelism={}, pageSize={}", parallelism, config.getPageSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reader.shutdown();
+        executor.shutdown();
+    }
+
+    /**
+     * 在 analysis-batch-reader 线程上分析所有文档
+     * @param listener 同 analyzeAll，在 analysis-batch-reader 线程上回调
+     * @return 语料汇总统计
+     * @throws org.springframework.core.task.TaskRejectedException 已有批量分析在运行且排队已满
+     */
+    public CompletableFuture<CorpusSummary> analyzeAllAsync(DocumentListener listener) {
+        CompletableFuture<CorpusSummary> future = new CompletableFuture<>();
+        reader.execute(() -> {
+            try {
+                future.complete(analyzeAll(listener));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 分析所有文档
+     * @param listener 每篇文档的分析结果，按文档ID升序在调用线程上回调
+     * @return 语料汇总统计
+     * @throws IOException listener 写出失败（如客户端断开）时中止并抛出
+     */
+    public CorpusSummary analyzeAll(DocumentListener listener) throws IOException {
+        long start = System.currentTimeMillis();
+        int pageSize = Math.max(1, analysisConfig.getBatch().getPageSize());
+        CorpusTotals totals = new CorpusTotals();
+        List<DocumentContentView> page = fetch(0L, pageSize);
+        List<CompletableFuture<DocumentResult>> current = submit(page);
+        List<CompletableFuture<DocumentResult>> next = Collections.emptyList();
+        try {
+            while (!current.isEmpty()) {
+                if (page.size() < pageSize) {
+                    next = Collections.emptyList();
+                } else {
+                    // 当前页分析期间读取下一页
+                    page = fetch(page.get(page.size() - 1).getId(), pageSize);
+                    next = submit(page);
+                }
+                for (CompletableFuture<DocumentResult> future : current) {
+                    DocumentResult result = future.join();
+                    totals.add(result);
+                    listener.onDocument(result);
+                }
+                current = next;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("批量分析中止: 已完成 {} 篇, 原因: {}", totals.documentCount, e.getMessage());
+            cancel(current);
+            cancel(next);
+            throw e;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("批量分析完成: documents={}, totalChars={}, 耗时 {} ms", totals.documentCount, totals.totalChars, elapsed);
+        return totals.toSummary(elapsed);
+    }
+
+    private List<DocumentContentView> fetch(Long afterId, int pageSize) {
+        return documentRepository.findContentPage(afterId, PageRequest.of(0, pageSize));
+    }
+
+    private List<CompletableFuture<DocumentResult>> submit(List<DocumentContentView> page) {
+        List<CompletableFuture<DocumentResult>> futures = new ArrayList<>(page.size());
+        for (DocumentContentView document : page) {
+            Long id = document.getId();
+            String title = document.getTitle();
+            String content = document.getContent();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                DocumentResult result = new DocumentResult();
+                result.setDocumentId(id);
+                result.setTitle(title);
+                result.setAnalysis(analysisService.analyzeDocument(content));
+                return result;
+            }, executor));
+        }
+        return futures;
+    }
+
+    private static void cancel(List<CompletableFuture<DocumentResult>> futures) {
+        for (CompletableFuture<DocumentResult> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 单篇文档分析结果回调
+     */
+    public interface DocumentListener {
+        void onDocument(DocumentResult result) throws IOException;
+    }
+
+    /**
+     * 汇总累加，只在调用线程上使用
+     */
+    private static final class CorpusTotals {
+        private int documentCount;
+        private int emptyDocumentCount;
+        private long totalChars;
+        private long chineseChars;
+        private long englishWords;
+        private long totalWords;
+        private double readingTimeMinutes;
+        private long headingCount;
+        private long paragraphCount;
+        private long codeBlockCount;
+        private long linkCount;
+        private long listItemCount;
+        private double readabilitySum;
+        private Long longestDocumentId;
+        private int longestDocumentWords;
+
+        void add(DocumentResult result) {
+            DocumentAnalysisService.AnalysisResult analysis = result.getAnalysis();
+            documentCount++;
+            if (analysis.getComplexity() == null) {
+                emptyDocumentCount++;
+                return;
+            }
+            totalChars += analysis.getTotalChars();
+            chineseChars += analysis.getChineseChars();
+            englishWords += analysis.getEnglishWords();
+            totalWords += analysis.getTotalWords();
+            readingTimeMinutes += analysis.getReadingTimeMinutes();
+            DocumentAnalysisService.ComplexityMetrics complexity = analysis.getComplexity();
+            headingCount += complexity.getHeadingCount();
+            paragraphCount += complexity.getParagraphCount();
+            codeBlockCount += complexity.getCodeBlockCount();
+            linkCount += complexity.getLinkCount();
+            listItemCount += complexity.getListItemCount();
+            readabilitySum += complexity.getReadabilityScore();
+            if (longestDocumentId == null || analysis.getTotalWords() > longestDocumentWords) {
+                longestDocumentId = result.getDocumentId();
+                longestDocumentWords = analysis.getTotalWords();
+            }
+        }
+
+        CorpusSummary toSummary(long elapsedMs) {
+            int analyzed = documentCount - emptyDocumentCount;
+            CorpusSummary summary = new CorpusSummary();
+            summary.setDocumentCount(documentCount);
+            summary.setEmptyDocumentCount(emptyDocumentCount);
+            summary.setTotalChars(totalChars);
+            summary.setChineseChars(chineseChars);
+            summary.setEnglishWords(englishWords);
+            summary.setTotalWords(totalWords);
+            summary.setReadingTimeMinutes(readingTimeMinutes);
+            summary.setHeadingCount(headingCount);
+            summary.setParagraphCount(paragraphCount);
+            summary.setCodeBlockCount(codeBlockCount);
+            summary.setLinkCount(linkCount);
+            summary.setListItemCount(listItemCount);
+            summary.setAverageWords(analyzed > 0 ? (double) totalWords / analyzed : 0);
+            summary.setAverageReadingTimeMinutes(analyzed > 0 ? readingTimeMinutes / analyzed : 0);
+            summary.setAverageReadabilityScore(analyzed > 0 ? readabilitySum / analyzed : 0);
+            summary.setLongestDocumentId(longestDocumentId);
+            summary.setLongestDocumentWords(longestDocumentWords);
+            summary.setElapsedMs(elapsedMs);
+            return summary;
+        }
+    }
+
+    public static class DocumentResult {
+        private Long documentId;
+        private String title;
+        private DocumentAnalysisService.AnalysisResult analysis;
+
+        // Getters and Setters
+        public Long getDocumentId() { return documentId; }
+        public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+
+        public DocumentAnalysisService.AnalysisResult getAnalysis() { return analysis; }
+        public void setAnalysis(DocumentAnalysisService.AnalysisResult analysis) { this.analysis = analysis; }
+    }
+
+    public static class CorpusSummary {
+        private int documentCount;
+        private int emptyDocumentCount;
+        private long totalChars;
+        private long chineseChars;
+        private long englishWords;
+        private long totalWords;
+        private double readingTimeMinutes;
+        private long headingCount;
+        private long paragraphCount;
+        private long codeBlockCount;
+        private long linkCount;
+        private long listItemCount;
+        private double averageWords;
+        private double averageReadingTimeMinutes;
+        private double averageReadabilityScore; // 非空文档的平均可读性
+        private Long longestDocumentId; // 字数最多的文档
+        private int longestDocumentWords;
+        private long elapsedMs;
+
+        // Getters and Setters
+        public int getDocumentCount() { return documentCount; }
+        public void setDocumentCount(int documentCount) { this.documentCount = documentCount; }
+
+        public int getEmptyDocumentCount() { return emptyDocumentCount; }
+        public void setEmptyDocumentCount(int emptyDocumentCount) { this.emptyDocumentCount = emptyDocumentCount; }
+
+        public long getTotalChars() { return totalChars; }
+        public void setTotalChars(long totalChars) { this.totalChars = totalChars; }
+
+        public long getChineseChars() { return chineseChars; }
+        public void setChineseChars(long chineseChars) { this.chineseChars = chineseChars; }
+
+        public long getEnglishWords() { return englishWords; }
+        public void setEnglishWords(long englishWords) { this.englishWords = englishWords; }
+
+        public long getTotalWords() { return totalWords; }
+        public void setTotalWords(long totalWords) { this.totalWords = totalWords; }
+
+        public double getReadingTimeMinutes() { return readingTimeMinutes; }
+        public void setReadingTimeMinutes(double readingTimeMinutes) { this.readingTimeMinutes = readingTimeMinutes; }
+
+        public long getHeadingCount() { return headingCount; }
+        public void setHeadingCount(long headingCount) { this.headingCount = headingCount; }
+
+        public long getParagraphCount() { return paragraphCount; }
+        public void setParagraphCount(long paragraphCount) { this.paragraphCount = paragraphCount; }
+
+        public long getCodeBlockCount() { return codeBlockCount; }
+        public void setCodeBlockCount(long codeBlockCount) { this.codeBlockCount = codeBlockCount; }
+
+        public long getLinkCount() { return linkCount; }
+        public void setLinkCount(long linkCount) { this.linkCount = linkCount; }
+
+        public long getListItemCount() { return listItemCount; }
+        public void setListItemCount(long listItemCount) { this.listItemCount = listItemCount; }
+
+        public double getAverageWords() { return averageWords; }
+        public void setAverageWords(double averageWords) { this.averageWords = averageWords; }
+
+        public double getAverageReadingTimeMinutes() { return averageReadingTimeMinutes; }
+        public void setAverageReadingTimeMinutes(double averageReadingTimeMinutes) { this.averageReadingTimeMinutes = averageReadingTimeMinutes; }
+
+        public double getAverageReadabilityScore() { return averageReadabilityScore; }
+        public void setAverageReadabilityScore(double averageReadabilityScore) { this.averageReadabilityScore = averageReadabilityScore; }
+
+        public Long getLongestDocumentId() { return longestDocumentId; }
+        public void setLongestDocumentId(Long longestDocumentId) { this.longestDocumentId = longestDocumentId; }
+
+        public int getLongestDocumentWords() { return longestDocumentWords; }
+        public void setLongestDocumentWords(int longestDocumentWords) { this.longestDocumentWords = longestDocumentWords; }
+
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+}
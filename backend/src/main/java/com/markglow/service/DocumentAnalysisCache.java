@@ -0,0 +1,252 @@
+package com.markglow.service;
+
+import com.markglow.config.AnalysisConfig;
+import com.markglow.entity.DocumentAnalysisEntry;
+import com.markglow.repository.DocumentAnalysisRepository;
+import com.markglow.service.DocumentAnalysisService.AnalysisResult;
+import com.markglow.service.DocumentAnalysisService.ComplexityMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档分析结果缓存：按文档ID保存分析结果及所分析内容的SHA-256，内存LRU在前，document_analysis 表持久化。
+ * 内存中的结果在文档更新时间未变时直接返回（不计算哈希）；否则比对内容哈希，一致时直接返回，
+ * 不一致时重新分析并覆盖。文档更新或删除时由 DocumentService 调用 invalidate 清除
+ */
+@Service
+@Slf4j
+public class DocumentAnalysisCache {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Autowired
+    private DocumentAnalysisService analysisService;
+
+    @Autowired
+    private DocumentAnalysisRepository analysisRepository;
+
+    @Autowired
+    private AnalysisConfig analysisConfig;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 获取文档的分析结果，内容未变化时不重新分析
+     * @param documentId 文档ID
+     * @param content 文档当前内容
+     */
+    public AnalysisResult getAnalysis(Long documentId, String content) {
+        return getAnalyses(Collections.singletonMap(documentId, content)).get(documentId);
+    }
+
+    /**
+     * 内存中文档在该更新时间的分析结果，不读取内容也不计算哈希
+     * @return 未缓存或文档已更新时返回 null
+     */
+    public synchronized AnalysisResult getCached(Long documentId, LocalDateTime updatedAt) {
+        Entry entry = entries.get(documentId);
+        return entry != null && updatedAt != null && updatedAt.equals(entry.updatedAt) ? entry.result : null;
+    }
+
+    /**
+     * 批量获取分析结果：先查内存，未命中的文档一次查询数据库，仍未命中或内容已变化的才重新分析
+     * @param contents 文档ID到当前内容的映射
+     * @return 文档ID到分析结果的映射
+     */
+    public Map<Long, AnalysisResult> getAnalyses(Map<Long, String> contents) {
+        return getAnalyses(contents, Collections.emptyMap());
+    }
+
+    /**
+     * 同上，记录文档的更新时间，之后可用 getCached 按更新时间命中
+     * @param updatedAts 文档ID到更新时间的映射，可缺少部分文档
+     */
+    public Map<Long, AnalysisResult> getAnalyses(Map<Long, String> contents, Map<Long, LocalDateTime> updatedAts) {
+        Map<Long, AnalysisResult> results = new HashMap<>();
+        Map<Long, String> hashes = new HashMap<>();
+        synchronized (this) {
+            for (Long documentId : contents.keySet()) {
+                Entry entry = entries.get(documentId);
+                LocalDateTime updatedAt = updatedAts.get(documentId);
+                if (entry != null && updatedAt != null && updatedAt.equals(entry.updatedAt)) {
+                    results.put(documentId, entry.result);
+                }
+            }
+        }
+        for (Map.Entry<Long, String> document : contents.entrySet()) {
+            if (!results.containsKey(document.getKey())) {
+                hashes.put(document.getKey(), hash(document.getValue()));
+            }
+        }
+        synchronized (this) {
+            Iterator<Map.Entry<Long, String>> iterator = hashes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, String> document = iterator.next();
+                Entry entry = entries.get(document.getKey());
+                if (entry != null && entry.contentHash.equals(document.getValue())) {
+                    results.put(document.getKey(), entry.result);
+                    iterator.remove();
+                    LocalDateTime updatedAt = updatedAts.get(document.getKey());
+                    if (updatedAt != null && !updatedAt.equals(entry.updatedAt)) {
+                        // 内容未变（如只改了标题），记录新的更新时间，之后不再计算哈希
+                        entries.put(document.getKey(), new Entry(entry.contentHash, updatedAt, entry.result));
+                    }
+                }
+            }
+        }
+        if (hashes.isEmpty()) {
+            return results;
+        }
+
+        Map<Long, DocumentAnalysisEntry> stored = new HashMap<>();
+        try {
+            for (DocumentAnalysisEntry entry : analysisRepository.findByDocumentIdIn(hashes.keySet())) {
+                stored.put(entry.getDocumentId(), entry);
+            }
+        } catch (Exception e) {
+            log.warn("读取持久化分析结果失败: {}", e.getMessage());
+        }
+        List<DocumentAnalysisEntry> changed = new ArrayList<>();
+        for (Map.Entry<Long, String> document : hashes.entrySet()) {
+            Long documentId = document.getKey();
+            String hash = document.getValue();
+            DocumentAnalysisEntry entry = stored.get(documentId);
+            AnalysisResult result;
+            if (entry != null && entry.getContentHash().equals(hash)) {
+                result = toResult(entry);
+            } else {
+                result = analysisService.analyzeDocument(contents.get(documentId));
+                if (entry == null) {
+                    entry = new DocumentAnalysisEntry();
+                    entry.setDocumentId(documentId);
+                }
+                entry.setContentHash(hash);
+                fillEntry(entry, result);
+                changed.add(entry);
+            }
+            putMemory(documentId, hash, updatedAts.get(documentId), result);
+            results.put(documentId, result);
+        }
+        // 逐条覆盖写入：并发请求保存同一文档时后写入的覆盖先写入的，一条失败不影响其他文档
+        for (DocumentAnalysisEntry entry : changed) {
+            try {
+                analysisRepository.upsert(entry);
+            } catch (Exception e) {
+                log.warn("写入持久化分析结果失败 documentId={}: {}", entry.getDocumentId(), e.getMessage());
+            }
+        }
+        if (!changed.isEmpty()) {
+            log.debug("重新分析文档 {} 篇", changed.size());
+        }
+        return results;
+    }
+
+    /**
+     * 清除文档的分析结果（文档更新或删除时调用）
+     */
+    public void invalidate(Long documentId) {
+        synchronized (this) {
+            entries.remove(documentId);
+        }
+        try {
+            analysisRepository.deleteByDocumentId(documentId);
+        } catch (Exception e) {
+            log.warn("删除持久化分析结果失败 documentId={}: {}", documentId, e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void putMemory(Long documentId, String contentHash, LocalDateTime updatedAt,
+                                        AnalysisResult result) {
+        entries.put(documentId, new Entry(contentHash, updatedAt, result));
+        // 按访问顺序淘汰最久未使用的条目
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > analysisConfig.getCache().getMaxEntries() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static String hash(String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+        byte[] hash = digest.digest((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    private static void fillEntry(DocumentAnalysisEntry entry, AnalysisResult result) {
+        entry.setTotalChars(result.getTotalChars());
+        entry.setChineseChars(result.getChineseChars());
+        entry.setEnglishWords(result.getEnglishWords());
+        entry.setTotalWords(result.getTotalWords());
+        entry.setReadingTimeMinutes(result.getReadingTimeMinutes());
+        ComplexityMetrics complexity = result.getComplexity();
+        entry.setHeadingDepth(complexity != null ? complexity.getHeadingDepth() : null);
+        entry.setHeadingCount(complexity != null ? complexity.getHeadingCount() : null);
+        entry.setParagraphCount(complexity != null ? complexity.getParagraphCount() : null);
+        entry.setAverageParagraphLength(complexity != null ? complexity.getAverageParagraphLength() : null);
+        entry.setCodeBlockCount(complexity != null ? complexity.getCodeBlockCount() : null);
+        entry.setLinkCount(complexity != null ? complexity.getLinkCount() : null);
+        entry.setListItemCount(complexity != null ? complexity.getListItemCount() : null);
+        entry.setReadabilityScore(complexity != null ? complexity.getReadabilityScore() : null);
+    }
+
+    private static AnalysisResult toResult(DocumentAnalysisEntry entry) {
+        AnalysisResult result = new AnalysisResult();
+        result.setTotalChars(entry.getTotalChars());
+        result.setChineseChars(entry.getChineseChars());
+        result.setEnglishWords(entry.getEnglishWords());
+        result.setTotalWords(entry.getTotalWords());
+        result.setReadingTimeMinutes(entry.getReadingTimeMinutes());
+        if (entry.getHeadingDepth() != null) {
+            ComplexityMetrics complexity = new ComplexityMetrics();
+            complexity.setHeadingDepth(entry.getHeadingDepth());
+            complexity.setHeadingCount(entry.getHeadingCount());
+            complexity.setParagraphCount(entry.getParagraphCount());
+            complexity.setAverageParagraphLength(entry.getAverageParagraphLength());
+            complexity.setCodeBlockCount(entry.getCodeBlockCount());
+            complexity.setLinkCount(entry.getLinkCount());
+            complexity.setListItemCount(entry.getListItemCount());
+            complexity.setReadabilityScore(entry.getReadabilityScore());
+            result.setComplexity(complexity);
+        }
+        return result;
+    }
+
+    private static class Entry {
+        private final String contentHash;
+        private final LocalDateTime updatedAt;
+        private final AnalysisResult result;
+
+        Entry(String contentHash, LocalDateTime updatedAt, AnalysisResult result) {
+            this.contentHash = contentHash;
+            this.updatedAt = updatedAt;
+            this.result = result;
+        }
+    }
+}
@@ -2,9 +2,6 @@ package com.markglow.service;
 
 import org.springframework.stereotype.Service;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 @Service
 public class DocumentAnalysisService {
     
@@ -22,12 +19,25 @@ public class DocumentAnalysisService {
             return new AnalysisResult();
         }
 
+        return analyzeCounts(MarkdownScanner.scan(content));
+    }
+
+    /**
+     * 根据文档各项计数生成分析结果（整篇扫描与增量分析共用）
+     * @param counts 文档计数
+     * @return 分析结果，空文档返回空结果
+     */
+    public AnalysisResult analyzeCounts(MarkdownCounts counts) {
+        if (counts.getTotalChars() == 0) {
+            return new AnalysisResult();
+        }
+
         AnalysisResult result = new AnalysisResult();
         
         // 字数统计
-        result.setTotalChars(content.length());
-        result.setChineseChars(countChineseChars(content));
-        result.setEnglishWords(countEnglishWords(content));
+        result.setTotalChars(counts.getTotalChars());
+        result.setChineseChars(counts.getChineseChars());
+        result.setEnglishWords(counts.getEnglishWords());
         result.setTotalWords(result.getChineseChars() + result.getEnglishWords());
         
         // 阅读时间估算
@@ -36,110 +46,31 @@ public class DocumentAnalysisService {
         result.setReadingTimeMinutes(Math.max(chineseMinutes, englishMinutes) + Math.min(chineseMinutes, englishMinutes) * 0.5);
         
         // 复杂度分析
-        ComplexityMetrics complexity = analyzeComplexity(content);
+        ComplexityMetrics complexity = analyzeComplexity(counts);
         result.setComplexity(complexity);
         
         return result;
     }
 
     /**
-     * 统计中文字符数量
-     */
-    private int countChineseChars(String content) {
-        int count = 0;
-        for (char c : content.toCharArray()) {
-            if (c >= 0x4E00 && c <= 0x9FFF) { // 中文字符范围
-                count++;
-            }
-        }
-        return count;
-    }
-
-    /**
-     * 统计英文单词数量（忽略 Markdown 语法）
-     */
-    private int countEnglishWords(String content) {
-        // 移除Markdown语法标记
-        String text = content.replaceAll("```[\\s\\S]*?```", ""); // 代码块
-        text = text.replaceAll("`[^`]+`", ""); // 行内代码
-        text = text.replaceAll("#+\\s*", ""); // 标题标记
-        text = text.replaceAll("\\*+|_+", ""); // 粗体/斜体
-        text = text.replaceAll("\\[.*?\\]\\(.*?\\)", ""); // 链接
-        text = text.replaceAll("!\\[.*?\\]\\(.*?\\)", ""); // 图片
-        
-        // 统计英文单词
-        Pattern pattern = Pattern.compile("\\b[a-zA-Z]+\\b");
-        Matcher matcher = pattern.matcher(text);
-        int count = 0;
-        while (matcher.find()) {
-            count++;
-        }
-        return count;
-    }
-
-    /**
-     * 分析文档复杂度（标题层级、段落、代码、链接、列表、可读性评分）
+     * 根据计数计算复杂度（标题层级、段落、代码、链接、列表、可读性评分）
      */
-    private ComplexityMetrics analyzeComplexity(String content) {
+    private ComplexityMetrics analyzeComplexity(MarkdownCounts counts) {
         ComplexityMetrics metrics = new ComplexityMetrics();
+        metrics.setHeadingDepth(counts.getMaxHeadingLevel());
+        metrics.setHeadingCount(counts.getHeadingCount());
         
-        // 标题层级深度
-        Pattern headingPattern = Pattern.compile("^(#{1,6})\\s+", Pattern.MULTILINE);
-        Matcher headingMatcher = headingPattern.matcher(content);
-        int maxHeadingLevel = 0;
-        int headingCount = 0;
-        while (headingMatcher.find()) {
-            headingCount++;
-            int level = headingMatcher.group(1).length();
-            maxHeadingLevel = Math.max(maxHeadingLevel, level);
-        }
-        metrics.setHeadingDepth(maxHeadingLevel);
-        metrics.setHeadingCount(headingCount);
-        
-        // 段落统计
-        String[] paragraphs = content.split("\\n\\n+");
-        int paragraphCount = 0;
-        int totalParagraphLength = 0;
-        for (String para : paragraphs) {
-            String trimmed = para.trim();
-            if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith("-") && !trimmed.startsWith("*") && !trimmed.startsWith("```")) {
-                paragraphCount++;
-                totalParagraphLength += trimmed.length();
-            }
-        }
+        int paragraphCount = counts.getParagraphCount();
         metrics.setParagraphCount(paragraphCount);
-        metrics.setAverageParagraphLength(paragraphCount > 0 ? totalParagraphLength / paragraphCount : 0);
-        
-        // 代码块数量
-        Pattern codeBlockPattern = Pattern.compile("```[\\s\\S]*?```");
-        Matcher codeBlockMatcher = codeBlockPattern.matcher(content);
-        int codeBlockCount = 0;
-        while (codeBlockMatcher.find()) {
-            codeBlockCount++;
-        }
-        metrics.setCodeBlockCount(codeBlockCount);
-        
-        // 链接数量
-        Pattern linkPattern = Pattern.compile("\\[([^\\]]+)\\]\\([^\\)]+\\)");
-        Matcher linkMatcher = linkPattern.matcher(content);
-        int linkCount = 0;
-        while (linkMatcher.find()) {
-            linkCount++;
-        }
-        metrics.setLinkCount(linkCount);
-        
-        // 列表项数量
-        Pattern listPattern = Pattern.compile("^[\\s]*[-*+]\\s+", Pattern.MULTILINE);
-        Matcher listMatcher = listPattern.matcher(content);
-        int listItemCount = 0;
-        while (listMatcher.find()) {
-            listItemCount++;
-        }
-        metrics.setListItemCount(listItemCount);
+        metrics.setAverageParagraphLength(paragraphCount > 0 ? counts.getParagraphChars() / paragraphCount : 0);
+        
+        metrics.setCodeBlockCount(counts.getCodeBlockCount());
+        metrics.setLinkCount(counts.getLinkCount());
+        metrics.setListItemCount(counts.getListItemCount());
         
         // 可读性评分（简化版Flesch-Kincaid）
         // 基于：平均段落长度、标题层级、代码块比例
-        double readabilityScore = calculateReadabilityScore(metrics, content.length());
+        double readabilityScore = calculateReadabilityScore(metrics, counts.getTotalChars());
         metrics.setReadabilityScore(readabilityScore);
         
         return metrics;
@@ -0,0 +1,622 @@
+package com.markglow.service;
+
+import com.markglow.entity.Document;
+import com.markglow.repository.DocumentContentView;
+import com.markglow.repository.DocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 文档全文索引：内存倒排索引，英文与数字按词切分（转小写），中日韩文字按单字和相邻两字（bigram）切分，
+ * 查询时所有词都须命中（AND），按 BM25 排序，标题中的词按 TITLE_BOOST 倍计入词频。
+ * 同时维护标题和小标题的前缀树（SuggestionTrie），用于输入时的搜索建议。
+ * 启动时在 search-index 线程上按主键分页从数据库建立，之后由 DocumentService 在保存、更新和删除时维护；
+ * 查询只遍历最短的倒排表，耗时与命中文档数相关而与文档总量无关
+ */
+@Service
+@Slf4j
+public class DocumentSearchIndex {
+
+    private static final int TITLE_BOOST = 3;
+
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private static final int BUILD_PAGE_SIZE = 500;
+
+    private static final int SNIPPET_LENGTH = 160;
+
+    // 摘要中命中词之前保留的字符数
+    private static final int SNIPPET_LEAD = 40;
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    // 相关度倒序，相同时较新的文档（ID较大）在前
+    private static final Comparator<Hit> HIT_ORDER = Comparator.comparingDouble(Hit::getScore).reversed()
+            .thenComparing(Comparator.comparingLong(Hit::getDocumentId).reversed());
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+
+    private final SuggestionTrie suggestions = new SuggestionTrie();
+
+    private long totalLength;
+
+    private volatile boolean ready;
+
+    // 建立索引期间已被保存或删除的文档，建立时跳过，避免用较早读取的内容覆盖
+    private Set<Long> touchedDuringBuild = new HashSet<>();
+
+    private Thread builder;
+
+    @PostConstruct
+    public void init() {
+        builder = new Thread(this::build, "search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.interrupt();
+    }
+
+    /**
+     * 按主键分页读取所有文档建立索引，完成前 isReady 为 false，调用方回退到数据库查询
+     */
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            long afterId = 0L;
+            int count = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<DocumentContentView> page = documentRepository.findContentPage(afterId, PageRequest.of(0, BUILD_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (DocumentContentView document : page) {
+                        if (!touchedDuringBuild.contains(document.getId())) {
+                            put(document.getId(), document.getTitle(), document.getContent());
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                count += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            lock.writeLock().lock();
+            try {
+                touchedDuringBuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("全文索引建立完成: documents={}, terms={}, 耗时={}ms", count, postings.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                touchedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("全文索引建立失败，搜索将回退到数据库查询", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 添加或更新文档的索引（内容取原文，原文为空时取美化结果）
+     */
+    public void index(Document document) {
+        String content = document.getOriginalContent() != null ? document.getOriginalContent() : document.getBeautifiedContent();
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringBuild != null) {
+                touchedDuringBuild.add(document.getId());
+            }
+            put(document.getId(), document.getTitle(), content);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档的索引
+     */
+    public void remove(Long documentId) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringBuild != null) {
+                touchedDuringBuild.add(documentId);
+            }
+            delete(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索文档
+     * @param query 查询文本
+     * @param offset 跳过的命中数
+     * @param limit 返回的最大命中数
+     * @return 按相关度倒序的命中及命中总数；索引尚未建立或查询中没有可检索的词时返回 null
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> terms = new ArrayList<>(queryTerms(query));
+        if (terms.isEmpty() || !ready) {
+            return null;
+        }
+        SearchResult result = new SearchResult();
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Integer>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Integer> list = postings.get(term);
+                if (list == null) {
+                    result.setHits(Collections.<Hit>emptyList());
+                    return result;
+                }
+                lists.add(list);
+            }
+            // 按文档频率从低到高排列，遍历最短的倒排表并在其余表中确认
+            List<Integer> order = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparingInt(i -> lists.get(i).size()));
+            double[] idf = new double[terms.size()];
+            int documentCount = documents.size();
+            for (int i = 0; i < terms.size(); i++) {
+                int df = lists.get(i).size();
+                idf[i] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            }
+            double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 1;
+
+            int capacity = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), HIT_ORDER.reversed());
+            int total = 0;
+            Map<Long, Integer> shortest = lists.get(order.get(0));
+            for (Map.Entry<Long, Integer> posting : shortest.entrySet()) {
+                Long documentId = posting.getKey();
+                double norm = K1 * (1 - B + B * documents.get(documentId).length / averageLength);
+                double score = 0;
+                boolean matched = true;
+                for (int i : order) {
+                    Integer tf = lists.get(i).get(documentId);
+                    if (tf == null) {
+                        matched = false;
+                        break;
+                    }
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                if (!matched) {
+                    continue;
+                }
+                total++;
+                if (capacity > 0) {
+                    top.offer(new Hit(documentId, score));
+                    if (top.size() > capacity) {
+                        top.poll();
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(HIT_ORDER);
+            result.setTotal(total);
+            result.setHits(offset < hits.size() ? new ArrayList<>(hits.subList(offset, hits.size())) : Collections.<Hit>emptyList());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索建议：以 prefix 开头（整句或其中某个词）的标题和小标题，按出现的文档数倒序
+     * @return 建议列表；索引尚未建立时返回 null
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<SuggestionTrie.Phrase> phrases = suggestions.suggest(prefix, Math.min(limit, SuggestionTrie.TOP));
+            List<Suggestion> result = new ArrayList<>(phrases.size());
+            for (SuggestionTrie.Phrase phrase : phrases) {
+                result.add(new Suggestion(phrase.text, phrase.count));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 截取文本中第一处命中附近的片段，并给出片段内所有命中的位置
+     * @param text 文档内容
+     * @param query 查询文本
+     */
+    public static Snippet snippet(String text, String query) {
+        Snippet snippet = new Snippet();
+        if (text == null || text.isEmpty()) {
+            snippet.setText("");
+            snippet.setHighlights(Collections.<int[]>emptyList());
+            return snippet;
+        }
+        List<String> words = highlightWords(query);
+        String lower = lowerCase(text);
+        int first = -1;
+        for (String word : words) {
+            int position = lower.indexOf(word);
+            if (position >= 0 && (first < 0 || position < first)) {
+                first = position;
+            }
+        }
+        int start = first > SNIPPET_LEAD ? first - SNIPPET_LEAD : 0;
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        if (start > 0 && end - start < SNIPPET_LENGTH) {
+            start = Math.max(0, end - SNIPPET_LENGTH);
+        }
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        if (end < text.length() && Character.isLowSurrogate(text.charAt(end))) {
+            end--;
+        }
+        snippet.setText(text.substring(start, end));
+        snippet.setHighlights(highlights(lower.substring(start, end), words));
+        return snippet;
+    }
+
+    /**
+     * 文本中所有命中的位置（用于标题）
+     */
+    public static List<int[]> highlights(String text, String query) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return highlights(lowerCase(text), highlightWords(query));
+    }
+
+    private static List<int[]> highlights(String lower, List<String> words) {
+        List<int[]> ranges = new ArrayList<>();
+        for (String word : words) {
+            int position = lower.indexOf(word);
+            while (position >= 0) {
+                ranges.add(new int[]{position, position + word.length()});
+                position = lower.indexOf(word, position + word.length());
+            }
+        }
+        ranges.sort(Comparator.comparingInt(range -> range[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] range : ranges) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 高亮用的查询词：英文词与整段中日韩文字；整段未在文中出现时由其 bigram 分别匹配
+     */
+    private static List<String> highlightWords(String query) {
+        Set<String> words = new LinkedHashSet<>();
+        tokenize(query, new TokenSink() {
+            @Override
+            public void word(String word) {
+                words.add(word);
+            }
+
+            @Override
+            public void cjkRun(String run) {
+                words.add(run);
+                addBigrams(run, words);
+            }
+        });
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * 查询词：中日韩文字单字时按单字检索，两字以上按相邻两字检索
+     */
+    static Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(query, new TokenSink() {
+            @Override
+            public void word(String word) {
+                terms.add(word);
+            }
+
+            @Override
+            public void cjkRun(String run) {
+                if (run.codePointCount(0, run.length()) == 1) {
+                    terms.add(run);
+                } else {
+                    addBigrams(run, terms);
+                }
+            }
+        });
+        return terms;
+    }
+
+    /**
+     * 文档词频：英文词、中日韩文字的单字和相邻两字
+     */
+    static void documentTerms(String text, int weight, Map<String, Integer> frequencies) {
+        tokenize(text, new TokenSink() {
+            @Override
+            public void word(String word) {
+                frequencies.merge(word, weight, Integer::sum);
+            }
+
+            @Override
+            public void cjkRun(String run) {
+                for (int i = 0; i < run.length(); ) {
+                    int next = i + Character.charCount(run.codePointAt(i));
+                    frequencies.merge(run.substring(i, next), weight, Integer::sum);
+                    if (next < run.length()) {
+                        int after = next + Character.charCount(run.codePointAt(next));
+                        frequencies.merge(run.substring(i, after), weight, Integer::sum);
+                    }
+                    i = next;
+                }
+            }
+        });
+    }
+
+    private static void addBigrams(String run, Set<String> terms) {
+        for (int i = 0; i < run.length(); ) {
+            int next = i + Character.charCount(run.codePointAt(i));
+            if (next < run.length()) {
+                terms.add(run.substring(i, next + Character.charCount(run.codePointAt(next))));
+            }
+            i = next;
+        }
+    }
+
+    /**
+     * 把文本切分为英文/数字词（转小写，超过 MAX_TERM_LENGTH 的忽略）和连续的中日韩文字段，其余字符作为分隔
+     */
+    private static void tokenize(String text, TokenSink sink) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                sink.cjkRun(text.substring(start, i));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int next = text.codePointAt(i);
+                    if (!Character.isLetterOrDigit(next) || isCjk(next)) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                if (i - start <= MAX_TERM_LENGTH) {
+                    sink.word(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 转小写用于查找命中位置；个别字符转小写后长度变化时位置无法对应，此时保持原文
+     */
+    private static String lowerCase(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        return lower.length() == text.length() ? lower : text;
+    }
+
+    /**
+     * Markdown 中的 ATX 标题（# 到 ######），跳过代码块内的行，去掉结尾的 #
+     */
+    static List<String> headings(String content) {
+        List<String> headings = new ArrayList<>();
+        if (content == null) {
+            return headings;
+        }
+        boolean inFence = false;
+        for (String line : content.split("\\r?\\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                inFence = !inFence;
+                continue;
+            }
+            if (inFence || !trimmed.startsWith("#") || line.length() - line.replaceAll("^ +", "").length() > 3) {
+                continue;
+            }
+            int level = 0;
+            while (level < trimmed.length() && trimmed.charAt(level) == '#') {
+                level++;
+            }
+            if (level > 6 || (level < trimmed.length() && trimmed.charAt(level) != ' ' && trimmed.charAt(level) != '\t')) {
+                continue;
+            }
+            String text = trimmed.substring(level).replaceAll("\\s+#+\\s*$", "").trim();
+            if (!text.isEmpty() && !text.matches("#+")) {
+                headings.add(text);
+            }
+        }
+        return headings;
+    }
+
+    private void put(Long documentId, String title, String content) {
+        delete(documentId);
+        // 同一文档中重复的标题只计一次
+        Map<String, String> phrases = new LinkedHashMap<>();
+        List<String> candidates = headings(content);
+        candidates.add(0, title);
+        for (String candidate : candidates) {
+            String key = SuggestionTrie.normalize(candidate);
+            if (!key.isEmpty() && key.length() <= SuggestionTrie.MAX_PHRASE_LENGTH && !phrases.containsKey(key)) {
+                phrases.put(key, candidate);
+                suggestions.add(candidate);
+            }
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        documentTerms(title, TITLE_BOOST, frequencies);
+        documentTerms(content, 1, frequencies);
+        int length = 0;
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(documentId, term.getValue());
+            length += term.getValue();
+        }
+        documents.put(documentId, new IndexedDocument(frequencies.keySet().toArray(new String[0]), length,
+                phrases.values().toArray(new String[0])));
+        totalLength += length;
+    }
+
+    private void delete(Long documentId) {
+        IndexedDocument existing = documents.remove(documentId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Long, Integer> list = postings.get(term);
+            list.remove(documentId);
+            if (list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= existing.length;
+        for (String phrase : existing.phrases) {
+            suggestions.remove(phrase);
+        }
+    }
+
+    private interface TokenSink {
+        void word(String word);
+
+        void cjkRun(String run);
+    }
+
+    private static final class IndexedDocument {
+        private final String[] terms;
+        private final int length;
+        // 计入搜索建议的标题和小标题
+        private final String[] phrases;
+
+        IndexedDocument(String[] terms, int length, String[] phrases) {
+            this.terms = terms;
+            this.length = length;
+            this.phrases = phrases;
+        }
+    }
+
+    public static class Hit {
+        private final Long documentId;
+        private final double score;
+
+        public Hit(Long documentId, double score) {
+            this.documentId = documentId;
+            this.score = score;
+        }
+
+        public Long getDocumentId() { return documentId; }
+
+        public double getScore() { return score; }
+    }
+
+    public static class Suggestion {
+        private final String text;
+        private final int count;
+
+        public Suggestion(String text, int count) {
+            this.text = text;
+            this.count = count;
+        }
+
+        public String getText() { return text; }
+
+        public int getCount() { return count; }
+    }
+
+    public static class SearchResult {
+        private int total;
+        private List<Hit> hits;
+
+        // Getters and Setters
+        public int getTotal() { return total; }
+        public void setTotal(int total) { this.total = total; }
+
+        public List<Hit> getHits() { return hits; }
+        public void setHits(List<Hit> hits) { this.hits = hits; }
+    }
+
+    public static class Snippet {
+        private String text;
+        private List<int[]> highlights;
+
+        // Getters and Setters
+        public String getText() { return text; }
+        public void setText(String text) { this.text = text; }
+
+        public List<int[]> getHighlights() { return highlights; }
+        public void setHighlights(List<int[]> highlights) { this.highlights = highlights; }
+    }
+}
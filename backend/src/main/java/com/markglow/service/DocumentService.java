@@ -1,30 +1,87 @@
 package com.markglow.service;
 
 import com.markglow.dto.DocumentDTO;
+import com.markglow.dto.DocumentPageDTO;
+import com.markglow.dto.DocumentSearchHitDTO;
+import com.markglow.dto.DocumentSearchPageDTO;
+import com.markglow.dto.DocumentSummaryDTO;
 import com.markglow.entity.Document;
+import com.markglow.repository.DocumentContentView;
 import com.markglow.repository.DocumentRepository;
+import com.markglow.repository.DocumentSummaryView;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class DocumentService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private DocumentAnalysisCache analysisCache;
+
+    @Autowired
+    private DocumentSearchIndex searchIndex;
+
     /**
      * 获取所有文档（按更新时间倒序）
      * @return 文档DTO列表
      */
     public List<DocumentDTO> getAllDocuments() {
-        return documentRepository.findAllByOrderByUpdatedAtDesc()
+        return withAnalysis(documentRepository.findAllByOrderByUpdatedAtDesc()
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 分页获取文档摘要（按更新时间倒序），不读取正文；正文通过 getDocumentById 按需加载
+     * @param cursor 上一页返回的 nextCursor，第一页为空
+     * @param size 每页条数，默认20，最多100
+     * @return 当前页摘要及下一页游标
+     */
+    public DocumentPageDTO getDocumentPage(String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        // 多取一条判断是否还有下一页
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<DocumentSummaryView> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = documentRepository.findSummaryPage(page);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            rows = documentRepository.findSummaryPageBefore(position.getTime(), position.getId(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<DocumentSummaryDTO> items = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (DocumentSummaryView row : rows.subList(0, Math.min(rows.size(), pageSize))) {
+            items.add(convertToSummary(row));
+        }
+        fillMissingAnalysis(items);
+
+        DocumentPageDTO result = new DocumentPageDTO();
+        result.setItems(items);
+        result.setHasMore(hasMore);
+        if (hasMore) {
+            DocumentSummaryDTO last = items.get(items.size() - 1);
+            result.setNextCursor(new PageCursor(last.getUpdatedAt(), last.getId()).encode());
+        }
+        return result;
     }
 
     /**
@@ -50,6 +107,10 @@ public class DocumentService {
             document.setTitle("未命名文档");
         }
         Document saved = documentRepository.save(document);
+        if (documentDTO.getId() != null) {
+            analysisCache.invalidate(saved.getId());
+        }
+        searchIndex.index(saved);
         return convertToDTO(saved);
     }
 
@@ -78,6 +139,8 @@ public class DocumentService {
         }
         
         Document updated = documentRepository.save(document);
+        analysisCache.invalidate(id);
+        searchIndex.index(updated);
         return convertToDTO(updated);
     }
 
@@ -91,10 +154,12 @@ public class DocumentService {
             throw new RuntimeException("文档不存在: " + id);
         }
         documentRepository.deleteById(id);
+        analysisCache.invalidate(id);
+        searchIndex.remove(id);
     }
 
     /**
-     * 搜索文档（按标题或内容）
+     * 搜索文档（按标题或内容），使用全文索引按相关度排序；索引尚未建立或关键词中没有可检索的词时回退到数据库模糊查询
      * @param keyword 搜索关键词
      * @return 匹配的文档列表
      */
@@ -102,10 +167,102 @@ public class DocumentService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllDocuments();
         }
-        return documentRepository.searchByKeyword(keyword.trim())
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        DocumentSearchIndex.SearchResult result = searchIndex.search(keyword.trim(), 0, Integer.MAX_VALUE);
+        if (result == null) {
+            return withAnalysis(documentRepository.searchByKeyword(keyword.trim())
+                    .stream()
+                    .map(this::convertToDTO)
+                    .collect(Collectors.toList()));
+        }
+        List<Long> ids = new ArrayList<>(result.getHits().size());
+        for (DocumentSearchIndex.Hit hit : result.getHits()) {
+            ids.add(hit.getDocumentId());
+        }
+        Map<Long, Document> found = new HashMap<>();
+        for (Document document : documentRepository.findAllById(ids)) {
+            found.put(document.getId(), document);
+        }
+        List<DocumentDTO> documents = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Document document = found.get(id);
+            if (document != null) {
+                documents.add(convertToDTO(document));
+            }
+        }
+        return withAnalysis(documents);
+    }
+
+    /**
+     * 全文搜索（分页）：按相关度排序，返回摘要信息及命中附近的正文片段与命中位置，只读取当前页文档的内容
+     * @param keyword 搜索关键词
+     * @param page 页码，从0开始
+     * @param size 每页条数，默认20，最多100
+     * @return 当前页命中及命中总数；关键词中没有可检索的词时为空
+     * @throws IllegalStateException 全文索引尚未建立
+     */
+    public DocumentSearchPageDTO searchRanked(String keyword, Integer page, Integer size) {
+        if (!searchIndex.isReady()) {
+            throw new IllegalStateException("全文索引尚未建立");
+        }
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = page == null || page < 0 ? 0 : page;
+        String query = keyword != null ? keyword.trim() : "";
+        DocumentSearchIndex.SearchResult result = searchIndex.search(query, pageNumber * pageSize, pageSize);
+
+        DocumentSearchPageDTO searchPage = new DocumentSearchPageDTO();
+        searchPage.setPage(pageNumber);
+        searchPage.setSize(pageSize);
+        List<DocumentSearchHitDTO> items = new ArrayList<>();
+        searchPage.setItems(items);
+        if (result == null || result.getHits().isEmpty()) {
+            searchPage.setTotal(result != null ? result.getTotal() : 0);
+            return searchPage;
+        }
+
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (DocumentSearchIndex.Hit hit : result.getHits()) {
+            scores.put(hit.getDocumentId(), hit.getScore());
+        }
+        Map<Long, DocumentSummaryView> rows = new HashMap<>();
+        for (DocumentSummaryView row : documentRepository.findSummaryByIdIn(scores.keySet())) {
+            rows.put(row.getId(), row);
+        }
+        Map<Long, String> contents = new HashMap<>();
+        for (DocumentContentView document : documentRepository.findContentByIdIn(scores.keySet())) {
+            contents.put(document.getId(), document.getContent());
+        }
+        for (Map.Entry<Long, Double> hit : scores.entrySet()) {
+            DocumentSummaryView row = rows.get(hit.getKey());
+            if (row == null) {
+                continue;
+            }
+            DocumentSearchHitDTO item = new DocumentSearchHitDTO();
+            fillSummary(item, row);
+            DocumentSearchIndex.Snippet snippet = DocumentSearchIndex.snippet(contents.get(hit.getKey()), query);
+            item.setSnippet(snippet.getText());
+            item.setHighlights(snippet.getHighlights());
+            item.setTitleHighlights(DocumentSearchIndex.highlights(row.getTitle(), query));
+            item.setScore(hit.getValue());
+            items.add(item);
+        }
+        fillMissingAnalysis(items);
+        searchPage.setTotal(result.getTotal());
+        searchPage.setHasMore((long) (pageNumber + 1) * pageSize < result.getTotal());
+        return searchPage;
+    }
+
+    /**
+     * 搜索建议：以 prefix 开头的文档标题和小标题（内存前缀树，不查询数据库）
+     * @param prefix 已输入的文本
+     * @param limit 最多返回条数，默认与上限均为10
+     * @throws IllegalStateException 全文索引尚未建立
+     */
+    public List<DocumentSearchIndex.Suggestion> suggest(String prefix, Integer limit) {
+        List<DocumentSearchIndex.Suggestion> suggestions = searchIndex.suggest(prefix, limit == null || limit <= 0 ? 10 : limit);
+        if (suggestions == null) {
+            throw new IllegalStateException("全文索引尚未建立");
+        }
+        return suggestions;
     }
 
     /**
@@ -117,10 +274,93 @@ public class DocumentService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllDocuments();
         }
-        return documentRepository.findByTitleContainingIgnoreCaseOrderByUpdatedAtDesc(keyword.trim())
+        return withAnalysis(documentRepository.findByTitleContainingIgnoreCaseOrderByUpdatedAtDesc(keyword.trim())
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 为列表填充字数与阅读时间：更新时间未变的文档直接使用内存中的结果，
+     * 其余按内容哈希查缓存，只有新建或修改过的文档才重新分析
+     */
+    private List<DocumentDTO> withAnalysis(List<DocumentDTO> documents) {
+        Map<Long, DocumentAnalysisService.AnalysisResult> analyses = new HashMap<>();
+        Map<Long, String> contents = new LinkedHashMap<>();
+        Map<Long, LocalDateTime> updatedAts = new HashMap<>();
+        for (DocumentDTO document : documents) {
+            DocumentAnalysisService.AnalysisResult cached = analysisCache.getCached(document.getId(), document.getUpdatedAt());
+            if (cached != null) {
+                analyses.put(document.getId(), cached);
+            } else {
+                contents.put(document.getId(), analysisContent(document.getOriginalContent(), document.getBeautifiedContent()));
+                updatedAts.put(document.getId(), document.getUpdatedAt());
+            }
+        }
+        if (!contents.isEmpty()) {
+            analyses.putAll(analysisCache.getAnalyses(contents, updatedAts));
+        }
+        for (DocumentDTO document : documents) {
+            DocumentAnalysisService.AnalysisResult analysis = analyses.get(document.getId());
+            if (analysis != null) {
+                document.setTotalWords(analysis.getTotalWords());
+                document.setReadingTimeMinutes(roundMinutes(analysis.getReadingTimeMinutes()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * 尚无保存的分析结果的文档（新建或修改后未再分析）只读取这些文档的内容补充分析，结果随之保存
+     */
+    private void fillMissingAnalysis(List<? extends DocumentSummaryDTO> items) {
+        Map<Long, DocumentSummaryDTO> missing = new LinkedHashMap<>();
+        for (DocumentSummaryDTO item : items) {
+            if (item.getTotalWords() == null) {
+                missing.put(item.getId(), item);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, String> contents = new LinkedHashMap<>();
+        for (DocumentContentView document : documentRepository.findContentByIdIn(missing.keySet())) {
+            contents.put(document.getId(), document.getContent());
+        }
+        Map<Long, DocumentAnalysisService.AnalysisResult> analyses = analysisCache.getAnalyses(contents);
+        for (Map.Entry<Long, DocumentAnalysisService.AnalysisResult> analysis : analyses.entrySet()) {
+            DocumentSummaryDTO item = missing.get(analysis.getKey());
+            item.setTotalWords(analysis.getValue().getTotalWords());
+            item.setReadingTimeMinutes(roundMinutes(analysis.getValue().getReadingTimeMinutes()));
+        }
+    }
+
+    private static DocumentSummaryDTO convertToSummary(DocumentSummaryView row) {
+        DocumentSummaryDTO summary = new DocumentSummaryDTO();
+        fillSummary(summary, row);
+        return summary;
+    }
+
+    private static void fillSummary(DocumentSummaryDTO summary, DocumentSummaryView row) {
+        summary.setId(row.getId());
+        summary.setTitle(row.getTitle());
+        summary.setTheme(row.getTheme());
+        summary.setSnippet(row.getSnippet());
+        summary.setCreatedAt(row.getCreatedAt());
+        summary.setUpdatedAt(row.getUpdatedAt());
+        summary.setTotalWords(row.getTotalWords());
+        summary.setReadingTimeMinutes(row.getReadingTimeMinutes() != null ? roundMinutes(row.getReadingTimeMinutes()) : null);
+    }
+
+    private static double roundMinutes(double minutes) {
+        return Math.round(minutes * 10.0) / 10.0;
+    }
+
+    /**
+     * 参与分析的内容：原文为空时使用美化结果
+     */
+    private static String analysisContent(String originalContent, String beautifiedContent) {
+        return originalContent != null ? originalContent : beautifiedContent;
     }
 
     private DocumentDTO convertToDTO(Document document) {
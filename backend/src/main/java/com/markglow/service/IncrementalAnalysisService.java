@@ -0,0 +1,340 @@
+package com.markglow.service;
+
+import com.markglow.config.AnalysisConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 增量文档分析：编辑器首次提交完整内容，之后每次只提交基于上一版本的编辑（偏移、删除长度、插入文本）。
+ * 服务端把文档按空行切成块并保存每块的计数，编辑时只重新扫描受影响的块，再按块累加得到整篇结果，
+ * 与 DocumentAnalysisService.analyzeDocument 对整篇内容的分析结果一致。
+ * 切分点之前的块必须是自包含的（MarkdownScanner.isSelfContained），否则与后面的块合并，
+ * 例如未闭合的代码块会让其后的内容都归入同一块，此时编辑退化为重新扫描该块。
+ */
+@Service
+@Slf4j
+public class IncrementalAnalysisService {
+
+    private static final String BLOCK_SEPARATOR = "\n\n";
+
+    @Autowired
+    private DocumentAnalysisService analysisService;
+
+    @Autowired
+    private AnalysisConfig analysisConfig;
+
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalChars;
+
+    /**
+     * 提交完整内容，建立增量分析状态
+     * @param content 文档内容
+     * @return 分析结果及新版本号
+     */
+    public IncrementalResult start(String content) {
+        Session session = new Session();
+        session.replace(0, 0, split(content));
+        String version = newVersion();
+        put(version, session);
+        log.debug("建立增量分析状态: version={}, chars={}, blocks={}", version, session.length, session.blocks.size());
+        return toResult(version, session, content.length());
+    }
+
+    /**
+     * 在指定版本上应用一次编辑
+     * @param baseVersion 上一次返回的版本号
+     * @param offset 编辑起始位置（字符）
+     * @param deleteLength 删除的字符数
+     * @param insertText 插入的文本，可为空
+     * @return 分析结果及新版本号，旧版本号随之失效
+     */
+    public IncrementalResult applyEdit(String baseVersion, int offset, int deleteLength, String insertText) {
+        Session session = take(baseVersion);
+        if (session == null) {
+            throw new IllegalStateException("分析版本不存在或已过期，请重新提交完整内容: " + baseVersion);
+        }
+        int rescanned;
+        try {
+            rescanned = session.apply(offset, deleteLength, insertText != null ? insertText : "");
+        } catch (IllegalArgumentException e) {
+            put(baseVersion, session);
+            throw e;
+        }
+        String version = newVersion();
+        put(version, session);
+        log.debug("增量分析: base={}, version={}, offset={}, delete={}, insert={}, rescanned={}, blocks={}",
+                baseVersion, version, offset, deleteLength, insertText != null ? insertText.length() : 0,
+                rescanned, session.blocks.size());
+        return toResult(version, session, rescanned);
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    private IncrementalResult toResult(String version, Session session, int rescannedChars) {
+        IncrementalResult result = new IncrementalResult();
+        result.setVersion(version);
+        result.setAnalysis(analysisService.analyzeCounts(session));
+        result.setBlockCount(session.blocks.size());
+        result.setRescannedChars(rescannedChars);
+        return result;
+    }
+
+    private static String newVersion() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private synchronized Session take(String version) {
+        Session session = version != null ? sessions.remove(version) : null;
+        if (session != null) {
+            totalChars -= session.length;
+        }
+        return session;
+    }
+
+    private synchronized void put(String version, Session session) {
+        sessions.put(version, session);
+        totalChars += session.length;
+        AnalysisConfig.IncrementalConfig config = analysisConfig.getIncremental();
+        Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+        while ((sessions.size() > config.getMaxSessions() || totalChars > config.getMaxChars()) && sessions.size() > 1) {
+            Map.Entry<String, Session> eldest = iterator.next();
+            totalChars -= eldest.getValue().length;
+            iterator.remove();
+            log.debug("淘汰增量分析状态: version={}", eldest.getKey());
+        }
+    }
+
+    /**
+     * 按空行切分为自包含的块：块在两个以上连续换行之后结束，扫描结果不自包含时向后扩展
+     * （每次至少扩展一倍，未闭合结构后的长文档也只需线性时间）
+     */
+    static List<Block> split(String text) {
+        List<Block> blocks = new ArrayList<>();
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = nextBoundary(text, start + 1);
+            while (true) {
+                String piece = text.substring(start, end);
+                MarkdownScanner counts = MarkdownScanner.scan(piece);
+                if (end == length || counts.isSelfContained()) {
+                    blocks.add(new Block(piece, counts));
+                    start = end;
+                    break;
+                }
+                end = nextBoundary(text, end + (end - start));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * from 之后第一处连续换行（两个以上）结束的位置，没有时为文本末尾
+     */
+    private static int nextBoundary(String text, int from) {
+        int length = text.length();
+        if (from >= length) {
+            return length;
+        }
+        int separator = text.indexOf(BLOCK_SEPARATOR, from);
+        if (separator < 0) {
+            return length;
+        }
+        int end = separator + BLOCK_SEPARATOR.length();
+        while (end < length && text.charAt(end) == '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    static final class Block {
+        final String text;
+        final MarkdownScanner counts;
+
+        Block(String text, MarkdownScanner counts) {
+            this.text = text;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * 一个编辑中文档的分块状态与各项计数的合计，同一时刻只由一个请求持有
+     */
+    static final class Session implements MarkdownCounts {
+        private final List<Block> blocks = new ArrayList<>();
+        // 各标题最大层级的块数，用于在删除块后求整篇的最大层级
+        private final int[] headingLevels = new int[7];
+        private int length;
+        private int chineseChars;
+        private int englishWords;
+        private int headingCount;
+        private int paragraphCount;
+        private int paragraphChars;
+        private int codeBlockCount;
+        private int linkCount;
+        private int listItemCount;
+        // 上次编辑所在的块及其起始位置，连续输入时定位只需移动很少的块
+        private int cursor;
+        private int cursorStart;
+
+        /**
+         * 应用编辑并重新扫描受影响的块
+         * @return 重新扫描的字符数
+         */
+        int apply(int offset, int deleteLength, String insertText) {
+            if (offset < 0 || deleteLength < 0 || offset > length - deleteLength) {
+                throw new IllegalArgumentException("编辑范围超出文档: offset=" + offset + ", deleteLength=" + deleteLength
+                        + ", length=" + length);
+            }
+            if (blocks.isEmpty()) {
+                replace(0, 0, split(insertText));
+                return insertText.length();
+            }
+            int first = locate(offset);
+            int firstStart = cursorStart;
+            int last = first;
+            int lastEnd = firstStart + blocks.get(first).text.length();
+            while (lastEnd < offset + deleteLength) {
+                last++;
+                lastEnd += blocks.get(last).text.length();
+            }
+
+            StringBuilder region = new StringBuilder(lastEnd - firstStart - deleteLength + insertText.length());
+            for (int i = first; i <= last; i++) {
+                region.append(blocks.get(i).text);
+            }
+            region.replace(offset - firstStart, offset - firstStart + deleteLength, insertText);
+            int rescanned = region.length();
+            List<Block> rebuilt = split(region.toString());
+
+            // 编辑后最后一块不再以空行结尾或不再自包含（如删掉了代码块的结尾）时，与后面的块合并后重新切分
+            int next = last + 1;
+            while (next < blocks.size() && !rebuilt.isEmpty() && !isBoundary(rebuilt.get(rebuilt.size() - 1))) {
+                String merged = rebuilt.remove(rebuilt.size() - 1).text + blocks.get(next++).text;
+                rebuilt.addAll(split(merged));
+                rescanned += merged.length();
+            }
+            replace(first, next, rebuilt);
+            return rescanned;
+        }
+
+        private static boolean isBoundary(Block block) {
+            return block.text.endsWith(BLOCK_SEPARATOR) && block.counts.isSelfContained();
+        }
+
+        /**
+         * 定位 offset 所在的块（offset 等于文档长度时为最后一块），同时更新游标
+         */
+        private int locate(int offset) {
+            if (cursor >= blocks.size()) {
+                cursor = 0;
+                cursorStart = 0;
+            }
+            while (cursor > 0 && offset < cursorStart) {
+                cursor--;
+                cursorStart -= blocks.get(cursor).text.length();
+            }
+            while (cursor < blocks.size() - 1 && offset >= cursorStart + blocks.get(cursor).text.length()) {
+                cursorStart += blocks.get(cursor).text.length();
+                cursor++;
+            }
+            return cursor;
+        }
+
+        /**
+         * 用新的块替换 [from, to) 范围内的块并更新合计
+         */
+        private void replace(int from, int to, List<Block> replacement) {
+            List<Block> removed = blocks.subList(from, to);
+            for (Block block : removed) {
+                add(block.counts, -1);
+            }
+            removed.clear();
+            for (Block block : replacement) {
+                add(block.counts, 1);
+            }
+            blocks.addAll(from, replacement);
+        }
+
+        private void add(MarkdownScanner counts, int sign) {
+            length += sign * counts.getTotalChars();
+            chineseChars += sign * counts.getChineseChars();
+            englishWords += sign * counts.getEnglishWords();
+            headingCount += sign * counts.getHeadingCount();
+            headingLevels[counts.getMaxHeadingLevel()] += sign;
+            paragraphCount += sign * counts.getParagraphCount();
+            paragraphChars += sign * counts.getParagraphChars();
+            codeBlockCount += sign * counts.getCodeBlockCount();
+            linkCount += sign * counts.getLinkCount();
+            listItemCount += sign * counts.getListItemCount();
+        }
+
+        @Override
+        public int getTotalChars() { return length; }
+
+        @Override
+        public int getChineseChars() { return chineseChars; }
+
+        @Override
+        public int getEnglishWords() { return englishWords; }
+
+        @Override
+        public int getHeadingCount() { return headingCount; }
+
+        @Override
+        public int getMaxHeadingLevel() {
+            for (int level = headingLevels.length - 1; level > 0; level--) {
+                if (headingLevels[level] > 0) {
+                    return level;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public int getParagraphCount() { return paragraphCount; }
+
+        @Override
+        public int getParagraphChars() { return paragraphChars; }
+
+        @Override
+        public int getCodeBlockCount() { return codeBlockCount; }
+
+        @Override
+        public int getLinkCount() { return linkCount; }
+
+        @Override
+        public int getListItemCount() { return listItemCount; }
+    }
+
+    public static class IncrementalResult {
+        private String version;
+        private DocumentAnalysisService.AnalysisResult analysis;
+        private int blockCount;
+        private int rescannedChars;
+
+        // Getters and Setters
+        public String getVersion() { return version; }
+        public void setVersion(String version) { this.version = version; }
+
+        public DocumentAnalysisService.AnalysisResult getAnalysis() { return analysis; }
+        public void setAnalysis(DocumentAnalysisService.AnalysisResult analysis) { this.analysis = analysis; }
+
+        public int getBlockCount() { return blockCount; }
+        public void setBlockCount(int blockCount) { this.blockCount = blockCount; }
+
+        public int getRescannedChars() { return rescannedChars; }
+        public void setRescannedChars(int rescannedChars) { this.rescannedChars = rescannedChars; }
+    }
+}
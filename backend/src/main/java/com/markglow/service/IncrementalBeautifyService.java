@@ -0,0 +1,254 @@
+package com.markglow.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.markglow.config.AIConfig;
+import com.markglow.entity.Document;
+import com.markglow.repository.DocumentRepository;
+import com.markglow.service.ai.AICompletion;
+import com.markglow.service.ai.AIServiceFactory;
+import com.markglow.service.ai.ChunkedAIPipeline;
+import com.markglow.service.ai.MarkdownChunker;
+import com.markglow.service.ai.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档增量美化：按标题将文档划分为章节，与上次美化时的章节清单比对，
+ * 仅把有改动的章节发送给AI，未改动的章节直接复用上次的美化结果。
+ */
+@Service
+@Slf4j
+public class IncrementalBeautifyService {
+
+    private static final String SECTION_SEPARATOR = "\n\n";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentAnalysisCache analysisCache;
+
+    @Autowired
+    private DocumentSearchIndex searchIndex;
+
+    @Autowired
+    private ChunkedAIPipeline chunkedAIPipeline;
+
+    @Autowired
+    private AIServiceFactory aiServiceFactory;
+
+    @Autowired
+    private AIStatisticsService statisticsService;
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    /**
+     * 增量美化文档并保存结果
+     * @param id 文档ID
+     * @param content 当前原文，为 null 时使用文档已保存的原文
+     * @param allowCache 温度大于0时是否允许使用缓存或合并请求
+     * @return 美化结果及章节复用情况
+     */
+    public BeautifyResult beautifyDocument(Long id, String content, Double temperature, Integer maxTokens, String model,
+                                           boolean allowCache) {
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("文档不存在: " + id));
+        String source = content != null ? content : document.getOriginalContent();
+        if (source == null || source.trim().isEmpty()) {
+            throw new IllegalArgumentException("文档内容为空");
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, String> previous = loadPreviousSections(document);
+        List<String> units = splitUnits(source);
+        List<String> hashes = new ArrayList<>(units.size());
+        String[] outputs = new String[units.size()];
+        List<Integer> changed = new ArrayList<>();
+        List<String> changedTexts = new ArrayList<>();
+        int reusedTokens = 0;
+        for (int i = 0; i < units.size(); i++) {
+            String unit = units.get(i);
+            String hash = hash(unit);
+            hashes.add(hash);
+            String reused = previous.get(hash);
+            if (reused != null) {
+                outputs[i] = reused;
+                reusedTokens += MarkdownChunker.estimateTokens(unit) + MarkdownChunker.estimateTokens(reused);
+            } else {
+                changed.add(i);
+                changedTexts.add(unit);
+            }
+        }
+        log.info("增量美化 documentId={}, 章节数: {}, 需重新美化: {}", id, units.size(), changed.size());
+
+        // 有改动的章节并发美化；相同章节内容命中响应缓存时不调用上游（温度大于0时须 allowCache）
+        List<AICompletion> completions = chunkedAIPipeline.mapAsync("beautify", changedTexts, temperature, maxTokens,
+                model, null, null, allowCache, null).join();
+        int cachedSections = 0;
+        TokenUsage usage = null;
+        for (int i = 0; i < completions.size(); i++) {
+            AICompletion completion = completions.get(i);
+            outputs[changed.get(i)] = trimTrailing(completion.getContent());
+            if (completion.isUpstreamCall()) {
+                usage = usage == null ? completion.getUsage() : usage.plus(completion.getUsage());
+            } else {
+                cachedSections++;
+            }
+        }
+        long cost = System.currentTimeMillis() - start;
+        if (usage != null) {
+            String provider = aiServiceFactory.getCurrentProvider();
+            String finalModel = model != null ? model : (provider.equals("ernie") ? "ernie-4.5-turbo-128k" : "qwen-3-235b-a22b");
+            statisticsService.recordUsage("beautify", provider, finalModel, usage.getInputTokens(), usage.getOutputTokens(), cost);
+        }
+
+        StringBuilder beautified = new StringBuilder();
+        JSONArray sections = new JSONArray();
+        for (int i = 0; i < outputs.length; i++) {
+            if (i > 0) {
+                beautified.append(SECTION_SEPARATOR);
+            }
+            beautified.append(outputs[i]);
+            JSONObject section = new JSONObject();
+            section.put("hash", hashes.get(i));
+            section.put("length", outputs[i].length());
+            sections.add(section);
+        }
+        String result = beautified.toString();
+        JSONObject manifest = new JSONObject();
+        manifest.put("contentHash", hash(result));
+        manifest.put("sections", sections);
+
+        if (content != null) {
+            document.setOriginalContent(content);
+        }
+        document.setBeautifiedContent(result);
+        document.setBeautifySections(manifest.toJSONString());
+        documentRepository.save(document);
+        analysisCache.invalidate(document.getId());
+        searchIndex.index(document);
+
+        BeautifyResult beautifyResult = new BeautifyResult();
+        beautifyResult.setBeautifiedContent(result);
+        beautifyResult.setTotalSections(units.size());
+        beautifyResult.setReusedSections(units.size() - changed.size());
+        beautifyResult.setCachedSections(cachedSections);
+        beautifyResult.setRegeneratedSections(changed.size() - cachedSections);
+        beautifyResult.setTokensSaved(reusedTokens);
+        beautifyResult.setCost(cost);
+        log.info("增量美化完成 documentId={}, 复用: {}, 缓存: {}, 重新生成: {}, 耗时: {} ms", id,
+                beautifyResult.getReusedSections(), cachedSections, beautifyResult.getRegeneratedSections(), cost);
+        return beautifyResult;
+    }
+
+    /**
+     * 按标题划分章节，超出分块预算的章节再按段落切分；空白章节忽略
+     */
+    private List<String> splitUnits(String source) {
+        AIConfig.ChunkingConfig config = aiConfig.getChunking();
+        List<String> units = new ArrayList<>();
+        for (String section : MarkdownChunker.splitSections(source, config.getSectionLevel())) {
+            List<String> parts = MarkdownChunker.estimateTokens(section) > config.getChunkTokens()
+                    ? MarkdownChunker.split(section, config.getChunkTokens())
+                    : Collections.singletonList(section);
+            for (String part : parts) {
+                String unit = trimTrailing(part);
+                if (!unit.trim().isEmpty()) {
+                    units.add(unit);
+                }
+            }
+        }
+        return units;
+    }
+
+    /**
+     * 读取上次美化的章节：原文哈希与美化结果哈希都映射到美化结果，
+     * 这样编辑器用美化结果替换原文后再次美化，未改动的章节同样可以复用。
+     * beautifiedContent 已被单独修改（与清单不一致）时不复用。
+     */
+    private Map<String, String> loadPreviousSections(Document document) {
+        Map<String, String> previous = new HashMap<>();
+        String beautified = document.getBeautifiedContent();
+        String manifestJson = document.getBeautifySections();
+        if (beautified == null || manifestJson == null || manifestJson.isEmpty()) {
+            return previous;
+        }
+        try {
+            JSONObject manifest = JSON.parseObject(manifestJson);
+            if (!hash(beautified).equals(manifest.getString("contentHash"))) {
+                log.info("美化内容已被修改，忽略上次的章节清单 documentId={}", document.getId());
+                return previous;
+            }
+            JSONArray sections = manifest.getJSONArray("sections");
+            int offset = 0;
+            for (int i = 0; i < sections.size(); i++) {
+                JSONObject section = sections.getJSONObject(i);
+                int length = section.getIntValue("length");
+                String output = beautified.substring(offset, offset + length);
+                previous.put(section.getString("hash"), output);
+                previous.put(hash(output), output);
+                offset += length + SECTION_SEPARATOR.length();
+            }
+        } catch (Exception e) {
+            log.warn("解析章节清单失败 documentId={}: {}", document.getId(), e.getMessage());
+            previous.clear();
+        }
+        return previous;
+    }
+
+    private static String hash(String text) {
+        return DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String trimTrailing(String text) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    public static class BeautifyResult {
+        private String beautifiedContent;
+        private int totalSections;
+        private int reusedSections;
+        private int cachedSections;
+        private int regeneratedSections;
+        private int tokensSaved;
+        private long cost;
+
+        // Getters and Setters
+        public String getBeautifiedContent() { return beautifiedContent; }
+        public void setBeautifiedContent(String beautifiedContent) { this.beautifiedContent = beautifiedContent; }
+
+        public int getTotalSections() { return totalSections; }
+        public void setTotalSections(int totalSections) { this.totalSections = totalSections; }
+
+        public int getReusedSections() { return reusedSections; }
+        public void setReusedSections(int reusedSections) { this.reusedSections = reusedSections; }
+
+        public int getCachedSections() { return cachedSections; }
+        public void setCachedSections(int cachedSections) { this.cachedSections = cachedSections; }
+
+        public int getRegeneratedSections() { return regeneratedSections; }
+        public void setRegeneratedSections(int regeneratedSections) { this.regeneratedSections = regeneratedSections; }
+
+        public int getTokensSaved() { return tokensSaved; }
+        public void setTokensSaved(int tokensSaved) { this.tokensSaved = tokensSaved; }
+
+        public long getCost() { return cost; }
+        public void setCost(long cost) { this.cost = cost; }
+    }
+}
@@ -0,0 +1,600 @@
+package com.markglow.service;
+
+import com.alibaba.fastjson.JSON;
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 实时用量统计（仅内存，不查询数据库）：按 action/provider/model 累计调用数、token、成本，
+ * 总耗时、首token耗时和输出速度记入 HdrHistogram。
+ * 记录时只做 LongAdder 累加和 Recorder 写入，不加锁；tick 线程每 5 秒把新增部分存入 5 秒和 1 分钟的时间片，
+ * 计算最近 1 分钟/5 分钟/1 小时的统计并发布快照，查询和 SSE 推送都直接返回该快照。
+ * 最近 1 分钟的 p50/p90/p99 同时作为 markglow.ai.call.* 指标（phi 标签区分分位数）发布到 /actuator/metrics。
+ * action 和 model 由客户端传入，只按已知的接口和已配置/有定价的模型分组，其他值归入 other，分组数量有上限；
+ * 超过 1 小时没有调用的分组会被移除并注销其指标
+ */
+@Service
+@Slf4j
+public class LiveUsageMetrics {
+
+    static final long TICK_MS = 5000;
+
+    private static final int TICKS_PER_MINUTE = (int) (TimeUnit.MINUTES.toMillis(1) / TICK_MS);
+
+    // 5 秒时间片覆盖最近 5 分钟，1 分钟时间片覆盖最近 1 小时
+    private static final int SHORT_SLOTS = 5 * TICKS_PER_MINUTE;
+
+    private static final int LONG_SLOTS = 60;
+
+    private static final String[] WINDOWS = {"1m", "5m", "1h"};
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    // 超出该值的耗时按该值记录
+    private static final long MAX_DURATION_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final long MAX_TOKENS_PER_SECOND = 100000;
+
+    private static final int MAX_SUBSCRIBERS = 64;
+
+    static final String OTHER = "other";
+
+    private static final Set<String> ACTIONS = new HashSet<>(Arrays.asList(
+            "beautify", "generate", "improve", "checkGrammar", "summarize", "translate", "explainCode", "complete",
+            "expand", "generateList", "optimizeTitles", "generateTable", "qa", "analyze"));
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    private Set<String> models;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile LiveSnapshot snapshot;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        Set<String> known = new HashSet<>(AIStatisticsService.pricedModels());
+        if (aiConfig.getErnie() != null && aiConfig.getErnie().getModel() != null) {
+            known.add(aiConfig.getErnie().getModel());
+        }
+        models = known;
+        snapshot = buildSnapshot(System.currentTimeMillis() / TICK_MS);
+        // 一个线程计算快照，另一个推送，推送给慢客户端时不影响统计
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("live-usage-");
+        scheduler.setPoolSize(2);
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        // 在每个 5 秒区间的中点执行，调度抖动不会让相邻两次 tick 落在同一区间
+        long now = System.currentTimeMillis();
+        scheduler.scheduleAtFixedRate(this::tick, new Date(now - now % TICK_MS + TICK_MS + TICK_MS / 2), TICK_MS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        for (SseEmitter emitter : subscribers) {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 记录一次完成的AI调用，未知的 action/model 按 other 统计
+     * @param firstTokenLatency 首token耗时（毫秒），非流式调用为 null
+     * @param tokensPerSecond 输出速度，无法计算时为 null
+     */
+    public void record(String action, String provider, String model, int inputTokens, int outputTokens,
+                       double cost, long duration, Long firstTokenLatency, Double tokensPerSecond) {
+        String knownAction = ACTIONS.contains(action) ? action : OTHER;
+        String knownModel = model != null && models.contains(model) ? model : OTHER;
+        String key = knownAction + '|' + provider + '|' + knownModel;
+        Series current = series.get(key);
+        if (current == null) {
+            current = series.computeIfAbsent(key, k -> new Series(knownAction, provider, knownModel, meterRegistry));
+        }
+        current.calls.increment();
+        current.inputTokens.add(inputTokens);
+        current.outputTokens.add(outputTokens);
+        current.cost.add(cost);
+        current.duration.add(duration);
+        current.durations.recordValue(Math.max(0, Math.min(duration, MAX_DURATION_MS)));
+        if (firstTokenLatency != null) {
+            current.firstTokens.recordValue(Math.max(0, Math.min(firstTokenLatency, MAX_DURATION_MS)));
+        }
+        if (tokensPerSecond != null) {
+            current.tokenRates.recordValue(Math.max(0, Math.min(Math.round(tokensPerSecond), MAX_TOKENS_PER_SECOND)));
+        }
+    }
+
+    /**
+     * 最近一次 tick 计算的快照（最多落后 5 秒）
+     */
+    public LiveSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 订阅快照推送：先发送当前快照，之后每 5 秒发送一次 usage 事件
+     * @throws IllegalStateException 订阅数已达上限
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= MAX_SUBSCRIBERS) {
+            throw new IllegalStateException("实时统计订阅数已达上限");
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        send(emitter, JSON.toJSONString(snapshot));
+        return emitter;
+    }
+
+    private void tick() {
+        tick(System.currentTimeMillis() / TICK_MS);
+    }
+
+    /**
+     * 把各分组的新增部分存入时间片，移除闲置的分组，计算并发布快照
+     */
+    void tick(long tick) {
+        try {
+            for (Map.Entry<String, Series> entry : series.entrySet()) {
+                entry.getValue().roll(tick);
+                // 移除与创建同一 key 的分组互斥，新建的分组会重新注册指标。
+                // 恰好与移除并发、已取得旧分组的调用不计入实时统计（数据库记录不受影响）
+                series.computeIfPresent(entry.getKey(), (key, current) -> {
+                    if (!current.idle(tick)) {
+                        return current;
+                    }
+                    current.removeGauges(meterRegistry);
+                    return null;
+                });
+            }
+            LiveSnapshot next = buildSnapshot(tick);
+            snapshot = next;
+            if (!subscribers.isEmpty()) {
+                String data = JSON.toJSONString(next);
+                scheduler.execute(() -> {
+                    for (SseEmitter emitter : subscribers) {
+                        send(emitter, data);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error("计算实时用量统计失败", e);
+        }
+    }
+
+    private void send(SseEmitter emitter, String data) {
+        try {
+            emitter.send(SseEmitter.event().name("usage").data(data));
+        } catch (Exception e) {
+            log.debug("推送实时用量统计失败: {}", e.getMessage());
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private LiveSnapshot buildSnapshot(long tick) {
+        LiveSnapshot result = new LiveSnapshot();
+        result.setTimestamp(tick * TICK_MS);
+        List<LiveWindow> windows = new ArrayList<>(WINDOWS.length);
+        for (String name : WINDOWS) {
+            Slot total = new Slot(tick);
+            List<LiveStats> groups = new ArrayList<>();
+            for (Series current : series.values()) {
+                Slot window = current.window(name, tick);
+                LiveStats stats = window.toStats(current.action, current.provider, current.model);
+                if (window.calls > 0) {
+                    groups.add(stats);
+                    total.add(window);
+                }
+                if ("1m".equals(name)) {
+                    current.lastMinute = stats;
+                }
+            }
+            groups.sort((a, b) -> Long.compare(b.getCalls(), a.getCalls()));
+            LiveWindow window = new LiveWindow();
+            window.setWindow(name);
+            window.setSeconds(seconds(name));
+            window.setTotal(total.toStats(null, null, null));
+            window.setGroups(Collections.unmodifiableList(groups));
+            windows.add(window);
+        }
+        result.setWindows(Collections.unmodifiableList(windows));
+        return result;
+    }
+
+    private static int seconds(String window) {
+        switch (window) {
+            case "1m":
+                return 60;
+            case "5m":
+                return 300;
+            default:
+                return 3600;
+        }
+    }
+
+    /**
+     * 一个 action/provider/model 组合：累加器由记录线程写入，时间片只由 tick 线程读写
+     */
+    private static final class Series {
+        private final String action;
+        private final String provider;
+        private final String model;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder inputTokens = new LongAdder();
+        private final LongAdder outputTokens = new LongAdder();
+        private final LongAdder duration = new LongAdder();
+        private final DoubleAdder cost = new DoubleAdder();
+        private final Recorder durations = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder firstTokens = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder tokenRates = new Recorder(SIGNIFICANT_DIGITS);
+        // 最近一次 tick 时 1 分钟窗口的统计，供指标读取
+        private volatile LiveStats lastMinute = new LiveStats();
+        private final List<Meter> gauges = new ArrayList<>(9);
+        // 最近一次有新增调用的 tick
+        private long lastActiveTick = System.currentTimeMillis() / TICK_MS;
+
+        // 上次 tick 时的累计值，新增部分 = 当前累计值 - 上次累计值（累加器不重置，不会丢失并发的累加）
+        private long lastCalls;
+        private long lastInputTokens;
+        private long lastOutputTokens;
+        private long lastDuration;
+        private double lastCost;
+        private Histogram recycledDurations;
+        private Histogram recycledFirstTokens;
+        private Histogram recycledTokenRates;
+        private final Slot[] shortSlots = new Slot[SHORT_SLOTS];
+        private final Slot[] longSlots = new Slot[LONG_SLOTS];
+
+        Series(String action, String provider, String model, MeterRegistry registry) {
+            this.action = action;
+            this.provider = provider;
+            this.model = model;
+            Tags tags = Tags.of("action", action, "provider", provider, "model", model);
+            register(registry, tags, "markglow.ai.call.duration", "最近1分钟AI调用总耗时", "milliseconds",
+                    LiveStats::getP50Duration, LiveStats::getP90Duration, LiveStats::getP99Duration);
+            register(registry, tags, "markglow.ai.call.first.token", "最近1分钟流式AI调用的首token耗时", "milliseconds",
+                    LiveStats::getP50FirstTokenLatency, LiveStats::getP90FirstTokenLatency,
+                    LiveStats::getP99FirstTokenLatency);
+            register(registry, tags, "markglow.ai.call.tokens.per.second", "最近1分钟AI调用的输出速度", "tokens/s",
+                    LiveStats::getP50TokensPerSecond, LiveStats::getP90TokensPerSecond,
+                    LiveStats::getP99TokensPerSecond);
+        }
+
+        private void register(MeterRegistry registry, Tags tags, String name, String description, String baseUnit,
+                              ToDoubleFunction<LiveStats> p50, ToDoubleFunction<LiveStats> p90,
+                              ToDoubleFunction<LiveStats> p99) {
+            register(registry, tags.and("phi", "0.5"), name, description, baseUnit, p50);
+            register(registry, tags.and("phi", "0.9"), name, description, baseUnit, p90);
+            register(registry, tags.and("phi", "0.99"), name, description, baseUnit, p99);
+        }
+
+        private void register(MeterRegistry registry, Tags tags, String name, String description, String baseUnit,
+                              ToDoubleFunction<LiveStats> value) {
+            gauges.add(Gauge.builder(name, this, series -> value.applyAsDouble(series.lastMinute))
+                    .description(description)
+                    .baseUnit(baseUnit)
+                    .tags(tags)
+                    .register(registry));
+        }
+
+        void removeGauges(MeterRegistry registry) {
+            for (Meter gauge : gauges) {
+                registry.remove(gauge);
+            }
+        }
+
+        /**
+         * 1 小时窗口内已没有调用，且上次 tick 之后也没有新的调用
+         */
+        boolean idle(long tick) {
+            return tick - lastActiveTick > (long) (LONG_SLOTS + 1) * TICKS_PER_MINUTE && calls.sum() == lastCalls;
+        }
+
+        /**
+         * 把上次 tick 以来的新增部分存为本次的 5 秒时间片，并累加到所在分钟的时间片
+         */
+        void roll(long tick) {
+            Histogram intervalDurations = durations.getIntervalHistogram(recycledDurations);
+            recycledDurations = intervalDurations;
+            Histogram intervalFirstTokens = firstTokens.getIntervalHistogram(recycledFirstTokens);
+            recycledFirstTokens = intervalFirstTokens;
+            Histogram intervalTokenRates = tokenRates.getIntervalHistogram(recycledTokenRates);
+            recycledTokenRates = intervalTokenRates;
+            long currentCalls = calls.sum();
+            long currentInput = inputTokens.sum();
+            long currentOutput = outputTokens.sum();
+            long currentDuration = duration.sum();
+            double currentCost = cost.sum();
+
+            // 记录线程先累加计数再写入耗时，两者可能分属相邻的两次 tick，只要任一有新增就保存时间片
+            Slot slot = null;
+            if (currentCalls > lastCalls || intervalDurations.getTotalCount() > 0
+                    || intervalFirstTokens.getTotalCount() > 0 || intervalTokenRates.getTotalCount() > 0) {
+                slot = new Slot(tick);
+                slot.calls = currentCalls - lastCalls;
+                slot.inputTokens = currentInput - lastInputTokens;
+                slot.outputTokens = currentOutput - lastOutputTokens;
+                slot.duration = currentDuration - lastDuration;
+                slot.cost = currentCost - lastCost;
+                slot.durations = copy(intervalDurations);
+                slot.firstTokens = copy(intervalFirstTokens);
+                slot.tokenRates = copy(intervalTokenRates);
+                lastActiveTick = tick;
+            }
+            lastCalls = currentCalls;
+            lastInputTokens = currentInput;
+            lastOutputTokens = currentOutput;
+            lastDuration = currentDuration;
+            lastCost = currentCost;
+
+            int shortIndex = (int) (tick % SHORT_SLOTS);
+            if (slot != null && shortSlots[shortIndex] != null && shortSlots[shortIndex].tick == tick) {
+                shortSlots[shortIndex].add(slot);
+            } else {
+                shortSlots[shortIndex] = slot;
+            }
+            long minute = tick / TICKS_PER_MINUTE;
+            int index = (int) (minute % LONG_SLOTS);
+            if (longSlots[index] != null && longSlots[index].tick != minute) {
+                longSlots[index] = null;
+            }
+            if (slot != null) {
+                if (longSlots[index] == null) {
+                    longSlots[index] = new Slot(minute);
+                }
+                longSlots[index].add(slot);
+            }
+        }
+
+        private static IntCountsHistogram copy(Histogram interval) {
+            if (interval.getTotalCount() == 0) {
+                return null;
+            }
+            IntCountsHistogram histogram = new IntCountsHistogram(SIGNIFICANT_DIGITS);
+            histogram.add(interval);
+            return histogram;
+        }
+
+        /**
+         * 最近 1 分钟/5 分钟（按 5 秒对齐）或 1 小时（按分钟对齐，含当前分钟）内的合计
+         */
+        Slot window(String name, long tick) {
+            Slot result = new Slot(tick);
+            if ("1h".equals(name)) {
+                long minute = tick / TICKS_PER_MINUTE;
+                for (Slot slot : longSlots) {
+                    if (slot != null && slot.tick > minute - LONG_SLOTS) {
+                        result.add(slot);
+                    }
+                }
+                return result;
+            }
+            int ticks = "1m".equals(name) ? TICKS_PER_MINUTE : SHORT_SLOTS;
+            for (Slot slot : shortSlots) {
+                if (slot != null && slot.tick > tick - ticks) {
+                    result.add(slot);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 一个时间片（或窗口）内的合计
+     */
+    private static final class Slot {
+        private final long tick;
+        private long calls;
+        private long inputTokens;
+        private long outputTokens;
+        private long duration;
+        private double cost;
+        private IntCountsHistogram durations;
+        private IntCountsHistogram firstTokens;
+        private IntCountsHistogram tokenRates;
+
+        Slot(long tick) {
+            this.tick = tick;
+        }
+
+        void add(Slot other) {
+            calls += other.calls;
+            inputTokens += other.inputTokens;
+            outputTokens += other.outputTokens;
+            duration += other.duration;
+            cost += other.cost;
+            durations = merge(durations, other.durations);
+            firstTokens = merge(firstTokens, other.firstTokens);
+            tokenRates = merge(tokenRates, other.tokenRates);
+        }
+
+        private static IntCountsHistogram merge(IntCountsHistogram target, IntCountsHistogram other) {
+            if (other == null) {
+                return target;
+            }
+            if (target == null) {
+                target = new IntCountsHistogram(SIGNIFICANT_DIGITS);
+            }
+            target.add(other);
+            return target;
+        }
+
+        LiveStats toStats(String action, String provider, String model) {
+            LiveStats stats = new LiveStats();
+            stats.setAction(action);
+            stats.setProvider(provider);
+            stats.setModel(model);
+            stats.setCalls(calls);
+            stats.setInputTokens(inputTokens);
+            stats.setOutputTokens(outputTokens);
+            stats.setCost(Math.round(cost * 10000.0) / 10000.0);
+            stats.setAvgDuration(calls > 0 ? duration / calls : 0);
+            if (durations != null) {
+                stats.setP50Duration(durations.getValueAtPercentile(50));
+                stats.setP90Duration(durations.getValueAtPercentile(90));
+                stats.setP99Duration(durations.getValueAtPercentile(99));
+                stats.setMaxDuration(durations.getMaxValue());
+            }
+            if (firstTokens != null) {
+                stats.setP50FirstTokenLatency(firstTokens.getValueAtPercentile(50));
+                stats.setP90FirstTokenLatency(firstTokens.getValueAtPercentile(90));
+                stats.setP99FirstTokenLatency(firstTokens.getValueAtPercentile(99));
+            }
+            if (tokenRates != null) {
+                stats.setP50TokensPerSecond(tokenRates.getValueAtPercentile(50));
+                stats.setP90TokensPerSecond(tokenRates.getValueAtPercentile(90));
+                stats.setP99TokensPerSecond(tokenRates.getValueAtPercentile(99));
+            }
+            return stats;
+        }
+    }
+
+    public static class LiveSnapshot {
+        private long timestamp;
+        private List<LiveWindow> windows;
+
+        // Getters and Setters
+        public long getTimestamp() { return timestamp; }
+        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+        public List<LiveWindow> getWindows() { return windows; }
+        public void setWindows(List<LiveWindow> windows) { this.windows = windows; }
+    }
+
+    public static class LiveWindow {
+        private String window;
+        private int seconds;
+        private LiveStats total;
+        private List<LiveStats> groups;
+
+        // Getters and Setters
+        public String getWindow() { return window; }
+        public void setWindow(String window) { this.window = window; }
+
+        public int getSeconds() { return seconds; }
+        public void setSeconds(int seconds) { this.seconds = seconds; }
+
+        public LiveStats getTotal() { return total; }
+        public void setTotal(LiveStats total) { this.total = total; }
+
+        public List<LiveStats> getGroups() { return groups; }
+        public void setGroups(List<LiveStats> groups) { this.groups = groups; }
+    }
+
+    public static class LiveStats {
+        private String action;
+        private String provider;
+        private String model;
+        private long calls;
+        private long inputTokens;
+        private long outputTokens;
+        private double cost;
+        private long avgDuration;
+        private long p50Duration;
+        private long p90Duration;
+        private long p99Duration;
+        private long maxDuration;
+        private long p50FirstTokenLatency;
+        private long p90FirstTokenLatency;
+        private long p99FirstTokenLatency;
+        private long p50TokensPerSecond;
+        private long p90TokensPerSecond;
+        private long p99TokensPerSecond;
+
+        // Getters and Setters
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+
+        public String getProvider() { return provider; }
+        public void setProvider(String provider) { this.provider = provider; }
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public long getCalls() { return calls; }
+        public void setCalls(long calls) { this.calls = calls; }
+
+        public long getInputTokens() { return inputTokens; }
+        public void setInputTokens(long inputTokens) { this.inputTokens = inputTokens; }
+
+        public long getOutputTokens() { return outputTokens; }
+        public void setOutputTokens(long outputTokens) { this.outputTokens = outputTokens; }
+
+        public double getCost() { return cost; }
+        public void setCost(double cost) { this.cost = cost; }
+
+        public long getAvgDuration() { return avgDuration; }
+        public void setAvgDuration(long avgDuration) { this.avgDuration = avgDuration; }
+
+        public long getP50Duration() { return p50Duration; }
+        public void setP50Duration(long p50Duration) { this.p50Duration = p50Duration; }
+
+        public long getP90Duration() { return p90Duration; }
+        public void setP90Duration(long p90Duration) { this.p90Duration = p90Duration; }
+
+        public long getP99Duration() { return p99Duration; }
+        public void setP99Duration(long p99Duration) { this.p99Duration = p99Duration; }
+
+        public long getMaxDuration() { return maxDuration; }
+        public void setMaxDuration(long maxDuration) { this.maxDuration = maxDuration; }
+
+        public long getP50FirstTokenLatency() { return p50FirstTokenLatency; }
+        public void setP50FirstTokenLatency(long p50FirstTokenLatency) { this.p50FirstTokenLatency = p50FirstTokenLatency; }
+
+        public long getP90FirstTokenLatency() { return p90FirstTokenLatency; }
+        public void setP90FirstTokenLatency(long p90FirstTokenLatency) { this.p90FirstTokenLatency = p90FirstTokenLatency; }
+
+        public long getP99FirstTokenLatency() { return p99FirstTokenLatency; }
+        public void setP99FirstTokenLatency(long p99FirstTokenLatency) { this.p99FirstTokenLatency = p99FirstTokenLatency; }
+
+        public long getP50TokensPerSecond() { return p50TokensPerSecond; }
+        public void setP50TokensPerSecond(long p50TokensPerSecond) { this.p50TokensPerSecond = p50TokensPerSecond; }
+
+        public long getP90TokensPerSecond() { return p90TokensPerSecond; }
+        public void setP90TokensPerSecond(long p90TokensPerSecond) { this.p90TokensPerSecond = p90TokensPerSecond; }
+
+        public long getP99TokensPerSecond() { return p99TokensPerSecond; }
+        public void setP99TokensPerSecond(long p99TokensPerSecond) { this.p99TokensPerSecond = p99TokensPerSecond; }
+    }
+}
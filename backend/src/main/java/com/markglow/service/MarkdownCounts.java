@@ -0,0 +1,30 @@
+package com.markglow.service;
+
+/**
+ * 文档分析所需的各项计数，由 MarkdownScanner 整篇扫描得到，或由增量分析按块累加得到
+ */
+public interface MarkdownCounts {
+
+    int getTotalChars();
+
+    int getChineseChars();
+
+    int getEnglishWords();
+
+    int getHeadingCount();
+
+    int getMaxHeadingLevel();
+
+    int getParagraphCount();
+
+    /**
+     * 计入段落数的各段落（去掉首尾空白后）的字符数之和
+     */
+    int getParagraphChars();
+
+    int getCodeBlockCount();
+
+    int getLinkCount();
+
+    int getListItemCount();
+}
@@ -0,0 +1,457 @@
+package com.markglow.service;
+
+/**
+ * Markdown 单遍扫描器：一次线性遍历得到文档分析所需的全部计数（中文字符、英文单词、标题、段落、代码块、链接、列表项），
+ * 不创建中间字符串。计数规则与原先基于正则的实现逐项一致：
+ * <ul>
+ *   <li>代码块：```...``` 成对出现才计数，未闭合的 ``` 之后不再识别代码块</li>
+ *   <li>英文单词：依次去掉代码块、行内代码、标题标记（# 及其后空白）、* 与 _、链接 [..](..) 后，
+ *       统计前后都不是字母/数字/下划线的 ASCII 字母串（与 \b[a-zA-Z]+\b 一致，紧贴中文的英文不计）</li>
+ *   <li>标题：行首 1~6 个 # 后跟空白；列表项：行首空白后的 -、*、+ 后跟空白（空白可跨行，规则同 ^[\s]*[-*+]\s+）</li>
+ *   <li>段落：按两个以上连续换行切分，去掉首尾空白后非空且不以 #、-、*、``` 开头的块</li>
+ *   <li>链接：[文字](地址)，文字与地址都不能为空，可跨行</li>
+ * </ul>
+ * 需要向后查找的规则（代码块闭合、行内代码闭合、链接、列表项后的空白）只在遇到对应标记时用 indexOf 前探，
+ * 前探位置单调前进，整体仍为线性
+ */
+public final class MarkdownScanner implements MarkdownCounts {
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private static final int LINK_NONE = 0;
+    private static final int LINK_TEXT = 1;
+    private static final int LINK_URL = 2;
+
+    private final String text;
+    private final int length;
+
+    private int chineseChars;
+    private int headingCount;
+    private int maxHeadingLevel;
+    private int paragraphCount;
+    private int paragraphChars;
+    private int codeBlockCount;
+    private int linkCount;
+    private int listItemCount;
+
+    // 扫描结束时仍未闭合、会影响后续内容的结构
+    private boolean unclosedFence;
+    private boolean unclosedLink;
+    private boolean openListItem;
+
+    // 代码块：下一个（或当前所在的）已闭合代码块 [fenceStart, fenceEnd)
+    private int fenceStart;
+    private int fenceEnd;
+
+    // 行内代码：当前被去掉的行内代码结束位置（含），inlineDone 表示之后不会再有成对的反引号
+    private int inlineEnd = -1;
+    private boolean inlineDone;
+
+    // 原文上的链接与列表项：此位置之前的候选已处理
+    private int linkResume;
+    private int listResume;
+
+    // 段落：当前块去掉首尾空白后的起止位置、连续换行数
+    private int segmentFirst = -1;
+    private int segmentLast = -1;
+    private int newlineRun;
+
+    // 英文单词统计前的去除标记：# 及其后空白、链接
+    private boolean dropHash;
+    private int linkState = LINK_NONE;
+    private char linkPrev;
+
+    // 英文单词计数状态（\b 判断需要前一个位置是否为“单词字符”，组合附加符号沿用其前面的基字符）
+    private int englishWords;
+    private boolean prevWord;
+    private boolean baseLetter;
+    private char prevChar;
+    private boolean inRun;
+    private boolean runValid;
+    private boolean pendingRunEnd;
+
+    // 进入链接时保存的计数状态，链接整体被去掉时恢复
+    private int savedEnglishWords;
+    private boolean savedPrevWord;
+    private boolean savedBaseLetter;
+    private char savedPrevChar;
+    private boolean savedInRun;
+    private boolean savedRunValid;
+    private boolean savedPendingRunEnd;
+
+    private MarkdownScanner(String text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /**
+     * 扫描 Markdown 文本
+     * @param content 文档内容，不能为 null
+     * @return 扫描结果
+     */
+    public static MarkdownScanner scan(String content) {
+        MarkdownScanner scanner = new MarkdownScanner(content);
+        scanner.run();
+        return scanner;
+    }
+
+    private void run() {
+        nextFence(0);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x4E00 && c <= 0x9FFF) {
+                chineseChars++;
+            }
+            if (i == 0 || isLineStart(i, c)) {
+                heading(i);
+                if (i >= listResume) {
+                    listItem(i);
+                }
+            }
+            paragraph(i, c);
+            if (c == '[' && i >= linkResume) {
+                link(i);
+            }
+
+            // 英文单词：先去掉代码块与行内代码，其余字符依次经过后续去除规则
+            if (i == fenceEnd) {
+                nextFence(i);
+            }
+            if (i >= fenceStart || i <= inlineEnd) {
+                continue;
+            }
+            if (c == '`' && !inlineDone && inlineCode(i)) {
+                continue;
+            }
+            stripHeading(c);
+        }
+        if (segmentFirst >= 0) {
+            closeSegment();
+        }
+        finishWords();
+    }
+
+    /**
+     * 行首判断与 MULTILINE 模式下的 ^ 一致：换行符之后（\r\n 之间不算）
+     */
+    private boolean isLineStart(int i, char c) {
+        char prev = text.charAt(i - 1);
+        return isLineTerminator(prev) && !(prev == '\r' && c == '\n');
+    }
+
+    private void heading(int lineStart) {
+        int level = 0;
+        while (lineStart + level < length && text.charAt(lineStart + level) == '#' && level < 7) {
+            level++;
+        }
+        if (level >= 1 && level <= 6 && lineStart + level < length && isSpace(text.charAt(lineStart + level))) {
+            headingCount++;
+            maxHeadingLevel = Math.max(maxHeadingLevel, level);
+        }
+    }
+
+    private void listItem(int lineStart) {
+        int marker = lineStart;
+        while (marker < length && isSpace(text.charAt(marker))) {
+            marker++;
+        }
+        if (marker + 1 < length && isListMarker(text.charAt(marker)) && isSpace(text.charAt(marker + 1))) {
+            listItemCount++;
+            int end = marker + 2;
+            while (end < length && isSpace(text.charAt(end))) {
+                end++;
+            }
+            listResume = end;
+            openListItem = end == length;
+        } else {
+            // 这一段空白内的其他行首都会落到同一个位置，同样不匹配
+            listResume = marker + 1;
+        }
+    }
+
+    private void paragraph(int i, char c) {
+        if (c == '\n') {
+            newlineRun++;
+            return;
+        }
+        if (newlineRun >= 2) {
+            closeSegment();
+        }
+        newlineRun = 0;
+        if (c > ' ') {
+            if (segmentFirst < 0) {
+                segmentFirst = i;
+            }
+            segmentLast = i;
+        }
+    }
+
+    private void closeSegment() {
+        if (segmentFirst >= 0) {
+            char first = text.charAt(segmentFirst);
+            boolean fence = first == '`' && segmentLast - segmentFirst >= 2
+                    && text.charAt(segmentFirst + 1) == '`' && text.charAt(segmentFirst + 2) == '`';
+            if (first != '#' && first != '-' && first != '*' && !fence) {
+                paragraphCount++;
+                paragraphChars += segmentLast - segmentFirst + 1;
+            }
+        }
+        segmentFirst = -1;
+    }
+
+    /**
+     * 原文中的链接 [文字](地址)：文字取到第一个 ]，地址取到第一个 )，两者都不能为空
+     */
+    private void link(int open) {
+        int close = text.indexOf(']', open + 1);
+        if (close < 0) {
+            linkResume = NONE;
+            unclosedLink = true;
+            return;
+        }
+        if (close == open + 1 || close + 1 >= length || text.charAt(close + 1) != '(') {
+            // open 与 close 之间的 [ 找到的也是同一个 ]，同样不匹配
+            linkResume = close + 1;
+            return;
+        }
+        int end = text.indexOf(')', close + 2);
+        if (end < 0) {
+            linkResume = NONE;
+            unclosedLink = true;
+        } else if (end == close + 2) {
+            linkResume = close + 1;
+        } else {
+            linkCount++;
+            linkResume = end + 1;
+        }
+    }
+
+    private void nextFence(int from) {
+        fenceStart = NONE;
+        fenceEnd = NONE;
+        int start = text.indexOf("```", from);
+        if (start < 0) {
+            return;
+        }
+        int close = text.indexOf("```", start + 3);
+        if (close >= 0) {
+            fenceStart = start;
+            fenceEnd = close + 3;
+            codeBlockCount++;
+        } else {
+            unclosedFence = true;
+        }
+    }
+
+    /**
+     * 处理代码块之外的反引号：与下一个反引号之间（代码块已去掉）有内容时，两者之间整体作为行内代码去掉
+     * @return 该反引号是否被去掉
+     */
+    private boolean inlineCode(int open) {
+        int from = open + 1;
+        boolean adjacent = true;
+        int nextFenceStart = fenceStart;
+        int nextFenceEnd = fenceEnd;
+        while (true) {
+            int close = text.indexOf('`', from);
+            if (close < 0) {
+                inlineDone = true;
+                return false;
+            }
+            if (close > from) {
+                adjacent = false;
+            }
+            if (close != nextFenceStart) {
+                if (adjacent) {
+                    // 两个反引号之间没有内容，下一个反引号再作为开始
+                    return false;
+                }
+                inlineEnd = close;
+                return true;
+            }
+            // 跳过代码块（这里只前探，不计数）
+            from = nextFenceEnd;
+            int start = text.indexOf("```", from);
+            int end = start < 0 ? -1 : text.indexOf("```", start + 3);
+            nextFenceStart = end < 0 ? NONE : start;
+            nextFenceEnd = end < 0 ? NONE : end + 3;
+        }
+    }
+
+    /**
+     * 去掉 # 及紧随其后的空白
+     */
+    private void stripHeading(char c) {
+        if (c == '#') {
+            dropHash = true;
+            return;
+        }
+        if (dropHash && isSpace(c)) {
+            return;
+        }
+        dropHash = false;
+        if (c == '*' || c == '_') {
+            return;
+        }
+        stripLink(c);
+    }
+
+    /**
+     * 去掉同一行内的 [..](..)：先按普通字符计数，链接闭合时恢复到 [ 之前的计数状态
+     */
+    private void stripLink(char c) {
+        switch (linkState) {
+            case LINK_NONE:
+                if (c == '[') {
+                    saveWords();
+                    linkState = LINK_TEXT;
+                    linkPrev = c;
+                }
+                break;
+            case LINK_TEXT:
+                if (isLineTerminator(c)) {
+                    linkState = LINK_NONE;
+                } else if (c == '(' && linkPrev == ']') {
+                    linkState = LINK_URL;
+                }
+                linkPrev = c;
+                break;
+            default:
+                if (isLineTerminator(c)) {
+                    linkState = LINK_NONE;
+                } else if (c == ')') {
+                    restoreWords();
+                    linkState = LINK_NONE;
+                    return;
+                }
+                break;
+        }
+        countWord(c);
+    }
+
+    /**
+     * 统计两侧都是 \b 的 ASCII 字母串，单词字符与 Java 正则 \b 的判断一致（字母、数字、下划线及跟在其后的组合附加符号）
+     */
+    private void countWord(char c) {
+        if (pendingRunEnd) {
+            pendingRunEnd = false;
+            int codePoint = Character.isLowSurrogate(c) ? Character.toCodePoint(prevChar, c) : prevChar;
+            if (!isWordAfterRun(codePoint)) {
+                englishWords++;
+            }
+        }
+        boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        if (letter) {
+            if (!inRun) {
+                inRun = true;
+                runValid = !prevWord;
+            }
+        } else if (inRun) {
+            inRun = false;
+            if (runValid) {
+                if (Character.isHighSurrogate(c)) {
+                    pendingRunEnd = true;
+                } else if (!isWordAfterRun(c)) {
+                    englishWords++;
+                }
+            }
+        }
+
+        if (c < 0x80) {
+            prevWord = letter || (c >= '0' && c <= '9') || c == '_';
+            baseLetter = letter || (c >= '0' && c <= '9');
+        } else if (Character.isLowSurrogate(c) && Character.isHighSurrogate(prevChar)) {
+            prevWord = Character.isLetterOrDigit(Character.toCodePoint(prevChar, c));
+            baseLetter = false;
+        } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            prevWord = baseLetter;
+        } else {
+            prevWord = Character.isLetterOrDigit(c);
+            baseLetter = prevWord && !Character.isSurrogate(c);
+        }
+        prevChar = c;
+    }
+
+    private void finishWords() {
+        if (pendingRunEnd || (inRun && runValid)) {
+            englishWords++;
+        }
+    }
+
+    private static boolean isWordAfterRun(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint)
+                || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    private void saveWords() {
+        savedEnglishWords = englishWords;
+        savedPrevWord = prevWord;
+        savedBaseLetter = baseLetter;
+        savedPrevChar = prevChar;
+        savedInRun = inRun;
+        savedRunValid = runValid;
+        savedPendingRunEnd = pendingRunEnd;
+    }
+
+    private void restoreWords() {
+        englishWords = savedEnglishWords;
+        prevWord = savedPrevWord;
+        baseLetter = savedBaseLetter;
+        prevChar = savedPrevChar;
+        inRun = savedInRun;
+        runValid = savedRunValid;
+        pendingRunEnd = savedPendingRunEnd;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isListMarker(char c) {
+        return c == '-' || c == '*' || c == '+';
+    }
+
+    /**
+     * 扫描结束时是否没有延续到后文的结构：代码块、行内代码与链接均已闭合，
+     * 结尾不处于 # 后的空白或列表项标记后的空白中。以两个换行结尾且满足该条件的文本，
+     * 与后续文本分开扫描后各项计数相加，等于合在一起扫描的结果
+     */
+    public boolean isSelfContained() {
+        return !unclosedFence && !inlineDone && !unclosedLink && !openListItem && !dropHash;
+    }
+
+    // Getters
+    @Override
+    public int getTotalChars() { return length; }
+
+    @Override
+    public int getChineseChars() { return chineseChars; }
+
+    @Override
+    public int getEnglishWords() { return englishWords; }
+
+    @Override
+    public int getHeadingCount() { return headingCount; }
+
+    @Override
+    public int getMaxHeadingLevel() { return maxHeadingLevel; }
+
+    @Override
+    public int getParagraphCount() { return paragraphCount; }
+
+    @Override
+    public int getParagraphChars() { return paragraphChars; }
+
+    @Override
+    public int getCodeBlockCount() { return codeBlockCount; }
+
+    @Override
+    public int getLinkCount() { return linkCount; }
+
+    @Override
+    public int getListItemCount() { return listItemCount; }
+}
@@ -0,0 +1,49 @@
+package com.markglow.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 按（时间, ID）倒序的游标分页位置：上一页最后一条的时间与ID，以 Base64URL 编码传给前端
+ */
+final class PageCursor {
+
+    private final LocalDateTime time;
+
+    private final Long id;
+
+    PageCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    LocalDateTime getTime() {
+        return time;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    String encode() {
+        String position = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    static PageCursor decode(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            return new PageCursor(LocalDateTime.parse(position[0]), Long.valueOf(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.markglow.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 搜索建议用的前缀树：短语（标题、小标题）按整句及其中每个词的开头各插入一次，
+ * 每个节点缓存其子树中出现次数最多的 TOP 个短语，查询只需沿前缀走到节点并复制缓存，与短语总数无关。
+ * 非线程安全，由 DocumentSearchIndex 在其读写锁下调用
+ */
+final class SuggestionTrie {
+
+    static final int TOP = 10;
+
+    // 每个短语最多按多少个词的开头插入
+    private static final int MAX_ENTRY_POINTS = 8;
+
+    static final int MAX_PHRASE_LENGTH = 100;
+
+    // 出现次数多的在前，相同时短的在前
+    private static final Comparator<Phrase> ORDER = Comparator.comparingInt((Phrase phrase) -> phrase.count).reversed()
+            .thenComparingInt(phrase -> phrase.text.length())
+            .thenComparing(phrase -> phrase.key);
+
+    private final Node root = new Node();
+
+    private final Map<String, Phrase> phrases = new HashMap<>();
+
+    /**
+     * 短语出现次数加一
+     */
+    void add(String text) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        Phrase phrase = phrases.get(key);
+        if (phrase == null) {
+            phrase = new Phrase(text.trim().replaceAll("\\s+", " "), key);
+            phrases.put(key, phrase);
+            for (String entry : entryPoints(key)) {
+                node(entry).terminals.add(phrase);
+            }
+        }
+        phrase.count++;
+        for (String entry : entryPoints(key)) {
+            promote(entry, phrase);
+        }
+    }
+
+    /**
+     * 短语出现次数减一，减到零时移除
+     */
+    void remove(String text) {
+        String key = normalize(text);
+        Phrase phrase = phrases.get(key);
+        if (phrase == null) {
+            return;
+        }
+        phrase.count--;
+        if (phrase.count == 0) {
+            phrases.remove(key);
+            for (String entry : entryPoints(key)) {
+                node(entry).terminals.remove(phrase);
+            }
+        }
+        for (String entry : entryPoints(key)) {
+            demote(entry, phrase);
+        }
+    }
+
+    /**
+     * 以 prefix 开头（整句或其中某个词）的短语，按出现次数倒序
+     */
+    List<Phrase> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(node.top.subList(0, Math.min(limit, node.top.size())));
+    }
+
+    int size() {
+        return phrases.size();
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 整句的开头以及空白之后每个词的开头
+     */
+    private static List<String> entryPoints(String key) {
+        List<String> entries = new ArrayList<>();
+        entries.add(key);
+        for (int i = 1; i < key.length() && entries.size() < MAX_ENTRY_POINTS; i++) {
+            if (key.charAt(i - 1) == ' ') {
+                entries.add(key.substring(i));
+            }
+        }
+        return entries;
+    }
+
+    private Node node(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        return node;
+    }
+
+    /**
+     * 次数增加：路径上各节点的缓存中已有则重新排序，否则在排得进前 TOP 时插入
+     */
+    private void promote(String key, Phrase phrase) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(key.charAt(i));
+            List<Phrase> top = node.top;
+            if (!top.remove(phrase) && top.size() >= TOP && ORDER.compare(phrase, top.get(top.size() - 1)) > 0) {
+                continue;
+            }
+            insert(top, phrase);
+            if (top.size() > TOP) {
+                top.remove(top.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * 次数减少：从下往上处理路径上的节点。缓存未满说明子树中的短语都在缓存里，直接调整；
+     * 缓存已满且该短语在其中时由子节点缓存和本节点的短语重新计算；不再有短语的节点从树中删除
+     */
+    private void demote(String key, Phrase phrase) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        int deepest = 0;
+        // 一个入口是另一个入口的前缀时（如 "a a" 与 "a"），其节点可能已在处理另一个入口时删除
+        while (deepest < key.length() && (path[deepest + 1] = path[deepest].children.get(key.charAt(deepest))) != null) {
+            deepest++;
+        }
+        for (int depth = deepest; depth > 0; depth--) {
+            Node node = path[depth];
+            if (node.terminals.isEmpty() && node.children.isEmpty()) {
+                path[depth - 1].children.remove(key.charAt(depth - 1));
+                continue;
+            }
+            if (!node.top.contains(phrase)) {
+                continue;
+            }
+            if (node.top.size() < TOP) {
+                node.top.remove(phrase);
+                if (phrase.count > 0) {
+                    insert(node.top, phrase);
+                }
+            } else {
+                node.top = recompute(node);
+            }
+        }
+    }
+
+    private static List<Phrase> recompute(Node node) {
+        List<Phrase> candidates = new ArrayList<>();
+        for (Phrase phrase : node.terminals) {
+            if (!candidates.contains(phrase)) {
+                candidates.add(phrase);
+            }
+        }
+        for (Node child : node.children.values()) {
+            for (Phrase phrase : child.top) {
+                if (!candidates.contains(phrase)) {
+                    candidates.add(phrase);
+                }
+            }
+        }
+        candidates.sort(ORDER);
+        return new ArrayList<>(candidates.subList(0, Math.min(TOP, candidates.size())));
+    }
+
+    private static void insert(List<Phrase> top, Phrase phrase) {
+        int position = 0;
+        while (position < top.size() && ORDER.compare(top.get(position), phrase) < 0) {
+            position++;
+        }
+        top.add(position, phrase);
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        // 在此结束的短语（整句或从某个词开始的部分）
+        private final List<Phrase> terminals = new ArrayList<>(1);
+        private List<Phrase> top = new ArrayList<>(2);
+    }
+
+    static final class Phrase {
+        // 首次出现时的原文（合并空白），用于显示
+        final String text;
+        final String key;
+        int count;
+
+        Phrase(String text, String key) {
+            this.text = text;
+            this.key = key;
+        }
+    }
+}
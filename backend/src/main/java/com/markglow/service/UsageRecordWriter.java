@@ -0,0 +1,213 @@
+package com.markglow.service;
+
+import com.markglow.config.AIConfig;
+import com.markglow.entity.AIUsageRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI使用记录的异步写入：请求线程只把记录放入有界队列，usage-writer 线程攒满一批或等待超过
+ * flush-interval-ms 后，在同一事务中用 JDBC 批量插入 ai_usage_records 并累加汇总。
+ * 队列满时丢弃新记录；应用关闭时写完队列中剩余的记录
+ */
+@Service
+@Slf4j
+public class UsageRecordWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO ai_usage_records (action, provider, model, input_tokens, " +
+            "output_tokens, cost, duration, first_token_latency, tokens_per_second, user_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 关闭时等待写完剩余记录的最长时间
+    private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UsageRollupService rollupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<AIUsageRecord> queue;
+
+    private Thread writer;
+
+    private volatile boolean closed;
+
+    private Counter writtenCounter;
+
+    private Counter droppedCounter;
+
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        AIConfig.UsageConfig config = aiConfig.getUsage();
+        queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        Gauge.builder("markglow.ai.usage.pending", queue, BlockingQueue::size)
+                .description("等待写入的AI使用记录数")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("markglow.ai.usage.written")
+                .description("已写入的AI使用记录数")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("markglow.ai.usage.dropped")
+                .description("因队列已满被丢弃的AI使用记录数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("markglow.ai.usage.failed")
+                .description("写入数据库失败的AI使用记录数")
+                .register(meterRegistry);
+        writer = new Thread(this::run, "usage-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("初始化AI使用记录写入: queueCapacity={}, batchSize={}, flushIntervalMs={}",
+                config.getQueueCapacity(), config.getBatchSize(), config.getFlushIntervalMs());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        writer.interrupt();
+        writer.join(SHUTDOWN_TIMEOUT_MS);
+        if (writer.isAlive()) {
+            log.warn("关闭时未能写完AI使用记录，剩余 {} 条", queue.size());
+            return;
+        }
+        // 写入线程退出前已放入队列、但未被它取出的记录
+        List<AIUsageRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    /**
+     * 放入写入队列，不等待写入数据库
+     * @return 队列已满时返回 false，记录被丢弃
+     */
+    public boolean submit(AIUsageRecord record) {
+        if (closed) {
+            // 应用关闭过程中产生的记录直接写入
+            write(Collections.singletonList(record));
+            return true;
+        }
+        if (!queue.offer(record)) {
+            droppedCounter.increment();
+            log.warn("AI使用记录写入队列已满，丢弃记录: action={}, provider={}, 累计丢弃={}",
+                    record.getAction(), record.getProvider(), (long) droppedCounter.count());
+            return false;
+        }
+        if (closed && queue.remove(record)) {
+            // 放入队列时恰好开始关闭，写入线程可能已经退出：记录仍在队列中则由当前线程写入
+            write(Collections.singletonList(record));
+        }
+        return true;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return (long) droppedCounter.count();
+    }
+
+    private void run() {
+        List<AIUsageRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                // 关闭时被唤醒：写完已取出的和队列中剩余的记录后退出
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            } else if (closed) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 等待第一条记录，再在 flush-interval-ms 内继续收集，攒满 batch-size 条即返回；关闭后只取出现有记录
+     */
+    private void fill(List<AIUsageRecord> batch) throws InterruptedException {
+        AIConfig.UsageConfig config = aiConfig.getUsage();
+        int batchSize = Math.max(1, config.getBatchSize());
+        if (closed) {
+            queue.drainTo(batch, batchSize);
+            return;
+        }
+        AIUsageRecord first = queue.poll(config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long wait = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || wait <= 0 || closed) {
+                return;
+            }
+            AIUsageRecord next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<AIUsageRecord> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, record) -> {
+                    ps.setString(1, record.getAction());
+                    ps.setString(2, record.getProvider());
+                    ps.setObject(3, record.getModel(), Types.VARCHAR);
+                    ps.setInt(4, record.getInputTokens() != null ? record.getInputTokens() : 0);
+                    ps.setInt(5, record.getOutputTokens() != null ? record.getOutputTokens() : 0);
+                    ps.setDouble(6, record.getCost() != null ? record.getCost() : 0.0);
+                    ps.setLong(7, record.getDuration() != null ? record.getDuration() : 0L);
+                    ps.setObject(8, record.getFirstTokenLatency(), Types.BIGINT);
+                    ps.setObject(9, record.getTokensPerSecond(), Types.DOUBLE);
+                    ps.setObject(10, record.getUserId(), Types.VARCHAR);
+                    ps.setTimestamp(11, Timestamp.valueOf(record.getCreatedAt()));
+                });
+                rollupService.addAll(batch);
+            });
+            writtenCounter.increment(batch.size());
+            log.debug("写入AI使用记录: {} 条, 耗时={}ms, 队列剩余={}", batch.size(),
+                    System.currentTimeMillis() - start, queue.size());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("写入AI使用记录失败，丢弃 {} 条: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+}
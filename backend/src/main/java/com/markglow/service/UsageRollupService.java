@@ -0,0 +1,261 @@
+package com.markglow.service;
+
+import com.markglow.entity.AIUsageRecord;
+import com.markglow.entity.AIUsageRollup;
+import com.markglow.repository.AIUsageRecordRepository;
+import com.markglow.repository.AIUsageRollupRepository;
+import com.markglow.repository.UsageAggregateView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AI使用量的预聚合：使用记录写入时累加到所在小时和所在日的汇总行（按 action/provider/model 区分），
+ * 统计查询把时间窗口拆成首尾不足一小时的部分（在数据库中对原始记录聚合）、不足一天的整小时（小时汇总）
+ * 和整天（日汇总），读取的行数只与窗口长度和 action/provider/model 组合数有关，与调用量无关
+ */
+@Service
+@Slf4j
+public class UsageRollupService {
+
+    static final String HOUR = "HOUR";
+
+    static final String DAY = "DAY";
+
+    private static final int BACKFILL_PAGE_SIZE = 5000;
+
+    @Autowired
+    private AIUsageRollupRepository rollupRepository;
+
+    @Autowired
+    private AIUsageRecordRepository usageRecordRepository;
+
+    /**
+     * 汇总表为空而已有使用记录时（升级后首次启动），由现有记录生成汇总，在应用开始处理请求之前完成
+     */
+    @PostConstruct
+    public void backfill() {
+        try {
+            if (rollupRepository.count() > 0 || usageRecordRepository.count() == 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Map<String, AIUsageRollup> rollups = new LinkedHashMap<>();
+            long afterId = 0L;
+            long records = 0;
+            while (true) {
+                List<AIUsageRecord> page = usageRecordRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+                        PageRequest.of(0, BACKFILL_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (AIUsageRecord record : page) {
+                    if (record.getCreatedAt() != null) {
+                        merge(rollups, HOUR, record);
+                        merge(rollups, DAY, record);
+                    }
+                }
+                records += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            rollupRepository.saveAll(rollups.values());
+            log.info("由现有使用记录生成汇总: records={}, rollups={}, 耗时={}ms", records, rollups.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("生成使用量汇总失败，统计结果将缺少升级前的记录", e);
+        }
+    }
+
+    /**
+     * 把一批已保存的使用记录累加到所在小时和所在日的汇总：先在内存中按汇总行合并，
+     * 同一小时内相同 action/provider/model 的记录只执行一次累加
+     */
+    @Transactional
+    public void addAll(List<AIUsageRecord> records) {
+        Map<String, AIUsageRollup> rollups = new LinkedHashMap<>();
+        for (AIUsageRecord record : records) {
+            merge(rollups, HOUR, record);
+            merge(rollups, DAY, record);
+        }
+        for (AIUsageRollup rollup : rollups.values()) {
+            rollupRepository.accumulate(rollup.getGranularity(), rollup.getBucketStart(), rollup.getAction(),
+                    rollup.getProvider(), rollup.getModel(), rollup.getCalls(), rollup.getInputTokens(),
+                    rollup.getOutputTokens(), rollup.getCost(), rollup.getDuration());
+        }
+    }
+
+    /**
+     * 时间窗口 [start, end] 内的用量，按小时（整天部分按日）及 action/provider/model 分组
+     * @return 各分组的用量，bucketStart 为所在小时或所在日的开始
+     */
+    public List<UsageBucket> collect(LocalDateTime start, LocalDateTime end) {
+        List<UsageBucket> buckets = new ArrayList<>();
+        if (end.isBefore(start)) {
+            return buckets;
+        }
+        LocalDateTime firstHour = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime lastHour = end.truncatedTo(ChronoUnit.HOURS);
+        if (!firstHour.isBefore(lastHour)) {
+            // 窗口在同一小时内或跨过一个整点
+            if (firstHour.isAfter(end)) {
+                addRaw(buckets, start, end, true);
+            } else {
+                addRaw(buckets, start, firstHour, false);
+                addRaw(buckets, firstHour, end, true);
+            }
+            return buckets;
+        }
+        addRaw(buckets, start, firstHour, false);
+        LocalDateTime firstDay = ceil(firstHour, ChronoUnit.DAYS);
+        LocalDateTime lastDay = lastHour.truncatedTo(ChronoUnit.DAYS);
+        if (firstDay.isBefore(lastDay)) {
+            addRollups(buckets, HOUR, firstHour, firstDay);
+            addRollups(buckets, DAY, firstDay, lastDay);
+            addRollups(buckets, HOUR, lastDay, lastHour);
+        } else {
+            addRollups(buckets, HOUR, firstHour, lastHour);
+        }
+        addRaw(buckets, lastHour, end, true);
+        return buckets;
+    }
+
+    private void addRollups(List<UsageBucket> buckets, String granularity, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (AIUsageRollup rollup : rollupRepository.findBuckets(granularity, from, to)) {
+            UsageBucket bucket = new UsageBucket();
+            bucket.setBucketStart(rollup.getBucketStart());
+            bucket.setAction(rollup.getAction());
+            bucket.setProvider(rollup.getProvider());
+            bucket.setModel(rollup.getModel().isEmpty() ? null : rollup.getModel());
+            bucket.setCalls(rollup.getCalls());
+            bucket.setInputTokens(rollup.getInputTokens());
+            bucket.setOutputTokens(rollup.getOutputTokens());
+            bucket.setCost(rollup.getCost());
+            bucket.setDuration(rollup.getDuration());
+            buckets.add(bucket);
+        }
+    }
+
+    /**
+     * 不足一小时的部分直接在数据库中聚合原始记录
+     * @param inclusive 是否包含 to 时刻的记录（窗口结尾包含，整点之前的部分不包含）
+     */
+    private void addRaw(List<UsageBucket> buckets, LocalDateTime from, LocalDateTime to, boolean inclusive) {
+        if (inclusive ? to.isBefore(from) : !from.isBefore(to)) {
+            return;
+        }
+        List<UsageAggregateView> rows = inclusive ? usageRecordRepository.aggregateByCreatedAtRange(from, to)
+                : usageRecordRepository.aggregateByCreatedAtBefore(from, to);
+        for (UsageAggregateView row : rows) {
+            UsageBucket bucket = new UsageBucket();
+            bucket.setBucketStart(from.truncatedTo(ChronoUnit.HOURS));
+            bucket.setAction(row.getAction());
+            bucket.setProvider(row.getProvider());
+            bucket.setModel(row.getModel());
+            bucket.setCalls(row.getCalls());
+            bucket.setInputTokens(row.getInputTokens());
+            bucket.setOutputTokens(row.getOutputTokens());
+            bucket.setCost(row.getCost());
+            bucket.setDuration(row.getDuration());
+            buckets.add(bucket);
+        }
+    }
+
+    private static void merge(Map<String, AIUsageRollup> rollups, String granularity, AIUsageRecord record) {
+        LocalDateTime bucketStart = bucketStart(granularity, record.getCreatedAt());
+        String model = modelKey(record.getModel());
+        String key = granularity + '|' + bucketStart + '|' + record.getAction() + '|' + record.getProvider() + '|' + model;
+        AIUsageRollup rollup = rollups.get(key);
+        if (rollup == null) {
+            rollup = new AIUsageRollup();
+            rollup.setGranularity(granularity);
+            rollup.setBucketStart(bucketStart);
+            rollup.setAction(record.getAction());
+            rollup.setProvider(record.getProvider());
+            rollup.setModel(model);
+            rollup.setCalls(0L);
+            rollup.setInputTokens(0L);
+            rollup.setOutputTokens(0L);
+            rollup.setCost(0.0);
+            rollup.setDuration(0L);
+            rollups.put(key, rollup);
+        }
+        rollup.setCalls(rollup.getCalls() + 1);
+        rollup.setInputTokens(rollup.getInputTokens() + value(record.getInputTokens()));
+        rollup.setOutputTokens(rollup.getOutputTokens() + value(record.getOutputTokens()));
+        rollup.setCost(rollup.getCost() + (record.getCost() != null ? record.getCost() : 0.0));
+        rollup.setDuration(rollup.getDuration() + (record.getDuration() != null ? record.getDuration() : 0L));
+    }
+
+    static LocalDateTime bucketStart(String granularity, LocalDateTime time) {
+        return time.truncatedTo(DAY.equals(granularity) ? ChronoUnit.DAYS : ChronoUnit.HOURS);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    /**
+     * 唯一键不能包含 NULL（MySQL 中 NULL 互不相等），未记录模型时用空字符串
+     */
+    private static String modelKey(String model) {
+        return model != null ? model : "";
+    }
+
+    private static long value(Integer tokens) {
+        return tokens != null ? tokens : 0;
+    }
+
+    public static class UsageBucket {
+        private LocalDateTime bucketStart;
+        private String action;
+        private String provider;
+        private String model;
+        private long calls;
+        private long inputTokens;
+        private long outputTokens;
+        private double cost;
+        private long duration;
+
+        // Getters and Setters
+        public LocalDateTime getBucketStart() { return bucketStart; }
+        public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+
+        public String getProvider() { return provider; }
+        public void setProvider(String provider) { this.provider = provider; }
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public long getCalls() { return calls; }
+        public void setCalls(long calls) { this.calls = calls; }
+
+        public long getInputTokens() { return inputTokens; }
+        public void setInputTokens(long inputTokens) { this.inputTokens = inputTokens; }
+
+        public long getOutputTokens() { return outputTokens; }
+        public void setOutputTokens(long outputTokens) { this.outputTokens = outputTokens; }
+
+        public double getCost() { return cost; }
+        public void setCost(double cost) { this.cost = cost; }
+
+        public long getDuration() { return duration; }
+        public void setDuration(long duration) { this.duration = duration; }
+    }
+}
@@ -0,0 +1,74 @@
+package com.markglow.service.ai;
+
+/**
+ * AI调用结果
+ */
+public class AICompletion {
+    private final String content;
+    private final boolean cached;
+    private final boolean coalesced;
+    private final TokenUsage usage;
+    private final long firstTokenTime;
+
+    public AICompletion(String content, boolean cached) {
+        this(content, cached, false);
+    }
+
+    public AICompletion(String content, boolean cached, boolean coalesced) {
+        this(content, cached, coalesced, null);
+    }
+
+    public AICompletion(String content, boolean cached, boolean coalesced, TokenUsage usage) {
+        this(content, cached, coalesced, usage, 0);
+    }
+
+    public AICompletion(String content, boolean cached, boolean coalesced, TokenUsage usage, long firstTokenTime) {
+        this.content = content;
+        this.cached = cached;
+        this.coalesced = coalesced;
+        this.usage = usage;
+        this.firstTokenTime = firstTokenTime;
+    }
+
+    /**
+     * 生成的内容
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * 是否来自响应缓存（未调用上游，不产生费用）
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * 是否合并到了其他相同请求的上游调用（不产生费用）
+     */
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * 本次上游调用的 token 用量；未调用上游（缓存、合并）时为 null
+     */
+    public TokenUsage getUsage() {
+        return usage;
+    }
+
+    /**
+     * 流式调用收到第一段内容的时间（毫秒时间戳）；非流式调用或未收到内容时为 0
+     */
+    public long getFirstTokenTime() {
+        return firstTokenTime;
+    }
+
+    /**
+     * 本次请求是否实际发起了上游调用，用于决定是否记录用量与成本
+     */
+    public boolean isUpstreamCall() {
+        return !cached && !coalesced;
+    }
+}
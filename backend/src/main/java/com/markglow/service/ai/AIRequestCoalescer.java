@@ -0,0 +1,366 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并（single-flight）：并发的相同请求共用一次上游调用。
+ * 流式请求由一个上游SSE流分发给所有订阅者，后加入的订阅者先收到已生成的内容。
+ * 发起调用的订阅者在上游I/O线程上直接接收；合并进来的订阅者各有一个有界队列，由 ai-stream 线程池按顺序投递，
+ * 慢客户端不会阻塞上游读取和其他订阅者，积压过多时该订阅者失败。
+ */
+@Component
+@Slf4j
+public class AIRequestCoalescer {
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AIStreamDispatcher streamDispatcher;
+
+    // 合并进来的订阅者最多积压的未投递分片数
+    private static final int MAX_PENDING_CHUNKS = 1024;
+
+    private final ConcurrentHashMap<String, CompletableFuture<AICompletion>> calls = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, SharedStream> streams = new ConcurrentHashMap<>();
+
+    private Counter coalescedCalls;
+
+    private Counter coalescedStreams;
+
+    @PostConstruct
+    public void init() {
+        coalescedCalls = Counter.builder("markglow.ai.coalesced")
+                .tag("mode", "sync")
+                .description("合并到进行中调用的请求数")
+                .register(meterRegistry);
+        coalescedStreams = Counter.builder("markglow.ai.coalesced")
+                .tag("mode", "stream")
+                .description("合并到进行中调用的请求数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.inflight", calls, Map::size)
+                .tag("mode", "sync")
+                .description("进行中的可合并上游调用数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.inflight", streams, Map::size)
+                .tag("mode", "stream")
+                .description("进行中的可合并上游调用数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return aiConfig.getCache().isCoalesce();
+    }
+
+    /**
+     * 同步调用：已有相同请求进行中时等待其结果，否则由当前线程发起调用
+     */
+    public AICompletion call(String key, Supplier<AICompletion> supplier) {
+        CompletableFuture<AICompletion> flight = new CompletableFuture<>();
+        CompletableFuture<AICompletion> existing = calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedCalls.increment();
+            log.info("合并到进行中的相同请求");
+            try {
+                return new AICompletion(existing.join().getContent(), false, true);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            AICompletion result = supplier.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    /**
+     * 流式调用：已有相同请求进行中时订阅其输出（先回放已生成的内容），否则通过 starter 发起上游调用
+     * @param starter 接收分发回调并发起上游调用
+     * @return 当前订阅者的结果，取消时仅退订；所有订阅者都退订后取消上游请求
+     */
+    public CompletableFuture<AICompletion> stream(String key, Function<Consumer<String>, CompletableFuture<AICompletion>> starter,
+                                                  Consumer<String> chunkConsumer) {
+        Subscriber subscriber;
+        SharedStream shared;
+        while (true) {
+            SharedStream candidate = new SharedStream(key);
+            SharedStream existing = streams.putIfAbsent(key, candidate);
+            shared = existing != null ? existing : candidate;
+            subscriber = new Subscriber(shared, chunkConsumer, existing == null);
+            // 已结束或已放弃的调用不能再加入，重新发起
+            if (shared.attach(subscriber)) {
+                break;
+            }
+            streams.remove(key, shared);
+        }
+        SharedStream current = shared;
+        Subscriber self = subscriber;
+        subscriber.future.whenComplete((result, ex) -> {
+            if (self.future.isCancelled()) {
+                current.detach(self);
+            }
+        });
+        if (!subscriber.leader) {
+            coalescedStreams.increment();
+            log.info("合并到进行中的相同流式请求，当前订阅者: {}", shared.getSubscriberCount());
+            return subscriber.future;
+        }
+
+        CompletableFuture<AICompletion> upstream;
+        try {
+            upstream = starter.apply(shared::onChunk);
+        } catch (RuntimeException e) {
+            shared.onComplete(null, e);
+            return subscriber.future;
+        }
+        shared.setUpstream(upstream);
+        upstream.whenComplete(shared::onComplete);
+        return subscriber.future;
+    }
+
+    /**
+     * 一次上游流式调用及其所有订阅者
+     */
+    private class SharedStream {
+        private final String key;
+        private final StringBuilder buffer = new StringBuilder();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private CompletableFuture<AICompletion> upstream;
+        private boolean closed;
+
+        SharedStream(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 加入订阅；在同一把锁内把已生成内容放入订阅者的队列，保证与后续分片的顺序一致
+         * @return 调用已结束时返回 false
+         */
+        synchronized boolean attach(Subscriber subscriber) {
+            if (closed) {
+                return false;
+            }
+            if (!subscriber.leader && buffer.length() > 0) {
+                subscriber.offer(buffer.toString());
+            }
+            subscribers.add(subscriber);
+            return true;
+        }
+
+        synchronized void onChunk(String chunk) {
+            buffer.append(chunk);
+            for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                if (!subscriber.offer(chunk)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+            if (subscribers.isEmpty()) {
+                abandon();
+            }
+        }
+
+        void onComplete(AICompletion result, Throwable ex) {
+            List<Subscriber> targets;
+            synchronized (this) {
+                closed = true;
+                targets = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            streams.remove(key, this);
+            for (int i = 0; i < targets.size(); i++) {
+                // 用量只计入一个请求：仍在等待结果的第一个订阅者（发起者已断开时由下一个订阅者记录）
+                targets.get(i).finish(ex != null || i == 0 ? result : new AICompletion(result.getContent(), false, true), ex);
+            }
+        }
+
+        synchronized void detach(Subscriber subscriber) {
+            if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+                abandon();
+            }
+        }
+
+        synchronized void setUpstream(CompletableFuture<AICompletion> upstream) {
+            this.upstream = upstream;
+            if (closed && subscribers.isEmpty()) {
+                upstream.cancel(true);
+            }
+        }
+
+        synchronized int getSubscriberCount() {
+            return subscribers.size();
+        }
+
+        /**
+         * 所有订阅者都已离开：不再接受新订阅并取消上游请求
+         */
+        private void abandon() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            streams.remove(key, this);
+            if (upstream != null) {
+                log.info("相同请求的订阅者均已断开，取消上游请求");
+                upstream.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 一个订阅者：发起者直接投递，合并进来的订阅者经由自己的队列投递，结果在队列中的分片投递完后才完成
+     */
+    private class Subscriber {
+        private final SharedStream shared;
+        private final Consumer<String> chunkConsumer;
+        private final CompletableFuture<AICompletion> future = new CompletableFuture<>();
+        private final boolean leader;
+        // 以下字段由 this 锁保护，只有合并进来的订阅者使用
+        private final ArrayDeque<String> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean finished;
+        private boolean failed;
+        private AICompletion result;
+        private Throwable error;
+
+        Subscriber(SharedStream shared, Consumer<String> chunkConsumer, boolean leader) {
+            this.shared = shared;
+            this.chunkConsumer = chunkConsumer;
+            this.leader = leader;
+        }
+
+        /**
+         * 投递一个分片（调用方持有 SharedStream 的锁）
+         * @return 订阅者已失败（发送失败或积压过多）时返回 false
+         */
+        boolean offer(String chunk) {
+            if (leader) {
+                return deliver(chunk);
+            }
+            synchronized (this) {
+                if (failed) {
+                    return false;
+                }
+                if (pending.size() >= MAX_PENDING_CHUNKS) {
+                    log.warn("订阅者接收过慢，积压 {} 个分片，停止向其分发", pending.size());
+                    fail(new IllegalStateException("接收流式内容过慢"));
+                    return false;
+                }
+                pending.addLast(chunk);
+                if (draining) {
+                    return true;
+                }
+                draining = true;
+            }
+            streamDispatcher.getExecutor().execute(this::drain);
+            return true;
+        }
+
+        /**
+         * 上游调用结束：合并进来的订阅者在已排队的分片投递完后完成
+         */
+        void finish(AICompletion result, Throwable ex) {
+            if (leader) {
+                complete(result, ex);
+                return;
+            }
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                this.result = result;
+                this.error = ex;
+                finished = true;
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            streamDispatcher.getExecutor().execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                String chunk;
+                synchronized (this) {
+                    chunk = pending.pollFirst();
+                    if (chunk == null) {
+                        draining = false;
+                        if (!finished) {
+                            return;
+                        }
+                    }
+                }
+                if (chunk == null) {
+                    complete(result, error);
+                    return;
+                }
+                if (!deliver(chunk)) {
+                    synchronized (this) {
+                        fail(null);
+                    }
+                    shared.detach(this);
+                    return;
+                }
+            }
+        }
+
+        private void complete(AICompletion result, Throwable ex) {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        private void fail(Throwable cause) {
+            failed = true;
+            draining = false;
+            pending.clear();
+            if (cause != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        private boolean deliver(String chunk) {
+            try {
+                chunkConsumer.accept(chunk);
+                return true;
+            } catch (Exception e) {
+                log.warn("向订阅者分发流式内容失败: {}", e.getMessage());
+                future.completeExceptionally(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import com.markglow.entity.AIResponseCacheEntry;
+import com.markglow.repository.AIResponseCacheRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * AI响应缓存：内存LRU（条目数与占用字节双上限，按TTL过期），可选数据库持久层。
+ * 缓存键为动作、模型、温度、maxTokens、风格、目标语言及提示词的SHA-256。
+ * 开启持久化时按 cleanup-interval-seconds 定期删除表中已过期的缓存。
+ */
+@Component
+@Slf4j
+public class AIResponseCache {
+
+    /**
+     * 未指定温度时上游使用的默认值，与 ErnieAIService 保持一致
+     */
+    private static final double DEFAULT_TEMPERATURE = 0.7;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private AIResponseCacheRepository cacheRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private ThreadPoolTaskScheduler cleanupScheduler;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("markglow.ai.cache.entries", this, AIResponseCache::size)
+                .description("AI响应缓存内存条目数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.cache.bytes", this, AIResponseCache::getBytes)
+                .description("AI响应缓存内存占用字节数（估算）")
+                .register(meterRegistry);
+        AIConfig.CacheConfig config = aiConfig.getCache();
+        log.info("初始化AI响应缓存: enabled={}, maxEntries={}, maxBytes={}, ttl={}s, persistent={}, disabledActions={}",
+                config.isEnabled(), config.getMaxEntries(), config.getMaxBytes(), config.getTtlSeconds(),
+                config.isPersistent(), config.getDisabledActions());
+        if (config.isPersistent() && config.getCleanupIntervalSeconds() > 0) {
+            cleanupScheduler = new ThreadPoolTaskScheduler();
+            cleanupScheduler.setThreadNamePrefix("ai-cache-cleanup-");
+            cleanupScheduler.setPoolSize(1);
+            cleanupScheduler.setDaemon(true);
+            cleanupScheduler.initialize();
+            cleanupScheduler.scheduleWithFixedDelay(this::deleteExpired, config.getCleanupIntervalSeconds() * 1000);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cleanupScheduler != null) {
+            cleanupScheduler.shutdown();
+        }
+    }
+
+    /**
+     * 删除数据库中已过期的缓存（未再被查询的过期缓存不会在读取时删除）
+     */
+    void deleteExpired() {
+        try {
+            int deleted = cacheRepository.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                log.info("删除过期的持久化缓存 {} 条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("删除过期的持久化缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 判断请求是否可以使用缓存
+     */
+    public boolean isCacheable(String action, Double temperature, boolean allowCache) {
+        return aiConfig.getCache().isEnabled() && isShareable(action, temperature, allowCache);
+    }
+
+    /**
+     * 判断结果能否在相同请求间共用（缓存或合并进行中的调用）：
+     * 温度大于0的结果具有随机性，只有调用方明确允许时才共用
+     */
+    public boolean isShareable(String action, Double temperature, boolean allowCache) {
+        if (aiConfig.getCache().getDisabledActions().contains(action)) {
+            return false;
+        }
+        double temp = temperature != null ? temperature : DEFAULT_TEMPERATURE;
+        return temp <= 0 || allowCache;
+    }
+
+    /**
+     * 生成缓存键
+     */
+    public String buildKey(String action, String model, Double temperature, Integer maxTokens,
+                           String style, String targetLang, String systemPrompt, String prompt) {
+        String finalModel = model != null ? model : (aiConfig.getErnie() != null ? aiConfig.getErnie().getModel() : null);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+        for (Object part : new Object[]{action, finalModel, temperature, maxTokens, style, targetLang, systemPrompt, prompt}) {
+            if (part != null) {
+                digest.update(part.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            // 分隔符避免字段拼接产生歧义
+            digest.update((byte) 0);
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 查询缓存，先查内存，未命中且开启持久化时再查数据库
+     * @return 缓存内容，未命中或已过期返回 null
+     */
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    return entry.value;
+                }
+                removeEntry(key);
+            }
+        }
+        if (!aiConfig.getCache().isPersistent()) {
+            return null;
+        }
+        try {
+            Optional<AIResponseCacheEntry> stored = cacheRepository.findByCacheKey(key);
+            if (!stored.isPresent()) {
+                return null;
+            }
+            AIResponseCacheEntry cacheEntry = stored.get();
+            if (cacheEntry.getExpiresAt().isBefore(LocalDateTime.now())) {
+                cacheRepository.deleteByCacheKey(key);
+                return null;
+            }
+            // 持久层命中后回填内存，沿用数据库中的过期时间
+            putMemory(key, cacheEntry.getResponse(),
+                    cacheEntry.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            return cacheEntry.getResponse();
+        } catch (Exception e) {
+            log.warn("读取持久化缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(String key, String action, String model, String value) {
+        // 错误信息与空结果不缓存
+        if (AIService.isErrorResult(value)) {
+            return;
+        }
+        long ttlMillis = aiConfig.getCache().getTtlSeconds() * 1000;
+        putMemory(key, value, System.currentTimeMillis() + ttlMillis);
+        if (!aiConfig.getCache().isPersistent()) {
+            return;
+        }
+        try {
+            AIResponseCacheEntry cacheEntry = cacheRepository.findByCacheKey(key).orElseGet(AIResponseCacheEntry::new);
+            cacheEntry.setCacheKey(key);
+            cacheEntry.setAction(action);
+            cacheEntry.setModel(model);
+            cacheEntry.setResponse(value);
+            cacheEntry.setExpiresAt(LocalDateTime.now().plusSeconds(aiConfig.getCache().getTtlSeconds()));
+            cacheRepository.save(cacheEntry);
+        } catch (Exception e) {
+            log.warn("写入持久化缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将缓存内容按固定长度切分后依次回调，模拟流式输出
+     */
+    public void replay(String value, Consumer<String> chunkConsumer) {
+        int chunkSize = Math.max(1, aiConfig.getCache().getReplayChunkSize());
+        int start = 0;
+        while (start < value.length()) {
+            int end = Math.min(start + chunkSize, value.length());
+            // 不拆分代理对
+            if (end < value.length() && Character.isHighSurrogate(value.charAt(end - 1))) {
+                end++;
+            }
+            chunkConsumer.accept(value.substring(start, end));
+            start = end;
+        }
+    }
+
+    /**
+     * 清空缓存（开启持久化时同时清空数据库中的缓存）
+     */
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+            totalBytes = 0;
+        }
+        if (aiConfig.getCache().isPersistent()) {
+            try {
+                cacheRepository.deleteAllInBatch();
+            } catch (Exception e) {
+                log.warn("清空持久化缓存失败: {}", e.getMessage());
+            }
+        }
+        log.info("AI响应缓存已清空");
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void putMemory(String key, String value, long expiresAt) {
+        AIConfig.CacheConfig config = aiConfig.getCache();
+        long bytes = value.length() * 2L;
+        if (bytes > config.getMaxBytes()) {
+            return;
+        }
+        removeEntry(key);
+        entries.put(key, new Entry(value, bytes, expiresAt));
+        totalBytes += bytes;
+        // 按访问顺序淘汰最久未使用的条目
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > config.getMaxEntries() || totalBytes > config.getMaxBytes()) && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+        }
+    }
+
+    private void removeEntry(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private static class Entry {
+        private final String value;
+        private final long bytes;
+        private final long expiresAt;
+
+        Entry(String value, long bytes, long expiresAt) {
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.markglow.service.ai;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -28,6 +30,16 @@ public interface AIService {
                            Double temperature, Integer maxTokens,
                            Boolean stream, String model);
     
+    /**
+     * 非流式生成内容，同时返回 token 用量
+     * @return 生成的内容及用量（上游未返回用量时为估算值）
+     */
+    default AICompletion generateCompletion(String prompt, String systemPrompt,
+                                            Double temperature, Integer maxTokens, String model) {
+        String result = generateContent(prompt, systemPrompt, temperature, maxTokens, Boolean.FALSE, model);
+        return new AICompletion(result, false, false, TokenUsage.estimate(systemPrompt, prompt, result));
+    }
+
     /**
      * 流式生成内容，每收到一个chunk就调用回调函数
      * @param prompt 提示词
@@ -54,10 +66,48 @@ public interface AIService {
         return result;
     }
     
+    /**
+     * 异步流式生成内容：立即返回，不阻塞调用线程；每收到一个chunk就调用回调函数
+     * @param prompt 提示词
+     * @param systemPrompt 系统提示词
+     * @param temperature 温度
+     * @param maxTokens 最大输出Token
+     * @param model 指定模型
+     * @param chunkConsumer chunk回调函数（在I/O线程上执行，不应长时间阻塞）
+     * @return 完成时得到完整内容及 token 用量；取消该Future会中断上游请求
+     */
+    default CompletableFuture<AICompletion> generateContentAsync(String prompt, String systemPrompt,
+                                                                Double temperature, Integer maxTokens,
+                                                                String model, Consumer<String> chunkConsumer) {
+        // 默认实现：没有原生非阻塞客户端的服务在公共线程池上执行阻塞流式调用
+        return CompletableFuture.supplyAsync(() -> {
+            AtomicLong firstTokenTime = new AtomicLong();
+            String result = generateContentStream(prompt, systemPrompt, temperature, maxTokens, model, chunk -> {
+                firstTokenTime.compareAndSet(0, System.currentTimeMillis());
+                if (chunkConsumer != null) {
+                    chunkConsumer.accept(chunk);
+                }
+            });
+            return new AICompletion(result, false, false, TokenUsage.estimate(systemPrompt, prompt, result),
+                    firstTokenTime.get());
+        });
+    }
+
     /**
      * 获取服务提供商
      * @return 服务提供商
      */
     AIProvider getProvider();
+
+    /**
+     * 判断结果是否为错误信息（调用失败时以字符串形式返回原因，而不是抛出异常）
+     */
+    static boolean isErrorResult(String result) {
+        if (result == null || result.trim().isEmpty()) {
+            return true;
+        }
+        return result.startsWith("HTTP请求失败") || result.startsWith("调用AI服务失败")
+                || result.startsWith("流式响应为空") || result.startsWith("未知错误") || result.startsWith("错误: ");
+    }
 }
 
@@ -0,0 +1,242 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * 流式请求调度器：限制同时进行的上游流式调用数量，超出时排队，队列满时拒绝。
+ * 发起调用与收尾工作在专用的 ai-stream 线程池上执行，不占用公共 ForkJoinPool。
+ */
+@Component
+@Slf4j
+public class AIStreamDispatcher {
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private ThreadPoolTaskScheduler flushScheduler;
+
+    private final Deque<StreamTicket> waiting = new ArrayDeque<>();
+
+    private int active;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AIConfig.StreamConfig config = aiConfig.getStream();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ai-stream-");
+        executor.setCorePoolSize(config.getCorePoolSize());
+        executor.setMaxPoolSize(config.getMaxPoolSize());
+        executor.setQueueCapacity(config.getTaskQueueCapacity());
+        // 任务队列满时由提交线程执行，保证收尾工作不会丢失
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        // SSE 合并帧的延迟刷新只做一次发送，单线程即可
+        flushScheduler = new ThreadPoolTaskScheduler();
+        flushScheduler.setThreadNamePrefix("ai-stream-flush-");
+        flushScheduler.setPoolSize(1);
+        flushScheduler.setDaemon(true);
+        flushScheduler.setRemoveOnCancelPolicy(true);
+        flushScheduler.initialize();
+
+        Gauge.builder("markglow.ai.stream.active", this, AIStreamDispatcher::getActiveCount)
+                .description("进行中的流式调用数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.stream.queued", this, AIStreamDispatcher::getQueuedCount)
+                .description("排队等待的流式请求数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.stream.executor.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("ai-stream 线程池任务队列长度")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.stream.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("ai-stream 线程池活跃线程数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("markglow.ai.stream.rejected")
+                .description("因队列已满被拒绝的流式请求数")
+                .register(meterRegistry);
+        log.info("初始化流式请求调度器: maxActive={}, maxQueued={}", config.getMaxActive(), config.getMaxQueued());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        flushScheduler.shutdown();
+    }
+
+    /**
+     * 提交流式任务：有空闲名额则立即开始，否则排队，队列已满则拒绝
+     * @param task 流式任务
+     * @return 任务凭证，可通过 isRejected 判断是否被拒绝
+     */
+    public StreamTicket submit(StreamTask task) {
+        StreamTicket ticket = new StreamTicket(task);
+        int position;
+        synchronized (this) {
+            if (active < aiConfig.getStream().getMaxActive()) {
+                active++;
+                position = 0;
+            } else if (waiting.size() < aiConfig.getStream().getMaxQueued()) {
+                waiting.addLast(ticket);
+                position = waiting.size();
+            } else {
+                ticket.rejected = true;
+                rejectedCounter.increment();
+                return ticket;
+            }
+        }
+        if (position == 0) {
+            start(ticket);
+        } else {
+            log.info("流式请求排队中，位置: {}", position);
+            task.onQueued(position);
+        }
+        return ticket;
+    }
+
+    /**
+     * 取消排队中的任务（客户端断开时调用）；已开始的任务由调用方取消其Future
+     */
+    public void cancel(StreamTicket ticket) {
+        List<StreamTicket> remaining;
+        synchronized (this) {
+            if (!waiting.remove(ticket)) {
+                return;
+            }
+            remaining = new ArrayList<>(waiting);
+        }
+        notifyPositions(remaining);
+    }
+
+    /**
+     * 流式收尾工作使用的线程池
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 创建SSE chunk转发器，按 ai.stream 的刷新策略合并小增量
+     * @param frameSink 帧发送回调，参数为带引号的 JSON 字符串
+     */
+    public SseChunkRelay createRelay(Consumer<String> frameSink) {
+        AIConfig.StreamConfig config = aiConfig.getStream();
+        return new SseChunkRelay(frameSink, flushScheduler.getScheduledExecutor(),
+                config.getFlushIntervalMs(), config.getFlushChars());
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueuedCount() {
+        return waiting.size();
+    }
+
+    private void start(StreamTicket ticket) {
+        executor.execute(() -> {
+            CompletableFuture<?> future;
+            try {
+                future = ticket.task.start();
+            } catch (Exception e) {
+                log.error("流式任务启动失败", e);
+                release();
+                ticket.task.onAbort(e);
+                return;
+            }
+            if (future == null) {
+                release();
+                return;
+            }
+            future.whenComplete((result, ex) -> release());
+        });
+    }
+
+    private void release() {
+        StreamTicket next;
+        List<StreamTicket> remaining;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                active--;
+                return;
+            }
+            remaining = new ArrayList<>(waiting);
+        }
+        start(next);
+        notifyPositions(remaining);
+    }
+
+    private void notifyPositions(List<StreamTicket> tickets) {
+        for (int i = 0; i < tickets.size(); i++) {
+            try {
+                tickets.get(i).task.onQueued(i + 1);
+            } catch (Exception e) {
+                log.debug("通知排队位置失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 流式任务
+     */
+    public interface StreamTask {
+        /**
+         * 发起上游调用，返回的Future完成时释放并发名额
+         */
+        CompletableFuture<?> start();
+
+        /**
+         * 排队位置变化（从1开始）
+         */
+        default void onQueued(int position) {
+        }
+
+        /**
+         * 任务启动失败
+         */
+        default void onAbort(Throwable cause) {
+        }
+    }
+
+    /**
+     * 任务凭证
+     */
+    public static class StreamTicket {
+        private final StreamTask task;
+        private boolean rejected;
+
+        StreamTicket(StreamTask task) {
+            this.task = task;
+        }
+
+        public boolean isRejected() {
+            return rejected;
+        }
+    }
+}
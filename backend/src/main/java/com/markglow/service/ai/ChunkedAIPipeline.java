@@ -0,0 +1,426 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 长文档分块处理：按标题/段落切分为 token 预算内的块并发调用（并发数受限），
+ * translate/beautify 按顺序拼接各块结果，summarize 先分块摘要再合并为最终摘要。
+ */
+@Service
+@Slf4j
+public class ChunkedAIPipeline {
+
+    private static final Set<String> SUPPORTED_ACTIONS = new HashSet<>(Arrays.asList("summarize", "translate", "beautify"));
+
+    private static final String CHUNK_SEPARATOR = "\n\n";
+
+    /**
+     * 摘要合并的最大轮数，超过后直接对当前结果做最终合并
+     */
+    private static final int MAX_REDUCE_ROUNDS = 3;
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private EnhancedAIService enhancedAIService;
+
+    @Autowired
+    private AIServiceFactory aiServiceFactory;
+
+    @Autowired
+    private AIStreamDispatcher streamDispatcher;
+
+    /**
+     * 处理进度回调
+     */
+    public interface ProgressListener {
+        /**
+         * @param phase 阶段：map（分块处理）或 reduce（合并摘要）
+         * @param completed 已完成的块数
+         * @param total 总块数
+         */
+        void onProgress(String phase, int completed, int total);
+    }
+
+    /**
+     * 是否需要分块处理：仅 summarize/translate/beautify，且内容超过阈值
+     */
+    public boolean shouldChunk(String action, String content) {
+        AIConfig.ChunkingConfig config = aiConfig.getChunking();
+        return config.isEnabled() && action != null && SUPPORTED_ACTIONS.contains(action)
+                && MarkdownChunker.estimateTokens(content) > config.getThresholdTokens();
+    }
+
+    /**
+     * 分块处理长文档
+     * @param chunkConsumer 按文档顺序输出的内容回调，可为 null
+     * @param progressListener 进度回调，可为 null
+     * @return 完成时得到完整内容；取消该Future会中断所有进行中的上游请求
+     */
+    public CompletableFuture<AICompletion> runAsync(String action, String content, Double temperature, Integer maxTokens,
+                                                    String model, String style, String targetLang, boolean allowCache,
+                                                    Consumer<String> chunkConsumer, ProgressListener progressListener) {
+        List<String> chunks = MarkdownChunker.split(content, chunkBudget(action, maxTokens));
+        log.info("长文档分块处理 action={}, 内容长度: {} 字符, 块数: {}, 并发: {}",
+                action, content.length(), chunks.size(), aiConfig.getChunking().getMaxParallel());
+        Run run = new Run(action, temperature, maxTokens, model, style, targetLang, allowCache, progressListener);
+        if ("summarize".equals(action)) {
+            run.summarize(chunks, chunkConsumer, 1);
+        } else {
+            OrderedOutput output = chunkConsumer != null ? new OrderedOutput(chunks.size(), chunkConsumer) : null;
+            run.map(chunks, output).whenComplete((completions, ex) -> {
+                if (ex != null) {
+                    run.result.completeExceptionally(ex);
+                    return;
+                }
+                List<String> parts = new ArrayList<>(completions.size());
+                boolean allCached = true;
+                for (AICompletion completion : completions) {
+                    parts.add(completion.getContent());
+                    allCached &= completion.isCached();
+                }
+                // 按文档顺序输出，前端最先收到的是第一块的内容
+                run.result.complete(new AICompletion(String.join(CHUNK_SEPARATOR, parts), allCached, false, run.getUsage(),
+                        completions.get(0).getFirstTokenTime()));
+            });
+        }
+        return run.result;
+    }
+
+    /**
+     * 对一组内容分别调用同一动作（并发数受限），不拼接结果
+     * @return 与输入顺序一致的结果；任一项失败则整体失败，取消该Future会中断所有进行中的上游请求
+     */
+    public CompletableFuture<List<AICompletion>> mapAsync(String action, List<String> parts, Double temperature, Integer maxTokens,
+                                                          String model, String style, String targetLang, boolean allowCache,
+                                                          ProgressListener progressListener) {
+        if (parts.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        Run run = new Run(action, temperature, maxTokens, model, style, targetLang, allowCache, progressListener);
+        CompletableFuture<List<AICompletion>> mapped = run.map(parts, null);
+        mapped.whenComplete((completions, ex) -> {
+            if (ex != null) {
+                run.result.completeExceptionally(ex);
+            } else {
+                run.result.complete(null);
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * 每块的 token 预算：translate/beautify 的输出长度与输入相当，块不超过单次输出上限的 80%，避免结果被截断
+     */
+    private int chunkBudget(String action, Integer maxTokens) {
+        int budget = aiConfig.getChunking().getChunkTokens();
+        if ("summarize".equals(action)) {
+            return budget;
+        }
+        int outputLimit = maxTokens != null ? maxTokens : aiConfig.getTokens().getMaxOutputTokens();
+        return Math.max(1, Math.min(budget, outputLimit * 4 / 5));
+    }
+
+    /**
+     * 一次分块处理：跟踪进行中的调用以便整体取消
+     */
+    private class Run {
+        private final String action;
+        private final Double temperature;
+        private final Integer maxTokens;
+        private final String model;
+        private final String style;
+        private final String targetLang;
+        private final boolean allowCache;
+        private final ProgressListener progressListener;
+        private final CompletableFuture<AICompletion> result = new CompletableFuture<>();
+        private final Set<CompletableFuture<?>> inFlight = new HashSet<>();
+        private TokenUsage usage;
+
+        Run(String action, Double temperature, Integer maxTokens, String model, String style, String targetLang,
+            boolean allowCache, ProgressListener progressListener) {
+            this.action = action;
+            this.temperature = temperature;
+            this.maxTokens = maxTokens;
+            this.model = model;
+            this.style = style;
+            this.targetLang = targetLang;
+            this.allowCache = allowCache;
+            this.progressListener = progressListener;
+            result.whenComplete((completion, ex) -> {
+                if (ex != null) {
+                    cancelInFlight();
+                }
+            });
+        }
+
+        /**
+         * 并发处理所有块，最多同时进行 maxParallel 个调用
+         */
+        CompletableFuture<List<AICompletion>> map(List<String> chunks, OrderedOutput output) {
+            MapStage stage = new MapStage(chunks, output);
+            int parallel = Math.max(1, Math.min(aiConfig.getChunking().getMaxParallel(), chunks.size()));
+            notifyProgress("map", 0, chunks.size());
+            for (int i = 0; i < parallel; i++) {
+                launchNext(stage);
+            }
+            return stage.future;
+        }
+
+        /**
+         * 分块摘要后合并；合并后的内容仍超出分块预算时再分块摘要一轮
+         */
+        void summarize(List<String> chunks, Consumer<String> chunkConsumer, int round) {
+            map(chunks, null).whenComplete((completions, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                    return;
+                }
+                StringBuilder partials = new StringBuilder();
+                for (int i = 0; i < completions.size(); i++) {
+                    partials.append("【第").append(i + 1).append("部分】\n")
+                            .append(completions.get(i).getContent()).append(CHUNK_SEPARATOR);
+                }
+                String joined = partials.toString();
+                if (round < MAX_REDUCE_ROUNDS
+                        && MarkdownChunker.estimateTokens(joined) > aiConfig.getChunking().getChunkTokens()) {
+                    summarize(MarkdownChunker.split(joined, aiConfig.getChunking().getChunkTokens()), chunkConsumer, round + 1);
+                } else {
+                    reduce(joined, completions.size(), chunkConsumer);
+                }
+            });
+        }
+
+        /**
+         * 将各部分摘要合并为最终摘要，流式输出
+         */
+        private void reduce(String partials, int parts, Consumer<String> chunkConsumer) {
+            if (result.isDone()) {
+                return;
+            }
+            notifyProgress("reduce", 0, 1);
+            String systemPrompt = "你是一个文档摘要专家。以下是一篇长文档按顺序分段生成的摘要，请整合为一份完整、连贯、不重复的摘要，突出关键信息。";
+            String prompt = "请将以下" + parts + "个部分的摘要整合为一份完整的文档摘要：\n\n" + partials;
+            AIService aiService = aiServiceFactory.getDefaultService();
+            CompletableFuture<AICompletion> future = aiService.generateContentAsync(prompt, systemPrompt, temperature, maxTokens, model,
+                    chunkConsumer != null ? chunkConsumer : chunk -> { });
+            track(future);
+            future.whenComplete((summary, ex) -> {
+                untrack(future);
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else if (AIService.isErrorResult(summary.getContent())) {
+                    result.completeExceptionally(new IllegalStateException("合并摘要失败: " + summary.getContent()));
+                } else {
+                    addUsage(summary.getUsage());
+                    notifyProgress("reduce", 1, 1);
+                    result.complete(new AICompletion(summary.getContent(), false, false, getUsage(),
+                            summary.getFirstTokenTime()));
+                }
+            });
+        }
+
+        private void launchNext(MapStage stage) {
+            int index;
+            synchronized (stage) {
+                if (result.isDone() || stage.next >= stage.chunks.size()) {
+                    return;
+                }
+                index = stage.next++;
+            }
+            // 在 ai-stream 线程池上发起调用，避免在HTTP客户端的I/O线程上查询缓存
+            streamDispatcher.getExecutor().execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                CompletableFuture<AICompletion> future;
+                try {
+                    future = enhancedAIService.routeActionStreamAsync(action, stage.chunks.get(index), temperature, maxTokens,
+                            model, style, targetLang, null, null, allowCache,
+                            stage.output != null ? delta -> stage.output.accept(index, delta) : chunk -> { });
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                track(future);
+                future.whenComplete((completion, ex) -> {
+                    untrack(future);
+                    onChunkDone(stage, index, completion, ex);
+                });
+            });
+        }
+
+        private void onChunkDone(MapStage stage, int index, AICompletion completion, Throwable ex) {
+            if (result.isDone()) {
+                // 已失败或已取消，其余块的结果忽略
+                return;
+            }
+            if (ex != null || AIService.isErrorResult(completion.getContent())) {
+                String reason = ex != null ? ex.getMessage() : completion.getContent();
+                log.error("长文档第 {} 块处理失败: {}", index + 1, reason);
+                IllegalStateException failure = new IllegalStateException("第" + (index + 1) + "块处理失败: " + reason);
+                stage.future.completeExceptionally(failure);
+                result.completeExceptionally(failure);
+                return;
+            }
+            addUsage(completion.getUsage());
+            int completed;
+            synchronized (stage) {
+                stage.completions.put(index, completion);
+                completed = stage.completions.size();
+            }
+            log.debug("长文档第 {} 块处理完成，进度 {}/{}", index + 1, completed, stage.chunks.size());
+            if (stage.output != null) {
+                stage.output.complete(index);
+            }
+            notifyProgress("map", completed, stage.chunks.size());
+            if (completed == stage.chunks.size()) {
+                List<AICompletion> ordered = new ArrayList<>(completed);
+                for (int i = 0; i < completed; i++) {
+                    ordered.add(stage.completions.get(i));
+                }
+                stage.future.complete(ordered);
+            } else {
+                launchNext(stage);
+            }
+        }
+
+        /**
+         * 累计实际发起上游调用的用量（命中缓存或合并的块不计）
+         */
+        private synchronized void addUsage(TokenUsage chunkUsage) {
+            if (chunkUsage != null) {
+                usage = usage == null ? chunkUsage : usage.plus(chunkUsage);
+            }
+        }
+
+        private synchronized TokenUsage getUsage() {
+            return usage;
+        }
+
+        private void notifyProgress(String phase, int completed, int total) {
+            if (progressListener == null) {
+                return;
+            }
+            try {
+                progressListener.onProgress(phase, completed, total);
+            } catch (Exception e) {
+                log.debug("发送进度失败: {}", e.getMessage());
+            }
+        }
+
+        private void track(CompletableFuture<?> future) {
+            synchronized (inFlight) {
+                inFlight.add(future);
+            }
+            if (result.isDone()) {
+                future.cancel(true);
+            }
+        }
+
+        private void untrack(CompletableFuture<?> future) {
+            synchronized (inFlight) {
+                inFlight.remove(future);
+            }
+        }
+
+        private void cancelInFlight() {
+            List<CompletableFuture<?>> futures;
+            synchronized (inFlight) {
+                futures = new ArrayList<>(inFlight);
+                inFlight.clear();
+            }
+            if (!futures.isEmpty()) {
+                log.info("长文档处理中止，取消 {} 个进行中的调用", futures.size());
+            }
+            for (CompletableFuture<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 一轮分块处理的状态
+     */
+    private static class MapStage {
+        private final List<String> chunks;
+        private final OrderedOutput output;
+        private final Map<Integer, AICompletion> completions = new HashMap<>();
+        private final CompletableFuture<List<AICompletion>> future = new CompletableFuture<>();
+        private int next;
+
+        MapStage(List<String> chunks, OrderedOutput output) {
+            this.chunks = chunks;
+            this.output = output;
+        }
+    }
+
+    /**
+     * 按文档顺序输出：当前块的内容实时输出，后续块的内容先缓冲，前面的块完成后再输出
+     */
+    private static class OrderedOutput {
+        private final Consumer<String> target;
+        private final StringBuilder[] pending;
+        private final boolean[] done;
+        private int current;
+        private boolean failed;
+
+        OrderedOutput(int total, Consumer<String> target) {
+            this.target = target;
+            this.pending = new StringBuilder[total];
+            this.done = new boolean[total];
+        }
+
+        synchronized void accept(int index, String delta) {
+            if (index == current) {
+                send(delta);
+            } else {
+                if (pending[index] == null) {
+                    pending[index] = new StringBuilder();
+                }
+                pending[index].append(delta);
+            }
+        }
+
+        synchronized void complete(int index) {
+            done[index] = true;
+            while (current < done.length && done[current]) {
+                current++;
+                if (current < done.length) {
+                    send(CHUNK_SEPARATOR);
+                    if (pending[current] != null) {
+                        send(pending[current].toString());
+                        pending[current] = null;
+                    }
+                }
+            }
+        }
+
+        private void send(String text) {
+            if (failed) {
+                return;
+            }
+            try {
+                target.accept(text);
+            } catch (RuntimeException e) {
+                // 发送失败（如客户端已断开）后不再输出，请求由断开回调取消
+                failed = true;
+                log.warn("输出长文档内容失败，停止输出: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -7,7 +7,10 @@ import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 增强的AI服务，提供各种AI功能
@@ -22,6 +25,12 @@ public class EnhancedAIService {
     @Autowired
     private AIStatisticsService statisticsService;
 
+    @Autowired
+    private AIResponseCache responseCache;
+
+    @Autowired
+    private AIRequestCoalescer requestCoalescer;
+
     private String invokeAI(String systemPrompt, String prompt,
                             Double temperature, Integer maxTokens,
                             Boolean stream, String model) {
@@ -29,6 +38,20 @@ public class EnhancedAIService {
         return aiService.generateContent(prompt, systemPrompt, temperature, maxTokens, stream, model);
     }
 
+    /**
+     * 调用AI并返回内容及 token 用量（上游返回的用量，流式调用按提示词和结果估算）
+     */
+    private AICompletion invokeCompletion(String systemPrompt, String prompt,
+                                          Double temperature, Integer maxTokens,
+                                          Boolean stream, String model) {
+        if (Boolean.TRUE.equals(stream)) {
+            String result = invokeAI(systemPrompt, prompt, temperature, maxTokens, stream, model);
+            return new AICompletion(result, false, false, TokenUsage.estimate(systemPrompt, prompt, result));
+        }
+        AIService aiService = aiServiceFactory.getDefaultService();
+        return aiService.generateCompletion(prompt, systemPrompt, temperature, maxTokens, model);
+    }
+
     /**
      * 统一路由：根据 action 分发到对应功能；支持参数占位（当前版本记录日志，底层实现按默认参数调用）
      */
@@ -45,9 +68,9 @@ public class EnhancedAIService {
             case "translate":
                 return translateDocument(content, targetLang != null ? targetLang : "英文", temperature, maxTokens, stream, model);
             case "expand":
-                return expandParagraph(content, temperature, maxTokens, stream, model);
+                return expandParagraph(content, temperature, maxTokens, stream, model).getContent();
             case "complete":
-                return suggestCompletion(content, temperature, maxTokens, stream, model);
+                return suggestCompletion(content, temperature, maxTokens, stream, model).getContent();
             default:
                 log.info("未知 action：{}，回退到 beautify", actionSafe);
                 return beautifyMarkdown(content, temperature, maxTokens, stream, model);
@@ -65,9 +88,125 @@ public class EnhancedAIService {
                 actionSafe, temperature, maxTokens, model, style, targetLang, title);
         
         AIService aiService = aiServiceFactory.getDefaultService();
+        StreamPrompt streamPrompt = buildStreamPrompt(actionSafe, content, style, targetLang, title, context);
+        return aiService.generateContentStream(streamPrompt.prompt, streamPrompt.systemPrompt, temperature, maxTokens, model, chunkConsumer);
+    }
+
+    /**
+     * 带缓存的同步路由：与流式路由使用相同的提示词，命中缓存时不调用上游；
+     * 相同请求并发时合并为一次上游调用
+     * @param allowCache 温度大于0时是否允许使用缓存或合并请求
+     */
+    public AICompletion routeActionCached(String action, String content, Double temperature, Integer maxTokens,
+                                          String model, String style, String targetLang, boolean allowCache) {
+        String actionSafe = action != null ? action : "beautify";
+        log.info(">> 路由AI动作（缓存） action={}, temp={}, maxTokens={}, model={}, style={}, targetLang={}, allowCache={}",
+                actionSafe, temperature, maxTokens, model, style, targetLang, allowCache);
+
+        StreamPrompt streamPrompt = buildStreamPrompt(actionSafe, content, style, targetLang, null, null);
+        boolean cacheable = responseCache.isCacheable(actionSafe, temperature, allowCache);
+        boolean coalescible = requestCoalescer.isEnabled() && responseCache.isShareable(actionSafe, temperature, allowCache);
+        String requestKey = cacheable || coalescible
+                ? responseCache.buildKey(actionSafe, model, temperature, maxTokens, style, targetLang,
+                        streamPrompt.systemPrompt, streamPrompt.prompt)
+                : null;
+        if (cacheable) {
+            String cached = responseCache.get(requestKey);
+            if (cached != null) {
+                log.info("命中AI响应缓存 action={}, 内容长度: {} 字符", actionSafe, cached.length());
+                statisticsService.recordCacheHit(actionSafe, content, cached);
+                return new AICompletion(cached, true);
+            }
+            statisticsService.recordCacheMiss(actionSafe);
+        }
+
+        AIService aiService = aiServiceFactory.getDefaultService();
+        Supplier<AICompletion> upstreamCall = () -> {
+            AICompletion result = aiService.generateCompletion(streamPrompt.prompt, streamPrompt.systemPrompt,
+                    temperature, maxTokens, model);
+            if (cacheable) {
+                responseCache.put(requestKey, actionSafe, model, result.getContent());
+            }
+            return result;
+        };
+        if (!coalescible) {
+            return upstreamCall.get();
+        }
+        AICompletion completion = requestCoalescer.call(requestKey, upstreamCall);
+        if (completion.isCoalesced()) {
+            statisticsService.recordCoalesced(actionSafe, content, completion.getContent());
+        }
+        return completion;
+    }
+
+    /**
+     * 异步流式路由：与 routeActionStream 相同的提示词，基于非阻塞客户端，生成期间不占用调用线程。
+     * 命中缓存时直接将缓存内容按块回放给 chunkConsumer；相同请求进行中时订阅其输出
+     * @param allowCache 温度大于0时是否允许使用缓存或合并请求
+     * @return 完成时得到完整内容；取消该Future会中断上游请求（合并的请求仅在所有订阅者都取消后中断）
+     */
+    public CompletableFuture<AICompletion> routeActionStreamAsync(String action, String content, Double temperature, Integer maxTokens,
+                                                                  String model, String style, String targetLang, String title, String context,
+                                                                  boolean allowCache, Consumer<String> chunkConsumer) {
+        String actionSafe = action != null ? action : "beautify";
+        log.info(">> 异步流式路由AI动作 action={}, temp={}, maxTokens={}, model={}, style={}, targetLang={}, title={}, allowCache={}",
+                actionSafe, temperature, maxTokens, model, style, targetLang, title, allowCache);
+
+        StreamPrompt streamPrompt = buildStreamPrompt(actionSafe, content, style, targetLang, title, context);
+        boolean cacheable = responseCache.isCacheable(actionSafe, temperature, allowCache);
+        boolean coalescible = requestCoalescer.isEnabled() && responseCache.isShareable(actionSafe, temperature, allowCache);
+        String requestKey = cacheable || coalescible
+                ? responseCache.buildKey(actionSafe, model, temperature, maxTokens, style, targetLang,
+                        streamPrompt.systemPrompt, streamPrompt.prompt)
+                : null;
+        if (cacheable) {
+            String cached = responseCache.get(requestKey);
+            if (cached != null) {
+                log.info("命中AI响应缓存，回放流式输出 action={}, 内容长度: {} 字符", actionSafe, cached.length());
+                statisticsService.recordCacheHit(actionSafe, content, cached);
+                CompletableFuture<AICompletion> replayed = new CompletableFuture<>();
+                try {
+                    responseCache.replay(cached, chunkConsumer);
+                    replayed.complete(new AICompletion(cached, true));
+                } catch (RuntimeException e) {
+                    replayed.completeExceptionally(e);
+                }
+                return replayed;
+            }
+            statisticsService.recordCacheMiss(actionSafe);
+        }
+
+        AIService aiService = aiServiceFactory.getDefaultService();
+        Function<Consumer<String>, CompletableFuture<AICompletion>> upstreamCall = consumer -> {
+            CompletableFuture<AICompletion> upstream = aiService.generateContentAsync(streamPrompt.prompt, streamPrompt.systemPrompt,
+                    temperature, maxTokens, model, consumer);
+            if (cacheable) {
+                upstream.thenAccept(result -> responseCache.put(requestKey, actionSafe, model, result.getContent()));
+            }
+            return upstream;
+        };
+        if (coalescible) {
+            CompletableFuture<AICompletion> completion = requestCoalescer.stream(requestKey, upstreamCall, chunkConsumer);
+            completion.thenAccept(result -> {
+                if (result.isCoalesced()) {
+                    statisticsService.recordCoalesced(actionSafe, content, result.getContent());
+                }
+            });
+            return completion;
+        }
+
+        // 取消返回的Future即取消上游请求
+        return upstreamCall.apply(chunkConsumer);
+    }
+
+    /**
+     * 按 action 构建流式调用的系统提示词与用户提示词
+     */
+    private StreamPrompt buildStreamPrompt(String actionSafe, String content, String style, String targetLang,
+                                           String title, String context) {
         String systemPrompt;
         String prompt;
-        
+
         switch (actionSafe) {
             case "beautify":
                 systemPrompt = "你是一个Markdown文档美化专家。请优化以下Markdown内容的格式、排版和结构，使其更加清晰易读。保持原有内容不变，只优化格式。";
@@ -114,8 +253,20 @@ public class EnhancedAIService {
                 prompt = "请美化以下Markdown内容：\n\n" + content;
                 break;
         }
-        
-        return aiService.generateContentStream(prompt, systemPrompt, temperature, maxTokens, model, chunkConsumer);
+        return new StreamPrompt(systemPrompt, prompt);
+    }
+
+    /**
+     * 流式调用的提示词
+     */
+    private static class StreamPrompt {
+        private final String systemPrompt;
+        private final String prompt;
+
+        StreamPrompt(String systemPrompt, String prompt) {
+            this.systemPrompt = systemPrompt;
+            this.prompt = prompt;
+        }
     }
 
     /**
@@ -139,10 +290,10 @@ public class EnhancedAIService {
      * AI写作助手 - 根据标题生成内容
      */
     public String generateContent(String title, String context) {
-        return generateContent(title, context, null, null, null);
+        return generateContent(title, context, null, null, null).getContent();
     }
 
-    public String generateContent(String title, String context,
+    public AICompletion generateContent(String title, String context,
                                   Double temperature, Integer maxTokens, String model) {
         log.info(">>> 调用AI写作功能");
         log.info("标题: {}", title);
@@ -158,8 +309,8 @@ public class EnhancedAIService {
         }
         promptBuilder.append("请生成完整的Markdown文档内容，确保内容与标题高度相关：");
         String prompt = promptBuilder.toString();
-        String result = invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
-        log.info("写作完成，输出长度: {} 字符", result != null ? result.length() : 0);
+        AICompletion result = invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
+        log.info("写作完成，输出长度: {} 字符", result.getContent() != null ? result.getContent().length() : 0);
         return result;
     }
 
@@ -188,15 +339,15 @@ public class EnhancedAIService {
      * 语法检查
      */
     public String checkGrammar(String content) {
-        return checkGrammar(content, null, null, null, null);
+        return checkGrammar(content, null, null, null, null).getContent();
     }
 
-    public String checkGrammar(String content,
+    public AICompletion checkGrammar(String content,
                                Double temperature, Integer maxTokens,
                                Boolean stream, String model) {
         String systemPrompt = "你是一个语法检查专家。请检查以下Markdown内容的语法错误、拼写错误和格式问题，并提供修正建议。";
         String prompt = "请检查以下内容的语法和格式问题：\n\n" + content + "\n\n请指出错误并提供修正后的内容：";
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, stream, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, stream, model);
     }
 
     /**
@@ -233,101 +384,101 @@ public class EnhancedAIService {
      * 解释代码
      */
     public String explainCode(String code, String language) {
-        return explainCode(code, language, null, null, null);
+        return explainCode(code, language, null, null, null).getContent();
     }
 
-    public String explainCode(String code, String language,
+    public AICompletion explainCode(String code, String language,
                               Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个代码解释专家。请详细解释代码的功能、逻辑和使用方法。";
         String prompt = "请解释以下" + (language != null ? language : "") + "代码：\n\n```" + 
                        (language != null ? language : "") + "\n" + code + "\n```";
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
     }
 
     /**
      * 智能补全
      */
     public String suggestCompletion(String partialText) {
-        return suggestCompletion(partialText, null, null, null, null);
+        return suggestCompletion(partialText, null, null, null, null).getContent();
     }
 
-    public String suggestCompletion(String partialText,
+    public AICompletion suggestCompletion(String partialText,
                                     Double temperature, Integer maxTokens,
                                     Boolean stream, String model) {
         String systemPrompt = "你是一个文本补全助手。请根据上下文，补全用户输入的文本。";
         String prompt = "请补全以下文本：\n\n" + partialText;
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, stream, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, stream, model);
     }
 
     /**
      * 扩展段落
      */
     public String expandParagraph(String paragraph) {
-        return expandParagraph(paragraph, null, null, null, null);
+        return expandParagraph(paragraph, null, null, null, null).getContent();
     }
 
-    public String expandParagraph(String paragraph,
+    public AICompletion expandParagraph(String paragraph,
                                   Double temperature, Integer maxTokens,
                                   Boolean stream, String model) {
         String systemPrompt = "你是一个内容扩展专家。请将简短的段落扩展为更详细、更丰富的内容，保持主题不变。";
         String prompt = "请扩展以下段落，使其更加详细：\n\n" + paragraph;
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, stream, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, stream, model);
     }
 
     /**
      * 生成列表
      */
     public String generateList(String topic) {
-        return generateList(topic, null, null, null);
+        return generateList(topic, null, null, null).getContent();
     }
 
-    public String generateList(String topic,
+    public AICompletion generateList(String topic,
                                Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个列表生成专家。请根据主题生成结构化的Markdown列表。";
         String prompt = "请为以下主题生成一个详细的Markdown列表：\n\n" + topic;
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
     }
 
     /**
      * 优化标题
      */
     public String optimizeTitles(String content) {
-        return optimizeTitles(content, null, null, null);
+        return optimizeTitles(content, null, null, null).getContent();
     }
 
-    public String optimizeTitles(String content,
+    public AICompletion optimizeTitles(String content,
                                  Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个标题优化专家。请优化文档中的标题层级和标题文字，使其更加清晰和准确。";
         String prompt = "请优化以下文档的标题：\n\n" + content;
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
     }
 
     /**
      * 生成表格
      */
     public String generateTable(String description) {
-        return generateTable(description, null, null, null);
+        return generateTable(description, null, null, null).getContent();
     }
 
-    public String generateTable(String description,
+    public AICompletion generateTable(String description,
                                 Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个表格生成专家。请根据描述生成Markdown格式的表格。";
         String prompt = "请根据以下描述生成Markdown表格：\n\n" + description;
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
     }
 
     /**
      * 文档问答
      */
     public String answerQuestion(String document, String question) {
-        return answerQuestion(document, question, null, null, null);
+        return answerQuestion(document, question, null, null, null).getContent();
     }
 
-    public String answerQuestion(String document, String question,
+    public AICompletion answerQuestion(String document, String question,
                                  Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个文档问答助手。请根据提供的文档内容回答用户的问题。";
         String prompt = "文档内容：\n\n" + document + "\n\n问题：" + question + "\n\n请回答：";
-        return invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
     }
 
     /**
@@ -339,13 +490,22 @@ public class EnhancedAIService {
 
     public Map<String, Object> analyzeDocument(String content,
                                                Double temperature, Integer maxTokens, String model) {
+        return toAnalysisResult(content, requestAnalysis(content, temperature, maxTokens, model));
+    }
+
+    /**
+     * 调用AI分析文档，返回分析文本及 token 用量，由 toAnalysisResult 组装为分析结果
+     */
+    public AICompletion requestAnalysis(String content,
+                                        Double temperature, Integer maxTokens, String model) {
         String systemPrompt = "你是一个文档分析专家。请分析文档的结构、主题、关键词和阅读难度。";
         String prompt = "请分析以下文档：\n\n" + content + "\n\n请提供：1. 文档主题 2. 关键词 3. 文档结构 4. 阅读难度评估";
-        
-        String analysis = invokeAI(systemPrompt, prompt, temperature, maxTokens, null, model);
-        
+        return invokeCompletion(systemPrompt, prompt, temperature, maxTokens, null, model);
+    }
+
+    public Map<String, Object> toAnalysisResult(String content, AICompletion analysis) {
         Map<String, Object> result = new HashMap<>();
-        result.put("analysis", analysis);
+        result.put("analysis", analysis.getContent());
         result.put("wordCount", content.length());
         result.put("estimatedReadingTime", calculateReadingTime(content));
         
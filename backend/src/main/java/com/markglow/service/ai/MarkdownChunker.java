@@ -0,0 +1,193 @@
+package com.markglow.service.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markdown 分块：按标题与段落边界切分为不超过 token 预算的块，代码块内部不切分。
+ * 所有块按顺序拼接后与原文完全一致。
+ */
+public final class MarkdownChunker {
+
+    private MarkdownChunker() {
+    }
+
+    /**
+     * 切分文档
+     * @param markdown Markdown 文本
+     * @param maxTokens 每块的 token 预算
+     * @return 按文档顺序排列的块
+     */
+    public static List<String> split(String markdown, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        if (markdown == null || markdown.isEmpty()) {
+            return chunks;
+        }
+        int budget = Math.max(1, maxTokens);
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (Block block : splitBlocks(markdown)) {
+            int blockTokens = estimateTokens(block.text);
+            if (blockTokens > budget) {
+                // 单个块超出预算：单独按行切分
+                flush(chunks, current);
+                currentTokens = 0;
+                splitOversized(block.text, budget, chunks);
+                continue;
+            }
+            // 一、二级标题尽量作为新块的开头，保持章节完整
+            boolean sectionStart = block.headingLevel > 0 && block.headingLevel <= 2 && currentTokens >= budget / 2;
+            if (currentTokens + blockTokens > budget || sectionStart) {
+                flush(chunks, current);
+                currentTokens = 0;
+            }
+            current.append(block.text);
+            currentTokens += blockTokens;
+        }
+        flush(chunks, current);
+        return chunks;
+    }
+
+    /**
+     * 按标题切分为章节：级别不高于 maxLevel 的标题开始新章节，代码块内的 # 不视为标题。
+     * 所有章节按顺序拼接后与原文完全一致，第一个标题之前的内容单独作为一个章节。
+     */
+    public static List<String> splitSections(String markdown, int maxLevel) {
+        List<String> sections = new ArrayList<>();
+        if (markdown == null || markdown.isEmpty()) {
+            return sections;
+        }
+        StringBuilder current = new StringBuilder();
+        for (Block block : splitBlocks(markdown)) {
+            if (block.headingLevel > 0 && block.headingLevel <= maxLevel) {
+                flush(sections, current);
+            }
+            current.append(block.text);
+        }
+        flush(sections, current);
+        return sections;
+    }
+
+    /**
+     * 估算 token 数，见 TokenCounter
+     */
+    public static int estimateTokens(CharSequence text) {
+        return TokenCounter.count(text);
+    }
+
+    /**
+     * 按标题与空行切分为块，代码块（``` 或 ~~~）整体保留；块包含其后的空行
+     */
+    private static List<Block> splitBlocks(String markdown) {
+        List<Block> blocks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentLevel = 0;
+        boolean inFence = false;
+        String fenceMarker = null;
+        boolean previousBlank = false;
+        int start = 0;
+        while (start < markdown.length()) {
+            int end = markdown.indexOf('\n', start);
+            end = end < 0 ? markdown.length() : end + 1;
+            String line = markdown.substring(start, end);
+            String trimmed = line.trim();
+            boolean blank = trimmed.isEmpty();
+            if (!inFence && current.length() > 0) {
+                int level = headingLevel(trimmed);
+                if (level > 0 || (previousBlank && !blank)) {
+                    blocks.add(new Block(current.toString(), currentLevel));
+                    current.setLength(0);
+                }
+            }
+            if (current.length() == 0) {
+                currentLevel = inFence ? 0 : headingLevel(trimmed);
+            }
+            current.append(line);
+            if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                String marker = trimmed.substring(0, 3);
+                if (!inFence) {
+                    inFence = true;
+                    fenceMarker = marker;
+                } else if (marker.equals(fenceMarker)) {
+                    inFence = false;
+                }
+            }
+            previousBlank = !inFence && blank;
+            start = end;
+        }
+        if (current.length() > 0) {
+            blocks.add(new Block(current.toString(), currentLevel));
+        }
+        return blocks;
+    }
+
+    /**
+     * 超出预算的块按行切分，单行仍超出时按字符切分（不拆分代理对）
+     */
+    private static void splitOversized(String text, int budget, List<String> chunks) {
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            String line = text.substring(start, end);
+            int lineTokens = estimateTokens(line);
+            if (lineTokens > budget) {
+                flush(chunks, current);
+                currentTokens = 0;
+                // 按该行的平均 token 密度换算为字符数
+                int maxChars = Math.max(1, (int) ((long) budget * line.length() / lineTokens));
+                int pos = 0;
+                while (pos < line.length()) {
+                    int cut = Math.min(pos + maxChars, line.length());
+                    if (cut < line.length() && cut - 1 > pos && Character.isHighSurrogate(line.charAt(cut - 1))) {
+                        cut--;
+                    }
+                    chunks.add(line.substring(pos, cut));
+                    pos = cut;
+                }
+            } else {
+                if (currentTokens + lineTokens > budget) {
+                    flush(chunks, current);
+                    currentTokens = 0;
+                }
+                current.append(line);
+                currentTokens += lineTokens;
+            }
+            start = end;
+        }
+        flush(chunks, current);
+    }
+
+    private static void flush(List<String> chunks, StringBuilder current) {
+        if (current.length() > 0) {
+            chunks.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    /**
+     * ATX 标题级别（# 到 ######，后跟空白或行尾），非标题返回 0
+     */
+    private static int headingLevel(String trimmed) {
+        int level = 0;
+        while (level < trimmed.length() && trimmed.charAt(level) == '#') {
+            level++;
+        }
+        if (level == 0 || level > 6) {
+            return 0;
+        }
+        return level == trimmed.length() || Character.isWhitespace(trimmed.charAt(level)) ? level : 0;
+    }
+
+    private static class Block {
+        private final String text;
+        private final int headingLevel;
+
+        Block(String text, int headingLevel) {
+            this.text = text;
+            this.headingLevel = headingLevel;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.markglow.service.ai;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SSE chunk 转发器：把上游增量直接以 JSON 字符串转义写入复用的帧缓冲区，
+ * 按时间或大小合并多个小增量后再发送一帧，每帧只生成一个 String。
+ * 帧数据为带引号的 JSON 字符串，前端 JSON.parse 后直接拼接。
+ *
+ * 刷新策略：距上次发送已超过 flushIntervalMs 或缓冲区达到 flushChars 时立即发送，
+ * 否则在间隔到期时由调度线程发送；任一参数不大于 0 时每个增量单独成帧。
+ * 非 Spring Bean，每个流式请求创建一个，通过 AIStreamDispatcher.createRelay 获取。
+ * 发送失败（客户端已断开）后不再发送，之后的 accept 抛出 IllegalStateException，调用方据此停止转发；flush/close 不抛出。
+ */
+@Slf4j
+public class SseChunkRelay implements Consumer<String> {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Consumer<String> frameSink;
+    private final ScheduledExecutorService scheduler;
+    private final long flushIntervalNanos;
+    private final int flushChars;
+
+    /**
+     * 当前帧：以引号开头的已转义内容，发送时补上结尾引号
+     */
+    private final StringBuilder frame = new StringBuilder(256);
+
+    private long lastFlushNanos;
+    private boolean everFlushed;
+    private ScheduledFuture<?> pendingFlush;
+    private boolean closed;
+    private Exception failure;
+    private long deltaCount;
+    private long frameCount;
+
+    /**
+     * @param frameSink 帧发送回调，参数为带引号的 JSON 字符串
+     * @param scheduler 延迟刷新使用的调度器，为 null 时每个增量单独成帧
+     * @param flushIntervalMs 合并的最长时间（毫秒）
+     * @param flushChars 帧缓冲区达到该字符数时立即发送
+     */
+    public SseChunkRelay(Consumer<String> frameSink, ScheduledExecutorService scheduler, long flushIntervalMs, int flushChars) {
+        this.frameSink = frameSink;
+        this.scheduler = scheduler;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMs));
+        this.flushChars = scheduler == null || flushIntervalMs <= 0 ? 0 : flushChars;
+        frame.append('"');
+    }
+
+    /**
+     * @throws IllegalStateException 此前或本次发送失败
+     */
+    @Override
+    public synchronized void accept(String delta) {
+        checkFailure();
+        if (closed || delta == null || delta.isEmpty()) {
+            return;
+        }
+        deltaCount++;
+        appendJsonEscaped(delta, frame);
+        if (flushChars <= 0 || frame.length() > flushChars) {
+            flushFrame();
+        } else if (pendingFlush == null) {
+            // 已有定时刷新时直接合并。每帧只在第一个增量到达时取一次时间：距上次发送已超过间隔（含首个增量）则立即发送，
+            // 保证首字延迟不受合并影响；否则在间隔到期时发送
+            long elapsed = System.nanoTime() - lastFlushNanos;
+            if (!everFlushed || elapsed >= flushIntervalNanos) {
+                flushFrame();
+            } else {
+                pendingFlush = scheduler.schedule(this::flush, flushIntervalNanos - elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * 立即发送缓冲区中的内容
+     */
+    public synchronized void flush() {
+        if (failure == null) {
+            flushFrame();
+        }
+    }
+
+    /**
+     * 发送剩余内容并停止接收，在发送 end/error 事件前调用
+     */
+    public synchronized void close() {
+        flush();
+        closed = true;
+    }
+
+    public synchronized long getDeltaCount() {
+        return deltaCount;
+    }
+
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("发送chunk到前端失败: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void flushFrame() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (frame.length() <= 1) {
+            return;
+        }
+        String data = frame.append('"').toString();
+        frame.setLength(1);
+        lastFlushNanos = System.nanoTime();
+        everFlushed = true;
+        try {
+            frameSink.accept(data);
+            frameCount++;
+        } catch (Exception e) {
+            // 客户端已断开：之后不再发送，上游请求由断开回调或 accept 的调用方取消
+            failure = e;
+            log.warn("发送chunk到前端失败，停止转发: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单次遍历把文本按 JSON 字符串规则转义追加到 out：连续的普通字符整段追加，
+     * 仅在遇到需转义的字符时中断（其余控制字符写为 \\u00XX）
+     */
+    public static void appendJsonEscaped(String text, StringBuilder out) {
+        int length = text.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > runStart) {
+                out.append(text, runStart, i);
+            }
+            runStart = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        if (runStart == 0) {
+            // 大多数增量无需转义，整串追加（数组拷贝）
+            out.append(text);
+        } else if (length > runStart) {
+            out.append(text, runStart, length);
+        }
+    }
+}
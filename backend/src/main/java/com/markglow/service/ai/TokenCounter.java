@@ -0,0 +1,150 @@
+package com.markglow.service.ai;
+
+/**
+ * Token 数估算：单次遍历字符，不产生与文本长度相关的内存分配。
+ * 近似 ERNIE/Qwen 等 BPE 分词器的切分结果：
+ * 汉字/假名/韩文约 1.5 字符一个 token，英文单词与数字约 4 字符一个 token，
+ * 标点与符号各算一个 token，连续空白并入相邻 token（连续换行算一个 token）。
+ */
+public final class TokenCounter {
+
+    /**
+     * 每条消息的格式开销（角色标记等）
+     */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    /**
+     * 内部计数单位：1 token = 6 个单位，避免浮点运算
+     */
+    private static final int UNITS_PER_TOKEN = 6;
+
+    private static final int CJK_UNITS = 4;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[8192]);
+
+    private TokenCounter() {
+    }
+
+    /**
+     * 估算文本的 token 数
+     */
+    public static int count(CharSequence text) {
+        return text == null ? 0 : count(text, 0, text.length());
+    }
+
+    /**
+     * 估算文本 [start, end) 区间的 token 数
+     */
+    public static int count(CharSequence text, int start, int end) {
+        Scan scan = new Scan();
+        if (text instanceof String) {
+            // 按块批量拷贝到线程复用的缓冲区，避免逐字符调用 charAt
+            String string = (String) text;
+            char[] buffer = BUFFER.get();
+            for (int pos = start; pos < end; pos += buffer.length) {
+                int blockEnd = Math.min(end, pos + buffer.length);
+                string.getChars(pos, blockEnd, buffer, 0);
+                scan.accept(buffer, blockEnd - pos);
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                scan.accept(text.charAt(i));
+            }
+        }
+        return scan.tokens();
+    }
+
+    /**
+     * 估算一次调用的输入 token 数：系统提示词、用户提示词及消息格式开销
+     */
+    public static int countPrompt(String systemPrompt, String prompt) {
+        int tokens = count(prompt) + MESSAGE_OVERHEAD;
+        if (systemPrompt != null && !systemPrompt.isEmpty()) {
+            tokens += count(systemPrompt) + MESSAGE_OVERHEAD;
+        }
+        return tokens;
+    }
+
+    /**
+     * 扫描状态：跨缓冲块保留未结束的单词、换行与代理对（对象很小，通常被 JIT 标量替换）
+     */
+    private static final class Scan {
+        private long units;
+        private int wordLength;
+        private boolean previousNewline;
+        private boolean pendingLowSurrogate;
+
+        void accept(char[] chars, int length) {
+            for (int i = 0; i < length; i++) {
+                accept(chars[i]);
+            }
+        }
+
+        void accept(char c) {
+            if (c < 0x80) {
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+                    wordLength++;
+                    previousNewline = false;
+                    pendingLowSurrogate = false;
+                    return;
+                }
+                endWord();
+                pendingLowSurrogate = false;
+                if (c == '\n') {
+                    if (!previousNewline) {
+                        units += UNITS_PER_TOKEN;
+                    }
+                    previousNewline = true;
+                    return;
+                }
+                if (c > ' ') {
+                    units += UNITS_PER_TOKEN;
+                }
+                previousNewline = false;
+                return;
+            }
+            previousNewline = false;
+            if (pendingLowSurrogate) {
+                pendingLowSurrogate = false;
+                if (Character.isLowSurrogate(c)) {
+                    return;
+                }
+            }
+            if (isCjk(c)) {
+                endWord();
+                units += CJK_UNITS;
+            } else if (Character.isHighSurrogate(c)) {
+                // 表情等补充平面字符按一个 token 计
+                endWord();
+                units += UNITS_PER_TOKEN;
+                pendingLowSurrogate = true;
+            } else if (Character.isLetterOrDigit(c)) {
+                // 带重音的拉丁字母、西里尔字母等按单词计
+                wordLength++;
+            } else {
+                endWord();
+                units += UNITS_PER_TOKEN;
+            }
+        }
+
+        int tokens() {
+            endWord();
+            return (int) ((units + UNITS_PER_TOKEN - 1) / UNITS_PER_TOKEN);
+        }
+
+        private void endWord() {
+            if (wordLength > 0) {
+                units += (long) ((wordLength + 3) / 4) * UNITS_PER_TOKEN;
+                wordLength = 0;
+            }
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF)      // 中日韩统一表意文字
+                || (c >= 0x3400 && c <= 0x4DBF)  // 扩展A
+                || (c >= 0xF900 && c <= 0xFAFF)  // 兼容表意文字
+                || (c >= 0x3040 && c <= 0x30FF)  // 平假名、片假名
+                || (c >= 0xAC00 && c <= 0xD7AF); // 韩文音节
+    }
+}
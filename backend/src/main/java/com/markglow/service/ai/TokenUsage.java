@@ -0,0 +1,54 @@
+package com.markglow.service.ai;
+
+/**
+ * 一次AI调用的 token 用量
+ */
+public class TokenUsage {
+    private final int inputTokens;
+    private final int outputTokens;
+    private final boolean reported;
+
+    public TokenUsage(int inputTokens, int outputTokens, boolean reported) {
+        this.inputTokens = inputTokens;
+        this.outputTokens = outputTokens;
+        this.reported = reported;
+    }
+
+    /**
+     * 上游未返回用量时按 TokenCounter 估算
+     */
+    public static TokenUsage estimate(String systemPrompt, String prompt, String output) {
+        return new TokenUsage(TokenCounter.countPrompt(systemPrompt, prompt), TokenCounter.count(output), false);
+    }
+
+    /**
+     * 合并多次调用的用量（如分块处理），全部来自上游时才视为上游返回的用量
+     */
+    public TokenUsage plus(TokenUsage other) {
+        if (other == null) {
+            return this;
+        }
+        return new TokenUsage(inputTokens + other.inputTokens, outputTokens + other.outputTokens,
+                reported && other.reported);
+    }
+
+    public int getInputTokens() {
+        return inputTokens;
+    }
+
+    public int getOutputTokens() {
+        return outputTokens;
+    }
+
+    /**
+     * 是否为上游接口返回的实际用量（否则为估算值）
+     */
+    public boolean isReported() {
+        return reported;
+    }
+
+    @Override
+    public String toString() {
+        return inputTokens + "/" + outputTokens + (reported ? "" : "(估算)");
+    }
+}
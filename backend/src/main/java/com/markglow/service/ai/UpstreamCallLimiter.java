@@ -0,0 +1,123 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 异步上游调用名额：同时进行的异步流式调用（含长文档分块的并发调用）不超过 ai.http.max-per-route，
+ * 超出的调用在此排队，等到有调用结束再发起，而不是在连接池中等待 connection-request-timeout 后失败。
+ * 排队不占用线程；AIStreamDispatcher 已放行的流式请求只会在这里多等，不会因连接池已满失败
+ */
+@Component
+@Slf4j
+public class UpstreamCallLimiter {
+
+    @Autowired
+    private AIConfig aiConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Deque<Call> waiting = new ArrayDeque<>();
+
+    private int active;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("markglow.ai.upstream.active", this, UpstreamCallLimiter::getActiveCount)
+                .description("进行中的异步上游调用数")
+                .register(meterRegistry);
+        Gauge.builder("markglow.ai.upstream.queued", this, UpstreamCallLimiter::getQueuedCount)
+                .description("等待上游调用名额的异步调用数")
+                .register(meterRegistry);
+        int limit = getLimit();
+        int fanOut = aiConfig.getStream().getMaxActive() * Math.max(1, aiConfig.getChunking().getMaxParallel());
+        log.info("初始化异步上游调用名额: limit={}, 流式请求最多可发起 {} 个上游调用", limit, fanOut);
+        if (fanOut > limit) {
+            log.info("ai.stream.max-active × ai.chunking.max-parallel = {} 超过 ai.http.max-per-route = {}，" +
+                    "长文档流式请求较多时超出部分排队等待上游调用名额", fanOut, limit);
+        }
+    }
+
+    /**
+     * 取得名额后执行 start（有空闲名额时在当前线程立即执行，否则在释放名额的线程上执行）。
+     * start 发起的调用结束时须调用一次 release
+     * @return 调用凭证，可在开始前通过 cancel 取消排队
+     */
+    public Call submit(Runnable start) {
+        Call call = new Call(start);
+        synchronized (this) {
+            if (active >= getLimit()) {
+                waiting.addLast(call);
+                return call;
+            }
+            active++;
+        }
+        run(call);
+        return call;
+    }
+
+    /**
+     * 取消排队中的调用；已开始的调用由调用方中断，结束时照常 release
+     * @return 调用仍在排队并已移除时返回 true
+     */
+    public synchronized boolean cancel(Call call) {
+        return waiting.remove(call);
+    }
+
+    /**
+     * 调用结束，名额交给下一个排队的调用
+     */
+    public void release() {
+        Call next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        run(next);
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueuedCount() {
+        return waiting.size();
+    }
+
+    private int getLimit() {
+        return Math.max(1, aiConfig.getHttp().getMaxPerRoute());
+    }
+
+    private void run(Call call) {
+        try {
+            call.start.run();
+        } catch (RuntimeException e) {
+            // start 应自行处理异常并 release，这里兜底避免名额泄漏
+            log.error("发起上游调用失败", e);
+            release();
+        }
+    }
+
+    /**
+     * 调用凭证
+     */
+    public static final class Call {
+        private final Runnable start;
+
+        Call(Runnable start) {
+            this.start = start;
+        }
+    }
+}
@@ -3,26 +3,41 @@ package com.markglow.service.ai.impl;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.markglow.config.AIConfig;
+import com.markglow.service.ai.AICompletion;
 import com.markglow.service.ai.AIProvider;
 import com.markglow.service.ai.AIService;
+import com.markglow.service.ai.TokenCounter;
+import com.markglow.service.ai.TokenUsage;
+import com.markglow.service.ai.UpstreamCallLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -36,6 +51,24 @@ public class ErnieAIService implements AIService {
     @Autowired
     private AIConfig aiConfig;
 
+    /**
+     * 共享的连接池HTTP客户端（见 AIHttpClientConfig），由Spring管理生命周期，调用方不关闭
+     */
+    @Autowired
+    private CloseableHttpClient aiHttpClient;
+
+    /**
+     * 共享的非阻塞HTTP客户端，用于异步流式调用
+     */
+    @Autowired
+    private CloseableHttpAsyncClient aiHttpAsyncClient;
+
+    /**
+     * 异步调用的上游名额，不超过异步连接池的单主机连接数
+     */
+    @Autowired
+    private UpstreamCallLimiter upstreamCallLimiter;
+
     @Override
     public String generateContent(String prompt, String systemPrompt) {
         return generateContent(prompt, systemPrompt, null, null, Boolean.FALSE, null);
@@ -60,11 +93,26 @@ public class ErnieAIService implements AIService {
     private String generateContentNonStream(String prompt, String systemPrompt,
                                            Double temperature, Integer maxTokens,
                                            String model) {
+        return completeNonStream(prompt, systemPrompt, temperature, maxTokens, model).getContent();
+    }
+
+    @Override
+    public AICompletion generateCompletion(String prompt, String systemPrompt,
+                                           Double temperature, Integer maxTokens, String model) {
+        return completeNonStream(prompt, systemPrompt, temperature, maxTokens, model);
+    }
+
+    /**
+     * 非流式调用，返回内容及 token 用量
+     */
+    private AICompletion completeNonStream(String prompt, String systemPrompt,
+                                           Double temperature, Integer maxTokens,
+                                           String model) {
         long startTime = System.currentTimeMillis();
         log.info("========== ERNIE AI 调用开始（非流式）==========");
         String defaultModel = aiConfig.getErnie().getModel();
         double tempValue = temperature != null ? temperature : 0.7;
-        int maxTokenValue = maxTokens != null ? maxTokens : 12288;
+        int maxTokenValue = resolveMaxTokens(maxTokens, systemPrompt, prompt);
         String targetModel = (model != null && !model.isEmpty()) ? model : defaultModel;
 
         log.info("模型: {}", targetModel);
@@ -72,7 +120,6 @@ public class ErnieAIService implements AIService {
         log.info("用户提示词长度: {} 字符", prompt != null ? prompt.length() : 0);
         log.info("temperature={}, maxTokens={}", tempValue, maxTokenValue);
         
-        CloseableHttpClient httpClient = null;
         CloseableHttpResponse response = null;
         
         try {
@@ -90,18 +137,11 @@ public class ErnieAIService implements AIService {
             log.info("请求体大小: {} 字符", jsonBody.length());
             log.debug("请求体内容: {}", jsonBody);
 
-            httpClient = HttpClients.createDefault();
-            HttpPost httpPost = new HttpPost(url);
-            httpPost.setHeader("Content-Type", "application/json");
-            httpPost.setHeader("Authorization", "Bearer " + apiKey);
-            if (appId != null && !appId.isEmpty()) {
-                httpPost.setHeader("appid", appId);
-            }
-            httpPost.setEntity(new StringEntity(jsonBody, "UTF-8"));
+            HttpPost httpPost = createHttpPost(url, apiKey, appId, jsonBody);
 
             log.info("发送HTTP请求...");
             long requestStartTime = System.currentTimeMillis();
-            response = httpClient.execute(httpPost);
+            response = aiHttpClient.execute(httpPost);
             long requestTime = System.currentTimeMillis() - requestStartTime;
             log.info("HTTP请求完成，耗时: {} ms", requestTime);
             
@@ -111,7 +151,7 @@ public class ErnieAIService implements AIService {
             if (statusCode != 200) {
                 String errorBody = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
                 log.error("HTTP请求失败，状态码: {}, 响应: {}", statusCode, errorBody);
-                return "HTTP请求失败: " + statusCode + " - " + errorBody;
+                return new AICompletion("HTTP请求失败: " + statusCode + " - " + errorBody, false);
             }
             
             HttpEntity entity = response.getEntity();
@@ -126,7 +166,7 @@ public class ErnieAIService implements AIService {
                 String errorMsg = "错误: " + error.getString("message");
                 log.error("AI调用失败: {}", errorMsg);
                 log.error("错误详情: {}", error.toJSONString());
-                return errorMsg;
+                return new AICompletion(errorMsg, false);
             }
 
             String result = null;
@@ -145,192 +185,44 @@ public class ErnieAIService implements AIService {
                 log.info("AI调用成功，返回内容长度: {} 字符", result.length());
                 log.info("总耗时: {} ms", totalTime);
                 log.info("========== ERNIE AI 调用结束 ==========");
-                return result;
+                return new AICompletion(result, false, false,
+                        parseUsage(jsonResponse.getJSONObject("usage"), systemPrompt, prompt, result));
             } else {
                 log.error("无法解析响应: {}", responseBody);
-                return "未知错误: " + responseBody;
+                return new AICompletion("未知错误: " + responseBody, false);
             }
 
         } catch (Exception e) {
             long totalTime = System.currentTimeMillis() - startTime;
             log.error("AI调用异常，耗时: {} ms", totalTime, e);
             log.error("异常信息: {}", e.getMessage());
-            return "调用AI服务失败: " + e.getMessage();
+            return new AICompletion("调用AI服务失败: " + e.getMessage(), false);
         } finally {
-            closeResources(httpClient, response);
+            closeResponse(response);
         }
     }
 
     /**
-     * 流式生成内容
+     * 流式生成内容（不需要增量回调）
      */
     private String generateContentStream(String prompt, String systemPrompt,
                                         Double temperature, Integer maxTokens,
                                         String model) {
-        long startTime = System.currentTimeMillis();
-        log.info("========== ERNIE AI 调用开始（流式）==========");
-        String defaultModel = aiConfig.getErnie().getModel();
-        double tempValue = temperature != null ? temperature : 0.7;
-        int maxTokenValue = 12288;
-        String targetModel = (model != null && !model.isEmpty()) ? model : defaultModel;
-
-        log.info("模型: {}", targetModel);
-        log.info("系统提示词: {}", systemPrompt != null ? systemPrompt.substring(0, Math.min(100, systemPrompt.length())) + "..." : "无");
-        log.info("用户提示词长度: {} 字符", prompt != null ? prompt.length() : 0);
-        log.info("temperature={}, maxTokens={}", tempValue, maxTokenValue);
-        
-        CloseableHttpClient httpClient = null;
-        CloseableHttpResponse response = null;
-        BufferedReader reader = null;
-        
-        try {
-            String url = aiConfig.getErnie().getApiUrl();
-            String apiKey = aiConfig.getErnie().getApiKey();
-            String appId = aiConfig.getErnie().getAppId();
-            
-            log.info("API URL: {}", url);
-            log.info("App ID: {}", appId);
-            log.info("模型名称: {}", targetModel);
-
-            Map<String, Object> requestBody = buildRequestBody(prompt, systemPrompt, targetModel, tempValue, maxTokenValue, true);
-
-            String jsonBody = JSON.toJSONString(requestBody);
-            log.info("请求体大小: {} 字符", jsonBody.length());
-            log.debug("请求体内容: {}", jsonBody);
-
-            httpClient = HttpClients.createDefault();
-            HttpPost httpPost = new HttpPost(url);
-            httpPost.setHeader("Content-Type", "application/json");
-            httpPost.setHeader("Authorization", "Bearer " + apiKey);
-            if (appId != null && !appId.isEmpty()) {
-                httpPost.setHeader("appid", appId);
-            }
-            httpPost.setEntity(new StringEntity(jsonBody, "UTF-8"));
-
-            log.info("发送HTTP请求（流式）...");
-            long requestStartTime = System.currentTimeMillis();
-            response = httpClient.execute(httpPost);
-            long requestTime = System.currentTimeMillis() - requestStartTime;
-            log.info("HTTP请求完成，耗时: {} ms", requestTime);
-            
-            int statusCode = response.getStatusLine().getStatusCode();
-            log.info("HTTP状态码: {}", statusCode);
-            
-            if (statusCode != 200) {
-                String errorBody = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-                log.error("HTTP请求失败，状态码: {}, 响应: {}", statusCode, errorBody);
-                return "HTTP请求失败: " + statusCode + " - " + errorBody;
-            }
-            
-            HttpEntity entity = response.getEntity();
-            log.info("开始读取流式响应...");
-            
-            StringBuilder buffer = new StringBuilder();
-            int chunkCount = 0;
-            reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
-                
-                // 处理 SSE 格式: data: {...}
-                if (!line.startsWith("data:")) {
-                    log.debug("忽略非 data 行: {}", line);
-                    continue;
-                }
-                
-                String payload = line.substring(5).trim(); // 移除 "data:" 前缀
-                if (payload.isEmpty()) {
-                    continue;
-                }
-                log.info("接收到数据块: {}", payload);
-                // 检查结束标记
-                if ("[DONE]".equalsIgnoreCase(payload)) {
-                    log.info("接收到 [DONE]，结束读取");
-                    break;
-                }
-                
-                try {
-                    JSONObject chunk = JSON.parseObject(payload);
-                    chunkCount++;
-                    
-                    // 检查错误
-                    if (chunk.containsKey("error")) {
-                        JSONObject error = chunk.getJSONObject("error");
-                        String errorMsg = "错误: " + error.getString("message");
-                        log.error("AI流式调用失败: {}", errorMsg);
-                        log.error("错误详情: {}", error.toJSONString());
-                        return errorMsg;
-                    }
-                    
-                    // 解析 choices
-                    if (chunk.containsKey("choices")) {
-                        for (int i = 0; i < chunk.getJSONArray("choices").size(); i++) {
-                            JSONObject choice = chunk.getJSONArray("choices").getJSONObject(i);
-                            if (choice == null) {
-                                continue;
-                            }
-                            
-                            // 优先使用 delta.content（流式增量）
-                            JSONObject delta = choice.getJSONObject("delta");
-                            if (delta != null) {
-                                String deltaContent = delta.getString("content");
-                                if (deltaContent != null && !deltaContent.isEmpty()) {
-                                    buffer.append(deltaContent);
-                                }
-                            }
-                            
-                            // 如果有完整的 message，也提取（某些情况下会发送完整消息）
-                            JSONObject messageObj = choice.getJSONObject("message");
-                            if (messageObj != null) {
-                                String messageContent = messageObj.getString("content");
-                                if (messageContent != null && !messageContent.isEmpty()) {
-                                    // 避免重复追加
-                                    if (!buffer.toString().contains(messageContent)) {
-                                        buffer.append(messageContent);
-                                        log.debug("收到完整消息，内容长度: {}", messageContent.length());
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception ex) {
-                    log.warn("解析流式数据失败，chunk #{}: {}", chunkCount, payload, ex);
-                    // 继续处理下一行，不中断
-                }
-            }
-            
-            String result = buffer.toString();
-            long totalTime = System.currentTimeMillis() - startTime;
-            log.info("流式读取完成，共处理 {} 个 chunk，最终内容长度: {} 字符", chunkCount, result.length());
-            log.info("总耗时: {} ms", totalTime);
-            log.info("========== ERNIE AI 调用结束 ==========");
-            
-            if (result.isEmpty()) {
-                log.warn("流式响应为空，可能未正确解析");
-                return "流式响应为空";
-            }
-            
-            return result;
+        return generateContentStream(prompt, systemPrompt, temperature, maxTokens, model, null);
+    }
 
-        } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
-            log.error("AI流式调用异常，耗时: {} ms", totalTime, e);
-            log.error("异常信息: {}", e.getMessage(), e);
-            return "调用AI服务失败: " + e.getMessage();
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception e) {
-                    log.warn("关闭流式读取器失败", e);
-                }
-            }
-            closeResources(httpClient, response);
+    /**
+     * 构建HTTP请求
+     */
+    private HttpPost createHttpPost(String url, String apiKey, String appId, String jsonBody) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader("Content-Type", "application/json");
+        httpPost.setHeader("Authorization", "Bearer " + apiKey);
+        if (appId != null && !appId.isEmpty()) {
+            httpPost.setHeader("appid", appId);
         }
+        httpPost.setEntity(new StringEntity(jsonBody, "UTF-8"));
+        return httpPost;
     }
 
     /**
@@ -357,6 +249,10 @@ public class ErnieAIService implements AIService {
         requestBody.put("model", model != null ? model : "ernie-4.5-turbo-128k");
         requestBody.put("messages", messages);
         requestBody.put("stream", stream);
+        if (stream) {
+            // 流式响应的最后一个数据块携带 token 用量
+            requestBody.put("stream_options", Collections.singletonMap("include_usage", true));
+        }
         requestBody.put("temperature", temperature);
         requestBody.put("max_output_tokens", maxTokens);
 
@@ -374,7 +270,7 @@ public class ErnieAIService implements AIService {
         log.info("========== ERNIE AI 流式调用开始（实时回调）==========");
         String defaultModel = aiConfig.getErnie().getModel();
         double tempValue = temperature != null ? temperature : 0.7;
-        int maxTokenValue = 12288;
+        int maxTokenValue = resolveMaxTokens(maxTokens, systemPrompt, prompt);
         String targetModel = (model != null && !model.isEmpty()) ? model : defaultModel;
 
         log.info("模型: {}", targetModel);
@@ -382,9 +278,8 @@ public class ErnieAIService implements AIService {
         log.info("用户提示词长度: {} 字符", prompt != null ? prompt.length() : 0);
         log.info("temperature={}, maxTokens={}", tempValue, maxTokenValue);
         
-        CloseableHttpClient httpClient = null;
         CloseableHttpResponse response = null;
-        BufferedReader reader = null;
+        InputStream input = null;
         
         try {
             String url = aiConfig.getErnie().getApiUrl();
@@ -401,18 +296,11 @@ public class ErnieAIService implements AIService {
             log.info("请求体大小: {} 字符", jsonBody.length());
             log.debug("请求体内容: {}", jsonBody);
 
-            httpClient = HttpClients.createDefault();
-            HttpPost httpPost = new HttpPost(url);
-            httpPost.setHeader("Content-Type", "application/json");
-            httpPost.setHeader("Authorization", "Bearer " + apiKey);
-            if (appId != null && !appId.isEmpty()) {
-                httpPost.setHeader("appid", appId);
-            }
-            httpPost.setEntity(new StringEntity(jsonBody, "UTF-8"));
+            HttpPost httpPost = createHttpPost(url, apiKey, appId, jsonBody);
 
             log.info("发送HTTP请求（流式回调）...");
             long requestStartTime = System.currentTimeMillis();
-            response = httpClient.execute(httpPost);
+            response = aiHttpClient.execute(httpPost);
             long requestTime = System.currentTimeMillis() - requestStartTime;
             log.info("HTTP请求完成，耗时: {} ms", requestTime);
             
@@ -428,105 +316,27 @@ public class ErnieAIService implements AIService {
             HttpEntity entity = response.getEntity();
             log.info("开始读取流式响应（实时回调）...");
             
-            StringBuilder buffer = new StringBuilder();
-            int chunkCount = 0;
-            reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
-                
-                // 处理 SSE 格式: data: {...}
-                if (!line.startsWith("data:")) {
-                    log.debug("忽略非 data 行: {}", line);
-                    continue;
-                }
-                
-                String payload = line.substring(5).trim(); // 移除 "data:" 前缀
-                if (payload.isEmpty()) {
-                    continue;
-                }
-                
-                // 检查结束标记
-                if ("[DONE]".equalsIgnoreCase(payload)) {
-                    log.info("接收到 [DONE]，结束读取");
-                    break;
-                }
-                
-                try {
-                    JSONObject chunk = JSON.parseObject(payload);
-                    chunkCount++;
-                    
-                    // 检查错误
-                    if (chunk.containsKey("error")) {
-                        JSONObject error = chunk.getJSONObject("error");
-                        String errorMsg = "错误: " + error.getString("message");
-                        log.error("AI流式调用失败: {}", errorMsg);
-                        log.error("错误详情: {}", error.toJSONString());
-                        return errorMsg;
-                    }
-                    
-                    // 解析 choices
-                    if (chunk.containsKey("choices")) {
-                        for (int i = 0; i < chunk.getJSONArray("choices").size(); i++) {
-                            JSONObject choice = chunk.getJSONArray("choices").getJSONObject(i);
-                            if (choice == null) {
-                                continue;
-                            }
-                            
-                            // 优先使用 delta.content（流式增量）
-                            JSONObject delta = choice.getJSONObject("delta");
-                            log.info("choices[{}]: {}", i, delta);
-                            if (delta != null) {
-                                String deltaContent = delta.getString("content");
-                                if (deltaContent != null && !deltaContent.isEmpty()) {
-                                    // fastjson 的 getString() 会自动解析 JSON 转义字符（\n, \t 等）
-                                    buffer.append(deltaContent);
-                                    // 立即调用回调函数，实现真正的流式传输
-                                    if (chunkConsumer != null) {
-                                        try {
-                                            chunkConsumer.accept(deltaContent);
-                                        } catch (Exception e) {
-                                            log.warn("回调函数执行失败", e);
-                                        }
-                                    }
-                                }
-                            }
-                            
-                            // 如果有完整的 message，也提取（某些情况下会发送完整消息）
-                            JSONObject messageObj = choice.getJSONObject("message");
-                            if (messageObj != null) {
-                                String messageContent = messageObj.getString("content");
-                                if (messageContent != null && !messageContent.isEmpty()) {
-                                    // 避免重复追加
-                                    if (!buffer.toString().contains(messageContent)) {
-                                        buffer.append(messageContent);
-                                        // 如果之前没有通过delta发送，现在发送完整消息
-                                        if (chunkConsumer != null && !buffer.toString().equals(messageContent)) {
-                                            try {
-                                                chunkConsumer.accept(messageContent);
-                                            } catch (Exception e) {
-                                                log.warn("回调函数执行失败", e);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception ex) {
-                    log.warn("解析流式数据失败，chunk #{}: {}", chunkCount, payload, ex);
-                    // 继续处理下一行，不中断
-                }
+            ErnieStreamParser parser = new ErnieStreamParser(chunkConsumer);
+            input = entity.getContent();
+            byte[] readBuffer = new byte[8192];
+            int read;
+            while (!parser.isFinished() && (read = input.read(readBuffer)) != -1) {
+                parser.feed(readBuffer, 0, read);
             }
-            
-            String result = buffer.toString();
+            parser.finish();
+            if (parser.getErrorMessage() != null) {
+                return parser.getErrorMessage();
+            }
+            int chunkCount = parser.getChunkCount();
+
+            // 读完剩余数据，使连接可以被连接池复用
+            EntityUtils.consumeQuietly(entity);
+
+            String result = parser.getContent();
             long totalTime = System.currentTimeMillis() - startTime;
             log.info("流式读取完成，共处理 {} 个 chunk，最终内容长度: {} 字符", chunkCount, result.length());
             log.info("总耗时: {} ms", totalTime);
+            logStreamLatency(startTime, parser);
             log.info("========== ERNIE AI 流式调用结束 ==========");
             
             if (result.isEmpty()) {
@@ -542,21 +352,224 @@ public class ErnieAIService implements AIService {
             log.error("异常信息: {}", e.getMessage(), e);
             return "调用AI服务失败: " + e.getMessage();
         } finally {
-            if (reader != null) {
+            if (input != null) {
                 try {
-                    reader.close();
+                    input.close();
                 } catch (Exception e) {
                     log.warn("关闭流式读取器失败", e);
                 }
             }
-            closeResources(httpClient, response);
+            closeResponse(response);
+        }
+    }
+
+    /**
+     * 异步流式生成内容：基于非阻塞HTTP客户端，等待上游生成期间不占用任何线程
+     */
+    @Override
+    public CompletableFuture<AICompletion> generateContentAsync(String prompt, String systemPrompt,
+                                                                Double temperature, Integer maxTokens,
+                                                                String model, Consumer<String> chunkConsumer) {
+        long startTime = System.currentTimeMillis();
+        log.info("========== ERNIE AI 异步流式调用开始 ==========");
+        String defaultModel = aiConfig.getErnie().getModel();
+        double tempValue = temperature != null ? temperature : 0.7;
+        int maxTokenValue = resolveMaxTokens(maxTokens, systemPrompt, prompt);
+        String targetModel = (model != null && !model.isEmpty()) ? model : defaultModel;
+
+        log.info("模型: {}", targetModel);
+        log.info("用户提示词长度: {} 字符", prompt != null ? prompt.length() : 0);
+        log.info("temperature={}, maxTokens={}", tempValue, maxTokenValue);
+
+        CompletableFuture<AICompletion> resultFuture = new CompletableFuture<>();
+        // 上游调用名额已满时排队，取得名额后再发起；排队中被取消的调用不再发起
+        UpstreamCallLimiter.Call call = upstreamCallLimiter.submit(() -> execute(resultFuture, startTime, prompt, systemPrompt,
+                targetModel, tempValue, maxTokenValue, chunkConsumer));
+        resultFuture.whenComplete((result, ex) -> {
+            if (resultFuture.isCancelled()) {
+                upstreamCallLimiter.cancel(call);
+            }
+        });
+        return resultFuture;
+    }
+
+    /**
+     * 取得上游调用名额后发起异步请求，请求结束（完成、失败或取消）时释放名额
+     */
+    private void execute(CompletableFuture<AICompletion> resultFuture, long startTime, String prompt, String systemPrompt,
+                         String targetModel, double tempValue, int maxTokenValue, Consumer<String> chunkConsumer) {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                upstreamCallLimiter.release();
+            }
+        };
+        if (resultFuture.isDone()) {
+            release.run();
+            return;
+        }
+        try {
+            String url = aiConfig.getErnie().getApiUrl();
+            String apiKey = aiConfig.getErnie().getApiKey();
+            String appId = aiConfig.getErnie().getAppId();
+
+            Map<String, Object> requestBody = buildRequestBody(prompt, systemPrompt, targetModel, tempValue, maxTokenValue, true);
+            String jsonBody = JSON.toJSONString(requestBody);
+            log.info("请求体大小: {} 字符", jsonBody.length());
+            log.debug("请求体内容: {}", jsonBody);
+
+            HttpPost httpPost = createHttpPost(url, apiKey, appId, jsonBody);
+            StreamResponseConsumer responseConsumer = new StreamResponseConsumer(chunkConsumer);
+            Future<String> httpFuture = aiHttpAsyncClient.execute(
+                    HttpAsyncMethods.create(httpPost),
+                    responseConsumer,
+                    new FutureCallback<String>() {
+                        @Override
+                        public void completed(String result) {
+                            release.run();
+                            long totalTime = System.currentTimeMillis() - startTime;
+                            log.info("异步流式调用完成，最终内容长度: {} 字符，总耗时: {} ms", result.length(), totalTime);
+                            logStreamLatency(startTime, responseConsumer.parser);
+                            if (result.isEmpty()) {
+                                log.warn("流式响应为空，可能未正确解析");
+                                resultFuture.complete(new AICompletion("流式响应为空", false));
+                            } else if (AIService.isErrorResult(result)) {
+                                resultFuture.complete(new AICompletion(result, false));
+                            } else {
+                                resultFuture.complete(new AICompletion(result, false, false,
+                                        responseConsumer.usage(systemPrompt, prompt, result),
+                                        responseConsumer.parser.getFirstContentTime()));
+                            }
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            release.run();
+                            long totalTime = System.currentTimeMillis() - startTime;
+                            log.error("AI异步流式调用异常，耗时: {} ms", totalTime, e);
+                            resultFuture.complete(new AICompletion("调用AI服务失败: " + e.getMessage(), false));
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            release.run();
+                            log.info("AI异步流式调用已取消，耗时: {} ms", System.currentTimeMillis() - startTime);
+                            resultFuture.cancel(false);
+                        }
+                    });
+            // 调用方取消时中断上游请求，释放连接
+            resultFuture.whenComplete((result, ex) -> {
+                if (resultFuture.isCancelled()) {
+                    httpFuture.cancel(true);
+                }
+            });
+        } catch (Exception e) {
+            release.run();
+            log.error("AI异步流式调用提交失败", e);
+            resultFuture.complete(new AICompletion("调用AI服务失败: " + e.getMessage(), false));
+        }
+    }
+
+    /**
+     * 增量消费SSE响应：收到的字节直接交给 ErnieStreamParser 解析并回调增量内容
+     */
+    private class StreamResponseConsumer extends AsyncByteConsumer<String> {
+        private final ErnieStreamParser parser;
+        private final ByteArrayOutputStream errorBody = new ByteArrayOutputStream(256);
+        private int statusCode;
+
+        StreamResponseConsumer(Consumer<String> chunkConsumer) {
+            this.parser = new ErnieStreamParser(chunkConsumer);
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            statusCode = response.getStatusLine().getStatusCode();
+            log.info("HTTP状态码: {}", statusCode);
+        }
+
+        @Override
+        protected void onByteReceived(ByteBuffer buf, IOControl ioctrl) {
+            if (statusCode != 200) {
+                while (buf.hasRemaining()) {
+                    errorBody.write(buf.get());
+                }
+                return;
+            }
+            parser.feed(buf);
+        }
+
+        @Override
+        protected String buildResult(HttpContext context) {
+            if (statusCode != 200) {
+                String body = new String(errorBody.toByteArray(), StandardCharsets.UTF_8);
+                log.error("HTTP请求失败，状态码: {}, 响应: {}", statusCode, body);
+                return "HTTP请求失败: " + statusCode + " - " + body;
+            }
+            parser.finish();
+            if (parser.getErrorMessage() != null) {
+                return parser.getErrorMessage();
+            }
+            log.info("异步流式读取完成，共处理 {} 个 chunk", parser.getChunkCount());
+            return parser.getContent();
+        }
+
+        TokenUsage usage(String systemPrompt, String prompt, String result) {
+            if (parser.hasUsage()) {
+                return new TokenUsage(parser.getPromptTokens(), parser.getCompletionTokens(), true);
+            }
+            return TokenUsage.estimate(systemPrompt, prompt, result);
         }
     }
 
     /**
-     * 关闭HTTP资源
+     * 流式调用的首token耗时与输出速度（收到第一段内容之后的生成速度，需要上游返回 usage）。
+     * 同步流式调用只输出到日志；记录用量的接口使用 generateCompletion 或 generateContentAsync，由后者的 AICompletion 带回首token时间
      */
-    private void closeResources(CloseableHttpClient httpClient, CloseableHttpResponse response) {
+    private void logStreamLatency(long startTime, ErnieStreamParser parser) {
+        long firstContentTime = parser.getFirstContentTime();
+        if (firstContentTime == 0) {
+            return;
+        }
+        long generationTime = System.currentTimeMillis() - firstContentTime;
+        if (parser.hasUsage() && generationTime > 0) {
+            log.info("首token耗时: {} ms，输出速度: {} tokens/s", firstContentTime - startTime,
+                    Math.round(parser.getCompletionTokens() * 1000.0 / generationTime));
+        } else {
+            log.info("首token耗时: {} ms", firstContentTime - startTime);
+        }
+    }
+
+    /**
+     * 确定输出 token 上限：未指定时使用默认上限，且不超过上下文窗口扣除提示词后的剩余空间
+     */
+    private int resolveMaxTokens(Integer maxTokens, String systemPrompt, String prompt) {
+        AIConfig.TokenConfig config = aiConfig.getTokens();
+        int requested = maxTokens != null ? maxTokens : config.getMaxOutputTokens();
+        int promptTokens = TokenCounter.countPrompt(systemPrompt, prompt);
+        int available = config.getContextWindow() - promptTokens;
+        if (requested > available) {
+            int adjusted = Math.max(config.getMinOutputTokens(), available);
+            log.info("提示词约 {} tokens，输出上限由 {} 调整为 {}", promptTokens, requested, adjusted);
+            return adjusted;
+        }
+        return requested;
+    }
+
+    /**
+     * 读取响应中的 usage 字段，上游未返回时按 TokenCounter 估算
+     */
+    private TokenUsage parseUsage(JSONObject usage, String systemPrompt, String prompt, String result) {
+        if (usage != null && usage.containsKey("prompt_tokens")) {
+            return new TokenUsage(usage.getIntValue("prompt_tokens"), usage.getIntValue("completion_tokens"), true);
+        }
+        return TokenUsage.estimate(systemPrompt, prompt, result);
+    }
+
+    /**
+     * 关闭HTTP响应，连接归还连接池
+     */
+    private void closeResponse(CloseableHttpResponse response) {
         if (response != null) {
             try {
                 response.close();
@@ -564,13 +577,6 @@ public class ErnieAIService implements AIService {
                 log.warn("关闭HTTP响应失败", e);
             }
         }
-        if (httpClient != null) {
-            try {
-                httpClient.close();
-            } catch (Exception e) {
-                log.warn("关闭HTTP客户端失败", e);
-            }
-        }
     }
 
     @Override
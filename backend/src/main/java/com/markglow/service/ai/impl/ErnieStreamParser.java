@@ -0,0 +1,672 @@
+package com.markglow.service.ai.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * ERNIE 流式响应解析器：直接在字节上切分 SSE 行，并顺序扫描 data: 负载的 JSON，
+ * 只取出 choices[].delta.content、choices[].message.content、usage 与 error.message，
+ * 不构建 JSONObject 树。同步与异步流式调用共用。
+ *
+ * 完整 message 与已输出内容的去重：记录每段增量开始处的偏移和内容哈希，
+ * 判断 message 是否等于从某个增量边界开始的后缀（含整段输出），耗时只与 message 长度有关。
+ * 非线程安全，每次调用创建一个。
+ */
+@Slf4j
+public class ErnieStreamParser {
+
+    private static final byte[] DATA = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_CHOICES = "choices".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_DELTA = "delta".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_MESSAGE = "message".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_CONTENT = "content".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_USAGE = "usage".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_ERROR = "error".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_PROMPT_TOKENS = "prompt_tokens".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_COMPLETION_TOKENS = "completion_tokens".getBytes(StandardCharsets.US_ASCII);
+
+    private final Consumer<String> chunkConsumer;
+    private final StringBuilder content = new StringBuilder();
+
+    /**
+     * 跨读取块的不完整行
+     */
+    private byte[] pending = new byte[1024];
+    private int pendingLength;
+
+    /**
+     * 当前解析的 JSON 负载
+     */
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private final StringBuilder escaped = new StringBuilder();
+
+    /**
+     * 各段增量开始处的偏移与此前内容的哈希（与 String.hashCode 相同算法）
+     */
+    private int[] boundaryOffsets = new int[64];
+    private int[] boundaryHashes = new int[64];
+    private int boundaryCount;
+    private int contentHash;
+
+    private int promptTokens = -1;
+    private int completionTokens = -1;
+    private String errorMessage;
+    private boolean finished;
+    private int chunkCount;
+    private long firstContentTime;
+    private boolean consumerFailed;
+
+    /**
+     * @param chunkConsumer 增量内容回调，可为 null
+     */
+    public ErnieStreamParser(Consumer<String> chunkConsumer) {
+        this.chunkConsumer = chunkConsumer;
+    }
+
+    /**
+     * 输入一段响应字节，完整的行立即解析（直接在输入数组上解析，不拷贝）
+     */
+    public void feed(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int lineStart = offset;
+        for (int i = offset; i < end && !finished; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+            if (pendingLength == 0) {
+                handleLine(data, lineStart, i);
+            } else {
+                appendPending(data, lineStart, i);
+                handleLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            lineStart = i + 1;
+        }
+        if (!finished && lineStart < end) {
+            appendPending(data, lineStart, end);
+        }
+    }
+
+    public void feed(ByteBuffer data) {
+        if (data.hasArray()) {
+            feed(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            feed(copy, 0, copy.length);
+        }
+    }
+
+    /**
+     * 响应结束：解析最后一行（没有换行结尾时）
+     */
+    public void finish() {
+        if (!finished && pendingLength > 0) {
+            handleLine(pending, 0, pendingLength);
+        }
+        pendingLength = 0;
+    }
+
+    public String getContent() {
+        return content.toString();
+    }
+
+    public int getContentLength() {
+        return content.length();
+    }
+
+    /**
+     * 上游返回的错误信息（"错误: " 开头），无错误时为 null
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 是否已收到 [DONE] 或错误
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * 收到第一段非空内容的时间（毫秒时间戳），尚未收到时为 0
+     */
+    public long getFirstContentTime() {
+        return firstContentTime;
+    }
+
+    /**
+     * 是否收到了上游的 usage 字段
+     */
+    public boolean hasUsage() {
+        return promptTokens >= 0;
+    }
+
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public int getCompletionTokens() {
+        return Math.max(0, completionTokens);
+    }
+
+    private void appendPending(byte[] data, int start, int end) {
+        int length = end - start;
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        System.arraycopy(data, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private void handleLine(byte[] line, int start, int end) {
+        // 处理 SSE 格式: data: {...}
+        start = skipSpaces(line, start, end);
+        end = trimEnd(line, start, end);
+        if (!startsWith(line, start, end, DATA)) {
+            return;
+        }
+        start = skipSpaces(line, start + DATA.length, end);
+        if (start == end) {
+            return;
+        }
+        if (end - start == DONE.length && equalsIgnoreCase(line, start, DONE)) {
+            finished = true;
+            return;
+        }
+        buf = line;
+        pos = start;
+        limit = end;
+        chunkCount++;
+        try {
+            parseChunk();
+        } catch (RuntimeException ex) {
+            log.warn("解析流式数据失败，chunk #{}: {}", chunkCount,
+                    new String(line, start, end - start, StandardCharsets.UTF_8), ex);
+        } finally {
+            buf = null;
+        }
+    }
+
+    /**
+     * 顶层对象：只关心 error / usage / choices，其余字段跳过
+     */
+    private void parseChunk() {
+        expect('{');
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            int keyStart = keyStart();
+            int keyEnd = skipString();
+            expect(':');
+            if (keyIs(keyStart, keyEnd, KEY_ERROR)) {
+                parseError();
+                if (finished) {
+                    return;
+                }
+            } else if (keyIs(keyStart, keyEnd, KEY_USAGE)) {
+                parseUsage();
+            } else if (keyIs(keyStart, keyEnd, KEY_CHOICES)) {
+                parseChoices();
+            } else {
+                skipValue();
+            }
+            if (!nextMember('}')) {
+                return;
+            }
+        }
+    }
+
+    private void parseError() {
+        if (peek() != '{') {
+            skipValue();
+            return;
+        }
+        String message = null;
+        pos++;
+        if (peek() == '}') {
+            pos++;
+        } else {
+            do {
+                int keyStart = keyStart();
+                int keyEnd = skipString();
+                expect(':');
+                if (keyIs(keyStart, keyEnd, KEY_MESSAGE) && peek() == '"') {
+                    message = readString();
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+        errorMessage = "错误: " + message;
+        finished = true;
+        log.error("AI流式调用失败: {}", errorMessage);
+    }
+
+    private void parseUsage() {
+        if (peek() != '{') {
+            skipValue();
+            return;
+        }
+        pos++;
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        do {
+            int keyStart = keyStart();
+            int keyEnd = skipString();
+            expect(':');
+            if (keyIs(keyStart, keyEnd, KEY_PROMPT_TOKENS)) {
+                promptTokens = readInt();
+            } else if (keyIs(keyStart, keyEnd, KEY_COMPLETION_TOKENS)) {
+                completionTokens = readInt();
+            } else {
+                skipValue();
+            }
+        } while (nextMember('}'));
+    }
+
+    private void parseChoices() {
+        if (peek() != '[') {
+            skipValue();
+            return;
+        }
+        pos++;
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        do {
+            if (peek() != '{') {
+                skipValue();
+                continue;
+            }
+            pos++;
+            if (peek() == '}') {
+                pos++;
+                continue;
+            }
+            String deltaContent = null;
+            String messageContent = null;
+            do {
+                int keyStart = keyStart();
+                int keyEnd = skipString();
+                expect(':');
+                if (keyIs(keyStart, keyEnd, KEY_DELTA)) {
+                    deltaContent = readContentField();
+                } else if (keyIs(keyStart, keyEnd, KEY_MESSAGE)) {
+                    messageContent = readContentField();
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+            // 优先使用 delta.content（流式增量）
+            if (deltaContent != null && !deltaContent.isEmpty()) {
+                appendContent(deltaContent);
+            }
+            // 如果有完整的 message，也提取（某些情况下会发送完整消息），已输出过的不重复追加
+            if (messageContent != null && !messageContent.isEmpty() && !endsWithSegment(messageContent)) {
+                appendContent(messageContent);
+            }
+        } while (nextMember(']'));
+    }
+
+    /**
+     * 读取 {"content": "..."} 中的 content，值不是对象或没有 content 时返回 null
+     */
+    private String readContentField() {
+        if (peek() != '{') {
+            skipValue();
+            return null;
+        }
+        pos++;
+        if (peek() == '}') {
+            pos++;
+            return null;
+        }
+        String value = null;
+        do {
+            int keyStart = keyStart();
+            int keyEnd = skipString();
+            expect(':');
+            if (keyIs(keyStart, keyEnd, KEY_CONTENT) && peek() == '"') {
+                value = readString();
+            } else {
+                skipValue();
+            }
+        } while (nextMember('}'));
+        return value;
+    }
+
+    private void appendContent(String piece) {
+        if (boundaryCount == boundaryOffsets.length) {
+            boundaryOffsets = Arrays.copyOf(boundaryOffsets, boundaryCount * 2);
+            boundaryHashes = Arrays.copyOf(boundaryHashes, boundaryCount * 2);
+        }
+        boundaryOffsets[boundaryCount] = content.length();
+        boundaryHashes[boundaryCount] = contentHash;
+        boundaryCount++;
+        int hash = contentHash;
+        for (int i = 0, n = piece.length(); i < n; i++) {
+            hash = 31 * hash + piece.charAt(i);
+        }
+        contentHash = hash;
+        if (firstContentTime == 0 && !piece.isEmpty()) {
+            firstContentTime = System.currentTimeMillis();
+        }
+        content.append(piece);
+        if (chunkConsumer != null && !consumerFailed) {
+            try {
+                chunkConsumer.accept(piece);
+            } catch (Exception e) {
+                // 回调失败（如客户端已断开）后不再回调，继续解析以得到完整内容
+                consumerFailed = true;
+                log.warn("回调函数执行失败，之后的增量不再回调: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 已输出内容是否以 text 结尾且 text 从某段增量的开头开始：
+     * 按哈希比较后再逐字符确认，耗时与已输出内容长度无关
+     */
+    private boolean endsWithSegment(String text) {
+        int length = text.length();
+        int start = content.length() - length;
+        if (start < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(boundaryOffsets, 0, boundaryCount, start);
+        if (index < 0) {
+            return false;
+        }
+        // hash(content) = hash(prefix) * 31^length + hash(suffix)
+        if (contentHash - boundaryHashes[index] * pow31(length) != text.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (content.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int pow31(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    // ---------- JSON 扫描 ----------
+
+    private byte peek() {
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b;
+            }
+            pos++;
+        }
+        throw new IllegalStateException("JSON 不完整");
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw new IllegalStateException("JSON 格式错误，位置 " + pos + " 应为 '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * 成员之间的逗号或结束符：有下一个成员返回 true
+     */
+    private boolean nextMember(char close) {
+        byte b = peek();
+        pos++;
+        if (b == ',') {
+            return true;
+        }
+        if (b == close) {
+            return false;
+        }
+        throw new IllegalStateException("JSON 格式错误，位置 " + (pos - 1));
+    }
+
+    /**
+     * 成员名的开始位置（跳过逗号后的空白，pos 停在开始引号上）
+     */
+    private int keyStart() {
+        peek();
+        return pos + 1;
+    }
+
+    private boolean keyIs(int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buf[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 跳过字符串，返回结束引号的位置（pos 移到引号之后）
+     */
+    private int skipString() {
+        expect('"');
+        while (pos < limit) {
+            byte b = buf[pos++];
+            if (b == '"') {
+                return pos - 1;
+            }
+            if (b == '\\') {
+                pos++;
+            }
+        }
+        throw new IllegalStateException("JSON 字符串未结束");
+    }
+
+    private void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            skipString();
+            return;
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < limit) {
+                b = buf[pos];
+                if (b == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return;
+                }
+            }
+            throw new IllegalStateException("JSON 不完整");
+        }
+        // 数字、true、false、null
+        while (pos < limit) {
+            b = buf[pos];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private int readInt() {
+        if (peek() == 'n') {
+            skipValue();
+            return -1;
+        }
+        long value = 0;
+        boolean negative = buf[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos++] - '0');
+        }
+        // 忽略小数部分与指数
+        skipValue();
+        return (int) Math.min(Integer.MAX_VALUE, negative ? -value : value);
+    }
+
+    /**
+     * 读取字符串：没有转义时直接按 UTF-8 解码整段；
+     * 有转义时逐段解码（UTF-8 多字节序列中不会出现引号和反斜杠字节，按转义位置切分是安全的）
+     */
+    private String readString() {
+        expect('"');
+        int start = pos;
+        int runStart = start;
+        escaped.setLength(0);
+        boolean hasEscape = false;
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String value;
+                if (!hasEscape) {
+                    value = new String(buf, start, pos - start, StandardCharsets.UTF_8);
+                } else {
+                    appendUtf8(runStart, pos);
+                    value = escaped.toString();
+                }
+                pos++;
+                return value;
+            }
+            if (b != '\\') {
+                pos++;
+                continue;
+            }
+            hasEscape = true;
+            appendUtf8(runStart, pos);
+            if (pos + 1 >= limit) {
+                break;
+            }
+            byte e = buf[pos + 1];
+            pos += 2;
+            switch (e) {
+                case 'n':
+                    escaped.append('\n');
+                    break;
+                case 't':
+                    escaped.append('\t');
+                    break;
+                case 'r':
+                    escaped.append('\r');
+                    break;
+                case 'b':
+                    escaped.append('\b');
+                    break;
+                case 'f':
+                    escaped.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > limit) {
+                        throw new IllegalStateException("JSON 转义不完整");
+                    }
+                    escaped.append((char) Integer.parseInt(new String(buf, pos, 4, StandardCharsets.US_ASCII), 16));
+                    pos += 4;
+                    break;
+                default:
+                    // \" \\ \/
+                    escaped.append((char) e);
+                    break;
+            }
+            runStart = pos;
+        }
+        throw new IllegalStateException("JSON 字符串未结束");
+    }
+
+    private void appendUtf8(int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        boolean ascii = true;
+        for (int i = start; i < end; i++) {
+            if (buf[i] < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            for (int i = start; i < end; i++) {
+                escaped.append((char) buf[i]);
+            }
+        } else {
+            escaped.append(new String(buf, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int skipSpaces(byte[] line, int start, int end) {
+        while (start < end && (line[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] line, int start, int end) {
+        while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(byte[] line, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] line, int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            byte b = line[start + i];
+            if (b >= 'a' && b <= 'z') {
+                b -= 32;
+            }
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,377 @@
+package com.markglow.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.markglow.MarkGlowApplication;
+import com.markglow.service.ai.AIService;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 接口端到端压测：启动 MockLLMServer 与内嵌 H2 数据库的后端服务，
+ * 并发调用 /api/ai/beautify、/api/ai/stream 与文档接口，输出吞吐量与延迟分位数
+ *
+ * 使用方法：
+ * 1. mvn -Ploadtest test（离线运行，参数见 pom.xml 的 loadtest profile，可用 -Dloadtest.args="..." 覆盖）
+ * 2. 或直接运行 main 方法，可选参数（均为 --key=value）：
+ *    --concurrency=16        并发客户端数
+ *    --requests=200          每个场景的请求数（不含预热）
+ *    --warmup=20             每个场景的预热请求数
+ *    --scenarios=beautify,stream,documents
+ *    --content-chars=2000    请求中文档内容的字符数
+ *    --max-error-rate=0.05   任一场景错误率超过该值时以退出码 1 结束
+ *    以及 MockLLMServer 的参数（--latency-ms、--tokens-per-second、--error-rate、--payload-chars），端口自动分配
+ */
+public class AILoadTest {
+
+    private static final String SAMPLE = "# 压测文档\n\n这是一段用于压测的 Markdown 内容，包含中文与 English words。\n\n"
+            + "- 列表项一\n- 列表项二\n\n```java\nSystem.out.println(\"hello\");\n```\n\n";
+
+    private final CloseableHttpClient client;
+    private final String baseUrl;
+    private final String content;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+
+    private AILoadTest(String baseUrl, int concurrency, int contentChars) {
+        this.client = HttpClients.custom()
+                .setMaxConnTotal(concurrency * 2)
+                .setMaxConnPerRoute(concurrency * 2)
+                .build();
+        this.baseUrl = baseUrl;
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < contentChars) {
+            builder.append(SAMPLE);
+        }
+        builder.setLength(contentChars);
+        this.content = builder.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = MockLLMServer.Options.parseArgs(args);
+        int concurrency = Integer.parseInt(values.getOrDefault("concurrency", "16"));
+        int requests = Integer.parseInt(values.getOrDefault("requests", "200"));
+        int warmup = Integer.parseInt(values.getOrDefault("warmup", "20"));
+        int contentChars = Integer.parseInt(values.getOrDefault("content-chars", "2000"));
+        double maxErrorRate = Double.parseDouble(values.getOrDefault("max-error-rate", "0.05"));
+        List<String> scenarios = Arrays.asList(values.getOrDefault("scenarios", "beautify,stream,documents").split(","));
+
+        MockLLMServer.Options mockOptions = MockLLMServer.Options.parse(args);
+        mockOptions.setPort(0);
+        MockLLMServer mock = MockLLMServer.start(mockOptions);
+        System.out.println("模拟千帆接口: " + mock.getApiUrl());
+
+        // devtools 的重启类加载器会重新执行 main，压测时关闭
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = SpringApplication.run(MarkGlowApplication.class,
+                "--server.port=0",
+                "--ai.ernie.api-url=" + mock.getApiUrl(),
+                "--ai.ernie.api-key=mock",
+                "--ai.cache.enabled=false",
+                "--ai.cache.coalesce=false",
+                "--spring.datasource.url=jdbc:h2:mem:markglow;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=never",
+                "--logging.level.root=WARN",
+                "--logging.level.com.markglow=WARN",
+                "--logging.level.com.markglow.controller=WARN",
+                "--logging.level.com.markglow.service.ai=WARN",
+                "--logging.level.org.apache.catalina.loader=ERROR",
+                "--logging.file.name=");
+        int exitCode = 0;
+        try {
+            String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            AILoadTest test = new AILoadTest(baseUrl, concurrency, contentChars);
+            System.out.println("后端服务: " + baseUrl + "，并发: " + concurrency + "，每个场景请求数: " + requests);
+            for (String scenario : scenarios) {
+                test.run(scenario.trim(), concurrency, warmup, requests);
+            }
+            test.client.close();
+            exitCode = test.report(maxErrorRate);
+            System.out.println("模拟接口共收到 " + mock.getRequestCount() + " 个请求，注入错误 " + mock.getErrorCount() + " 个");
+        } finally {
+            context.close();
+            mock.stop();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * 执行一个场景：先预热（不计入结果），再由 concurrency 个线程共同完成 requests 次请求
+     */
+    private void run(String scenario, int concurrency, int warmup, int requests) throws InterruptedException {
+        Runnable iteration;
+        switch (scenario) {
+            case "beautify":
+                iteration = this::beautify;
+                break;
+            case "stream":
+                iteration = this::stream;
+                break;
+            case "documents":
+                iteration = this::documents;
+                break;
+            default:
+                System.out.println("未知场景: " + scenario);
+                return;
+        }
+        Set<String> previous = new HashSet<>(recorders.keySet());
+        System.out.println("场景 " + scenario + " 预热中...");
+        execute(iteration, concurrency, warmup);
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            if (!previous.contains(entry.getKey())) {
+                entry.getValue().reset();
+            }
+        }
+        System.out.println("场景 " + scenario + " 压测中...");
+        long start = System.nanoTime();
+        execute(iteration, concurrency, requests);
+        long elapsed = System.nanoTime() - start;
+        for (Recorder recorder : recorders.values()) {
+            if (recorder.elapsedNanos == 0 && recorder.count() > 0) {
+                recorder.elapsedNanos = elapsed;
+            }
+        }
+    }
+
+    private void execute(Runnable iteration, int concurrency, int requests) throws InterruptedException {
+        if (requests <= 0) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger remaining = new AtomicInteger(requests);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                try {
+                    while (remaining.getAndDecrement() > 0) {
+                        iteration.run();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void beautify() {
+        JSONObject body = new JSONObject();
+        body.put("content", content);
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            String response = execute(post("/api/ai/beautify", body), 200);
+            ok = response != null && !AIService.isErrorResult(JSON.parseObject(response).getString("result"));
+        } catch (Exception e) {
+            // 记为失败
+        }
+        recorder("beautify").record(System.nanoTime() - start, ok);
+    }
+
+    /**
+     * 读取完整的 SSE 响应，记录首个 chunk 的到达时间（TTFT）与总耗时
+     */
+    private void stream() {
+        JSONObject body = new JSONObject();
+        body.put("action", "beautify");
+        body.put("content", content);
+        long start = System.nanoTime();
+        long firstChunk = 0;
+        boolean ok = false;
+        try (CloseableHttpResponse response = client.execute(post("/api/ai/stream", body))) {
+            if (response.getStatusLine().getStatusCode() == 200) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("event:chunk") && firstChunk == 0) {
+                        firstChunk = System.nanoTime();
+                    } else if (line.startsWith("event:error")) {
+                        break;
+                    } else if (line.startsWith("event:end")) {
+                        // 上游返回错误时接口仍以 end 结束但没有任何 chunk，记为失败
+                        ok = firstChunk > 0;
+                    }
+                }
+            } else {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        } catch (Exception e) {
+            // 记为失败
+        }
+        long end = System.nanoTime();
+        recorder("stream").record(end - start, ok);
+        if (firstChunk > 0) {
+            recorder("stream.ttft").record(firstChunk - start, true);
+        }
+    }
+
+    /**
+     * 文档接口：创建、读取、更新、列表各一次
+     */
+    private void documents() {
+        JSONObject document = new JSONObject();
+        document.put("title", "压测文档 " + Thread.currentThread().getId());
+        document.put("originalContent", content);
+        long start = System.nanoTime();
+        String created = null;
+        try {
+            created = execute(post("/api/documents", document), 201);
+        } catch (Exception e) {
+            // 记为失败
+        }
+        recorder("documents.create").record(System.nanoTime() - start, created != null);
+        if (created == null) {
+            return;
+        }
+        Long id = JSON.parseObject(created).getLong("id");
+        timed("documents.get", () -> execute(new HttpGet(baseUrl + "/api/documents/" + id), 200));
+        document.put("originalContent", content + "\n\n更新于 " + System.currentTimeMillis());
+        timed("documents.update", () -> {
+            HttpPut put = new HttpPut(baseUrl + "/api/documents/" + id);
+            put.setEntity(new StringEntity(document.toJSONString(), ContentType.APPLICATION_JSON));
+            return execute(put, 200);
+        });
+        timed("documents.list", () -> execute(new HttpGet(baseUrl + "/api/documents"), 200));
+    }
+
+    private void timed(String name, Call call) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = call.run() != null;
+        } catch (Exception e) {
+            // 记为失败
+        }
+        recorder(name).record(System.nanoTime() - start, ok);
+    }
+
+    private HttpPost post(String path, JSONObject body) {
+        HttpPost post = new HttpPost(baseUrl + path);
+        post.setEntity(new StringEntity(body.toJSONString(), ContentType.APPLICATION_JSON));
+        return post;
+    }
+
+    /**
+     * 执行请求，状态码符合预期时返回响应体，否则返回 null
+     */
+    private String execute(HttpRequestBase request, int expectedStatus) throws Exception {
+        try (CloseableHttpResponse response = client.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+            return response.getStatusLine().getStatusCode() == expectedStatus ? body : null;
+        }
+    }
+
+    private Recorder recorder(String name) {
+        synchronized (recorders) {
+            return recorders.computeIfAbsent(name, key -> new Recorder());
+        }
+    }
+
+    /**
+     * 输出各场景的结果，返回退出码
+     */
+    private int report(double maxErrorRate) {
+        int exitCode = 0;
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-18s %8s %8s %10s %9s %9s %9s %9s",
+                "场景", "请求数", "错误数", "吞吐(次/秒)", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.sorted();
+            double seconds = recorder.elapsedNanos / 1e9;
+            System.out.println(String.format(Locale.ROOT, "%-18s %8d %8d %10.1f %9.1f %9.1f %9.1f %9.1f",
+                    entry.getKey(), recorder.count(), recorder.errors, seconds > 0 ? recorder.count() / seconds : 0,
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99), percentile(latencies, 100)));
+            double errorRate = recorder.count() > 0 ? (double) recorder.errors / recorder.count() : 0;
+            if (errorRate > maxErrorRate) {
+                System.out.println("  错误率 " + String.format(Locale.ROOT, "%.2f%%", errorRate * 100) + " 超过上限 "
+                        + String.format(Locale.ROOT, "%.2f%%", maxErrorRate * 100));
+                exitCode = 1;
+            }
+        }
+        return exitCode;
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private interface Call {
+        String run() throws Exception;
+    }
+
+    /**
+     * 单个场景的延迟记录（纳秒）
+     */
+    private static class Recorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private int errors;
+        private long elapsedNanos;
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized void reset() {
+            size = 0;
+            errors = 0;
+            elapsedNanos = 0;
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.markglow.test;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.markglow.service.ai.TokenCounter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地模拟的千帆 /v2/chat/completions 接口，用于压测与离线调试，不产生任何费用
+ * 支持非流式与 SSE 流式两种响应，格式与千帆 v2 接口一致（含 usage 与 [DONE]）
+ *
+ * 使用方法：
+ * 1. 运行 main 方法，可选参数（均为 --key=value）：
+ *    --port=18080            监听端口
+ *    --latency-ms=300        首个 token 前的等待时间
+ *    --tokens-per-second=60  输出速度，0 表示不限速
+ *    --error-rate=0          返回 HTTP 500 的比例（0~1）
+ *    --payload-chars=2000    每次回复的字符数（不超过请求的 max_output_tokens）
+ * 2. 将 ai.ernie.api-url 改为 http://localhost:18080/v2/chat/completions 后启动后端
+ */
+public class MockLLMServer {
+
+    private static final String[] LINES = {
+            "## 模拟输出 Mock Output\n\n",
+            "这是本地模拟服务返回的内容，用于压测 MarkGlow 的 AI 接口。\n\n",
+            "- The quick brown fox jumps over the lazy dog.\n",
+            "- 长文档会按章节切分后并发处理，最终结果按原文顺序拼接。\n\n",
+            "```java\nint total = count(document);\n```\n\n",
+            "> 引用：统计信息包括调用次数、token 用量以及按模型计算的费用。\n\n"
+    };
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private MockLLMServer(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.getPort()), 256);
+        // 流式响应会按输出速度占用线程，使用不限数量的线程池
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-llm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/v2/chat/completions", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * 启动模拟服务，端口为 0 时自动分配
+     */
+    public static MockLLMServer start(Options options) throws IOException {
+        MockLLMServer mock = new MockLLMServer(options);
+        mock.server.start();
+        return mock;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + getPort() + "/v2/chat/completions";
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", "{\"error\":{\"code\":\"405\",\"message\":\"method not allowed\"}}");
+                return;
+            }
+            JSONObject request = JSON.parseObject(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8));
+            sleep(TimeUnit.MILLISECONDS.toNanos(options.getLatencyMs()));
+            if (options.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.getErrorRate()) {
+                errorCount.incrementAndGet();
+                send(exchange, 500, "application/json", "{\"error\":{\"code\":\"500\",\"message\":\"mock upstream error\"}}");
+                return;
+            }
+            int promptTokens = countPromptTokens(request.getJSONArray("messages"));
+            int maxChars = request.containsKey("max_output_tokens")
+                    ? request.getIntValue("max_output_tokens") * options.getCharsPerToken() : Integer.MAX_VALUE;
+            String content = buildContent(Math.min(options.getPayloadChars(), maxChars));
+            if (request.getBooleanValue("stream")) {
+                JSONObject streamOptions = request.getJSONObject("stream_options");
+                stream(exchange, request.getString("model"), content, promptTokens,
+                        streamOptions != null && streamOptions.getBooleanValue("include_usage"));
+            } else {
+                sleep(tokenIntervalNanos() * tokenCount(content));
+                JSONObject message = new JSONObject(new LinkedHashMap<>());
+                message.put("role", "assistant");
+                message.put("content", content);
+                JSONObject choice = new JSONObject(new LinkedHashMap<>());
+                choice.put("index", 0);
+                choice.put("message", message);
+                choice.put("finish_reason", "stop");
+                JSONObject body = baseBody(request.getString("model"), "chat.completion");
+                body.put("choices", Collections.singletonList(choice));
+                body.put("usage", usage(promptTokens, tokenCount(content)));
+                send(exchange, 200, "application/json", body.toJSONString());
+            }
+        } catch (Exception e) {
+            errorCount.incrementAndGet();
+            try {
+                send(exchange, 500, "application/json", "{\"error\":{\"code\":\"500\",\"message\":\"" + e.getClass().getSimpleName() + "\"}}");
+            } catch (Exception ignored) {
+                // 客户端已断开
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 按输出速度逐个 token 发送 data: 行，结尾发送 usage 与 [DONE]
+     */
+    private void stream(HttpExchange exchange, String model, String content, int promptTokens, boolean includeUsage) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long interval = tokenIntervalNanos();
+        long next = System.nanoTime();
+        int tokens = 0;
+        int step = options.getCharsPerToken();
+        for (int pos = 0; pos < content.length(); ) {
+            int end = Math.min(content.length(), pos + step);
+            if (Character.isHighSurrogate(content.charAt(end - 1)) && end < content.length()) {
+                end++;
+            }
+            next += interval;
+            sleep(next - System.nanoTime());
+            JSONObject delta = new JSONObject(new LinkedHashMap<>());
+            delta.put("content", content.substring(pos, end));
+            JSONObject choice = new JSONObject(new LinkedHashMap<>());
+            choice.put("index", 0);
+            choice.put("delta", delta);
+            choice.put("flag", 0);
+            if (end == content.length()) {
+                choice.put("finish_reason", "stop");
+            }
+            JSONObject chunk = baseBody(model, "chat.completion.chunk");
+            chunk.put("choices", Collections.singletonList(choice));
+            writeEvent(out, chunk.toJSONString());
+            tokens++;
+            pos = end;
+        }
+        if (includeUsage) {
+            JSONObject chunk = baseBody(model, "chat.completion.chunk");
+            chunk.put("choices", new JSONArray());
+            chunk.put("usage", usage(promptTokens, tokens));
+            writeEvent(out, chunk.toJSONString());
+        }
+        writeEvent(out, "[DONE]");
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static JSONObject baseBody(String model, String object) {
+        JSONObject body = new JSONObject(new LinkedHashMap<>());
+        body.put("id", "as-mock" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        body.put("object", object);
+        body.put("created", System.currentTimeMillis() / 1000);
+        body.put("model", model);
+        return body;
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    private static int countPromptTokens(JSONArray messages) {
+        int tokens = 0;
+        if (messages != null) {
+            for (int i = 0; i < messages.size(); i++) {
+                tokens += TokenCounter.count(messages.getJSONObject(i).getString("content")) + TokenCounter.MESSAGE_OVERHEAD;
+            }
+        }
+        return tokens;
+    }
+
+    private int tokenCount(String content) {
+        return (content.length() + options.getCharsPerToken() - 1) / options.getCharsPerToken();
+    }
+
+    private long tokenIntervalNanos() {
+        return options.getTokensPerSecond() > 0 ? TimeUnit.SECONDS.toNanos(1) / options.getTokensPerSecond() : 0;
+    }
+
+    private static String buildContent(int chars) {
+        StringBuilder builder = new StringBuilder(chars + 64);
+        for (int i = 0; builder.length() < chars; i++) {
+            builder.append(LINES[i % LINES.length]);
+        }
+        builder.setLength(Math.max(0, chars));
+        return builder.toString();
+    }
+
+    private static void sleep(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+            nanos = deadline - System.nanoTime();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + ";charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        MockLLMServer mock = start(options);
+        System.out.println("模拟千帆接口已启动: " + mock.getApiUrl());
+        System.out.println("latency-ms=" + options.getLatencyMs() + ", tokens-per-second=" + options.getTokensPerSecond()
+                + ", error-rate=" + options.getErrorRate() + ", payload-chars=" + options.getPayloadChars());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * 模拟服务参数
+     */
+    public static class Options {
+        private int port = 18080;
+        private long latencyMs = 300;
+        private int tokensPerSecond = 60;
+        private double errorRate = 0;
+        private int payloadChars = 2000;
+        private int charsPerToken = 2;
+
+        /**
+         * 解析 --key=value 形式的参数，未识别的参数忽略
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            Map<String, String> values = parseArgs(args);
+            options.port = Integer.parseInt(values.getOrDefault("port", String.valueOf(options.port)));
+            options.latencyMs = Long.parseLong(values.getOrDefault("latency-ms", String.valueOf(options.latencyMs)));
+            options.tokensPerSecond = Integer.parseInt(values.getOrDefault("tokens-per-second", String.valueOf(options.tokensPerSecond)));
+            options.errorRate = Double.parseDouble(values.getOrDefault("error-rate", String.valueOf(options.errorRate)));
+            options.payloadChars = Integer.parseInt(values.getOrDefault("payload-chars", String.valueOf(options.payloadChars)));
+            options.charsPerToken = Math.max(1, Integer.parseInt(values.getOrDefault("chars-per-token", String.valueOf(options.charsPerToken))));
+            return options;
+        }
+
+        static Map<String, String> parseArgs(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.startsWith("--") && arg.contains("=")) {
+                    int eq = arg.indexOf('=');
+                    values.put(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            }
+            return values;
+        }
+
+        // Getters and Setters
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+
+        public long getLatencyMs() { return latencyMs; }
+        public void setLatencyMs(long latencyMs) { this.latencyMs = latencyMs; }
+
+        public int getTokensPerSecond() { return tokensPerSecond; }
+        public void setTokensPerSecond(int tokensPerSecond) { this.tokensPerSecond = tokensPerSecond; }
+
+        public double getErrorRate() { return errorRate; }
+        public void setErrorRate(double errorRate) { this.errorRate = errorRate; }
+
+        public int getPayloadChars() { return payloadChars; }
+        public void setPayloadChars(int payloadChars) { this.payloadChars = payloadChars; }
+
+        public int getCharsPerToken() { return charsPerToken; }
+        public void setCharsPerToken(int charsPerToken) { this.charsPerToken = charsPerToken; }
+    }
+}
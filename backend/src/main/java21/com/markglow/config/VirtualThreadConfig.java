@@ -0,0 +1,30 @@
+package com.markglow.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程执行模式（仅 -Pjdk21 构建）：Tomcat 为每个请求创建一个虚拟线程，
+ * AIController 的处理方法以及 ErnieAIService 的阻塞HTTP调用在等待上游时不再占用平台线程，
+ * 请求并发不再受 server.tomcat.threads.max 限制；同步调用的并发上限为 ai.http.virtual-thread-max-per-route（见 AIHttpClientConfig）
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ai.execution", name = "virtual-threads", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            PoolingHttpClientConnectionManager aiHttpConnectionManager) {
+        log.info("启用虚拟线程执行模式，上游连接池上限: maxTotal={}, maxPerRoute={}",
+                aiHttpConnectionManager.getMaxTotal(), aiHttpConnectionManager.getDefaultMaxPerRoute());
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,165 @@
+package com.markglow.test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.markglow.config.AIConfig;
+import com.markglow.config.AIHttpClientConfig;
+import com.markglow.service.ai.UpstreamCallLimiter;
+import com.markglow.service.ai.impl.ErnieAIService;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程并发对比压测（需 JDK 21）
+ * 在本地启动一个固定延迟的模拟千帆接口，通过真实的 ErnieAIService 与共享连接池发起阻塞调用，
+ * 对比「平台线程池（相当于 Tomcat 默认 200 个工作线程）」与「每个请求一个虚拟线程」两种模型。
+ * 连接池使用默认配置：平台线程模式为 ai.http.max-per-route（200），
+ * 虚拟线程模式与 ai.execution.virtual-threads=true 时一致，为 ai.http.virtual-thread-max-per-route（1000），
+ * 连接用满时等待空出的连接。请求数超过连接上限时，吞吐量受连接上限与上游延迟限制
+ *
+ * 使用方法：
+ * 1. mvn -Pjdk21 compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * 2. java -cp target/classes:$(cat target/cp.txt) com.markglow.test.VirtualThreadLoadTest [请求数] [上游延迟ms] [平台线程数]
+ */
+public class VirtualThreadLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int platformThreads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        HttpServer server = startMockServer(latencyMs, inFlight, peakInFlight);
+        String apiUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v2/chat/completions";
+
+        try (AnnotationConfigApplicationContext platformContext = createContext(apiUrl, false);
+             AnnotationConfigApplicationContext virtualContext = createContext(apiUrl, true)) {
+            ErnieAIService platformService = platformContext.getBean(ErnieAIService.class);
+            ErnieAIService virtualService = virtualContext.getBean(ErnieAIService.class);
+            // 预热连接与JIT
+            runLoad(platformService, Executors.newFixedThreadPool(platformThreads), 50, inFlight, peakInFlight);
+            runLoad(virtualService, Executors.newVirtualThreadPerTaskExecutor(), 50, inFlight, peakInFlight);
+
+            System.out.println("========== 虚拟线程并发对比压测 ==========");
+            System.out.printf("请求数: %d，上游延迟: %d ms，平台线程数: %d%n", requests, latencyMs, platformThreads);
+            System.out.printf("连接池单主机上限: 平台线程 %d，虚拟线程 %d%n%n", maxPerRoute(platformContext), maxPerRoute(virtualContext));
+
+            Result platform = runLoad(platformService, Executors.newFixedThreadPool(platformThreads), requests, inFlight, peakInFlight);
+            Result virtual = runLoad(virtualService, Executors.newVirtualThreadPerTaskExecutor(), requests, inFlight, peakInFlight);
+
+            System.out.printf("%-16s %10s %12s %14s %14s %8s%n", "模型", "耗时(ms)", "吞吐(req/s)", "上游并发峰值", "JVM线程峰值", "失败数");
+            print("平台线程池", platform);
+            print("虚拟线程", virtual);
+            System.out.printf("%n吞吐提升: %.1f 倍%n", virtual.throughput() / platform.throughput());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 使用默认的连接池配置，virtualThreads 与 ai.execution.virtual-threads 对应
+     */
+    private static AnnotationConfigApplicationContext createContext(String apiUrl, boolean virtualThreads) {
+        AIConfig aiConfig = new AIConfig();
+        AIConfig.ErnieConfig ernie = new AIConfig.ErnieConfig();
+        ernie.setApiUrl(apiUrl);
+        ernie.setApiKey("load-test");
+        ernie.setModel("ernie-4.5-turbo-128k");
+        aiConfig.setErnie(ernie);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("load-test",
+                Collections.singletonMap("ai.execution.virtual-threads", String.valueOf(virtualThreads))));
+        context.getBeanFactory().registerSingleton("aiConfig", aiConfig);
+        context.getBeanFactory().registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        context.register(AIHttpClientConfig.class, UpstreamCallLimiter.class, ErnieAIService.class);
+        context.refresh();
+        return context;
+    }
+
+    private static int maxPerRoute(AnnotationConfigApplicationContext context) {
+        return context.getBean(PoolingHttpClientConnectionManager.class).getDefaultMaxPerRoute();
+    }
+
+    private static HttpServer startMockServer(int latencyMs, AtomicInteger inFlight, AtomicInteger peakInFlight) throws Exception {
+        byte[] body = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"ok\"}}]}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v2/chat/completions", exchange -> {
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
+            try {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(latencyMs);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static Result runLoad(ErnieAIService aiService, ExecutorService executor, int requests,
+                                  AtomicInteger inFlight, AtomicInteger peakInFlight) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+        peakInFlight.set(inFlight.get());
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                String result = aiService.generateContent("压测请求", "你是一个测试助手");
+                if (!"ok".equals(result)) {
+                    failures.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+        return new Result(requests, elapsedMs, peakInFlight.get(), threadBean.getPeakThreadCount(), failures.get());
+    }
+
+    private static void print(String name, Result result) {
+        System.out.printf("%-16s %10d %12.1f %14d %14d %8d%n", name, result.elapsedMs(), result.throughput(),
+                result.peakUpstreamConcurrency(), result.peakJvmThreads(), result.failures());
+    }
+
+    private record Result(int requests, long elapsedMs, int peakUpstreamConcurrency, int peakJvmThreads, int failures) {
+        double throughput() {
+            return requests * 1000.0 / Math.max(1, elapsedMs);
+        }
+    }
+}
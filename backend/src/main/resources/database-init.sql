@@ -26,11 +26,12 @@ CREATE TABLE `documents` (
     `title` VARCHAR(255) NOT NULL COMMENT '文档标题',
     `original_content` TEXT COMMENT '原始Markdown内容',
     `beautified_content` TEXT COMMENT '美化后的Markdown内容',
+    `beautify_sections` TEXT COMMENT '上次美化的章节清单（JSON），用于增量美化',
     `theme` VARCHAR(50) DEFAULT NULL COMMENT '使用的主题名称',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
-    KEY `idx_updated_at` (`updated_at`) COMMENT '更新时间索引，用于按更新时间排序',
+    KEY `idx_updated_at_id` (`updated_at`, `id`) COMMENT '更新时间+ID索引，用于按更新时间排序与 keyset 分页',
     KEY `idx_title` (`title`(100)) COMMENT '标题索引，用于标题搜索',
     KEY `idx_created_at` (`created_at`) COMMENT '创建时间索引'
 ) ENGINE=InnoDB 
@@ -75,6 +76,8 @@ CREATE TABLE `ai_usage_records` (
     `output_tokens` INT(11) DEFAULT 0 COMMENT '输出token数',
     `cost` DECIMAL(10, 6) DEFAULT 0.000000 COMMENT '成本（元）',
     `duration` BIGINT(20) DEFAULT 0 COMMENT '耗时（毫秒）',
+    `first_token_latency` BIGINT(20) DEFAULT NULL COMMENT '首token耗时（毫秒），仅流式调用记录',
+    `tokens_per_second` DOUBLE DEFAULT NULL COMMENT '输出速度（token/秒）',
     `user_id` VARCHAR(100) DEFAULT NULL COMMENT '用户ID（预留，当前可为空）',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     PRIMARY KEY (`id`),
@@ -128,6 +131,81 @@ CREATE TABLE `knowledge_chunks` (
   COLLATE=utf8mb4_unicode_ci 
   COMMENT='知识库文档块';
 
+-- ============================================
+-- 6. 表: ai_response_cache (AI响应缓存表)
+-- ============================================
+DROP TABLE IF EXISTS `ai_response_cache`;
+
+CREATE TABLE `ai_response_cache` (
+    `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '缓存ID，主键',
+    `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：动作、模型、参数与提示词的SHA-256',
+    `action` VARCHAR(255) NOT NULL COMMENT 'AI操作类型',
+    `model` VARCHAR(255) DEFAULT NULL COMMENT '使用的模型',
+    `response` LONGTEXT COMMENT '缓存的AI响应内容',
+    `expires_at` DATETIME NOT NULL COMMENT '过期时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_cache_key` (`cache_key`) COMMENT '缓存键唯一索引',
+    KEY `idx_expires_at` (`expires_at`) COMMENT '过期时间索引'
+) ENGINE=InnoDB 
+  DEFAULT CHARSET=utf8mb4 
+  COLLATE=utf8mb4_unicode_ci 
+  COMMENT='AI响应缓存（ai.cache.persistent=true 时使用）';
+
+-- ============================================
+-- 7. 表: document_analysis (文档分析结果表)
+-- ============================================
+DROP TABLE IF EXISTS `document_analysis`;
+
+CREATE TABLE `document_analysis` (
+    `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '记录ID，主键',
+    `document_id` BIGINT(20) NOT NULL COMMENT '所属文档ID',
+    `content_hash` VARCHAR(64) NOT NULL COMMENT '分析内容的SHA-256，与当前内容不一致时结果作废',
+    `total_chars` INT(11) DEFAULT NULL COMMENT '总字符数',
+    `chinese_chars` INT(11) DEFAULT NULL COMMENT '中文字符数',
+    `english_words` INT(11) DEFAULT NULL COMMENT '英文单词数',
+    `total_words` INT(11) DEFAULT NULL COMMENT '总字数',
+    `reading_time_minutes` DOUBLE DEFAULT NULL COMMENT '预计阅读时间（分钟）',
+    `heading_depth` INT(11) DEFAULT NULL COMMENT '最大标题层级（内容为空时为NULL，以下同）',
+    `heading_count` INT(11) DEFAULT NULL COMMENT '标题数',
+    `paragraph_count` INT(11) DEFAULT NULL COMMENT '段落数',
+    `average_paragraph_length` DOUBLE DEFAULT NULL COMMENT '平均段落长度',
+    `code_block_count` INT(11) DEFAULT NULL COMMENT '代码块数',
+    `link_count` INT(11) DEFAULT NULL COMMENT '链接数',
+    `list_item_count` INT(11) DEFAULT NULL COMMENT '列表项数',
+    `readability_score` DOUBLE DEFAULT NULL COMMENT '可读性评分',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_document_id` (`document_id`) COMMENT '文档ID唯一索引'
+) ENGINE=InnoDB 
+  DEFAULT CHARSET=utf8mb4 
+  COLLATE=utf8mb4_unicode_ci 
+  COMMENT='文档分析结果缓存（按内容哈希，文档更新/删除时清除）';
+
+-- ============================================
+-- 8. 表: ai_usage_rollups (AI使用量汇总表)
+-- ============================================
+DROP TABLE IF EXISTS `ai_usage_rollups`;
+
+CREATE TABLE `ai_usage_rollups` (
+    `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '记录ID，主键',
+    `granularity` VARCHAR(8) NOT NULL COMMENT '粒度：HOUR（小时）, DAY（日）',
+    `bucket_start` DATETIME NOT NULL COMMENT '时间段开始（整点或零点）',
+    `action` VARCHAR(100) NOT NULL COMMENT 'AI操作类型',
+    `provider` VARCHAR(50) NOT NULL COMMENT 'AI服务提供商',
+    `model` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '使用的模型，未记录时为空字符串',
+    `calls` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '调用次数',
+    `input_tokens` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '输入token数',
+    `output_tokens` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '输出token数',
+    `cost` DOUBLE NOT NULL DEFAULT 0 COMMENT '成本（元）',
+    `duration` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '总耗时（毫秒）',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_bucket_key` (`granularity`, `bucket_start`, `action`, `provider`, `model`) COMMENT '粒度+时间段+维度唯一索引'
+) ENGINE=InnoDB 
+  DEFAULT CHARSET=utf8mb4 
+  COLLATE=utf8mb4_unicode_ci 
+  COMMENT='AI使用量汇总（每条使用记录写入时累加到所在小时和所在日）';
+
 -- ============================================
 -- 显示表结构（验证）
 -- ============================================
@@ -136,6 +214,9 @@ SHOW CREATE TABLE `prompt_templates`;
 SHOW CREATE TABLE `ai_usage_records`;
 SHOW CREATE TABLE `knowledge_bases`;
 SHOW CREATE TABLE `knowledge_chunks`;
+SHOW CREATE TABLE `ai_response_cache`;
+SHOW CREATE TABLE `document_analysis`;
+SHOW CREATE TABLE `ai_usage_rollups`;
 
 -- ============================================
 -- 显示表信息
@@ -32,6 +32,8 @@ CREATE TABLE IF NOT EXISTS `ai_usage_records` (
   `output_tokens` INT DEFAULT 0 COMMENT '输出token数',
   `cost` DECIMAL(10, 6) DEFAULT 0.000000 COMMENT '成本（元）',
   `duration` BIGINT DEFAULT 0 COMMENT '耗时（毫秒）',
+  `first_token_latency` BIGINT COMMENT '首token耗时（毫秒），仅流式调用记录',
+  `tokens_per_second` DOUBLE COMMENT '输出速度（token/秒）',
   `user_id` VARCHAR(100) COMMENT '用户ID（预留，当前可为空）',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
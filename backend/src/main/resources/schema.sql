@@ -7,12 +7,14 @@ CREATE TABLE IF NOT EXISTS `documents` (
   `title` VARCHAR(255) NOT NULL,
   `original_content` TEXT,
   `beautified_content` TEXT,
+  `beautify_sections` TEXT,
   `theme` VARCHAR(50),
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
   INDEX `idx_title` (`title`),
-  INDEX `idx_created_at` (`created_at`)
+  INDEX `idx_created_at` (`created_at`),
+  INDEX `idx_updated_at_id` (`updated_at`, `id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 2. 提示词模板表
@@ -41,6 +43,8 @@ CREATE TABLE IF NOT EXISTS `ai_usage_records` (
   `output_tokens` INT DEFAULT 0 COMMENT '输出token数',
   `cost` DECIMAL(10, 6) DEFAULT 0.000000 COMMENT '成本（元）',
   `duration` BIGINT DEFAULT 0 COMMENT '耗时（毫秒）',
+  `first_token_latency` BIGINT COMMENT '首token耗时（毫秒），仅流式调用记录',
+  `tokens_per_second` DOUBLE COMMENT '输出速度（token/秒）',
   `user_id` VARCHAR(100) COMMENT '用户ID（预留，当前可为空）',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
@@ -76,3 +80,57 @@ CREATE TABLE IF NOT EXISTS `knowledge_chunks` (
   CONSTRAINT `fk_chunk_knowledge_base` FOREIGN KEY (`knowledge_base_id`) 
     REFERENCES `knowledge_bases` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='知识库文档块';
+
+-- 6. AI响应缓存表（ai.cache.persistent=true 时使用）
+CREATE TABLE IF NOT EXISTS `ai_response_cache` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：动作、模型、参数与提示词的SHA-256',
+  `action` VARCHAR(255) NOT NULL COMMENT 'AI操作类型',
+  `model` VARCHAR(255) COMMENT '使用的模型',
+  `response` LONGTEXT COMMENT '缓存的AI响应内容',
+  `expires_at` DATETIME NOT NULL COMMENT '过期时间',
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_cache_key` (`cache_key`),
+  INDEX `idx_expires_at` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='AI响应缓存';
+
+-- 7. 文档分析结果表（按内容哈希缓存，文档更新/删除时清除）
+CREATE TABLE IF NOT EXISTS `document_analysis` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `document_id` BIGINT NOT NULL COMMENT '所属文档ID',
+  `content_hash` VARCHAR(64) NOT NULL COMMENT '分析内容的SHA-256，与当前内容不一致时结果作废',
+  `total_chars` INT COMMENT '总字符数',
+  `chinese_chars` INT COMMENT '中文字符数',
+  `english_words` INT COMMENT '英文单词数',
+  `total_words` INT COMMENT '总字数',
+  `reading_time_minutes` DOUBLE COMMENT '预计阅读时间（分钟）',
+  `heading_depth` INT COMMENT '最大标题层级（内容为空时为NULL，以下同）',
+  `heading_count` INT COMMENT '标题数',
+  `paragraph_count` INT COMMENT '段落数',
+  `average_paragraph_length` DOUBLE COMMENT '平均段落长度',
+  `code_block_count` INT COMMENT '代码块数',
+  `link_count` INT COMMENT '链接数',
+  `list_item_count` INT COMMENT '列表项数',
+  `readability_score` DOUBLE COMMENT '可读性评分',
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_document_id` (`document_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文档分析结果缓存';
+
+-- 8. AI使用量汇总表（按小时/日累加，统计查询不再扫描使用记录）
+CREATE TABLE IF NOT EXISTS `ai_usage_rollups` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `granularity` VARCHAR(8) NOT NULL COMMENT '粒度：HOUR, DAY',
+  `bucket_start` DATETIME NOT NULL COMMENT '时间段开始（整点或零点）',
+  `action` VARCHAR(100) NOT NULL COMMENT 'AI操作类型',
+  `provider` VARCHAR(50) NOT NULL COMMENT 'AI服务提供商',
+  `model` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '使用的模型，未记录时为空字符串',
+  `calls` BIGINT NOT NULL DEFAULT 0 COMMENT '调用次数',
+  `input_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '输入token数',
+  `output_tokens` BIGINT NOT NULL DEFAULT 0 COMMENT '输出token数',
+  `cost` DOUBLE NOT NULL DEFAULT 0 COMMENT '成本（元）',
+  `duration` BIGINT NOT NULL DEFAULT 0 COMMENT '总耗时（毫秒）',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_bucket_key` (`granularity`, `bucket_start`, `action`, `provider`, `model`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='AI使用量汇总';
@@ -0,0 +1,178 @@
+package com.markglow.benchmark;
+
+import java.util.Random;
+
+/**
+ * 基准测试用的 Markdown 语料生成器：按固定种子生成中英混合的技术文档，
+ * 包含多级标题、段落（粗体/斜体/行内代码/链接/图片）、有序与无序列表（含嵌套）、代码块、引用、表格与分隔线，
+ * 各结构的比例参照编辑器中常见的技术文档。相同的目标大小每次生成的内容完全一致，便于跨版本对比
+ */
+public final class MarkdownCorpus {
+
+    /**
+     * 基准测试常用的文档大小（UTF-8 字节）：1KB、64KB、1MB、10MB
+     */
+    public static final String SIZE_1KB = "1024";
+    public static final String SIZE_64KB = "65536";
+    public static final String SIZE_1MB = "1048576";
+    public static final String SIZE_10MB = "10485760";
+
+    private static final String[] CHINESE = {
+            "文档美化功能会根据内容结构自动调整标题层级与段落间距",
+            "长文档会按章节切分后并发处理，最终结果按原文顺序拼接",
+            "统计信息包括调用次数、token 用量以及按模型计算的费用",
+            "编辑器支持实时预览，保存时会记录版本以便回滚",
+            "模板中的变量在渲染时替换为用户填写的内容",
+            "流式响应按增量推送给前端，首个数据块的延迟直接影响体验"
+    };
+
+    private static final String[] ENGLISH = {
+            "The quick brown fox jumps over the lazy dog while the stream keeps flowing",
+            "Token budgets decide how many chunks a long document is split into",
+            "Caching identical requests saves both latency and upstream cost",
+            "Each version is stored so that earlier drafts can be restored at any time",
+            "Readers usually skim headings before deciding which section to read"
+    };
+
+    private static final String[] WORDS = {
+            "markdown", "stream", "token", "cache", "version", "template", "render", "latency", "chunk", "preview"
+    };
+
+    private static final String[] CODE = {
+            "```java\npublic int count(String document) {\n    return TokenCounter.count(document); // 😀\n}\n```\n\n",
+            "```bash\nmvn -B -Pjmh test-compile\njava -jar target/markglow-backend.jar --spring.profiles.active=prod\n```\n\n",
+            "```json\n{\n  \"action\": \"beautify\",\n  \"provider\": \"ernie\",\n  \"tokens\": 1024\n}\n```\n\n",
+            "```\nplain text block with *stars* and [brackets](not-a-link) inside\n```\n\n"
+    };
+
+    private MarkdownCorpus() {
+    }
+
+    /**
+     * 生成约 bytes 字节（UTF-8）的 Markdown 文档，在块边界截断，实际大小略大于目标值
+     */
+    public static String generate(int bytes) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(bytes);
+        int written = 0;
+        int section = 0;
+        int start = builder.length();
+        builder.append("# MarkGlow 技术文档 Technical Guide\n\n");
+        written += utf8Length(builder, start);
+        while (written < bytes) {
+            start = builder.length();
+            section++;
+            builder.append("## 第").append(section).append("章 Chapter ").append(section).append("\n\n");
+            paragraph(builder, random);
+            for (int sub = 1, subs = 1 + random.nextInt(3); sub <= subs; sub++) {
+                builder.append("### ").append(section).append('.').append(sub).append(' ')
+                        .append(WORDS[random.nextInt(WORDS.length)]).append(" 说明\n\n");
+                paragraph(builder, random);
+                switch (random.nextInt(6)) {
+                    case 0:
+                        list(builder, random);
+                        break;
+                    case 1:
+                        builder.append(CODE[random.nextInt(CODE.length)]);
+                        break;
+                    case 2:
+                        builder.append("> ").append(CHINESE[random.nextInt(CHINESE.length)]).append("。\n> ")
+                                .append(ENGLISH[random.nextInt(ENGLISH.length)]).append(".\n\n");
+                        break;
+                    case 3:
+                        table(builder, random);
+                        break;
+                    case 4:
+                        builder.append("#### ").append(WORDS[random.nextInt(WORDS.length)]).append(" 细节\n\n");
+                        paragraph(builder, random);
+                        break;
+                    default:
+                        paragraph(builder, random);
+                        break;
+                }
+            }
+            if (section % 4 == 0) {
+                builder.append("---\n\n");
+            }
+            written += utf8Length(builder, start);
+        }
+        return builder.toString();
+    }
+
+    private static void paragraph(StringBuilder builder, Random random) {
+        for (int i = 0, sentences = 2 + random.nextInt(4); i < sentences; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            switch (random.nextInt(7)) {
+                case 0:
+                    builder.append("**").append(CHINESE[random.nextInt(CHINESE.length)]).append("**，");
+                    break;
+                case 1:
+                    builder.append("使用 `").append(word).append("()` 时，");
+                    break;
+                case 2:
+                    builder.append("参见 [").append(word).append(" 文档](https://example.com/docs/").append(word).append(")，");
+                    break;
+                case 3:
+                    builder.append("![").append(word).append("](https://example.com/img/").append(word).append(".png) ");
+                    break;
+                case 4:
+                    builder.append('*').append(word).append("* ");
+                    break;
+                default:
+                    break;
+            }
+            if (random.nextBoolean()) {
+                builder.append(CHINESE[random.nextInt(CHINESE.length)]).append("。");
+            } else {
+                builder.append(ENGLISH[random.nextInt(ENGLISH.length)]).append(". ");
+            }
+        }
+        builder.append("\n\n");
+    }
+
+    private static void list(StringBuilder builder, Random random) {
+        char[] markers = {'-', '*', '+'};
+        boolean ordered = random.nextInt(3) == 0;
+        for (int i = 1, items = 3 + random.nextInt(4); i <= items; i++) {
+            if (ordered) {
+                builder.append(i).append(". ");
+            } else {
+                builder.append(markers[random.nextInt(markers.length)]).append(' ');
+            }
+            builder.append(CHINESE[random.nextInt(CHINESE.length)]).append(" `")
+                    .append(WORDS[random.nextInt(WORDS.length)]).append("`\n");
+            if (random.nextInt(4) == 0) {
+                builder.append("  - ").append(ENGLISH[random.nextInt(ENGLISH.length)]).append('\n');
+            }
+        }
+        builder.append('\n');
+    }
+
+    private static void table(StringBuilder builder, Random random) {
+        builder.append("| 参数 | 说明 | 默认值 |\n| --- | --- | --- |\n");
+        for (int i = 0, rows = 2 + random.nextInt(3); i < rows; i++) {
+            builder.append("| ").append(WORDS[random.nextInt(WORDS.length)]).append(" | ")
+                    .append(CHINESE[random.nextInt(CHINESE.length)]).append(" | ")
+                    .append(random.nextInt(1000)).append(" |\n");
+        }
+        builder.append('\n');
+    }
+
+    private static int utf8Length(CharSequence text, int from) {
+        int length = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
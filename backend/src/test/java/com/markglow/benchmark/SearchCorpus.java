@@ -0,0 +1,131 @@
+package com.markglow.benchmark;
+
+import com.markglow.entity.Document;
+import com.markglow.repository.DocumentContentView;
+import com.markglow.repository.DocumentRepository;
+import com.markglow.service.DocumentSearchIndex;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DocumentSearchIndex 的测试语料：随机生成的中英文文档与查询，以及用内存中的语料建立索引，
+ * DocumentSearchIndexTest、DocumentSuggestionTest 与 DocumentSearchIndexBenchmark 共用
+ */
+public final class SearchCorpus {
+
+    public static final String[] WORDS = {
+            "Markdown", "render", "theme", "cache", "latency", "index", "query", "stream", "token", "batch",
+            "性能", "优化", "文档", "美化", "缓存", "索引", "查询", "分析", "模型", "主题", "渲染", "延迟"
+    };
+
+    /**
+     * 命中较少的词：查询耗时取决于倒排表长度，用它们衡量随语料增长的变化
+     */
+    public static final String[] RARE_WORDS = {"zephyr", "量子", "quasar", "琥珀"};
+
+    private static final String[] SEPARATORS = {" ", " ", "，", "。", "\n", "## ", "- ", "**"};
+
+    private SearchCorpus() {
+    }
+
+    /**
+     * 生成 ID 从 1 连续的文档（标题、正文），平均每 rareOneIn 个词出现一个少见词
+     */
+    public static Map<Long, String[]> generate(Random random, int documents, int rareOneIn) {
+        Map<Long, String[]> corpus = new TreeMap<>();
+        for (long id = 1; id <= documents; id++) {
+            corpus.put(id, new String[]{randomText(random, 1 + random.nextInt(5), rareOneIn),
+                    randomText(random, 50 + random.nextInt(200), rareOneIn)});
+        }
+        return corpus;
+    }
+
+    public static String randomText(Random random, int words, int rareOneIn) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (random.nextInt(rareOneIn) == 0) {
+                text.append(RARE_WORDS[random.nextInt(RARE_WORDS.length)]);
+            } else {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                text.append(random.nextInt(10) == 0 ? word.toUpperCase(Locale.ROOT) : word);
+            }
+            // 中文词之间有时不加分隔，跨词的两字组合也会被索引
+            if (random.nextInt(3) > 0) {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+        }
+        return text.toString();
+    }
+
+    public static String randomQuery(Random random) {
+        int words = 1 + random.nextInt(2);
+        List<String> query = new ArrayList<>();
+        for (int i = 0; i < words; i++) {
+            if (random.nextInt(10) == 0) {
+                query.add(RARE_WORDS[random.nextInt(RARE_WORDS.length)]);
+            } else if (random.nextInt(5) == 0) {
+                // 两个中文词连写，或只取单字
+                String first = WORDS[10 + random.nextInt(WORDS.length - 10)];
+                query.add(random.nextBoolean() ? first + WORDS[10 + random.nextInt(WORDS.length - 10)] : first.substring(0, 1));
+            } else {
+                query.add(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return String.join(" ", query);
+    }
+
+    /**
+     * 用内存中的语料（按ID排序、ID从 1 连续）建立索引，等待建立线程结束后返回
+     */
+    public static DocumentSearchIndex build(Map<Long, String[]> corpus) throws InterruptedException {
+        List<DocumentContentView> rows = new ArrayList<>();
+        for (Map.Entry<Long, String[]> document : corpus.entrySet()) {
+            rows.add(view(document.getKey(), document.getValue()));
+        }
+        DocumentRepository repository = mock(DocumentRepository.class);
+        when(repository.findContentPage(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int pageSize = invocation.<Pageable>getArgument(1).getPageSize();
+            int from = (int) Math.min(afterId, rows.size());
+            return new ArrayList<>(rows.subList(from, Math.min(rows.size(), from + pageSize)));
+        });
+        DocumentSearchIndex index = new DocumentSearchIndex();
+        ReflectionTestUtils.setField(index, "documentRepository", repository);
+        index.init();
+        ((Thread) ReflectionTestUtils.getField(index, "builder")).join();
+        return index;
+    }
+
+    public static Document entity(Long id, String[] document) {
+        Document entity = new Document();
+        entity.setId(id);
+        entity.setTitle(document[0]);
+        entity.setOriginalContent(document[1]);
+        return entity;
+    }
+
+    private static DocumentContentView view(Long id, String[] document) {
+        return new DocumentContentView() {
+            @Override
+            public Long getId() { return id; }
+
+            @Override
+            public String getTitle() { return document[0]; }
+
+            @Override
+            public String getContent() { return document[1]; }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.markglow.service;
+
+import com.markglow.benchmark.LegacyDocumentAnalysis;
+import com.markglow.benchmark.MarkdownCorpus;
+import com.markglow.service.DocumentAnalysisService.AnalysisResult;
+import com.markglow.service.DocumentAnalysisService.ComplexityMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DocumentAnalysisService 结果比对：在基准语料、边界用例和固定种子随机生成的 Markdown 片段上，
+ * 逐项比较当前实现（MarkdownScanner）与 LegacyDocumentAnalysis（正则实现）的分析结果。
+ * 默认 5000 个随机用例、不含 1MB 语料，完整规模的比对：
+ * mvn test -Dtest=DocumentAnalysisGoldenTest -Dmarkglow.golden.random-cases=200000 -Dmarkglow.golden.large-corpus=true
+ */
+class DocumentAnalysisGoldenTest {
+
+    private static final String[] EDGE_CASES = {
+            "", "a", "#", "# ", "#\n", "####### too deep\n", "###### six\n", "#no space", "  # indented",
+            "```", "```\ncode\n```", "```a``` b ```c", "text ```unclosed\nmore `x` here",
+            "`a` b `c", "``", "`` x ``", "`a ```x``` b`", "` ```x``` `", "````", "`\n`",
+            "[a](b)", "[](b)", "[a]()", "[a](b", "[a]\n(b)", "[a\n](b)", "[[a](b)](c)", "![img](x.png) word",
+            "[a](b) [c](d)", "[a] (b)", "[a](b)c", "a[b](c)d", "word [unclosed\nnext [x](y)",
+            "- item\n* item\n+ item\n-no\n  - nested\n", "-\n- b", "-\n  - b", "- \n\n- x", "\n\n- a",
+            "para one\n\npara two\n\n\n\n# head\n\n- list\n\n```\ncode\n```\n\n*emph* start",
+            "\r\n# win\r\n- item\r\n\r\ntext\r\n", "a # sep - x\u0085## y",
+            "snake_case camelCase foo_bar __init__ **bold**word", "中文English混合 English 中文",
+            "abc123 123abc a1 _a a_", "café náive é áb", "́abc", "x𝐀y abc𝐀",
+            "abc😀 😀abc", "abc𝅧 𝅧abc", "\ud800abc\udc00", "abc\ud800",
+            "#abc #\tdef ab#cd ab# cd", "ab#*  cd", "a*#b", "a#\n[b](c)d", "x [a #\n](b)y", "ab[x](y)cd ef",
+            "t\u000bx\u000c", "[x]( )", "[ ](x)", "a]( [b](c)"
+    };
+
+    private static final String[] TOKENS = {
+            "a", "word", "Hello", "x1", "中文", "字", " ", " ", "  ", "\t", "\n", "\n", "\n\n", "\r\n", "\r", " ", "\u0085",
+            "#", "##", "###### ", "# ", "*", "**", "_", "-", "- ", "+ ", "* ", "`", "``", "```", "[", "]", "(", ")", "](",
+            "!", "1. ", "1", "_x", "́", "é", "𝐀", "😀", "𝅧", "\ud800", "\udc00",
+            ".", ",", "，", "。", "|", ">", "$", "\\"
+    };
+
+    private static final int RANDOM_CASES = Integer.getInteger("markglow.golden.random-cases", 5000);
+
+    private static final boolean LARGE_CORPUS = Boolean.getBoolean("markglow.golden.large-corpus");
+
+    private final DocumentAnalysisService service = new DocumentAnalysisService();
+
+    private final LegacyDocumentAnalysis legacy = new LegacyDocumentAnalysis();
+
+    @Test
+    void matchesLegacyOnCorpus() {
+        compare(MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_1KB)));
+        compare(MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_64KB)));
+        if (LARGE_CORPUS) {
+            compare(MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_1MB)));
+        }
+    }
+
+    @Test
+    void matchesLegacyOnEdgeCases() {
+        for (String edgeCase : EDGE_CASES) {
+            compare(edgeCase);
+        }
+    }
+
+    @Test
+    void matchesLegacyOnRandomFragments() {
+        Random random = new Random(20240601L);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            builder.setLength(0);
+            for (int tokens = 1 + random.nextInt(40); tokens > 0; tokens--) {
+                builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            compare(builder.toString());
+        }
+    }
+
+    private void compare(String content) {
+        assertEquals(describe(legacy.analyzeDocument(content)), describe(service.analyzeDocument(content)),
+                () -> "结果不一致，输入: " + escape(content));
+    }
+
+    static String describe(AnalysisResult result) {
+        StringBuilder builder = new StringBuilder()
+                .append("chars=").append(result.getTotalChars())
+                .append(" chinese=").append(result.getChineseChars())
+                .append(" english=").append(result.getEnglishWords())
+                .append(" words=").append(result.getTotalWords())
+                .append(" minutes=").append(result.getReadingTimeMinutes());
+        ComplexityMetrics complexity = result.getComplexity();
+        if (complexity != null) {
+            builder.append(" headingDepth=").append(complexity.getHeadingDepth())
+                    .append(" headings=").append(complexity.getHeadingCount())
+                    .append(" paragraphs=").append(complexity.getParagraphCount())
+                    .append(" avgParagraph=").append(complexity.getAverageParagraphLength())
+                    .append(" codeBlocks=").append(complexity.getCodeBlockCount())
+                    .append(" links=").append(complexity.getLinkCount())
+                    .append(" listItems=").append(complexity.getListItemCount())
+                    .append(" readability=").append(complexity.getReadabilityScore());
+        }
+        return builder.toString();
+    }
+
+    static String escape(String content) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c >= 0x20 && c < 0x7F) {
+                builder.append(c);
+            } else {
+                builder.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.markglow.service;
+
+import com.markglow.benchmark.SearchCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DocumentSearchIndex 结果比对：在固定种子随机生成的中英文语料上建立索引，随机查询并与逐篇扫描的结果比较：
+ * 包含所有查询词的文档（即 LIKE 能找到的）都须命中，命中的文档都须包含每个英文词及中文词的每个相邻两字，
+ * 结果按相关度倒序、分页与完整结果一致；再随机更新、删除文档后重复比较。
+ * 默认 1000 篇文档，更大规模的比对：mvn test -Dtest=DocumentSearchIndexTest -Dmarkglow.search.documents=5000，
+ * 查询耗时见 src/jmh 下的 DocumentSearchIndexBenchmark
+ */
+class DocumentSearchIndexTest {
+
+    private static final int DOCUMENTS = Integer.getInteger("markglow.search.documents", 1000);
+
+    // 少见词的频率高于基准测试语料，查询时也能命中
+    private static final int RARE_ONE_IN = 200;
+
+    @Test
+    void matchesScanAfterBuildAndUpdates() throws InterruptedException {
+        Random random = new Random(20241017L);
+        Map<Long, String[]> corpus = SearchCorpus.generate(random, DOCUMENTS, RARE_ONE_IN);
+        DocumentSearchIndex index = SearchCorpus.build(corpus);
+        assertTrue(index.isReady());
+        assertEquals(corpus.size(), index.getDocumentCount());
+        compare(index, corpus, random, 200);
+
+        for (int i = 0; i < 300; i++) {
+            long id = 1 + random.nextInt(corpus.size() + 100);
+            if (random.nextInt(4) == 0) {
+                corpus.remove(id);
+                index.remove(id);
+            } else {
+                String[] document = {SearchCorpus.randomText(random, 5, RARE_ONE_IN),
+                        SearchCorpus.randomText(random, 100, RARE_ONE_IN)};
+                corpus.put(id, document);
+                index.index(SearchCorpus.entity(id, document));
+            }
+        }
+        assertEquals(corpus.size(), index.getDocumentCount());
+        compare(index, corpus, random, 200);
+    }
+
+    private static void compare(DocumentSearchIndex index, Map<Long, String[]> corpus, Random random, int queries) {
+        Map<Long, String> texts = new HashMap<>();
+        Map<Long, Set<String>> tokens = new HashMap<>();
+        for (Map.Entry<Long, String[]> document : corpus.entrySet()) {
+            String text = document.getValue()[0] + "\n" + document.getValue()[1];
+            texts.put(document.getKey(), text);
+            Set<String> words = new HashSet<>();
+            for (String token : text.split("[^A-Za-z0-9]+")) {
+                words.add(token.toLowerCase(Locale.ROOT));
+            }
+            tokens.put(document.getKey(), words);
+        }
+        for (int q = 0; q < queries; q++) {
+            String query = SearchCorpus.randomQuery(random);
+            DocumentSearchIndex.SearchResult result = index.search(query, 0, Integer.MAX_VALUE);
+            Set<Long> hits = new HashSet<>();
+            double previous = Double.MAX_VALUE;
+            for (DocumentSearchIndex.Hit hit : result.getHits()) {
+                assertFalse(hit.getScore() > previous, () -> "结果未按相关度倒序: " + query);
+                previous = hit.getScore();
+                hits.add(hit.getDocumentId());
+            }
+            assertEquals(result.getTotal(), hits.size(), () -> "命中总数不一致: " + query);
+            for (Long id : corpus.keySet()) {
+                assertFalse(containsAll(texts.get(id), tokens.get(id), query) && !hits.contains(id),
+                        () -> "漏掉包含查询词的文档: " + query + " id=" + id);
+                assertFalse(hits.contains(id) && !containsTerms(texts.get(id), tokens.get(id), query),
+                        () -> "命中不含查询词的文档: " + query + " id=" + id);
+            }
+            int page = 7;
+            DocumentSearchIndex.SearchResult paged = index.search(query, page, 5);
+            List<DocumentSearchIndex.Hit> expected = result.getHits().subList(Math.min(page, hits.size()),
+                    Math.min(page + 5, hits.size()));
+            assertEquals(expected.size(), paged.getHits().size(), () -> "分页结果不一致: " + query);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getDocumentId(), paged.getHits().get(i).getDocumentId(),
+                        "分页结果不一致: " + query);
+            }
+        }
+    }
+
+    /**
+     * LIKE 的判断方式，但英文词须作为完整的词出现（索引按词切分，不匹配词的一部分）
+     */
+    private static boolean containsAll(String text, Set<String> tokens, String query) {
+        for (String word : query.split(" ")) {
+            if (isEnglish(word) ? !tokens.contains(word.toLowerCase(Locale.ROOT)) : !text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 英文词须作为完整的词出现，中文词的每个相邻两字须出现
+     */
+    private static boolean containsTerms(String text, Set<String> tokens, String query) {
+        for (String word : query.split(" ")) {
+            if (isEnglish(word)) {
+                if (!tokens.contains(word.toLowerCase(Locale.ROOT))) {
+                    return false;
+                }
+            } else {
+                for (int i = 0; i + 2 <= word.length() || i == 0; i++) {
+                    if (!text.contains(word.substring(i, Math.min(word.length(), i + 2)))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEnglish(String word) {
+        return word.charAt(0) < 0x80;
+    }
+}
@@ -0,0 +1,149 @@
+package com.markglow.service;
+
+import com.markglow.benchmark.SearchCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DocumentSearchIndex 搜索建议比对：固定种子随机生成带小标题的文档，随机增删改后用随机前缀查询，
+ * 与逐个短语判断前缀的结果（同样的排序：出现的文档数倒序、短的在前）逐项比较。
+ * 默认 500 轮，更大规模的比对：mvn test -Dtest=DocumentSuggestionTest -Dmarkglow.suggestion.rounds=3000
+ */
+class DocumentSuggestionTest {
+
+    private static final String[] WORDS = {
+            "a", "ab", "abc", "Cache", "cache", "render", "性能", "性", "优化", "文档", "主题"
+    };
+
+    private static final int LIMIT = 10;
+
+    private static final int ROUNDS = Integer.getInteger("markglow.suggestion.rounds", 500);
+
+    // 与 SuggestionTrie 一致：每个短语最多按前 8 个词的开头匹配
+    private static final int MAX_ENTRY_POINTS = 8;
+
+    @Test
+    void matchesPrefixScanAfterUpdates() throws InterruptedException {
+        Random random = new Random(20241018L);
+        Map<Long, List<String>> phrases = new TreeMap<>();
+        Map<Long, String[]> corpus = new TreeMap<>();
+        for (long id = 1; id <= 100; id++) {
+            put(random, id, phrases, corpus);
+        }
+        DocumentSearchIndex index = SearchCorpus.build(corpus);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long id = 1 + random.nextInt(150);
+            if (random.nextInt(3) == 0) {
+                phrases.remove(id);
+                corpus.remove(id);
+                index.remove(id);
+            } else {
+                put(random, id, phrases, corpus);
+                index.index(SearchCorpus.entity(id, corpus.get(id)));
+            }
+            for (int q = 0; q < 5; q++) {
+                String prefix = randomPrefix(random);
+                List<String> actual = new ArrayList<>();
+                for (DocumentSearchIndex.Suggestion suggestion : index.suggest(prefix, LIMIT)) {
+                    actual.add(suggestion.getText().toLowerCase(Locale.ROOT) + "×" + suggestion.getCount());
+                }
+                assertEquals(expected(phrases, prefix), actual, "建议不一致: prefix=\"" + prefix + "\"");
+            }
+        }
+    }
+
+    /**
+     * 生成标题和若干小标题（其中夹杂代码块内的 # 行，不应计入），记录应计入建议的短语
+     */
+    private static void put(Random random, long id, Map<Long, List<String>> phrases, Map<Long, String[]> corpus) {
+        String title = randomPhrase(random);
+        StringBuilder content = new StringBuilder();
+        Set<String> expected = new LinkedHashSet<>();
+        expected.add(normalize(title));
+        int headings = random.nextInt(4);
+        for (int i = 0; i < headings; i++) {
+            String heading = randomPhrase(random);
+            content.append(random.nextBoolean() ? "# " : "## ").append(heading).append("\n\n正文 text\n\n");
+            expected.add(normalize(heading));
+        }
+        if (random.nextBoolean()) {
+            content.append("```\n# ").append(randomPhrase(random)).append("\n```\n");
+        }
+        phrases.put(id, new ArrayList<>(expected));
+        corpus.put(id, new String[]{title, content.toString()});
+    }
+
+    private static List<String> expected(Map<Long, List<String>> phrases, String prefix) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (List<String> document : phrases.values()) {
+            for (String phrase : document) {
+                counts.merge(phrase, 1, Integer::sum);
+            }
+        }
+        String key = normalize(prefix);
+        List<String> matched = new ArrayList<>();
+        for (String phrase : counts.keySet()) {
+            if (matches(phrase, key)) {
+                matched.add(phrase);
+            }
+        }
+        matched.sort(Comparator.comparingInt((String phrase) -> counts.get(phrase)).reversed()
+                .thenComparingInt(String::length)
+                .thenComparing(Comparator.naturalOrder()));
+        List<String> result = new ArrayList<>();
+        for (String phrase : matched.subList(0, Math.min(LIMIT, matched.size()))) {
+            result.add(phrase + "×" + counts.get(phrase));
+        }
+        return result;
+    }
+
+    private static boolean matches(String phrase, String prefix) {
+        if (phrase.startsWith(prefix)) {
+            return true;
+        }
+        int entries = 1;
+        for (int i = 1; i < phrase.length() && entries < MAX_ENTRY_POINTS; i++) {
+            if (phrase.charAt(i - 1) == ' ') {
+                entries++;
+                if (phrase.startsWith(prefix, i)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String randomPhrase(Random random) {
+        int words = 1 + random.nextInt(random.nextInt(20) == 0 ? 12 : 3);
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(random.nextInt(8) == 0 ? "  " : " ");
+            }
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    private static String randomPrefix(Random random) {
+        String phrase = randomPhrase(random);
+        return phrase.substring(0, 1 + random.nextInt(phrase.length()));
+    }
+
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,89 @@
+package com.markglow.service;
+
+import com.markglow.benchmark.MarkdownCorpus;
+import com.markglow.config.AnalysisConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static com.markglow.service.DocumentAnalysisGoldenTest.describe;
+import static com.markglow.service.DocumentAnalysisGoldenTest.escape;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * IncrementalAnalysisService 结果比对：在基准语料和固定种子随机生成的 Markdown 上连续应用随机编辑，
+ * 每次编辑后把增量分析结果与对完整内容调用 analyzeDocument 的结果逐项比较。
+ * 随机文档数默认 200，完整规模的比对：mvn test -Dtest=IncrementalAnalysisTest -Dmarkglow.incremental.random-documents=2000
+ */
+class IncrementalAnalysisTest {
+
+    private static final String[] TOKENS = {
+            "a", "word", "Hello", "中文", " ", "  ", "\t", "\n", "\n", "\n\n", "\n\n\n", "\r\n", "\u0085",
+            "#", "## ", "# ", "*", "_", "- ", "+ ", "* ", "`", "```", "```\n", "\n```\n", "[", "]", "(", ")", "](",
+            "[a](b)", "!", "1. ", "́", "𝐀", "😀", "\ud800", "\udc00", ".", "。"
+    };
+
+    private static final int RANDOM_DOCUMENTS = Integer.getInteger("markglow.incremental.random-documents", 200);
+
+    private static final int EDITS_PER_DOCUMENT = 100;
+
+    private DocumentAnalysisService analysisService;
+
+    private IncrementalAnalysisService incrementalService;
+
+    @BeforeEach
+    void setUp() {
+        analysisService = new DocumentAnalysisService();
+        incrementalService = new IncrementalAnalysisService();
+        ReflectionTestUtils.setField(incrementalService, "analysisService", analysisService);
+        ReflectionTestUtils.setField(incrementalService, "analysisConfig", new AnalysisConfig());
+    }
+
+    @Test
+    void matchesFullAnalysisOnCorpusEdits() {
+        Random random = new Random(20240615L);
+        edit(random, MarkdownCorpus.generate(Integer.parseInt(MarkdownCorpus.SIZE_64KB)), 300);
+    }
+
+    @Test
+    void matchesFullAnalysisOnRandomDocuments() {
+        Random random = new Random(20240616L);
+        for (int i = 0; i < RANDOM_DOCUMENTS; i++) {
+            edit(random, randomText(random, random.nextInt(200)), EDITS_PER_DOCUMENT);
+        }
+    }
+
+    private void edit(Random random, String content, int edits) {
+        StringBuilder document = new StringBuilder(content);
+        IncrementalAnalysisService.IncrementalResult result = incrementalService.start(content);
+        compare(document.toString(), result, "初始内容");
+        for (int i = 0; i < edits; i++) {
+            int offset = random.nextInt(document.length() + 1);
+            int maxDelete = document.length() - offset;
+            int deleteLength = maxDelete == 0 ? 0
+                    : random.nextInt(10) == 0 ? random.nextInt(maxDelete + 1) : random.nextInt(Math.min(maxDelete, 4) + 1);
+            String insertText = random.nextInt(4) == 0 ? "" : randomText(random, 1 + random.nextInt(6));
+            String before = document.toString();
+            document.replace(offset, offset + deleteLength, insertText);
+            result = incrementalService.applyEdit(result.getVersion(), offset, deleteLength, insertText);
+            compare(document.toString(), result, "编辑 offset=" + offset + " delete=" + deleteLength
+                    + " insert=" + escape(insertText) + " 之前: "
+                    + escape(before.length() > 2000 ? "(" + before.length() + " 字符)" : before));
+        }
+    }
+
+    private void compare(String content, IncrementalAnalysisService.IncrementalResult result, String step) {
+        assertEquals(describe(analysisService.analyzeDocument(content)), describe(result.getAnalysis()),
+                () -> "结果不一致，" + step);
+    }
+
+    private static String randomText(Random random, int tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.markglow.service;
+
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LiveUsageMetrics 结果比对：4 个线程并发记录固定种子随机耗时的调用（三分之二为带首token耗时的流式调用），
+ * 直接调用 tick 后比较 1 分钟窗口内各分组的调用数、token，以及总耗时、首token耗时、输出速度的 p50/p90/p99
+ * （与排序求得的精确值相差不超过 1%），以及 markglow.ai.call.* 指标与快照一致，再检查各窗口按时过期、
+ * 1 小时没有调用后分组被移除、指标注销
+ */
+class LiveUsageMetricsTest {
+
+    private static final String[] ACTIONS = {"beautify", "improve", "summarize"};
+
+    private static final int THREADS = 4;
+
+    private static final int CALLS_PER_THREAD = 5000;
+
+    private static final long PER_MINUTE = 60000 / LiveUsageMetrics.TICK_MS;
+
+    private LiveUsageMetrics metrics;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new LiveUsageMetrics();
+        registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(metrics, "aiConfig", new AIConfig());
+        metrics.init();
+        // 停止定时 tick（首次执行在 init 之后至少 2.5 秒），由测试按指定的时间片调用
+        metrics.shutdown();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void matchesExactStatisticsAndExpires() throws InterruptedException {
+        Map<String, List<Long>> durations = new HashMap<>();
+        Map<String, List<Long>> firstTokens = new HashMap<>();
+        Map<String, List<Long>> tokenRates = new HashMap<>();
+        Map<String, long[]> tokens = new HashMap<>();
+        for (String action : ACTIONS) {
+            durations.put(action, new ArrayList<>());
+            firstTokens.put(action, new ArrayList<>());
+            tokenRates.put(action, new ArrayList<>());
+            tokens.put(action, new long[2]);
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            List<Object[]> calls = new ArrayList<>();
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                String action = ACTIONS[random.nextInt(ACTIONS.length)];
+                // 对数分布的耗时：几十毫秒到几十秒
+                long duration = (long) Math.exp(3 + random.nextDouble() * 7);
+                int input = random.nextInt(4000);
+                int output = random.nextInt(2000);
+                Long firstToken = null;
+                Double tokenRate = null;
+                if (random.nextInt(3) > 0) {
+                    firstToken = (long) Math.exp(4 + random.nextDouble() * 4);
+                    tokenRate = (double) (10 + random.nextInt(190));
+                    firstTokens.get(action).add(firstToken);
+                    tokenRates.get(action).add(tokenRate.longValue());
+                }
+                calls.add(new Object[]{action, duration, input, output, firstToken, tokenRate});
+                durations.get(action).add(duration);
+                tokens.get(action)[0] += input;
+                tokens.get(action)[1] += output;
+            }
+            threads.add(new Thread(() -> {
+                for (Object[] call : calls) {
+                    metrics.record((String) call[0], "ernie", "ernie-4.5", (Integer) call[2], (Integer) call[3],
+                            0.001, (Long) call[1], (Long) call[4], (Double) call[5]);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long now = System.currentTimeMillis() / LiveUsageMetrics.TICK_MS;
+        metrics.tick(now);
+        LiveUsageMetrics.LiveWindow minute = window(metrics.getSnapshot(), "1m");
+        assertEquals((long) THREADS * CALLS_PER_THREAD, minute.getTotal().getCalls());
+        assertEquals(ACTIONS.length, minute.getGroups().size());
+        for (LiveUsageMetrics.LiveStats group : minute.getGroups()) {
+            String action = group.getAction();
+            long[] sorted = sorted(durations.get(action));
+            assertEquals(sorted.length, group.getCalls(), "调用数不一致: " + action);
+            assertEquals(tokens.get(action)[0], group.getInputTokens(), "输入token不一致: " + action);
+            assertEquals(tokens.get(action)[1], group.getOutputTokens(), "输出token不一致: " + action);
+            assertPercentile(action, "p50", group.getP50Duration(), sorted, 50);
+            assertPercentile(action, "p90", group.getP90Duration(), sorted, 90);
+            assertPercentile(action, "p99", group.getP99Duration(), sorted, 99);
+            long[] sortedFirstTokens = sorted(firstTokens.get(action));
+            assertPercentile(action, "首token p50", group.getP50FirstTokenLatency(), sortedFirstTokens, 50);
+            assertPercentile(action, "首token p90", group.getP90FirstTokenLatency(), sortedFirstTokens, 90);
+            assertPercentile(action, "首token p99", group.getP99FirstTokenLatency(), sortedFirstTokens, 99);
+            long[] sortedTokenRates = sorted(tokenRates.get(action));
+            assertPercentile(action, "输出速度 p50", group.getP50TokensPerSecond(), sortedTokenRates, 50);
+            assertPercentile(action, "输出速度 p90", group.getP90TokensPerSecond(), sortedTokenRates, 90);
+            assertPercentile(action, "输出速度 p99", group.getP99TokensPerSecond(), sortedTokenRates, 99);
+
+            assertEquals(group.getP99Duration(), gauge("markglow.ai.call.duration", action, "0.99"),
+                    "总耗时指标不一致: " + action);
+            assertEquals(group.getP50FirstTokenLatency(), gauge("markglow.ai.call.first.token", action, "0.5"),
+                    "首token指标不一致: " + action);
+            assertEquals(group.getP90TokensPerSecond(), gauge("markglow.ai.call.tokens.per.second", action, "0.9"),
+                    "输出速度指标不一致: " + action);
+        }
+
+        // 之后的 tick：1 分钟后只剩 5 分钟和 1 小时窗口，5 分钟后只剩 1 小时窗口，1 小时后全部过期
+        long[][] expectations = {
+                {PER_MINUTE, 0, 1, 1},
+                {PER_MINUTE * 5, 0, 0, 1},
+                {PER_MINUTE * 61, 0, 0, 0}
+        };
+        for (long[] expectation : expectations) {
+            LiveUsageMetrics.LiveSnapshot later = ReflectionTestUtils.invokeMethod(metrics, "buildSnapshot",
+                    now + expectation[0]);
+            long[] present = {
+                    window(later, "1m").getTotal().getCalls() > 0 ? 1 : 0,
+                    window(later, "5m").getTotal().getCalls() > 0 ? 1 : 0,
+                    window(later, "1h").getTotal().getCalls() > 0 ? 1 : 0
+            };
+            assertArrayEquals(Arrays.copyOfRange(expectation, 1, 4), present,
+                    "窗口过期不正确: +" + expectation[0] + " ticks");
+        }
+
+        // 1 小时没有调用后分组被移除，指标随之注销
+        metrics.tick(now + PER_MINUTE * 62);
+        assertTrue(window(metrics.getSnapshot(), "1h").getGroups().isEmpty(), "闲置分组未移除");
+        assertTrue(registry.find("markglow.ai.call.duration").gauges().isEmpty(), "闲置分组的指标未注销");
+    }
+
+    @Test
+    void groupsUnknownActionsAndModelsAsOther() {
+        metrics.record("beautify", "ernie", "ernie-4.5", 10, 20, 0.001, 100, null, null);
+        metrics.record("no-such-action", "ernie", "no-such-model", 10, 20, 0.001, 100, null, null);
+        metrics.record("improve", "ernie", null, 10, 20, 0.001, 100, null, null);
+        metrics.tick(System.currentTimeMillis() / LiveUsageMetrics.TICK_MS);
+
+        List<String> groups = new ArrayList<>();
+        for (LiveUsageMetrics.LiveStats group : window(metrics.getSnapshot(), "1m").getGroups()) {
+            groups.add(group.getAction() + "|" + group.getModel());
+        }
+        groups.sort(null);
+        assertEquals(Arrays.asList("beautify|ernie-4.5", "improve|other", "other|other"), groups);
+    }
+
+    private static LiveUsageMetrics.LiveWindow window(LiveUsageMetrics.LiveSnapshot snapshot, String name) {
+        for (LiveUsageMetrics.LiveWindow window : snapshot.getWindows()) {
+            if (window.getWindow().equals(name)) {
+                return window;
+            }
+        }
+        throw new IllegalStateException("没有窗口: " + name);
+    }
+
+    private long gauge(String name, String action, String phi) {
+        return (long) registry.get(name).tag("action", action).tag("phi", phi).gauge().value();
+    }
+
+    private static long[] sorted(List<Long> values) {
+        return values.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static void assertPercentile(String action, String name, long actual, long[] sorted, double percentile) {
+        long expected = sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1];
+        assertTrue(Math.abs(actual - expected) <= Math.max(1, expected / 100),
+                () -> name + " 不一致: " + action + " expected=" + expected + ", actual=" + actual);
+    }
+}
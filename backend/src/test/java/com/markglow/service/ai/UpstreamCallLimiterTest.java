@@ -0,0 +1,83 @@
+package com.markglow.service.ai;
+
+import com.markglow.config.AIConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UpstreamCallLimiter：名额用完后按提交顺序排队，释放时交给下一个，排队中的调用可取消
+ */
+class UpstreamCallLimiterTest {
+
+    private UpstreamCallLimiter limiter;
+
+    private final List<Integer> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        AIConfig aiConfig = new AIConfig();
+        aiConfig.getHttp().setMaxPerRoute(2);
+        limiter = new UpstreamCallLimiter();
+        ReflectionTestUtils.setField(limiter, "aiConfig", aiConfig);
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        limiter.init();
+    }
+
+    @Test
+    void queuesBeyondLimitAndStartsInOrder() {
+        for (int i = 0; i < 4; i++) {
+            int id = i;
+            limiter.submit(() -> started.add(id));
+        }
+        assertEquals(Arrays.asList(0, 1), started);
+        assertEquals(2, limiter.getActiveCount());
+        assertEquals(2, limiter.getQueuedCount());
+
+        limiter.release();
+        assertEquals(Arrays.asList(0, 1, 2), started);
+        assertEquals(2, limiter.getActiveCount());
+        assertEquals(1, limiter.getQueuedCount());
+
+        limiter.release();
+        limiter.release();
+        limiter.release();
+        assertEquals(Arrays.asList(0, 1, 2, 3), started);
+        assertEquals(0, limiter.getActiveCount());
+        assertEquals(0, limiter.getQueuedCount());
+    }
+
+    @Test
+    void cancelledCallIsNeverStarted() {
+        limiter.submit(() -> started.add(0));
+        limiter.submit(() -> started.add(1));
+        UpstreamCallLimiter.Call queued = limiter.submit(() -> started.add(2));
+        limiter.submit(() -> started.add(3));
+
+        assertTrue(limiter.cancel(queued));
+        assertFalse(limiter.cancel(queued));
+        limiter.release();
+        assertEquals(Arrays.asList(0, 1, 3), started);
+        assertEquals(2, limiter.getActiveCount());
+    }
+
+    @Test
+    void failedStartReleasesItsPermit() {
+        limiter.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertEquals(0, limiter.getActiveCount());
+        limiter.submit(() -> started.add(1));
+        limiter.submit(() -> started.add(2));
+        assertEquals(Arrays.asList(1, 2), started);
+    }
+}
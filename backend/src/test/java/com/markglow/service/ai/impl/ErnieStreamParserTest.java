@@ -0,0 +1,498 @@
+package com.markglow.service.ai.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ErnieStreamParser 结果比对：录制的千帆 v2 流式响应（src/test/resources/ernie-stream）与固定种子随机生成的响应
+ * 在随机字节位置切分后（会切开 UTF-8 多字节字符、转义序列和 CRLF）分段输入，与原先的 fastjson 实现
+ * （按 \n 切行、JSON.parseObject、buffer.toString().contains 去重）比较内容、回调的增量、usage、错误信息和是否结束。
+ * 随机响应包含各种转义（\" \\ \/ 控制字符、\\uXXXX 及代理对）、无关字段与空白、只有 message 的响应、
+ * 中途的错误、每个 chunk 或最后一个 chunk 的 usage、注释行与 CRLF、没有 [DONE] 的结尾。
+ * 完整 message 只取实际会出现的几种：整段输出、最后几段增量的重复、未输出过的新内容
+ */
+class ErnieStreamParserTest {
+
+    private static final String[] RECORDED = {
+            "stream-usage.sse", "stream-final-message.sse", "stream-message-only.sse",
+            "stream-error.sse", "stream-crlf-no-done.sse", "stream-spaced.sse"
+    };
+
+    private static final String[] FRAGMENTS = {
+            "a", "Z", "9", " ", "  ", "#", "-", "*", "`", "\"", "\\", "/", "{", "}", "[", "]", ":", ",",
+            "\n", "\t", "\r", "\b", "\f", "\u0001", "\u001f", "性能", "优化", "文档", "，", "。", "é",
+            "😀", "🚀", "𠮷", "data: ", "[DONE]", "content", "\"content\":\"x\""
+    };
+
+    private static final int RANDOM_STREAMS = 3000;
+
+    @Test
+    void recordedStreamsMatchLegacyParser() throws IOException {
+        Random random = new Random(20241019L);
+        for (String name : RECORDED) {
+            byte[] stream = load(name);
+            for (int i = 0; i < 50; i++) {
+                compare(name, stream, random);
+            }
+        }
+    }
+
+    @Test
+    void recordedStreamsParseAsExpected() throws IOException {
+        ErnieStreamParser usage = parse(load("stream-usage.sse"));
+        assertTrue(usage.getContent().startsWith("# 性能优化指南\n\n> 引用：\"缓存\"优先\\\\路径"));
+        assertTrue(usage.getContent().contains("emoji 😀 与 文档 🚀 /ok\r\n完毕。"));
+        assertTrue(usage.hasUsage());
+        assertEquals(1024, usage.getPromptTokens());
+        assertEquals(37, usage.getCompletionTokens());
+        assertNull(usage.getErrorMessage());
+
+        assertEquals("Hello, 世界！", parse(load("stream-final-message.sse")).getContent());
+        assertEquals("## 摘要\n\n全文只有一段。", parse(load("stream-message-only.sse")).getContent());
+
+        ErnieStreamParser error = parse(load("stream-error.sse"));
+        assertEquals("错误: Rpm limit exceeded, \"retry\" later", error.getErrorMessage());
+        assertEquals("部分内容", error.getContent());
+        assertTrue(error.isFinished());
+
+        // 逗号、冒号后带空格（如 Python json.dumps 的默认格式）
+        ErnieStreamParser spaced = parse(load("stream-spaced.sse"));
+        assertEquals("## 标题\n正文“引号”与 \"ASCII 引号\"，结束", spaced.getContent());
+        assertEquals(42, spaced.getPromptTokens());
+        assertEquals(11, spaced.getCompletionTokens());
+
+        ErnieStreamParser crlf = parse(load("stream-crlf-no-done.sse"));
+        assertEquals("第一段第二段末段", crlf.getContent());
+        assertEquals(5, crlf.getPromptTokens());
+        assertFalse(crlf.isFinished());
+    }
+
+    @Test
+    void randomStreamsMatchLegacyParser() {
+        Random random = new Random(20241020L);
+        for (int i = 0; i < RANDOM_STREAMS; i++) {
+            byte[] stream = randomStream(random);
+            compare("random #" + i, stream, random);
+        }
+    }
+
+    private static void compare(String name, byte[] stream, Random random) {
+        LegacyParser expected = new LegacyParser();
+        expected.feed(stream);
+        expected.finish();
+
+        List<String> pieces = new ArrayList<>();
+        ErnieStreamParser parser = new ErnieStreamParser(pieces::add);
+        for (int offset = 0; offset < stream.length; ) {
+            int length = Math.min(stream.length - offset,
+                    random.nextInt(10) == 0 ? 1 + random.nextInt(2048) : 1 + random.nextInt(16));
+            feed(parser, stream, offset, length, random);
+            offset += length;
+        }
+        parser.finish();
+
+        String context = name + "\n" + new String(stream, StandardCharsets.UTF_8);
+        assertEquals(expected.errorMessage, parser.getErrorMessage(), () -> "错误信息不一致: " + context);
+        assertEquals(expected.buffer.toString(), parser.getContent(), () -> "内容不一致: " + context);
+        assertEquals(expected.pieces, pieces, () -> "回调的增量不一致: " + context);
+        assertEquals(expected.finished, parser.isFinished(), () -> "结束状态不一致: " + context);
+        if (expected.errorMessage == null) {
+            boolean hasUsage = expected.usage != null && expected.usage.containsKey("prompt_tokens");
+            assertEquals(hasUsage, parser.hasUsage(), () -> "usage 不一致: " + context);
+            if (hasUsage) {
+                assertEquals(expected.usage.getIntValue("prompt_tokens"), parser.getPromptTokens(),
+                        () -> "prompt_tokens 不一致: " + context);
+                assertEquals(expected.usage.getIntValue("completion_tokens"), parser.getCompletionTokens(),
+                        () -> "completion_tokens 不一致: " + context);
+            }
+        }
+    }
+
+    /**
+     * 随机选用异步路径的 ByteBuffer（带偏移的堆缓冲区或直接缓冲区）或同步路径的 byte[] 输入
+     */
+    private static void feed(ErnieStreamParser parser, byte[] stream, int offset, int length, Random random) {
+        switch (random.nextInt(3)) {
+            case 0: {
+                byte[] padded = new byte[length + 8];
+                Arrays.fill(padded, (byte) '\n');
+                System.arraycopy(stream, offset, padded, 4, length);
+                ByteBuffer buffer = ByteBuffer.wrap(padded, 4, length).slice();
+                parser.feed(buffer);
+                assertFalse(buffer.hasRemaining());
+                break;
+            }
+            case 1: {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+                buffer.put(stream, offset, length).flip();
+                parser.feed(buffer);
+                assertFalse(buffer.hasRemaining());
+                break;
+            }
+            default:
+                parser.feed(stream, offset, length);
+                break;
+        }
+    }
+
+    private static ErnieStreamParser parse(byte[] stream) {
+        ErnieStreamParser parser = new ErnieStreamParser(null);
+        parser.feed(stream, 0, stream.length);
+        parser.finish();
+        return parser;
+    }
+
+    private static byte[] load(String name) throws IOException {
+        try (InputStream input = ErnieStreamParserTest.class.getResourceAsStream("/ernie-stream/" + name)) {
+            return StreamUtils.copyToByteArray(input);
+        }
+    }
+
+    // ---------- 随机响应 ----------
+
+    private static byte[] randomStream(Random random) {
+        StringBuilder out = new StringBuilder();
+        StringBuilder emitted = new StringBuilder();
+        List<Integer> boundaries = new ArrayList<>();
+        int usageMode = random.nextInt(3); // 0 无 usage，1 最后一个 chunk，2 每个 chunk
+        boolean messageOnly = random.nextInt(8) == 0;
+        int deltas = messageOnly ? 0 : random.nextInt(random.nextInt(10) == 0 ? 300 : 30);
+        int errorAt = random.nextInt(10) == 0 ? random.nextInt(deltas + 1) : -1;
+        int promptTokens = random.nextInt(5000);
+        int novel = 0;
+
+        for (int i = 0; i <= deltas; i++) {
+            if (i == errorAt) {
+                line(out, random, errorChunk(random));
+                break;
+            }
+            if (random.nextInt(6) == 0) {
+                out.append(random.nextBoolean() ? ": ping" : "event: message").append(eol(random));
+            }
+            List<String> choices = new ArrayList<>();
+            if (i < deltas) {
+                String text = randomText(random, random.nextInt(50) == 0 ? 2000 : 8);
+                choices.add(choice(random, "delta", text));
+                if (!text.isEmpty()) {
+                    boundaries.add(emitted.length());
+                    emitted.append(text);
+                }
+                if (random.nextInt(20) == 0) {
+                    // 少数响应一个 chunk 内有多个 choice
+                    String second = randomText(random, 4);
+                    choices.add(choice(random, "delta", second));
+                    if (!second.isEmpty()) {
+                        boundaries.add(emitted.length());
+                        emitted.append(second);
+                    }
+                }
+            } else {
+                // 最后一个 chunk：完整 message（整段、最后几段增量的重复或新内容）或空增量
+                String message = null;
+                int kind = messageOnly ? 2 : random.nextInt(4);
+                if (kind == 0 && emitted.length() > 0) {
+                    message = emitted.toString();
+                } else if (kind == 1 && !boundaries.isEmpty()) {
+                    message = emitted.substring(boundaries.get(random.nextInt(boundaries.size())));
+                } else if (kind == 2) {
+                    // 〔〕不在随机内容的字符中，新内容不会是已输出内容的一部分
+                    message = "〔" + novel++ + "〕" + randomText(random, 20);
+                }
+                if (message != null) {
+                    choices.add(choice(random, "message", message));
+                } else {
+                    choices.add(choice(random, "delta", ""));
+                }
+            }
+            String usage = usageMode == 2 || (usageMode == 1 && i == deltas)
+                    ? usage(random, promptTokens, emitted.length()) : null;
+            line(out, random, chunk(random, choices, usage));
+        }
+        if (random.nextInt(5) > 0) {
+            line(out, random, random.nextInt(10) == 0 ? "[done]" : "[DONE]");
+            // [DONE] 之后的内容应被忽略
+            line(out, random, chunk(random, Collections.singletonList(choice(random, "delta", "after")), null));
+        }
+        if (random.nextInt(4) == 0) {
+            // 末行没有换行结尾
+            while (out.length() > 0 && (out.charAt(out.length() - 1) == '\n' || out.charAt(out.length() - 1) == '\r')) {
+                out.setLength(out.length() - 1);
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void line(StringBuilder out, Random random, String payload) {
+        String[] prefixes = {"data: ", "data:", "data:  ", " data: "};
+        out.append(prefixes[random.nextInt(prefixes.length)]).append(payload);
+        if (random.nextInt(5) == 0) {
+            out.append(' ');
+        }
+        out.append(eol(random));
+        if (random.nextBoolean()) {
+            out.append(eol(random));
+        }
+    }
+
+    private static String eol(Random random) {
+        return random.nextInt(4) == 0 ? "\r\n" : "\n";
+    }
+
+    private static String chunk(Random random, List<String> choices, String usage) {
+        List<String> members = new ArrayList<>();
+        members.add(member(random, "id", "\"as-" + random.nextInt(100000) + "\""));
+        members.add(member(random, "object", "\"chat.completion.chunk\""));
+        members.add(member(random, "created", String.valueOf(1709716601 + random.nextInt(100))));
+        members.add(member(random, "model", "\"ernie-4.5-turbo-128k\""));
+        members.add(member(random, "choices", array(random, choices)));
+        if (usage != null) {
+            members.add(member(random, "usage", usage));
+        }
+        addNoise(random, members);
+        Collections.shuffle(members, random);
+        return object(random, members);
+    }
+
+    private static String choice(Random random, String field, String text) {
+        List<String> body = new ArrayList<>();
+        body.add(member(random, "role", "\"assistant\""));
+        if (text.isEmpty() && random.nextBoolean()) {
+            body.add(member(random, "content", random.nextBoolean() ? "null" : "\"\""));
+        } else if (!text.isEmpty() || random.nextBoolean()) {
+            body.add(member(random, "content", quote(random, text)));
+        }
+        if (random.nextInt(5) == 0) {
+            body.add(member(random, "reasoning_content", quote(random, randomText(random, 6))));
+        }
+        Collections.shuffle(body, random);
+
+        List<String> members = new ArrayList<>();
+        members.add(member(random, "index", "0"));
+        members.add(member(random, field, object(random, body)));
+        members.add(member(random, "finish_reason", "message".equals(field) ? "\"stop\"" : "null"));
+        members.add(member(random, "flag", "0"));
+        addNoise(random, members);
+        Collections.shuffle(members, random);
+        return object(random, members);
+    }
+
+    private static String usage(Random random, int promptTokens, int completionTokens) {
+        List<String> members = new ArrayList<>();
+        members.add(member(random, "prompt_tokens", String.valueOf(promptTokens)));
+        members.add(member(random, "completion_tokens", String.valueOf(completionTokens)));
+        members.add(member(random, "total_tokens", String.valueOf(promptTokens + completionTokens)));
+        if (random.nextInt(4) == 0) {
+            members.add(member(random, "prompt_tokens_details",
+                    object(random, Collections.singletonList(member(random, "cached_tokens", "0")))));
+        }
+        Collections.shuffle(members, random);
+        return object(random, members);
+    }
+
+    private static String errorChunk(Random random) {
+        List<String> error = new ArrayList<>();
+        error.add(member(random, "code", "\"rate_limit_exceeded\""));
+        if (random.nextInt(5) > 0) {
+            error.add(member(random, "message", quote(random, randomText(random, 10))));
+        }
+        error.add(member(random, "type", "\"rate_limit_error\""));
+        Collections.shuffle(error, random);
+        List<String> members = new ArrayList<>();
+        members.add(member(random, "id", "\"as-" + random.nextInt(100000) + "\""));
+        members.add(member(random, "error", object(random, error)));
+        return object(random, members);
+    }
+
+    /**
+     * 无关字段：嵌套对象/数组中的同名键、含括号的字符串、数字、布尔值与 null，应整体跳过
+     */
+    private static void addNoise(Random random, List<String> members) {
+        if (random.nextInt(3) > 0) {
+            return;
+        }
+        String[] values = {
+                "null", "true", "false", "-12", "1.5e3", "\"}]{[\"",
+                quote(random, randomText(random, 6)),
+                "{\"content\":\"skip\",\"choices\":[{\"delta\":{\"content\":\"skip\"}}]}",
+                "[1,[2,{\"message\":{\"content\":\"skip\"}}],\"]\"]",
+                "{}", "[]"
+        };
+        String[] keys = {"search_info", "is_truncated", "meta", "sentence_id", "error_code", "contents"};
+        members.add(member(random, keys[random.nextInt(keys.length)], values[random.nextInt(values.length)]));
+    }
+
+    private static String member(Random random, String key, String value) {
+        return "\"" + key + "\"" + space(random) + ":" + space(random) + value;
+    }
+
+    private static String object(Random random, List<String> members) {
+        return "{" + space(random) + join(random, members) + space(random) + "}";
+    }
+
+    private static String array(Random random, List<String> values) {
+        return "[" + space(random) + join(random, values) + space(random) + "]";
+    }
+
+    private static String join(Random random, List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(space(random)).append(',').append(space(random));
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static String space(Random random) {
+        int n = random.nextInt(8);
+        return n == 0 ? " " : n == 1 ? "\t " : "";
+    }
+
+    private static String randomText(Random random, int maxFragments) {
+        int fragments = random.nextInt(maxFragments + 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * JSON 字符串：必须转义的字符随机用简写或 \\uXXXX，其余字符随机原样或 \\uXXXX（代理对两半一起转义）
+     */
+    private static String quote(Random random, String text) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int count = Character.charCount(codePoint);
+            char c = text.charAt(i);
+            boolean unicode = random.nextInt(6) == 0;
+            if (unicode) {
+                for (int j = i; j < i + count; j++) {
+                    out.append(String.format(random.nextBoolean() ? "\\u%04x" : "\\u%04X", (int) text.charAt(j)));
+                }
+            } else if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '/' && random.nextBoolean()) {
+                out.append("\\/");
+            } else if (c < 0x20) {
+                switch (c) {
+                    case '\n': out.append("\\n"); break;
+                    case '\t': out.append("\\t"); break;
+                    case '\r': out.append("\\r"); break;
+                    case '\b': out.append("\\b"); break;
+                    case '\f': out.append("\\f"); break;
+                    default: out.append(String.format("\\u%04x", (int) c)); break;
+                }
+            } else {
+                out.appendCodePoint(codePoint);
+            }
+            i += count;
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * 原先异步流式调用中 StreamResponseConsumer 的解析逻辑（fastjson）
+     */
+    private static class LegacyParser {
+        private final StringBuilder buffer = new StringBuilder();
+        private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+        private final List<String> pieces = new ArrayList<>();
+        private String errorMessage;
+        private JSONObject usage;
+        private boolean finished;
+
+        void feed(byte[] data) {
+            for (byte b : data) {
+                if (b == '\n') {
+                    handleLine(new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8));
+                    lineBuffer.reset();
+                } else {
+                    lineBuffer.write(b);
+                }
+            }
+        }
+
+        void finish() {
+            if (lineBuffer.size() > 0) {
+                handleLine(new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8));
+                lineBuffer.reset();
+            }
+        }
+
+        private void handleLine(String line) {
+            if (finished) {
+                return;
+            }
+            line = line.trim();
+            if (line.isEmpty() || !line.startsWith("data:")) {
+                return;
+            }
+            String payload = line.substring(5).trim();
+            if (payload.isEmpty()) {
+                return;
+            }
+            if ("[DONE]".equalsIgnoreCase(payload)) {
+                finished = true;
+                return;
+            }
+            JSONObject chunk = JSON.parseObject(payload);
+            if (chunk.containsKey("error")) {
+                JSONObject error = chunk.getJSONObject("error");
+                errorMessage = "错误: " + error.getString("message");
+                finished = true;
+                return;
+            }
+            JSONObject chunkUsage = chunk.getJSONObject("usage");
+            if (chunkUsage != null) {
+                usage = chunkUsage;
+            }
+            if (!chunk.containsKey("choices")) {
+                return;
+            }
+            for (int i = 0; i < chunk.getJSONArray("choices").size(); i++) {
+                JSONObject choice = chunk.getJSONArray("choices").getJSONObject(i);
+                if (choice == null) {
+                    continue;
+                }
+                JSONObject delta = choice.getJSONObject("delta");
+                if (delta != null) {
+                    String deltaContent = delta.getString("content");
+                    if (deltaContent != null && !deltaContent.isEmpty()) {
+                        buffer.append(deltaContent);
+                        pieces.add(deltaContent);
+                    }
+                }
+                JSONObject messageObj = choice.getJSONObject("message");
+                if (messageObj != null) {
+                    String messageContent = messageObj.getString("content");
+                    if (messageContent != null && !messageContent.isEmpty()
+                            && !buffer.toString().contains(messageContent)) {
+                        buffer.append(messageContent);
+                        pieces.add(messageContent);
+                    }
+                }
+            }
+        }
+    }
+}
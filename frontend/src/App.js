@@ -6,7 +6,7 @@ import Editor from './components/Editor';
 import DocumentList from './components/DocumentList';
 import DocumentView from './components/DocumentView';
 import StatisticsDashboard from './components/StatisticsDashboard';
-import { getDocuments, saveDocument, updateDocument, deleteDocument, searchDocuments } from './services/api';
+import { getDocumentPage, getDocumentById, saveDocument, updateDocument, deleteDocument, searchDocuments, searchDocumentsRanked } from './services/api';
 
 const { Header, Content } = Layout;
 
@@ -15,6 +15,9 @@ function App() {
   const [documents, setDocuments] = useState([]);
   const [selectedDocument, setSelectedDocument] = useState(null);
   const [loading, setLoading] = useState(false);
+  const [nextCursor, setNextCursor] = useState(null);
+  // 全文搜索的分页状态：{ keyword, page, total, hasMore }，浏览列表时为 null
+  const [searchState, setSearchState] = useState(null);
 
   useEffect(() => {
     loadDocuments();
@@ -23,8 +26,10 @@ function App() {
   const loadDocuments = async () => {
     try {
       setLoading(true);
-      const data = await getDocuments();
-      setDocuments(data);
+      const page = await getDocumentPage();
+      setDocuments(page.items);
+      setNextCursor(page.nextCursor);
+      setSearchState(null);
     } catch (error) {
       console.error('加载文档列表失败:', error);
     } finally {
@@ -32,6 +37,55 @@ function App() {
     }
   };
 
+  const loadMoreDocuments = async () => {
+    if (searchState) {
+      await loadMoreSearchResults();
+      return;
+    }
+    if (!nextCursor) return;
+    try {
+      setLoading(true);
+      const page = await getDocumentPage(nextCursor);
+      setDocuments((prev) => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('加载更多文档失败:', error);
+      message.error('加载更多文档失败，请重试');
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  const loadMoreSearchResults = async () => {
+    if (!searchState.hasMore) return;
+    try {
+      setLoading(true);
+      const nextPage = searchState.page + 1;
+      const result = await searchDocumentsRanked(searchState.keyword, nextPage);
+      setDocuments((prev) => [...prev, ...result.items]);
+      setSearchState({ ...searchState, page: nextPage, total: result.total, hasMore: result.hasMore });
+    } catch (error) {
+      console.error('加载更多搜索结果失败:', error);
+      message.error('加载更多搜索结果失败，请重试');
+    } finally {
+      setLoading(false);
+    }
+  };
+
+  // 列表只有摘要，查看或编辑前按需加载正文
+  const loadFullDocument = async (document) => {
+    if (document.originalContent !== undefined || document.beautifiedContent !== undefined) {
+      return document;
+    }
+    try {
+      return await getDocumentById(document.id);
+    } catch (error) {
+      console.error('加载文档失败:', error);
+      message.error('加载文档失败，请重试');
+      return null;
+    }
+  };
+
   const handleSaveDocument = async (documentData) => {
     try {
       if (documentData.id) {
@@ -70,21 +124,44 @@ function App() {
     });
   };
 
-  const handleViewDocument = (document) => {
-    setSelectedDocument(document);
+  const handleViewDocument = async (document) => {
+    const fullDocument = await loadFullDocument(document);
+    if (!fullDocument) return;
+    setSelectedDocument(fullDocument);
     setCurrentView('view');
   };
 
-  const handleEditDocument = (document) => {
-    setSelectedDocument(document);
+  const handleEditDocument = async (document) => {
+    const fullDocument = await loadFullDocument(document);
+    if (!fullDocument) return;
+    setSelectedDocument(fullDocument);
     setCurrentView('editor');
   };
 
   const handleSearch = async (keyword, type = 'all') => {
     try {
       setLoading(true);
+      if (!keyword) {
+        await loadDocuments();
+        return;
+      }
+      setNextCursor(null);
+      if (type === 'all') {
+        try {
+          const result = await searchDocumentsRanked(keyword);
+          setDocuments(result.items);
+          setSearchState({ keyword, page: 0, total: result.total, hasMore: result.hasMore });
+          return;
+        } catch (error) {
+          // 全文索引尚未建立（503）时改用普通搜索
+          if (!error.response || error.response.status !== 503) {
+            throw error;
+          }
+        }
+      }
       const data = await searchDocuments(keyword, type);
       setDocuments(data);
+      setSearchState(null);
     } catch (error) {
       console.error('搜索失败:', error);
       message.error('搜索失败，请重试');
@@ -156,6 +233,9 @@ function App() {
             onView={handleViewDocument}
             onDelete={handleDeleteDocument}
             onRefresh={loadDocuments}
+            hasMore={searchState ? searchState.hasMore : !!nextCursor}
+            resultTotal={searchState ? searchState.total : undefined}
+            onLoadMore={loadMoreDocuments}
             onSearch={handleSearch}
             onEdit={handleEditDocument}
           />
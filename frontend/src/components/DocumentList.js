@@ -1,16 +1,35 @@
-import React, { useMemo, useState, useEffect } from 'react';
-import { List, Input, Select, Card, Button, Space, Tag, Empty, Spin, Typography } from 'antd';
+import React, { useMemo, useState, useEffect, useRef } from 'react';
+import { List, Input, Select, Card, Button, Space, Tag, Empty, Spin, Typography, AutoComplete } from 'antd';
 import { SearchOutlined, ReloadOutlined, DeleteOutlined, CloseOutlined, EditOutlined } from '@ant-design/icons';
+import { getSearchSuggestions } from '../services/api';
 import './DocumentList.css';
 
 const { Paragraph, Text } = Typography;
 
-function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearch, onEdit }) {
+// 按命中位置 [起始, 结束) 把文本拆成普通片段与 <mark> 片段
+const renderHighlighted = (text, ranges) => {
+  if (!text || !ranges || ranges.length === 0) return text;
+  const parts = [];
+  let position = 0;
+  ranges.forEach(([start, end], index) => {
+    if (start > position) parts.push(text.slice(position, start));
+    parts.push(<mark key={index} className="search-highlight">{text.slice(start, end)}</mark>);
+    position = end;
+  });
+  if (position < text.length) parts.push(text.slice(position));
+  return parts;
+};
+
+function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearch, onEdit, hasMore, onLoadMore, resultTotal }) {
   const [searchKeyword, setSearchKeyword] = useState('');
   const [searchType, setSearchType] = useState('all');
   const [pagination, setPagination] = useState({ current: 1, pageSize: 12 });
+  const [suggestions, setSuggestions] = useState([]);
+  const suggestTimer = useRef(null);
+  const suggestSeq = useRef(0);
   useEffect(() => {
-    setPagination((prev) => ({ ...prev, current: 1 }));
+    // 加载更多时保留当前页，重新加载或搜索时回到第一页
+    setPagination((prev) => (documents.length > (prev.current - 1) * prev.pageSize ? prev : { ...prev, current: 1 }));
   }, [documents]);
 
   const paginatedDocuments = useMemo(() => {
@@ -34,14 +53,64 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
     return date.toLocaleString('zh-CN');
   };
 
+  const closeSuggestions = () => {
+    clearTimeout(suggestTimer.current);
+    suggestSeq.current++;
+    setSuggestions([]);
+  };
+
   const handleSearch = () => {
+    closeSuggestions();
     if (onSearch) {
       onSearch(searchKeyword, searchType);
     }
   };
 
+  // 输入时获取建议：停顿150ms后请求，只采用最后一次请求的结果
+  const handleKeywordChange = (value) => {
+    setSearchKeyword(value);
+    clearTimeout(suggestTimer.current);
+    const seq = ++suggestSeq.current;
+    if (!value || !value.trim()) {
+      setSuggestions([]);
+      return;
+    }
+    suggestTimer.current = setTimeout(async () => {
+      try {
+        const data = await getSearchSuggestions(value);
+        if (seq === suggestSeq.current) {
+          setSuggestions(data.map((item) => ({
+            value: item.text,
+            label: (
+              <div style={{ display: 'flex', justifyContent: 'space-between' }}>
+                <span>{item.text}</span>
+                {item.count > 1 && <span style={{ color: '#999' }}>{item.count}</span>}
+              </div>
+            ),
+          })));
+        }
+      } catch (error) {
+        // 索引尚未建立或请求失败时不显示建议
+        if (seq === suggestSeq.current) {
+          setSuggestions([]);
+        }
+      }
+    }, 150);
+  };
+
+  const handleSelectSuggestion = (value) => {
+    setSearchKeyword(value);
+    closeSuggestions();
+    if (onSearch) {
+      onSearch(value, searchType);
+    }
+  };
+
+  useEffect(() => () => clearTimeout(suggestTimer.current), []);
+
   const handleClearSearch = () => {
     setSearchKeyword('');
+    closeSuggestions();
     if (onSearch) {
       onSearch('', searchType);
     }
@@ -62,20 +131,26 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
                 <Select.Option value="all">全部</Select.Option>
                 <Select.Option value="title">标题</Select.Option>
               </Select>
-              <Input
-                placeholder="搜索文档..."
+              <AutoComplete
                 value={searchKeyword}
-                onChange={(e) => setSearchKeyword(e.target.value)}
-                onPressEnter={handleSearch}
+                options={suggestions}
+                onChange={handleKeywordChange}
+                onSelect={handleSelectSuggestion}
+                defaultActiveFirstOption={false}
                 style={{ width: 300 }}
-                prefix={<SearchOutlined />}
-                suffix={searchKeyword && (
-                  <CloseOutlined
-                    onClick={handleClearSearch}
-                    style={{ cursor: 'pointer', color: '#999' }}
-                  />
-                )}
-              />
+              >
+                <Input
+                  placeholder="搜索文档..."
+                  onPressEnter={handleSearch}
+                  prefix={<SearchOutlined />}
+                  suffix={searchKeyword && (
+                    <CloseOutlined
+                      onClick={handleClearSearch}
+                      style={{ cursor: 'pointer', color: '#999' }}
+                    />
+                  )}
+                />
+              </AutoComplete>
               <Button type="primary" icon={<SearchOutlined />} onClick={handleSearch}>
                 搜索
               </Button>
@@ -88,7 +163,7 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
 
         {searchKeyword && (
           <div style={{ marginBottom: 16, color: '#666' }}>
-            找到 <strong>{documents.length}</strong> 个结果，关键词: <strong>"{searchKeyword}"</strong>
+            找到 <strong>{resultTotal !== undefined ? resultTotal : documents.length}</strong> 个结果，关键词: <strong>"{searchKeyword}"</strong>
           </div>
         )}
 
@@ -127,14 +202,16 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
                 onShowSizeChange: handlePageSizeChange,
               }}
               renderItem={(doc) => {
-                const preview = doc.beautifiedContent || doc.originalContent || '无内容';
+                const preview = doc.snippet || doc.beautifiedContent || doc.originalContent || '无内容';
                 return (
                   <List.Item key={doc.id}>
                     <Card
                       hoverable
                       title={
                         <Space>
-                          <Text strong ellipsis style={{ maxWidth: 180 }}>{doc.title || '未命名文档'}</Text>
+                          <Text strong ellipsis style={{ maxWidth: 180 }}>
+                            {doc.title ? renderHighlighted(doc.title, doc.titleHighlights) : '未命名文档'}
+                          </Text>
                           <Tag color="blue">{doc.theme || 'default'}</Tag>
                         </Space>
                       }
@@ -147,7 +224,7 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
                         ellipsis={{ rows: 4, expandable: false }}
                         style={{ color: '#666', marginBottom: 12 }}
                       >
-                        {preview}
+                        {doc.highlights ? renderHighlighted(preview, doc.highlights) : preview}
                       </Paragraph>
                       <div style={{ display: 'flex', justifyContent: 'space-between', alignItems: 'center', color: '#999' }}>
                         <Space size="small">
@@ -175,7 +252,10 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
                             删除
                           </Button>
                         </Space>
-                        <span>更新时间：{doc.updatedAt ? formatDate(doc.updatedAt) : '-'}</span>
+                        <span>
+                          {doc.totalWords != null && `${doc.totalWords} 字 · 约 ${Math.max(1, Math.round(doc.readingTimeMinutes))} 分钟 · `}
+                          更新时间：{doc.updatedAt ? formatDate(doc.updatedAt) : '-'}
+                        </span>
                       </div>
                     </Card>
                   </List.Item>
@@ -183,6 +263,13 @@ function DocumentList({ documents, loading, onView, onDelete, onRefresh, onSearc
               }}
             />
           )}
+          {hasMore && (
+            <div style={{ textAlign: 'center', marginTop: 16 }}>
+              <Button onClick={onLoadMore} loading={loading}>
+                加载更多
+              </Button>
+            </div>
+          )}
         </Spin>
       </Card>
     </div>
@@ -11,7 +11,7 @@ import {
 import Split from 'react-split';
 import ReactMarkdown from 'react-markdown';
 import remarkGfm from 'remark-gfm';
-import { beautifyMarkdown, API_BASE_URL } from '../services/api';
+import { beautifyMarkdown, beautifyDocument, API_BASE_URL } from '../services/api';
 import AISidebar from './AISidebar';
 import AIDropdown from './AIDropdown';
 import FloatingToolbar from './FloatingToolbar';
@@ -141,6 +141,9 @@ function hello() {
       },
       body: JSON.stringify(requestBody)
     }).then(response => {
+      if (response.status === 429) {
+        throw new Error('AI服务繁忙，请稍后重试');
+      }
       if (!response.ok) {
         throw new Error(`HTTP error! status: ${response.status}`);
       }
@@ -239,6 +242,23 @@ function hello() {
                   setStreamAction('');
                   streamResultRef.current = '';
                   return;
+                } else if (currentEvent === 'queued') {
+                  // 排队事件：并发已满，等待空闲名额
+                  try {
+                    const { position } = JSON.parse(currentData);
+                    message.info({ content: `AI请求排队中，前方还有 ${position - 1} 个请求`, key: 'ai-stream-queue' });
+                  } catch (parseError) {
+                    console.warn('解析排队事件失败:', parseError);
+                  }
+                } else if (currentEvent === 'progress') {
+                  // 进度事件：长文档分块处理
+                  try {
+                    const { phase, completed, total } = JSON.parse(currentData);
+                    const text = phase === 'reduce' ? '正在合并各部分摘要' : `长文档分块处理中 ${completed}/${total}`;
+                    message.info({ content: text, key: 'ai-stream-progress' });
+                  } catch (parseError) {
+                    console.warn('解析进度事件失败:', parseError);
+                  }
                 } else if (currentEvent === 'error') {
                   // 错误事件
                   message.error('流式输出失败: ' + currentData);
@@ -351,6 +371,14 @@ function hello() {
 
     setIsBeautifying(true);
     try {
+      if (document?.id) {
+        // 已保存的文档走增量美化，未改动的章节直接复用上次结果
+        const result = await beautifyDocument(document.id, content);
+        setBeautifiedContent(result.beautifiedContent);
+        setContent(result.beautifiedContent);
+        message.success(`美化完成！共 ${result.totalSections} 个章节，复用 ${result.reusedSections + result.cachedSections} 个`);
+        return;
+      }
       const beautified = await beautifyMarkdown(content);
       setBeautifiedContent(beautified);
       setContent(beautified);
@@ -6,7 +6,7 @@ import {
   FileTextOutlined,
   BarChartOutlined 
 } from '@ant-design/icons';
-import { getStatisticsSummary, getUsageRecords } from '../services/api';
+import { getStatisticsSummary, getUsageRecords, subscribeLiveUsage } from '../services/api';
 import './StatisticsDashboard.css';
 
 const { Option } = Select;
@@ -18,6 +18,8 @@ function StatisticsDashboard() {
   const [usageRecords, setUsageRecords] = useState([]);
   const [usagePagination, setUsagePagination] = useState({ current: 1, pageSize: 20, total: 0 });
   const [period, setPeriod] = useState('today');
+  const [liveSnapshot, setLiveSnapshot] = useState(null);
+  const [liveWindow, setLiveWindow] = useState('1m');
 
   useEffect(() => {
     loadSummary();
@@ -39,6 +41,8 @@ function StatisticsDashboard() {
     setUsagePagination((prev) => ({ ...prev, current: 1 }));
   }, [period]);
 
+  useEffect(() => subscribeLiveUsage(setLiveSnapshot), []);
+
   const loadSummary = async () => {
     try {
       setSummaryLoading(true);
@@ -158,8 +162,87 @@ function StatisticsDashboard() {
       align: 'right',
       render: (val) => val ? val.toLocaleString() : 0,
     },
+    {
+      title: '首Token（ms）',
+      dataIndex: 'firstTokenLatency',
+      key: 'firstTokenLatency',
+      align: 'right',
+      render: (val) => val != null ? val.toLocaleString() : '-',
+    },
+    {
+      title: '输出速度（tokens/s）',
+      dataIndex: 'tokensPerSecond',
+      key: 'tokensPerSecond',
+      align: 'right',
+      render: (val) => val != null ? Number(val).toFixed(1) : '-',
+    },
   ];
 
+  const liveColumns = [
+    {
+      title: '操作类型',
+      dataIndex: 'action',
+      key: 'action',
+      render: (text) => <Tag color="blue">{text}</Tag>,
+    },
+    {
+      title: '服务商',
+      dataIndex: 'provider',
+      key: 'provider',
+      render: (text) => (
+        <Tag color={text === 'ernie' ? 'green' : 'orange'}>
+          {text === 'ernie' ? '文心一言' : '通义千问'}
+        </Tag>
+      ),
+    },
+    {
+      title: '模型',
+      dataIndex: 'model',
+      key: 'model',
+      render: (val) => val || '-',
+    },
+    {
+      title: '调用次数',
+      dataIndex: 'calls',
+      key: 'calls',
+      align: 'right',
+    },
+    {
+      title: '总Token',
+      key: 'totalTokens',
+      align: 'right',
+      render: (_, record) => (record.inputTokens + record.outputTokens).toLocaleString(),
+    },
+    {
+      title: '成本（元）',
+      dataIndex: 'cost',
+      key: 'cost',
+      align: 'right',
+      render: (val) => Number(val).toFixed(4),
+    },
+    {
+      title: '耗时 p50/p90/p99（ms）',
+      key: 'durations',
+      align: 'right',
+      render: (_, record) => `${record.p50Duration} / ${record.p90Duration} / ${record.p99Duration}`,
+    },
+    {
+      title: '首Token p50/p90/p99（ms）',
+      key: 'firstTokenLatencies',
+      align: 'right',
+      render: (_, record) => `${record.p50FirstTokenLatency} / ${record.p90FirstTokenLatency} / ${record.p99FirstTokenLatency}`,
+    },
+    {
+      title: '输出速度 p50/p90/p99（tokens/s）',
+      key: 'tokensPerSecond',
+      align: 'right',
+      render: (_, record) => `${record.p50TokensPerSecond} / ${record.p90TokensPerSecond} / ${record.p99TokensPerSecond}`,
+    },
+  ];
+
+  const currentLiveWindow = liveSnapshot
+    && liveSnapshot.windows.find((window) => window.window === liveWindow);
+
   const handleUsageTableChange = (pagination) => {
     setUsagePagination((prev) => ({
       ...prev,
@@ -288,6 +371,54 @@ function StatisticsDashboard() {
         )}
       </Card>
 
+      <Card
+        title="实时用量"
+        style={{ marginTop: 16 }}
+        extra={
+          <Select
+            value={liveWindow}
+            onChange={setLiveWindow}
+            style={{ width: 120 }}
+          >
+            <Option value="1m">最近1分钟</Option>
+            <Option value="5m">最近5分钟</Option>
+            <Option value="1h">最近1小时</Option>
+          </Select>
+        }
+      >
+        {currentLiveWindow ? (
+          <>
+            <Row gutter={[16, 16]} style={{ marginBottom: 16 }}>
+              <Col xs={12} md={6}>
+                <Statistic title="调用次数" value={currentLiveWindow.total.calls} />
+              </Col>
+              <Col xs={12} md={6}>
+                <Statistic
+                  title="总Token数"
+                  value={currentLiveWindow.total.inputTokens + currentLiveWindow.total.outputTokens}
+                  formatter={(value) => value.toLocaleString()}
+                />
+              </Col>
+              <Col xs={12} md={6}>
+                <Statistic title="成本" value={currentLiveWindow.total.cost} suffix="元" precision={4} />
+              </Col>
+              <Col xs={12} md={6}>
+                <Statistic title="p99耗时" value={currentLiveWindow.total.p99Duration} suffix="ms" />
+              </Col>
+            </Row>
+            <Table
+              columns={liveColumns}
+              dataSource={currentLiveWindow.groups}
+              rowKey={(record) => `${record.action}-${record.provider}-${record.model}`}
+              pagination={false}
+              size="small"
+            />
+          </>
+        ) : (
+          <span>暂无数据</span>
+        )}
+      </Card>
+
       <Card 
         title="使用统计详情" 
         style={{ marginTop: 16 }}
@@ -28,6 +28,14 @@ export const getDocuments = async () => {
   return response.data;
 };
 
+// 分页获取文档摘要（不含正文），cursor 为上一页返回的 nextCursor
+export const getDocumentPage = async (cursor, size = 48) => {
+  const response = await api.get('/documents/page', {
+    params: { cursor, size }
+  });
+  return response.data;
+};
+
 export const searchDocuments = async (keyword, type = 'all') => {
   const response = await api.get('/documents/search', {
     params: { keyword, type }
@@ -35,6 +43,22 @@ export const searchDocuments = async (keyword, type = 'all') => {
   return response.data;
 };
 
+// 搜索建议：以 prefix 开头的文档标题和小标题（服务端内存前缀树，不查询数据库）
+export const getSearchSuggestions = async (prefix, limit = 8) => {
+  const response = await api.get('/documents/suggest', {
+    params: { prefix, limit }
+  });
+  return response.data;
+};
+
+// 全文搜索（按相关度排序、分页），返回命中附近的片段及命中位置；索引尚未建立时返回 503
+export const searchDocumentsRanked = async (keyword, page = 0, size = 48) => {
+  const response = await api.get('/documents/search/ranked', {
+    params: { keyword, page, size }
+  });
+  return response.data;
+};
+
 export const getDocumentById = async (id) => {
   const response = await api.get(`/documents/${id}`);
   return response.data;
@@ -60,6 +84,12 @@ export const beautifyMarkdown = async (content) => {
   return response.data.beautifiedContent;
 };
 
+// 增量美化已保存的文档：仅重新美化有改动的章节
+export const beautifyDocument = async (id, content) => {
+  const response = await api.post(`/documents/${id}/beautify`, { content });
+  return response.data;
+};
+
 // AI功能API
 export const aiGenerate = async (title, context, options = {}) => {
   const response = await api.post('/ai/generate', appendModelParams({ title, context }, options));
@@ -209,4 +239,22 @@ export const getCostStatistics = async (start, end) => {
   return response.data;
 };
 
+export const getLiveUsage = async () => {
+  const response = await api.get('/statistics/live');
+  return response.data;
+};
+
+// 订阅实时用量快照（服务端每5秒推送一次），返回取消订阅的函数
+export const subscribeLiveUsage = (onSnapshot) => {
+  const source = new EventSource(`${API_BASE_URL}/statistics/live/stream`);
+  source.addEventListener('usage', (event) => {
+    try {
+      onSnapshot(JSON.parse(event.data));
+    } catch (error) {
+      console.error('解析实时用量失败:', error);
+    }
+  });
+  return () => source.close();
+};
+
 